@@ -16,8 +16,6 @@
 // Modified by giaplam569145-sudo, 2024: Refactored for JDA 5.x compatibility.
 package com.jagrosh.jmusicbot;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
 import com.jagrosh.jmusicbot.audio.AloneInVoiceHandler;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
@@ -25,6 +23,8 @@ import com.jagrosh.jmusicbot.audio.NowplayingHandler;
 import com.jagrosh.jmusicbot.audio.PlayerManager;
 import com.jagrosh.jmusicbot.gui.GUI;
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
 import java.util.Objects;
 import net.dv8tion.jda.api.JDA;
@@ -41,7 +41,7 @@ import net.dv8tion.jda.api.entities.Guild;
 public class Bot
 {
     private final EventWaiter waiter;
-    private final ScheduledExecutorService threadpool;
+    private final Scheduler scheduler;
     private final BotConfig config;
     private final SettingsManager settings;
     private final PlayerManager players;
@@ -65,8 +65,8 @@ public class Bot
         this.waiter = waiter;
         this.config = config;
         this.settings = settings;
-        this.playlists = new PlaylistLoader(config);
-        this.threadpool = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler = new Scheduler(config::getSchedulerThreads);
+        this.playlists = new PlaylistLoader(config, scheduler);
         this.players = new PlayerManager(this);
         this.players.init();
         this.nowplaying = new NowplayingHandler(this);
@@ -106,13 +106,13 @@ public class Bot
     }
     
     /**
-     * Gets the scheduled executor service.
+     * Gets the scheduler that runs background jobs.
      *
-     * @return The {@link ScheduledExecutorService} for background tasks.
+     * @return The {@link Scheduler} for background jobs.
      */
-    public ScheduledExecutorService getThreadpool()
+    public Scheduler getScheduler()
     {
-        return threadpool;
+        return scheduler;
     }
     
     /**
@@ -174,7 +174,7 @@ public class Bot
     {
         Guild guild = jda.getGuildById(guildId);
         if(guild!=null)
-            threadpool.submit(() -> guild.getAudioManager().closeAudioConnection());
+            scheduler.submit(JobClass.VOICE, "close-audio-connection", () -> guild.getAudioManager().closeAudioConnection());
     }
     
     /**
@@ -195,7 +195,7 @@ public class Bot
         if(shuttingDown)
             return;
         shuttingDown = true;
-        threadpool.shutdownNow();
+        scheduler.shutdownNow();
         if(jda.getStatus()!=JDA.Status.SHUTTING_DOWN)
         {
             jda.getGuilds().stream().forEach(g -> 
@@ -205,11 +205,14 @@ public class Bot
                 if(ah!=null)
                 {
                     ah.stopAndClear();
-                    ah.getPlayer().destroy();
+                    ah.destroy();
                 }
             });
             jda.shutdown();
         }
+        players.shutdown();
+        settings.shutdown();
+        playlists.shutdown();
         if(gui!=null)
             gui.dispose();
         System.exit(0);
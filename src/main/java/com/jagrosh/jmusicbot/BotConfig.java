@@ -16,6 +16,8 @@
 package com.jagrosh.jmusicbot;
 
 import com.jagrosh.jmusicbot.entities.Prompt;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.settings.SettingsStorage;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.jagrosh.jmusicbot.utils.TimeUtil;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
@@ -43,13 +45,15 @@ public class BotConfig
     private String token, prefix, altprefix, helpWord, playlistsFolder, logLevel,
             successEmoji, warningEmoji, errorEmoji, loadingEmoji, searchingEmoji,
             evalEngine;
-    private boolean stayInChannel, songInGame, npImages, updatealerts, useEval, dbots;
-    private long owner, maxSeconds, aloneTimeUntilStop;
-    private int maxYTPlaylistPages;
+    private boolean stayInChannel, songInGame, npImages, updatealerts, useEval, dbots, reuseFrames;
+    private long owner, maxSeconds, aloneTimeUntilStop, prefetchSeconds, playlistCacheHours,
+            searchCacheMinutes, searchCacheDisk, audioCache;
+    private int maxYTPlaylistPages, playlistParallelism, searchCacheSize;
     private double skipratio;
     private OnlineStatus status;
+    private SettingsStorage settingsStorage;
     private Activity game;
-    private Config aliases, transforms;
+    private Config aliases, transforms, schedulerThreads;
 
     private boolean valid = false;
     
@@ -107,6 +111,16 @@ public class BotConfig
             aliases = config.getConfig("aliases");
             transforms = config.getConfig("transforms");
             skipratio = config.getDouble("skipratio");
+            reuseFrames = config.getBoolean("reuseframes");
+            prefetchSeconds = config.getLong("prefetchseconds");
+            playlistParallelism = config.getInt("playlistparallelism");
+            playlistCacheHours = config.getLong("playlistcachehours");
+            searchCacheSize = config.getInt("searchcachesize");
+            searchCacheMinutes = config.getLong("searchcacheminutes");
+            searchCacheDisk = config.getLong("searchcachedisk");
+            audioCache = config.getLong("audiocache");
+            settingsStorage = SettingsStorage.fromName(config.getString("settingsstorage"));
+            schedulerThreads = config.getConfig("schedulerthreads");
             dbots = owner == 113156185389092864L;
             
             // we may need to write a new config file
@@ -515,6 +529,111 @@ public class BotConfig
         return aloneTimeUntilStop;
     }
     
+    /**
+     * Checks if audio frames should be written into a reusable buffer instead of
+     * being allocated for every 20ms of audio.
+     *
+     * @return True if frames are reused.
+     */
+    public boolean useReusableFrames()
+    {
+        return reuseFrames;
+    }
+    
+    /**
+     * Gets how long before the end of a track the next track in the queue starts
+     * loading, so it can start without a gap.
+     *
+     * @return The time in seconds, or 0 or less to not prefetch tracks.
+     */
+    public long getPrefetchSeconds()
+    {
+        return prefetchSeconds;
+    }
+    
+    /**
+     * Gets how many entries of a playlist are loaded at the same time.
+     *
+     * @return The number of entries, at least 1.
+     */
+    public int getPlaylistParallelism()
+    {
+        return Math.max(1, playlistParallelism);
+    }
+    
+    /**
+     * Gets how long what the entries of local playlists resolve to is used before it is
+     * loaded again.
+     *
+     * @return The time in hours, or 0 or less to not cache playlist entries.
+     */
+    public long getPlaylistCacheHours()
+    {
+        return playlistCacheHours;
+    }
+    
+    /**
+     * Gets how many searches the results of are kept in memory.
+     *
+     * @return The number of searches, or 0 or less to not cache searches.
+     */
+    public int getSearchCacheSize()
+    {
+        return searchCacheSize;
+    }
+    
+    /**
+     * Gets how long the results of a search are used before searching again.
+     *
+     * @return The time in minutes.
+     */
+    public long getSearchCacheMinutes()
+    {
+        return searchCacheMinutes;
+    }
+    
+    /**
+     * Gets how much of the search cache may also be kept on disk.
+     *
+     * @return The size in megabytes, or 0 or less to only keep searches in memory.
+     */
+    public long getSearchCacheDisk()
+    {
+        return searchCacheDisk;
+    }
+    
+    /**
+     * Gets how much audio is kept to play tracks again without downloading them.
+     *
+     * @return The size in megabytes, at most 2047, or 0 or less to not keep any audio.
+     */
+    public long getAudioCache()
+    {
+        return Math.min(audioCache, 2047);
+    }
+    
+    /**
+     * Gets the way guild settings are stored.
+     *
+     * @return The {@link SettingsStorage}.
+     */
+    public SettingsStorage getSettingsStorage()
+    {
+        return settingsStorage;
+    }
+    
+    /**
+     * Gets the number of threads to run a kind of background job on.
+     *
+     * @param jobClass The kind of background job.
+     * @return The number of threads.
+     */
+    public int getSchedulerThreads(JobClass jobClass)
+    {
+        return schedulerThreads.hasPath(jobClass.getConfigName())
+                ? schedulerThreads.getInt(jobClass.getConfigName()) : jobClass.getDefaultThreads();
+    }
+    
     /**
      * Checks if a track is too long.
      *
@@ -16,6 +16,8 @@
 // Modified by giaplam569145-sudo, 2024: Adapted for JDA 5.x event system.
 package com.jagrosh.jmusicbot;
 
+import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.api.JDA;
@@ -25,6 +27,7 @@ import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.events.session.ShutdownEvent;
 import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.voice.GuildVoiceDeafenEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -82,7 +85,7 @@ public class Listener extends ListenerAdapter
         });
         if(bot.getConfig().useUpdateAlerts())
         {
-            bot.getThreadpool().scheduleWithFixedDelay(() -> 
+            bot.getScheduler().scheduleWithFixedDelay(JobClass.BACKGROUND, "update-alert", () -> 
             {
                 try
                 {
@@ -121,7 +124,24 @@ public class Listener extends ListenerAdapter
     @Override
     public void onGuildVoiceUpdate(@NotNull GuildVoiceUpdateEvent event)
     {
-        bot.getAloneInVoiceHandler().onVoiceUpdate(event);
+        AudioHandler handler = (AudioHandler) event.getGuild().getAudioManager().getSendingHandler();
+        if(handler != null)
+            handler.getListenerTracker().onVoiceUpdate(event);
+        bot.getAloneInVoiceHandler().onVoiceStateChange(event.getGuild());
+    }
+
+    /**
+     * Handles the {@link GuildVoiceDeafenEvent}, which is fired when a member is deafened or undeafened.
+     *
+     * @param event The guild voice deafen event.
+     */
+    @Override
+    public void onGuildVoiceDeafen(@NotNull GuildVoiceDeafenEvent event)
+    {
+        AudioHandler handler = (AudioHandler) event.getGuild().getAudioManager().getSendingHandler();
+        if(handler != null)
+            handler.getListenerTracker().onDeafen(event);
+        bot.getAloneInVoiceHandler().onVoiceStateChange(event.getGuild());
     }
 
     /**
@@ -16,26 +16,25 @@
 package com.jagrosh.jmusicbot.audio;
 
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.TimerWheel;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Handles the bot's behavior when it is left alone in a voice channel.
  * This class will automatically stop playback and leave the channel after a configurable amount of time.
+ * When the bot is left alone a timeout is started, and it is cancelled when someone rejoins.
  *
  * @author Michaili K (mysteriouscursor+git@protonmail.com)
  */
 public class AloneInVoiceHandler
 {
     private final Bot bot;
-    private final HashMap<Long, Instant> aloneSince = new HashMap<>();
+    private final Map<Long, TimerWheel.Timeout> aloneTimeouts = new ConcurrentHashMap<>();
     private long aloneTimeUntilStop = 0;
 
     /**
@@ -49,66 +48,67 @@ public class AloneInVoiceHandler
     }
     
     /**
-     * Initializes the handler, starting the scheduled check if the feature is enabled.
+     * Initializes the handler, reading how long the bot may stay alone before it leaves.
      */
     public void init()
     {
         aloneTimeUntilStop = bot.getConfig().getAloneTimeUntilStop();
-        if(aloneTimeUntilStop > 0)
-            bot.getThreadpool().scheduleWithFixedDelay(() -> check(), 0, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Gets the number of guilds in which the bot is waiting alone to leave.
+     *
+     * @return The number of pending alone timeouts.
+     */
+    public int getAloneCount()
+    {
+        return aloneTimeouts.size();
     }
     
-    private void check()
+    private void stop(long guildId)
     {
-        Set<Long> toRemove = new HashSet<>();
-        for(Map.Entry<Long, Instant> entrySet: aloneSince.entrySet())
-        {
-            if(entrySet.getValue().getEpochSecond() > Instant.now().getEpochSecond() - aloneTimeUntilStop) continue;
+        // a newer timeout for the guild, started after someone rejoined and left again, is left alone
+        TimerWheel.Timeout timeout = aloneTimeouts.get(guildId);
+        if(timeout == null || !timeout.isExpired() || !aloneTimeouts.remove(guildId, timeout))
+            return;
 
-            Guild guild = bot.getJDA().getGuildById(entrySet.getKey());
+        Guild guild = bot.getJDA().getGuildById(guildId);
+        // someone may have rejoined just as the timeout ran
+        if(guild == null || !isAlone(guild))
+            return;
 
-            if(guild == null)
-            {
-                toRemove.add(entrySet.getKey());
-                continue;
-            }
-
-            ((AudioHandler) guild.getAudioManager().getSendingHandler()).stopAndClear();
-            guild.getAudioManager().closeAudioConnection();
-
-            toRemove.add(entrySet.getKey());
-        }
-        toRemove.forEach(id -> aloneSince.remove(id));
+        ((AudioHandler) guild.getAudioManager().getSendingHandler()).stopAndClear();
+        guild.getAudioManager().closeAudioConnection();
     }
 
     /**
-     * Handles a {@link GuildVoiceUpdateEvent}.
+     * Called when someone joins, leaves or (un)deafens in a guild's voice channels.
      * This is used to detect when the bot is left alone in a voice channel.
      *
-     * @param event The guild voice update event.
+     * @param guild The guild whose voice states changed.
      */
-    public void onVoiceUpdate(GuildVoiceUpdateEvent event)
+    public void onVoiceStateChange(Guild guild)
     {
         if(aloneTimeUntilStop <= 0) return;
 
-        Guild guild = event.getEntity().getGuild();
         if(!bot.getPlayerManager().hasHandler(guild)) return;
 
-        boolean alone = isAlone(guild);
-        boolean inList = aloneSince.containsKey(guild.getIdLong());
-
-        if(!alone && inList)
-            aloneSince.remove(guild.getIdLong());
-        else if(alone && !inList)
-            aloneSince.put(guild.getIdLong(), Instant.now());
+        long guildId = guild.getIdLong();
+        if(isAlone(guild))
+            aloneTimeouts.computeIfAbsent(guildId, id -> bot.getScheduler().newTimeout(JobClass.VOICE, "alone-in-voice-stop",
+                    () -> stop(id), aloneTimeUntilStop, TimeUnit.SECONDS));
+        else
+        {
+            TimerWheel.Timeout timeout = aloneTimeouts.remove(guildId);
+            if(timeout != null)
+                timeout.cancel();
+        }
     }
 
     private boolean isAlone(Guild guild)
     {
         if(guild.getAudioManager().getConnectedChannel() == null) return false;
-        return guild.getAudioManager().getConnectedChannel().getMembers().stream()
-                .noneMatch(x ->
-                        !x.getVoiceState().isDeafened()
-                        && !x.getUser().isBot());
+        AudioHandler handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
+        return handler != null && handler.getListenerTracker().getListenerCount(guild.getAudioManager().getConnectedChannel()) == 0;
     }
 }
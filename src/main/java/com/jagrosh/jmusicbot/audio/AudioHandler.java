@@ -17,6 +17,7 @@ package com.jagrosh.jmusicbot.audio;
 
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader.Playlist;
 import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.entities.Pair;
 import com.jagrosh.jmusicbot.settings.QueueType;
 import com.jagrosh.jmusicbot.utils.TimeUtil;
 import com.jagrosh.jmusicbot.settings.RepeatMode;
@@ -26,14 +27,18 @@ import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
 import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
-import java.util.HashSet;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameProvider;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
 import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioTrack;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
@@ -47,6 +52,11 @@ import org.slf4j.LoggerFactory;
 /**
  * The core audio handling class for a guild.
  * This class manages the audio player, track queue, and event handling.
+ * <p>
+ * A little before the current track ends, the first track of the queue starts loading,
+ * paused, on a second player. When the current track ends and that track is still
+ * first in the queue, the two players swap, so the next track starts from frames that
+ * are already decoded. Events from the player that is not playing are ignored.
  *
  * @author John Grosh <john.a.grosh@gmail.com>
  */
@@ -58,20 +68,33 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
 
 
     private final List<AudioTrack> defaultQueue = new LinkedList<>();
-    private final Set<String> votes = new HashSet<>();
+    private final ListenerTracker listeners;
     
     private final PlayerManager manager;
-    private final AudioPlayer audioPlayer;
+    private volatile AudioPlayer audioPlayer;
     private final long guildId;
     
-    private AudioFrame lastFrame;
+    private final OpusFrameSender sender;
+    private final OpusRecorder recorder; // null if tracks are not cached
     private AbstractQueue<QueuedTrack> queue;
 
+    private final TrackPrefetcher prefetcher;
+    // when the last track finished, until the first frame of the next one is sent
+    private volatile long trackEndedAt = 0;
+    private volatile boolean handedOver = false;
+
     protected AudioHandler(PlayerManager manager, Guild guild, AudioPlayer player)
     {
         this.manager = manager;
         this.audioPlayer = player;
         this.guildId = guild.getIdLong();
+        this.sender = new OpusFrameSender(new PlayingFrames(), manager.getBot().getConfig().useReusableFrames(), manager.getFrameStats());
+        this.listeners = new ListenerTracker(() -> audioPlayer.stopTrack());
+        this.recorder = manager.getSegmentCache() == null ? null
+                : new OpusRecorder(manager.getSegmentCache(), manager.getBot().getScheduler());
+        this.prefetcher = new TrackPrefetcher(manager.getBot().getScheduler(),
+                TimeUnit.SECONDS.toMillis(manager.getBot().getConfig().getPrefetchSeconds()),
+                this::createPrefetchPlayer, this::nextToPrefetch);
 
         this.setQueueType(manager.getBot().getSettingsManager().getSettings(guildId).getQueueType());
     }
@@ -123,6 +146,28 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
             return queue.add(qtrack);
     }
     
+    /**
+     * Adds several tracks to the queue in one batch. If nothing is playing,
+     * the first track starts playing and the rest are queued.
+     *
+     * @param qtracks The {@link QueuedTrack}s to add, in order.
+     * @return The position of the first track in the queue, or -1 if it was played immediately or there were no tracks.
+     */
+    public int addTracks(Collection<QueuedTrack> qtracks)
+    {
+        if(qtracks.isEmpty())
+            return -1;
+        if(audioPlayer.getPlayingTrack()==null)
+        {
+            List<QueuedTrack> rest = new ArrayList<>(qtracks);
+            audioPlayer.playTrack(rest.remove(0).getTrack());
+            queue.addAll(rest);
+            return -1;
+        }
+        else
+            return queue.addAll(qtracks);
+    }
+    
     /**
      * Gets the current track queue.
      *
@@ -140,9 +185,19 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     {
         queue.clear();
         defaultQueue.clear();
+        prefetcher.cancel();
         audioPlayer.stopTrack();
         //current = null;
     }
+
+    /**
+     * Destroys the players of this handler, for when the bot shuts down.
+     */
+    public void destroy()
+    {
+        prefetcher.destroy();
+        audioPlayer.destroy();
+    }
     
     /**
      * Checks if music is currently playing.
@@ -156,13 +211,14 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     }
     
     /**
-     * Gets the set of user IDs who have voted to skip the current track.
+     * Gets the tracker of the listeners in the bot's voice channel, which also holds the
+     * votes to skip the current track.
      *
-     * @return The set of voter IDs.
+     * @return The {@link ListenerTracker}.
      */
-    public Set<String> getVotes()
+    public ListenerTracker getListenerTracker()
     {
-        return votes;
+        return listeners;
     }
     
     /**
@@ -207,8 +263,9 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         Playlist pl = manager.getBot().getPlaylistLoader().getPlaylist(settings.getDefaultPlaylist());
         if(pl==null || pl.getItems().isEmpty())
             return false;
-        pl.loadTracks(manager, (at) -> 
+        pl.loadTracks(manager, (loaded) -> 
         {
+            AudioTrack at = manager.replayOf(loaded);
             if(audioPlayer.getPlayingTrack()==null)
                 audioPlayer.playTrack(at);
             else
@@ -221,15 +278,87 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         return true;
     }
     
+    // Prefetching
+    private AudioPlayer createPrefetchPlayer()
+    {
+        AudioPlayer player = manager.createPlayer();
+        player.addListener(this);
+        return player;
+    }
+
+    private QueuedTrack nextToPrefetch()
+    {
+        if(manager.getBot().getSettingsManager().getSettings(guildId).getRepeatMode() == RepeatMode.SINGLE || queue.isEmpty())
+            return null;
+        return queue.get(0);
+    }
+
+    /**
+     * Starts the prefetched track in place of the track that just ended, if it is
+     * still the first track of the queue.
+     *
+     * @param ended The player whose track ended.
+     * @return True if the prefetched track was started.
+     */
+    private boolean handOver(AudioPlayer ended)
+    {
+        Pair<AudioPlayer,AudioTrack> next = prefetcher.handOver(ended, queue);
+        if(next == null)
+            return false;
+        audioPlayer = next.getKey();
+        handedOver = true;
+        audioPlayer.setVolume(ended.getVolume());
+        // the start event was ignored while the track was being prefetched
+        onTrackStart(audioPlayer, next.getValue());
+        audioPlayer.setPaused(ended.isPaused());
+        ended.setPaused(false);
+        return true;
+    }
+
+    /**
+     * Gives the send thread the frames of whichever player is playing.
+     */
+    private class PlayingFrames implements AudioFrameProvider
+    {
+        @Override
+        public AudioFrame provide()
+        {
+            return audioPlayer.provide();
+        }
+
+        @Override
+        public AudioFrame provide(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException
+        {
+            return audioPlayer.provide(timeout, unit);
+        }
+
+        @Override
+        public boolean provide(MutableAudioFrame targetFrame)
+        {
+            return audioPlayer.provide(targetFrame);
+        }
+
+        @Override
+        public boolean provide(MutableAudioFrame targetFrame, long timeout, TimeUnit unit) throws TimeoutException, InterruptedException
+        {
+            return audioPlayer.provide(targetFrame, timeout, unit);
+        }
+    }
+    
     // Audio Events
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) 
     {
+        // the prefetch player's track was replaced, or failed or was cleaned up before it was needed
+        if(player != audioPlayer)
+            return;
+        if(recorder != null)
+            recorder.trackEnded(track, endReason);
         RepeatMode repeatMode = manager.getBot().getSettingsManager().getSettings(guildId).getRepeatMode();
         // if the track ended normally, and we're in repeat mode, re-add it to the queue
         if(endReason==AudioTrackEndReason.FINISHED && repeatMode != RepeatMode.OFF)
         {
-            QueuedTrack clone = new QueuedTrack(track.makeClone(), track.getUserData(RequestMetadata.class));
+            QueuedTrack clone = new QueuedTrack(manager.replayOf(track.makeClone()), track.getUserData(RequestMetadata.class));
             if(repeatMode == RepeatMode.ALL)
                 queue.add(clone);
             else
@@ -238,9 +367,11 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         
         if(queue.isEmpty())
         {
+            prefetcher.cancel();
             if(!playFromDefault())
             {
                 manager.getBot().getNowplayingHandler().onTrackUpdate(null);
+                manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
                 if(!manager.getBot().getConfig().getStay())
                     manager.getBot().closeAudioConnection(guildId);
                 // unpause, in the case when the player was paused and the track has been skipped.
@@ -250,8 +381,14 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         }
         else
         {
-            QueuedTrack qt = queue.pull();
-            player.playTrack(qt.getTrack());
+            if(endReason == AudioTrackEndReason.FINISHED)
+                trackEndedAt = System.nanoTime();
+            if(!handOver(player))
+            {
+                handedOver = false;
+                QueuedTrack qt = queue.pull();
+                player.playTrack(qt.getTrack());
+            }
         }
     }
 
@@ -263,8 +400,28 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public void onTrackStart(AudioPlayer player, AudioTrack track) 
     {
-        votes.clear();
+        if(player != audioPlayer)
+            return;
+        listeners.clearVotes();
         manager.getBot().getNowplayingHandler().onTrackUpdate(track);
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
+        prefetcher.schedule(player, track);
+    }
+
+    @Override
+    public void onPlayerPause(AudioPlayer player)
+    {
+        if(player != audioPlayer)
+            return;
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
+    }
+
+    @Override
+    public void onPlayerResume(AudioPlayer player)
+    {
+        if(player != audioPlayer)
+            return;
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
     }
 
     
@@ -305,7 +462,8 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
                 eb.setTitle(track.getInfo().title);
             }
 
-            if(track instanceof YoutubeAudioTrack && manager.getBot().getConfig().useNPImages())
+            AudioTrack source = track instanceof CachedOpusTrack ? ((CachedOpusTrack) track).getSource() : track;
+            if(source instanceof YoutubeAudioTrack && manager.getBot().getConfig().useNPImages())
             {
                 eb.setThumbnail("https://img.youtube.com/vi/"+track.getIdentifier()+"/mqdefault.jpg");
             }
@@ -324,6 +482,25 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         else return null;
     }
 
+    /**
+     * Gets a short string that changes whenever the visible parts of the "now playing"
+     * message change: the track, the paused state, the position of the progress bar and
+     * the volume icon. The time next to the progress bar is left out, since it changes
+     * every second.
+     *
+     * @param jda The JDA instance.
+     * @return The fingerprint of the current "now playing" or "no music playing" message.
+     */
+    public String getNowPlayingFingerprint(JDA jda)
+    {
+        String volume = FormatUtil.volumeIcon(audioPlayer.getVolume());
+        if(!isMusicPlaying(jda))
+            return "none " + volume;
+        AudioTrack track = audioPlayer.getPlayingTrack();
+        int position = FormatUtil.progressBarPosition((double)track.getPosition()/track.getDuration());
+        return track.getIdentifier() + " " + audioPlayer.isPaused() + " " + position + " " + volume;
+    }
+
     /**
      * Gets a message indicating that no music is playing.
      *
@@ -377,14 +554,24 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public boolean canProvide() 
     {
-        lastFrame = audioPlayer.provide();
-        return lastFrame != null;
+        if(!sender.canProvide())
+            return false;
+        long ended = trackEndedAt;
+        if(ended != 0)
+        {
+            trackEndedAt = 0;
+            manager.getGapStats().record(System.nanoTime() - ended, handedOver);
+        }
+        return true;
     }
 
     @Override
     public ByteBuffer provide20MsAudio() 
     {
-        return ByteBuffer.wrap(lastFrame.getData());
+        ByteBuffer data = sender.provide();
+        if(recorder != null)
+            recorder.frame(audioPlayer.getPlayingTrack(), sender.getTimecode(), data, audioPlayer.getVolume());
+        return data;
     }
 
     @Override
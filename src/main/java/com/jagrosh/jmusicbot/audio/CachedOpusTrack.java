@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.container.common.OpusPacketRouter;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException.Severity;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DelegatedAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+
+/**
+ * A track played again from the Opus frames kept in the {@link OpusSegmentCache}, instead
+ * of being downloaded and decoded again. The frames go through lavaplayer like the frames
+ * of any Opus stream, so they are sent as they are unless the volume was changed. If the
+ * track was evicted before it started, the track it replays is played instead.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class CachedOpusTrack extends DelegatedAudioTrack
+{
+    private final static ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private final static int SAMPLE_RATE = 48000;
+    private final static int CHANNELS = 2;
+
+    private final PlayerManager manager;
+    private final String key;
+    private final AudioTrack source;
+
+    /**
+     * Constructs a new CachedOpusTrack.
+     *
+     * @param manager The player manager, which holds the cache.
+     * @param key     The key of the track in the cache.
+     * @param source  The track this replays, not yet played.
+     */
+    public CachedOpusTrack(PlayerManager manager, String key, AudioTrack source)
+    {
+        super(source.getInfo());
+        this.manager = manager;
+        this.key = key;
+        this.source = source;
+    }
+
+    /**
+     * Gets the key a track's frames are cached with.
+     *
+     * @param track The track.
+     * @return The key of the track.
+     */
+    public static String keyOf(AudioTrack track)
+    {
+        if(track instanceof CachedOpusTrack)
+            return ((CachedOpusTrack) track).key;
+        String source = track.getSourceManager() == null ? "" : track.getSourceManager().getSourceName();
+        return source + ":" + track.getIdentifier();
+    }
+
+    /**
+     * Gets the track this replays.
+     *
+     * @return The replayed track.
+     */
+    public AudioTrack getSource()
+    {
+        return source;
+    }
+
+    @Override
+    public void process(LocalAudioTrackExecutor executor) throws Exception
+    {
+        OpusSegmentCache cache = manager.getSegmentCache();
+        OpusSegmentCache.Reader reader = cache.open(key);
+        if(reader == null)
+        {
+            if(!(source instanceof InternalAudioTrack))
+                throw new FriendlyException("This track is no longer cached.", Severity.COMMON, null);
+            processDelegate((InternalAudioTrack) source, executor);
+            return;
+        }
+        OpusPacketRouter router = new OpusPacketRouter(executor.getProcessingContext(), SAMPLE_RATE, CHANNELS);
+        long cpu = cpuTime();
+        try
+        {
+            executor.executeProcessingLoop(() ->
+            {
+                ByteBuffer frame;
+                while((frame = reader.next()) != null)
+                    router.process(frame);
+            }, position -> router.seekPerformed(position, reader.seek(position)));
+        }
+        finally
+        {
+            cache.recordCpu(cpuTime() - cpu);
+            router.close();
+            reader.close();
+        }
+    }
+
+    @Override
+    public AudioTrack makeClone()
+    {
+        AudioTrack clone = manager.replayOf(source.makeClone());
+        clone.setUserData(getUserData());
+        return clone;
+    }
+
+    private static long cpuTime()
+    {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the frames handed to Discord and the bytes allocated on the audio send
+ * thread while providing them. The allocation counter comes from the JVM's
+ * per-thread allocation tracking; on JVMs without it only frames are counted.
+ * <p>
+ * Reading that counter costs more than sending a reused frame, so senders only
+ * measure one in every {@value #SAMPLE_INTERVAL} frames, and the bytes per frame are
+ * averaged over the measured ones.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class FrameAllocationStats
+{
+    public final static int SAMPLE_INTERVAL = 64;
+    public final static long UNSAMPLED = -1;
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public FrameAllocationStats()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean threads = null;
+        if(bean instanceof com.sun.management.ThreadMXBean)
+        {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            if(threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled())
+                threads.setThreadAllocatedMemoryEnabled(true);
+            if(!threads.isThreadAllocatedMemorySupported())
+                threads = null;
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Reads the allocation counter of the current thread.
+     *
+     * @return The number of bytes the current thread has allocated so far, or 0 if unsupported.
+     */
+    public long mark()
+    {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records one provided frame, along with everything allocated since the given mark.
+     *
+     * @param mark A value previously returned by {@link #mark()} on the same thread, or
+     *             {@link #UNSAMPLED} if the allocations of this frame are not measured.
+     */
+    public void record(long mark)
+    {
+        frames.increment();
+        if(threads != null && mark != UNSAMPLED)
+        {
+            bytes.add(mark() - mark);
+            sampled.increment();
+        }
+    }
+
+    /**
+     * Checks if allocations can be measured on this JVM.
+     *
+     * @return True if allocated bytes are being counted.
+     */
+    public boolean isSupported()
+    {
+        return threads != null;
+    }
+
+    /**
+     * Gets the number of frames that have been provided.
+     *
+     * @return The number of frames.
+     */
+    public long getFrames()
+    {
+        return frames.sum();
+    }
+
+    /**
+     * Gets the number of bytes allocated while providing the measured frames.
+     *
+     * @return The number of bytes.
+     */
+    public long getAllocatedBytes()
+    {
+        return bytes.sum();
+    }
+
+    /**
+     * Gets the average number of bytes allocated per measured frame.
+     *
+     * @return The average, or 0 if no frames have been measured.
+     */
+    public double getBytesPerFrame()
+    {
+        long count = sampled.sum();
+        return count == 0 ? 0 : (double) getAllocatedBytes() / count;
+    }
+}
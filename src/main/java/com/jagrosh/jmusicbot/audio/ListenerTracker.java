@@ -0,0 +1,334 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.utils.LongLongHashMap;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
+import net.dv8tion.jda.api.events.guild.voice.GuildVoiceDeafenEvent;
+import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
+
+/**
+ * Keeps track of who is in the bot's voice channel in one guild, and of who voted to
+ * skip the current track. The counts are updated from voice events as members join,
+ * leave and (un)deafen, so checking if the bot is alone or if enough votes were cast
+ * does not go over the members of the channel.
+ * <p>
+ * A listener is a member that is neither a bot nor deafened. If the bot turns out to be
+ * in another channel than the one being tracked, such as after a missed event, the
+ * channel's members are read again once.
+ * <p>
+ * The members and the votes are kept in primitive maps, so a vote does not allocate.
+ * Whether enough votes were cast is decided again whenever a listener leaves or
+ * deafens, so the track is skipped as soon as the remaining listeners have voted, even
+ * if nobody votes again.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class ListenerTracker
+{
+    private final static long DEAFENED = 1, LISTENING = 0;
+
+    private final Runnable skip;
+    private long channelId = 0;
+    private final LongLongHashMap members = new LongLongHashMap(16); // user -> DEAFENED or LISTENING, for everyone but bots
+    private final LongLongHashMap votes = new LongLongHashMap(16); // user -> time of the vote
+    private int listeners = 0;
+    private int votersPresent = 0;
+    private double skipRatio = 0;
+
+    /**
+     * Constructs a new ListenerTracker.
+     *
+     * @param skip Skips the current track, when listeners leave and the votes of the
+     *             remaining ones are enough.
+     */
+    public ListenerTracker(Runnable skip)
+    {
+        this.skip = skip;
+    }
+
+    /**
+     * Updates the tracker when a member joins, leaves or moves between voice channels.
+     *
+     * @param event The guild voice update event.
+     */
+    public void onVoiceUpdate(GuildVoiceUpdateEvent event)
+    {
+        Member member = event.getMember();
+        if(member.getIdLong() == member.getJDA().getSelfUser().getIdLong())
+        {
+            synchronized(this)
+            {
+                reset(event.getChannelJoined());
+            }
+            return;
+        }
+        AudioChannel left = event.getChannelLeft(), joined = event.getChannelJoined();
+        onMove(member.getIdLong(), member.getUser().isBot(), isDeafened(member),
+                left == null ? 0 : left.getIdLong(), joined == null ? 0 : joined.getIdLong());
+    }
+
+    /**
+     * Updates the tracker when a member other than the bot joins, leaves or moves between
+     * voice channels.
+     *
+     * @param userId   The ID of the member.
+     * @param bot      Whether the member is a bot.
+     * @param deafened Whether the member is deafened.
+     * @param leftId   The ID of the channel the member left, or 0 if they joined voice.
+     * @param joinedId The ID of the channel the member joined, or 0 if they left voice.
+     */
+    public void onMove(long userId, boolean bot, boolean deafened, long leftId, long joinedId)
+    {
+        boolean skipped;
+        synchronized(this)
+        {
+            if(leftId != 0 && leftId == channelId)
+                remove(userId);
+            if(joinedId != 0 && joinedId == channelId)
+                add(userId, bot, deafened);
+            skipped = takeSkip();
+        }
+        // skipping starts the next track, which should not happen while holding the lock
+        if(skipped)
+            skip.run();
+    }
+
+    /**
+     * Updates the tracker when a member is deafened or undeafened.
+     *
+     * @param event The guild voice deafen event.
+     */
+    public void onDeafen(GuildVoiceDeafenEvent event)
+    {
+        onDeafen(event.getMember().getIdLong(), event.isDeafened());
+    }
+
+    /**
+     * Updates the tracker when a member is deafened or undeafened.
+     *
+     * @param userId   The ID of the member.
+     * @param deafened Whether the member is now deafened.
+     */
+    public void onDeafen(long userId, boolean deafened)
+    {
+        boolean skipped;
+        synchronized(this)
+        {
+            long state = members.get(userId, -1);
+            long now = deafened ? DEAFENED : LISTENING;
+            if(state == -1 || state == now)
+                return;
+            members.put(userId, now);
+            listeners += deafened ? -1 : 1;
+            skipped = takeSkip();
+        }
+        if(skipped)
+            skip.run();
+    }
+
+    /**
+     * Starts tracking a channel the bot joined, which nobody else is in yet. Members that
+     * are already in it are added with {@link #onMove(long, boolean, boolean, long, long)}.
+     *
+     * @param channelId The ID of the channel, or 0 if the bot left voice.
+     */
+    public synchronized void connect(long channelId)
+    {
+        members.clear();
+        listeners = 0;
+        votersPresent = 0;
+        this.channelId = channelId;
+    }
+
+    /**
+     * Records a vote to skip the current track.
+     *
+     * @param userId    The ID of the user voting.
+     * @param time      The time of the vote, in milliseconds since the epoch.
+     * @param skipRatio The ratio of listeners that have to vote to skip.
+     * @return true if the vote was recorded, false if the user already voted
+     */
+    public synchronized boolean addVote(long userId, long time, double skipRatio)
+    {
+        this.skipRatio = skipRatio;
+        if(votes.containsKey(userId))
+            return false;
+        votes.put(userId, time);
+        if(members.containsKey(userId))
+            votersPresent++;
+        return true;
+    }
+
+    /**
+     * Gets when a user voted to skip the current track.
+     *
+     * @param userId The ID of the user.
+     * @return The time of the vote in milliseconds since the epoch, or 0 if the user did
+     *         not vote.
+     */
+    public synchronized long getVoteTime(long userId)
+    {
+        return votes.get(userId, 0);
+    }
+
+    /**
+     * Forgets every vote, for when a new track starts.
+     */
+    public synchronized void clearVotes()
+    {
+        votes.clear();
+        votersPresent = 0;
+    }
+
+    /**
+     * Decides if enough votes were cast to skip the current track. If so, the votes are
+     * forgotten, so only one caller decides to skip.
+     *
+     * @param channel The channel the bot is connected to, or null if it is not connected.
+     * @return true if the caller should skip the current track
+     */
+    public synchronized boolean takeSkip(AudioChannel channel)
+    {
+        sync(channel);
+        return takeSkip();
+    }
+
+    /**
+     * Decides if enough votes were cast to skip the current track, in the channel being
+     * tracked. If so, the votes are forgotten, so only one caller decides to skip.
+     *
+     * @return true if the caller should skip the current track
+     */
+    public synchronized boolean takeSkip()
+    {
+        if(votersPresent == 0 || votersPresent < getRequiredVotes())
+            return false;
+        clearVotes();
+        return true;
+    }
+
+    /**
+     * Gets the number of votes needed to skip the current track, with the skip ratio of
+     * the last vote.
+     *
+     * @param channel The channel the bot is connected to, or null if it is not connected.
+     * @return The number of votes needed.
+     */
+    public synchronized int getRequiredVotes(AudioChannel channel)
+    {
+        sync(channel);
+        return getRequiredVotes();
+    }
+
+    /**
+     * Gets the number of votes needed to skip the current track in the channel being
+     * tracked, with the skip ratio of the last vote.
+     *
+     * @return The number of votes needed.
+     */
+    public synchronized int getRequiredVotes()
+    {
+        return (int) Math.ceil(listeners * skipRatio);
+    }
+
+    /**
+     * Gets the number of listeners in the bot's voice channel.
+     *
+     * @param channel The channel the bot is connected to, or null if it is not connected.
+     * @return The number of listeners.
+     */
+    public synchronized int getListenerCount(AudioChannel channel)
+    {
+        sync(channel);
+        return getListenerCount();
+    }
+
+    /**
+     * Gets the number of listeners in the channel being tracked.
+     *
+     * @return The number of listeners.
+     */
+    public synchronized int getListenerCount()
+    {
+        return listeners;
+    }
+
+    /**
+     * Gets the number of members in the bot's voice channel that voted to skip the
+     * current track.
+     *
+     * @param channel The channel the bot is connected to, or null if it is not connected.
+     * @return The number of votes from members in the channel.
+     */
+    public synchronized int getVotersPresent(AudioChannel channel)
+    {
+        sync(channel);
+        return getVotersPresent();
+    }
+
+    /**
+     * Gets the number of members in the channel being tracked that voted to skip the
+     * current track.
+     *
+     * @return The number of votes from members in the channel.
+     */
+    public synchronized int getVotersPresent()
+    {
+        return votersPresent;
+    }
+
+    private void sync(AudioChannel channel)
+    {
+        if(channel == null ? channelId != 0 : channel.getIdLong() != channelId)
+            reset(channel);
+    }
+
+    private void reset(AudioChannel channel)
+    {
+        connect(channel == null ? 0 : channel.getIdLong());
+        if(channel != null)
+            channel.getMembers().forEach(m -> add(m.getIdLong(), m.getUser().isBot(), isDeafened(m)));
+    }
+
+    private static boolean isDeafened(Member member)
+    {
+        return member.getVoiceState() != null && member.getVoiceState().isDeafened();
+    }
+
+    private void add(long userId, boolean bot, boolean deafened)
+    {
+        if(bot || members.containsKey(userId))
+            return;
+        members.put(userId, deafened ? DEAFENED : LISTENING);
+        if(!deafened)
+            listeners++;
+        if(votes.containsKey(userId))
+            votersPresent++;
+    }
+
+    private void remove(long userId)
+    {
+        long state = members.remove(userId, -1);
+        if(state == -1)
+            return;
+        if(state == LISTENING)
+            listeners--;
+        if(votes.containsKey(userId))
+            votersPresent--;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException.Severity;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges loads of the same identifier that overlap into one, so a link posted by several
+ * users at once is only loaded once. Every handler still gets a result of its own: the
+ * first one gets the loaded tracks, and the others get clones of them.
+ * <p>
+ * Like ordered loads, the handlers of loads with the same ordering key are called in the
+ * order the loads were started, even when one of them joined a load started for another
+ * ordering key.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class LoadCoalescer
+{
+    private final static Logger LOG = LoggerFactory.getLogger("LoadCoalescer");
+
+    private final Starter starter;
+    private final Map<String, Flight> flights = new HashMap<>();        // guarded by this
+    private final Map<Object, Queue> queues = new HashMap<>();          // guarded by this
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Constructs a new LoadCoalescer.
+     *
+     * @param starter Starts an ordered load.
+     */
+    public LoadCoalescer(Starter starter)
+    {
+        this.starter = starter;
+    }
+
+    /**
+     * Loads an identifier, joining a load of the same identifier that is still running.
+     *
+     * @param orderingKey The key of the loads whose handlers are called in order.
+     * @param identifier  The identifier to load.
+     * @param handler     Receives the result.
+     * @return A future that completes once the handler has been called.
+     */
+    public Future<Void> load(Object orderingKey, String identifier, AudioLoadResultHandler handler)
+    {
+        Delivery delivery = new Delivery(handler);
+        Flight flight;
+        boolean start;
+        synchronized(this)
+        {
+            queues.computeIfAbsent(orderingKey, k -> new Queue()).pending.add(delivery);
+            flight = flights.get(identifier);
+            start = flight == null;
+            if(start)
+            {
+                flight = new Flight(identifier);
+                flights.put(identifier, flight);
+            }
+            flight.subscribers.add(new Subscriber(orderingKey, delivery));
+        }
+        if(start)
+        {
+            loads.increment();
+            try
+            {
+                starter.load(orderingKey, identifier, flight);
+            }
+            catch(RuntimeException e)
+            {
+                // otherwise the handlers of this ordering key would wait forever
+                flight.loadFailed(new FriendlyException("The track could not be loaded.", Severity.FAULT, e));
+            }
+        }
+        else
+            coalesced.increment();
+        return delivery.future;
+    }
+
+    /**
+     * Hands a result that is already known, such as a cached one, to a handler. The handler
+     * is still called in order with the other loads of the ordering key, so it never gets
+     * ahead of a load that was started before it.
+     *
+     * @param orderingKey The key of the loads whose handlers are called in order.
+     * @param handler     Receives the result.
+     * @param result      Hands the result to the handler.
+     * @return A future that completes once the handler has been called.
+     */
+    public Future<Void> resolve(Object orderingKey, AudioLoadResultHandler handler, Consumer<AudioLoadResultHandler> result)
+    {
+        Delivery delivery = new Delivery(handler);
+        synchronized(this)
+        {
+            delivery.outcome = result;
+            queues.computeIfAbsent(orderingKey, k -> new Queue()).pending.add(delivery);
+        }
+        deliver(orderingKey);
+        return delivery.future;
+    }
+
+    /**
+     * Gets the number of loads that were started.
+     *
+     * @return The number of loads.
+     */
+    public long getLoads()
+    {
+        return loads.sum();
+    }
+
+    /**
+     * Gets the number of loads that joined a load of the same identifier instead.
+     *
+     * @return The number of coalesced loads.
+     */
+    public long getCoalesced()
+    {
+        return coalesced.sum();
+    }
+
+    // calls the handlers of an ordering key whose results are ready, in order
+    private void deliver(Object orderingKey)
+    {
+        Queue queue;
+        synchronized(this)
+        {
+            queue = queues.get(orderingKey);
+            // whoever is delivering already will also deliver this
+            if(queue == null || queue.delivering)
+                return;
+            queue.delivering = true;
+        }
+        while(true)
+        {
+            Delivery next;
+            synchronized(this)
+            {
+                next = queue.pending.peek();
+                if(next == null || next.outcome == null)
+                {
+                    queue.delivering = false;
+                    if(next == null)
+                        queues.remove(orderingKey);
+                    return;
+                }
+                queue.pending.poll();
+            }
+            try
+            {
+                next.outcome.accept(next.handler);
+            }
+            catch(RuntimeException e)
+            {
+                LOG.warn("A load result handler failed", e);
+            }
+            next.future.complete(null);
+        }
+    }
+
+    /**
+     * Starts an ordered load, such as
+     * {@link com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager#loadItemOrdered(Object, String, AudioLoadResultHandler)}.
+     */
+    public interface Starter
+    {
+        void load(Object orderingKey, String identifier, AudioLoadResultHandler handler);
+    }
+
+    // a load every subscriber gets the result of
+    private class Flight implements AudioLoadResultHandler
+    {
+        private final String identifier;
+        private final List<Subscriber> subscribers = new ArrayList<>(1); // guarded by LoadCoalescer.this
+
+        private Flight(String identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            finish(first ->
+            {
+                AudioTrack own = first ? track : track.makeClone();
+                return handler -> handler.trackLoaded(own);
+            });
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            finish(first ->
+            {
+                AudioPlaylist own = first ? playlist : clone(playlist);
+                return handler -> handler.playlistLoaded(own);
+            });
+        }
+
+        @Override
+        public void noMatches()
+        {
+            finish(first -> AudioLoadResultHandler::noMatches);
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            finish(first -> handler -> handler.loadFailed(exception));
+        }
+
+        private void finish(Outcomes outcomes)
+        {
+            List<Subscriber> finished;
+            synchronized(LoadCoalescer.this)
+            {
+                // nothing can join once the flight is removed
+                flights.remove(identifier, this);
+                finished = new ArrayList<>(subscribers);
+            }
+            List<Consumer<AudioLoadResultHandler>> results = new ArrayList<>(finished.size());
+            for(int i = 0; i < finished.size(); i++)
+                results.add(outcomes.forSubscriber(i == 0));
+            synchronized(LoadCoalescer.this)
+            {
+                for(int i = 0; i < finished.size(); i++)
+                    finished.get(i).delivery.outcome = results.get(i);
+            }
+            for(Subscriber subscriber: finished)
+                deliver(subscriber.orderingKey);
+        }
+
+        private AudioPlaylist clone(AudioPlaylist playlist)
+        {
+            List<AudioTrack> tracks = new ArrayList<>(playlist.getTracks().size());
+            for(AudioTrack track: playlist.getTracks())
+                tracks.add(track.makeClone());
+            AudioTrack selected = playlist.getSelectedTrack();
+            if(selected != null)
+            {
+                int index = playlist.getTracks().indexOf(selected);
+                selected = index < 0 ? selected.makeClone() : tracks.get(index);
+            }
+            return new BasicAudioPlaylist(playlist.getName(), tracks, selected, playlist.isSearchResult());
+        }
+    }
+
+    // what a subscriber of a flight is handed, the tracks of the first subscriber are not cloned
+    private interface Outcomes
+    {
+        Consumer<AudioLoadResultHandler> forSubscriber(boolean first);
+    }
+
+    private static class Subscriber
+    {
+        private final Object orderingKey;
+        private final Delivery delivery;
+
+        private Subscriber(Object orderingKey, Delivery delivery)
+        {
+            this.orderingKey = orderingKey;
+            this.delivery = delivery;
+        }
+    }
+
+    private static class Delivery
+    {
+        private final AudioLoadResultHandler handler;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Consumer<AudioLoadResultHandler> outcome; // guarded by LoadCoalescer.this, null until the result is known
+
+        private Delivery(AudioLoadResultHandler handler)
+        {
+            this.handler = handler;
+        }
+    }
+
+    private static class Queue
+    {
+        private final ArrayDeque<Delivery> pending = new ArrayDeque<>();
+        private boolean delivering = false;
+    }
+}
@@ -17,12 +17,15 @@ package com.jagrosh.jmusicbot.audio;
 
 import com.jagrosh.jmusicbot.Bot;
 import com.jagrosh.jmusicbot.entities.Pair;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.Guild;
@@ -41,8 +44,22 @@ import net.dv8tion.jda.api.exceptions.RateLimitedException;
  */
 public class NowplayingHandler
 {
+    private final static long REFRESH_PERIOD = 5000; // milliseconds
+    private final static int WHEEL_SLOTS = 50;
+    private final static long MAX_BACKOFF = 5 * 60 * 1000; // milliseconds
+    
     private final Bot bot;
-    private final HashMap<Long,Pair<Long,Long>> lastNP; // guild -> channel,message
+    private final Map<Long,Pair<Long,Long>> lastNP; // guild -> channel,message
+    private final LongAdder edits = new LongAdder();
+    private final LongAdder skippedEdits = new LongAdder();
+    private final LongAdder droppedRefreshes = new LongAdder();
+    private final LongAdder rateLimits = new LongAdder();
+    // spreads the edits over the refresh period, and remembers what each message shows so unchanged ones are not edited
+    private final RefreshWheel wheel;
+    private final Set<Long> inFlight; // guilds with an edit that has not completed yet
+    private final Map<Long,Backoff> backoffs; // channel -> when edits may be sent again
+    private long revolutionEdits = 0;
+    private volatile double editsPerSecond = 0;
     
     /**
      * Constructs a new NowplayingHandler.
@@ -52,7 +69,10 @@ public class NowplayingHandler
     public NowplayingHandler(Bot bot)
     {
         this.bot = bot;
-        this.lastNP = new HashMap<>();
+        this.lastNP = new ConcurrentHashMap<>();
+        this.wheel = new RefreshWheel(WHEEL_SLOTS);
+        this.inFlight = ConcurrentHashMap.newKeySet();
+        this.backoffs = new ConcurrentHashMap<>();
     }
     
     /**
@@ -61,7 +81,7 @@ public class NowplayingHandler
     public void init()
     {
         if(!bot.getConfig().useNPImages())
-            bot.getThreadpool().scheduleWithFixedDelay(() -> updateAll(), 0, 5, TimeUnit.SECONDS);
+            bot.getScheduler().scheduleWithFixedDelay(JobClass.NOWPLAYING, "nowplaying-update", () -> tick(), 0, REFRESH_PERIOD / WHEEL_SLOTS, TimeUnit.MILLISECONDS);
     }
     
     /**
@@ -71,7 +91,12 @@ public class NowplayingHandler
      */
     public void setLastNPMessage(Message m)
     {
-        lastNP.put(m.getGuild().getIdLong(), new Pair<>(m.getChannel().asTextChannel().getIdLong(), m.getIdLong()));
+        long guildId = m.getGuild().getIdLong();
+        lastNP.put(guildId, new Pair<>(m.getChannel().asTextChannel().getIdLong(), m.getIdLong()));
+        wheel.add(guildId);
+        // the message was just built, so it already shows the current state
+        AudioHandler handler = (AudioHandler)m.getGuild().getAudioManager().getSendingHandler();
+        wheel.setShown(guildId, handler==null ? null : handler.getNowPlayingFingerprint(bot.getJDA()));
     }
     
     /**
@@ -82,43 +107,206 @@ public class NowplayingHandler
     public void clearLastNPMessage(Guild guild)
     {
         lastNP.remove(guild.getIdLong());
+        wheel.setShown(guild.getIdLong(), null);
+    }
+
+    /**
+     * Gets the number of "now playing" messages that were edited.
+     *
+     * @return The number of edits.
+     */
+    public long getEditCount()
+    {
+        return edits.sum();
+    }
+
+    /**
+     * Gets the number of "now playing" refreshes that were skipped because nothing visible changed.
+     *
+     * @return The number of skipped edits.
+     */
+    public long getSkippedEditCount()
+    {
+        return skippedEdits.sum();
+    }
+
+    /**
+     * Gets the number of "now playing" refreshes that were dropped, because the channel was
+     * backing off after being rate limited or because the previous edit had not completed.
+     *
+     * @return The number of dropped refreshes.
+     */
+    public long getDroppedRefreshCount()
+    {
+        return droppedRefreshes.sum();
+    }
+
+    /**
+     * Gets the number of "now playing" edits that were given up on because they were still held
+     * back by the channel's rate limit after a whole refresh period.
+     *
+     * @return The number of rate limited edits.
+     */
+    public long getRateLimitCount()
+    {
+        return rateLimits.sum();
+    }
+
+    /**
+     * Gets the number of channels that are backing off after being rate limited.
+     *
+     * @return The number of channels backing off.
+     */
+    public int getBackedOffChannelCount()
+    {
+        return (int) backoffs.values().stream().filter(b -> b.isActive()).count();
+    }
+
+    /**
+     * Gets the rate of "now playing" edits over the last refresh period.
+     *
+     * @return The number of edits per second.
+     */
+    public double getEditsPerSecond()
+    {
+        return editsPerSecond;
     }
     
-    private void updateAll()
+    private void tick()
     {
-        Set<Long> toRemove = new HashSet<>();
-        for(long guildId: lastNP.keySet())
+        int slot = wheel.advance();
+        if(slot == 0)
         {
-            Guild guild = bot.getJDA().getGuildById(guildId);
-            if(guild==null)
-            {
-                toRemove.add(guildId);
-                continue;
-            }
-            Pair<Long,Long> pair = lastNP.get(guildId);
-            TextChannel tc = guild.getTextChannelById(pair.getKey());
-            if(tc==null)
-            {
-                toRemove.add(guildId);
-                continue;
-            }
-            AudioHandler handler = (AudioHandler)guild.getAudioManager().getSendingHandler();
-            MessageCreateData msg = handler.getNowPlaying(bot.getJDA());
-            if(msg==null)
+            long total = edits.sum();
+            editsPerSecond = (total - revolutionEdits) * 1000.0 / REFRESH_PERIOD;
+            revolutionEdits = total;
+            backoffs.values().removeIf(b -> b.isExpired());
+        }
+        Set<Long> guilds = wheel.getGuilds(slot);
+        for(long guildId: guilds)
+        {
+            if(lastNP.containsKey(guildId))
+                update(guildId);
+            else
             {
-                msg = handler.getNoMusicPlaying(bot.getJDA());
-                toRemove.add(guildId);
+                guilds.remove(guildId);
+                // the guild may have sent a new message in the meantime
+                if(lastNP.containsKey(guildId))
+                    guilds.add(guildId);
             }
-            try
+        }
+    }
+
+    private void update(long guildId)
+    {
+        Pair<Long,Long> pair = lastNP.get(guildId);
+        if(pair==null)
+            return;
+        Guild guild = bot.getJDA().getGuildById(guildId);
+        if(guild==null)
+        {
+            remove(guildId, pair);
+            return;
+        }
+        TextChannel tc = guild.getTextChannelById(pair.getKey());
+        if(tc==null)
+        {
+            remove(guildId, pair);
+            return;
+        }
+        Backoff backoff = backoffs.get(tc.getIdLong());
+        if(backoff!=null && backoff.isActive())
+        {
+            droppedRefreshes.increment();
+            return;
+        }
+        AudioHandler handler = (AudioHandler)guild.getAudioManager().getSendingHandler();
+        String fingerprint = handler.getNowPlayingFingerprint(bot.getJDA());
+        if(wheel.isShown(guildId, fingerprint))
+        {
+            skippedEdits.increment();
+            return;
+        }
+        if(!inFlight.add(guildId))
+        {
+            droppedRefreshes.increment();
+            return;
+        }
+        MessageCreateData msg = handler.getNowPlaying(bot.getJDA());
+        if(msg==null)
+        {
+            msg = handler.getNoMusicPlaying(bot.getJDA());
+            remove(guildId, pair);
+        }
+        else
+            wheel.setShown(guildId, fingerprint);
+        try
+        {
+            // JDA holds requests back and retries them itself when a channel is rate limited, so a
+            // rate limit never reaches the failure callback. An edit still waiting after a whole
+            // refresh period is given up on instead, which is the sign that the channel should back off.
+            tc.editMessageById(pair.getValue(), MessageEditData.fromCreateData(msg))
+                    .timeout(REFRESH_PERIOD, TimeUnit.MILLISECONDS).queue(m ->
             {
-                tc.editMessageById(pair.getValue(), MessageEditData.fromCreateData(msg)).queue(m->{}, t -> lastNP.remove(guildId));
-            }
-            catch(Exception e)
+                inFlight.remove(guildId);
+                backoffs.remove(tc.getIdLong());
+            }, t ->
             {
-                toRemove.add(guildId);
-            }
+                inFlight.remove(guildId);
+                if(t instanceof TimeoutException)
+                    backOff(guildId, tc.getIdLong());
+                else
+                    remove(guildId, pair);
+            });
+            edits.increment();
+        }
+        catch(Exception e)
+        {
+            inFlight.remove(guildId);
+            remove(guildId, pair);
+        }
+    }
+
+    private void backOff(long guildId, long channelId)
+    {
+        rateLimits.increment();
+        // the message was not edited, so it is redrawn once the channel may be edited again
+        wheel.setShown(guildId, null);
+        backoffs.compute(channelId, (id, previous) ->
+        {
+            int strikes = previous==null ? 0 : previous.strikes + 1;
+            return new Backoff(strikes, Math.min(MAX_BACKOFF, REFRESH_PERIOD << Math.min(strikes, 6)));
+        });
+    }
+
+    private void remove(long guildId, Pair<Long,Long> pair)
+    {
+        // a newer "now playing" message for the guild is left alone
+        if(lastNP.remove(guildId, pair))
+            wheel.setShown(guildId, null);
+    }
+
+    private static class Backoff
+    {
+        private final int strikes;
+        private final long until; // System.nanoTime()
+
+        private Backoff(int strikes, long delay)
+        {
+            this.strikes = strikes;
+            this.until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        }
+
+        private boolean isActive()
+        {
+            return System.nanoTime() - until < 0;
+        }
+
+        // the strikes are forgotten once the channel has been quiet for a while
+        private boolean isExpired()
+        {
+            return System.nanoTime() - until > TimeUnit.MILLISECONDS.toNanos(MAX_BACKOFF);
         }
-        toRemove.forEach(id -> lastNP.remove(id));
     }
 
     // "event"-based methods
@@ -140,6 +328,19 @@ public class NowplayingHandler
         }
     }
     
+    /**
+     * Called when something shown in the "now playing" message changes, such as a track
+     * starting, the player pausing or resuming, or the volume changing. The message is
+     * refreshed right away instead of on the next periodic update.
+     *
+     * @param guildId The ID of the guild whose player changed.
+     */
+    public void onPlayerUpdate(long guildId)
+    {
+        if(!bot.getConfig().useNPImages() && lastNP.containsKey(guildId))
+            bot.getScheduler().submit(JobClass.NOWPLAYING, "nowplaying-event", () -> update(guildId));
+    }
+    
     /**
      * Called when a message is deleted.
      *
@@ -152,6 +353,6 @@ public class NowplayingHandler
         if(pair==null)
             return;
         if(pair.getValue() == messageId)
-            lastNP.remove(guild.getIdLong());
+            remove(guild.getIdLong(), pair);
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameProvider;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import java.nio.ByteBuffer;
+
+/**
+ * Pulls 20ms Opus frames from a player for the audio send thread.
+ * <p>
+ * When frames are reused, every frame is written into one direct buffer owned by
+ * this sender, through lavaplayer's mutable frame provisioning, so nothing is
+ * allocated per frame. Otherwise each frame is provided as a new {@link AudioFrame}
+ * and wrapped in a new buffer, which is how the bot used to send audio.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class OpusFrameSender
+{
+    private final AudioFrameProvider provider;
+    private final FrameAllocationStats stats;
+    private final MutableAudioFrame frame;
+    private final ByteBuffer buffer;
+
+    private AudioFrame lastFrame;
+    private long allocationMark;
+    private long pulled = 0;
+
+    /**
+     * Constructs a new OpusFrameSender.
+     *
+     * @param provider    The player to pull frames from.
+     * @param reuseFrames True to write every frame into a single reusable buffer.
+     * @param stats       The stats to record provided frames in.
+     */
+    public OpusFrameSender(AudioFrameProvider provider, boolean reuseFrames, FrameAllocationStats stats)
+    {
+        this.provider = provider;
+        this.stats = stats;
+        if(reuseFrames)
+        {
+            this.buffer = ByteBuffer.allocateDirect(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize());
+            this.frame = new MutableAudioFrame();
+            this.frame.setBuffer(buffer);
+        }
+        else
+        {
+            this.buffer = null;
+            this.frame = null;
+        }
+    }
+
+    /**
+     * Pulls the next frame from the player, if there is one.
+     *
+     * @return True if a frame is ready to be sent.
+     */
+    public boolean canProvide()
+    {
+        allocationMark = ++pulled % FrameAllocationStats.SAMPLE_INTERVAL == 0 ? stats.mark() : FrameAllocationStats.UNSAMPLED;
+        if(frame == null)
+        {
+            lastFrame = provider.provide();
+            return lastFrame != null;
+        }
+        buffer.clear();
+        if(!provider.provide(frame))
+            return false;
+        buffer.position(0);
+        buffer.limit(frame.getDataLength());
+        return true;
+    }
+
+    /**
+     * Gets the frame pulled by the last successful call to {@link #canProvide()}.
+     * When frames are reused, the returned buffer is overwritten by the next frame.
+     *
+     * @return The Opus data of the frame.
+     */
+    public ByteBuffer provide()
+    {
+        ByteBuffer data = frame == null ? ByteBuffer.wrap(lastFrame.getData()) : buffer;
+        stats.record(allocationMark);
+        return data;
+    }
+
+    /**
+     * Gets the position in its track of the frame pulled by the last successful call to
+     * {@link #canProvide()}.
+     *
+     * @return The timecode of the frame in milliseconds.
+     */
+    public long getTimecode()
+    {
+        return frame == null ? lastFrame.getTimecode() : frame.getTimecode();
+    }
+}
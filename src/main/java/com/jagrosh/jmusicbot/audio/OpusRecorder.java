@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the Opus frames a server is sent for a track, and caches them in the
+ * {@link OpusSegmentCache} once the track has played to its end. Only tracks played from
+ * their start without a seek and at 100% volume are cached, since other volumes change
+ * the frames.
+ * <p>
+ * The frames are recorded into chunks the size of a block of the cache, so recording a
+ * long track never copies what was recorded before on the thread that sends the frames.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class OpusRecorder
+{
+    private final static long MAX_DURATION = TimeUnit.MINUTES.toMillis(30);
+    private final static int MAX_BYTES = 32 * 1024 * 1024;
+    private final static int CHUNK_SIZE = OpusSegmentCache.BLOCK_SIZE;
+
+    private final OpusSegmentCache cache;
+    private final Scheduler scheduler;
+    private final ByteBuffer header = ByteBuffer.allocate(2); // guarded by this
+
+    // guarded by this
+    private AudioTrack track;
+    private boolean recording = false;
+    private List<byte[]> chunks;
+    private int length;
+    private int frames;
+    private int[] checkpoints;
+    private long lastTimecode;
+
+    /**
+     * Constructs a new OpusRecorder.
+     *
+     * @param cache     The cache to store recorded tracks in.
+     * @param scheduler The scheduler that stores them.
+     */
+    public OpusRecorder(OpusSegmentCache cache, Scheduler scheduler)
+    {
+        this.cache = cache;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Records a frame that is being sent.
+     *
+     * @param playing  The track the frame is from.
+     * @param timecode The position of the frame in the track, in milliseconds.
+     * @param frame    The Opus data of the frame, which is not consumed.
+     * @param volume   The volume the frame was played at.
+     */
+    public synchronized void frame(AudioTrack playing, long timecode, ByteBuffer frame, int volume)
+    {
+        if(playing != track)
+            start(playing);
+        if(!recording)
+            return;
+        int size = frame.remaining();
+        // a gap in the timecodes is a seek
+        if(volume != 100 || timecode < lastTimecode || timecode - lastTimecode > 2 * OpusSegmentCache.FRAME_MILLIS
+                || size > OpusSegmentCache.MAX_FRAME_SIZE || length + 2 + size > MAX_BYTES)
+        {
+            stop();
+            return;
+        }
+        if(frames % OpusSegmentCache.CHECKPOINT_FRAMES == 0)
+        {
+            int checkpoint = frames / OpusSegmentCache.CHECKPOINT_FRAMES;
+            if(checkpoint == checkpoints.length)
+                checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+            checkpoints[checkpoint] = length;
+        }
+        header.clear();
+        header.putShort((short) size).flip();
+        append(header);
+        append(frame.duplicate());
+        frames++;
+        lastTimecode = timecode;
+    }
+
+    /**
+     * Caches the frames of a track that ended, if it was recorded from start to end.
+     *
+     * @param ended  The track that ended.
+     * @param reason Why it ended.
+     */
+    public synchronized void trackEnded(AudioTrack ended, AudioTrackEndReason reason)
+    {
+        if(ended != track || !recording)
+            return;
+        if(reason == AudioTrackEndReason.FINISHED && frames > 0)
+        {
+            // reserved right away, so a repeat of the track queued next is played from the cache
+            OpusSegmentCache.Reservation reservation = cache.reserve(CachedOpusTrack.keyOf(ended), length, frames,
+                    Arrays.copyOf(checkpoints, (frames + OpusSegmentCache.CHECKPOINT_FRAMES - 1) / OpusSegmentCache.CHECKPOINT_FRAMES));
+            if(reservation != null)
+            {
+                List<byte[]> recorded = chunks;
+                scheduler.submit(JobClass.BACKGROUND, "audio-cache-store", () -> reservation.write(recorded));
+            }
+        }
+        stop();
+    }
+
+    private void start(AudioTrack playing)
+    {
+        stop();
+        track = playing;
+        recording = playing != null && !(playing instanceof CachedOpusTrack) && !playing.getInfo().isStream
+                && playing.getDuration() <= MAX_DURATION && !cache.contains(CachedOpusTrack.keyOf(playing));
+        if(recording)
+        {
+            chunks = new ArrayList<>();
+            checkpoints = new int[16];
+            length = 0;
+            frames = 0;
+            lastTimecode = 0;
+        }
+    }
+
+    // copies bytes to the end of the recording, starting a new chunk when the last one is full
+    private void append(ByteBuffer bytes)
+    {
+        while(bytes.hasRemaining())
+        {
+            int within = length % CHUNK_SIZE;
+            if(within == 0)
+                chunks.add(new byte[CHUNK_SIZE]);
+            int count = Math.min(bytes.remaining(), CHUNK_SIZE - within);
+            bytes.get(chunks.get(chunks.size() - 1), within, count);
+            length += count;
+        }
+    }
+
+    // the track is kept, so its remaining frames do not start a new recording
+    private void stop()
+    {
+        recording = false;
+        chunks = null;
+        checkpoints = null;
+    }
+}
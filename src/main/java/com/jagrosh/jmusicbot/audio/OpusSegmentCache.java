@@ -0,0 +1,465 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the Opus frames of played tracks in one memory-mapped file, so a track played
+ * again can be sent from the file instead of being downloaded and decoded again.
+ * <p>
+ * The file is split into blocks of {@value #BLOCK_SIZE} bytes, and the frames of a track
+ * are written to as many blocks as they need, wherever those are. When there are not
+ * enough free blocks for a track, the tracks played least recently are evicted, except
+ * for the ones being played from the cache. Every frame is stored as its length in two
+ * bytes followed by its data, and where every {@value #CHECKPOINT_FRAMES}th frame starts
+ * is kept in memory, to seek without reading the frames before it.
+ * <p>
+ * Room for a track is reserved before its frames are written, and the track counts as
+ * cached from then on. Playing it waits for its frames to be written.
+ * <p>
+ * What is in the file is only known while the bot runs, so the file starts out empty.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class OpusSegmentCache implements Closeable
+{
+    public final static String CACHE_FILE = "audiocache.bin";
+    public final static int FRAME_MILLIS = 20;
+    public final static int CHECKPOINT_FRAMES = 50;
+    public final static int MAX_FRAME_SIZE = 0xFFFF;
+    public final static int BLOCK_SIZE = 64 * 1024;
+    private final static long WRITE_WAIT_MILLIS = 5000; // how long a reader waits for frames being written
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int blockCount;
+    private final int[] freeBlocks; // guarded by this, the first freeCount are free
+    private int freeCount;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // guarded by this
+    private long usedBytes = 0; // guarded by this
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder framesReplayed = new LongAdder();
+    private final LongAdder bytesReplayed = new LongAdder();
+    private final LongAdder replayCpuNanos = new LongAdder();
+
+    /**
+     * Constructs a new OpusSegmentCache, replacing whatever is in the file.
+     *
+     * @param path     The path of the cache file.
+     * @param maxBytes The size of the file, at most 2 GB.
+     * @throws IOException If the file can not be created or mapped.
+     */
+    public OpusSegmentCache(Path path, long maxBytes) throws IOException
+    {
+        this.blockCount = (int) (Math.min(maxBytes, Integer.MAX_VALUE) / BLOCK_SIZE);
+        if(blockCount < 1)
+            throw new IllegalArgumentException("The cache has to hold at least one block of " + BLOCK_SIZE + " bytes");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) blockCount * BLOCK_SIZE);
+        this.freeBlocks = new int[blockCount];
+        for(int i = 0; i < blockCount; i++)
+            freeBlocks[i] = blockCount - 1 - i;
+        this.freeCount = blockCount;
+    }
+
+    /**
+     * Checks if the frames of a track are cached.
+     *
+     * @param key The key of the track.
+     * @return true if the track is cached
+     */
+    public synchronized boolean contains(String key)
+    {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Caches the frames of a track, evicting the tracks played least recently if there is
+     * no room for it.
+     *
+     * @param key         The key of the track.
+     * @param chunks      The frames, each as its length in two bytes followed by its data,
+     *                    split into chunks of {@value #BLOCK_SIZE} bytes.
+     * @param length      The number of bytes of data.
+     * @param frames      The number of frames.
+     * @param checkpoints Where every {@value #CHECKPOINT_FRAMES}th frame starts in the data.
+     * @return true if the track is cached, false if there was no room for it
+     */
+    public boolean store(String key, List<byte[]> chunks, int length, int frames, int[] checkpoints)
+    {
+        Reservation reservation = reserve(key, length, frames, checkpoints);
+        if(reservation == null)
+            return contains(key);
+        reservation.write(chunks);
+        return true;
+    }
+
+    /**
+     * Makes room for the frames of a track, evicting the tracks played least recently if
+     * there is none. The track counts as cached right away, and readers of it wait until
+     * its frames are written with {@link Reservation#write(List)}.
+     *
+     * @param key         The key of the track.
+     * @param length      The number of bytes of data.
+     * @param frames      The number of frames.
+     * @param checkpoints Where every {@value #CHECKPOINT_FRAMES}th frame starts in the data.
+     * @return The room for the frames, or null if the track is already cached or there is
+     *         no room for it.
+     */
+    public synchronized Reservation reserve(String key, int length, int frames, int[] checkpoints)
+    {
+        int needed = Math.max(1, (length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        if(entries.containsKey(key) || needed > blockCount)
+            return null;
+        Iterator<Entry> it = entries.values().iterator();
+        while(freeCount < needed && it.hasNext())
+        {
+            Entry entry = it.next();
+            if(entry.readers == 0 && entry.written)
+            {
+                it.remove();
+                release(entry);
+                evicted.increment();
+            }
+        }
+        if(freeCount < needed)
+            return null;
+        int[] blocks = new int[needed];
+        for(int i = 0; i < needed; i++)
+            blocks[i] = freeBlocks[--freeCount];
+        Entry entry = new Entry(blocks, length, frames, checkpoints);
+        entries.put(key, entry);
+        usedBytes += length;
+        return new Reservation(entry);
+    }
+
+    /**
+     * Opens the frames of a track to play them, waiting a while if they are still being
+     * written. The track is not evicted until the reader is closed.
+     *
+     * @param key The key of the track.
+     * @return A reader of the frames, or null if the track is not cached.
+     */
+    public Reader open(String key)
+    {
+        Entry entry;
+        synchronized(this)
+        {
+            entry = entries.get(key);
+            if(entry == null)
+                return null;
+            entry.readers++;
+            long end = System.currentTimeMillis() + WRITE_WAIT_MILLIS;
+            try
+            {
+                for(long left = WRITE_WAIT_MILLIS; !entry.written && left > 0; left = end - System.currentTimeMillis())
+                    wait(left);
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            if(!entry.written)
+            {
+                entry.readers--;
+                return null;
+            }
+        }
+        replays.increment();
+        return new Reader(entry);
+    }
+
+    /**
+     * Records the CPU time spent playing a track from the cache.
+     *
+     * @param nanos The CPU time in nanoseconds.
+     */
+    public void recordCpu(long nanos)
+    {
+        replayCpuNanos.add(nanos);
+    }
+
+    /**
+     * Gets the number of cached tracks.
+     *
+     * @return The number of tracks.
+     */
+    public synchronized int getSize()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of bytes of frames in the cache.
+     *
+     * @return The number of bytes.
+     */
+    public synchronized long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the size of the cache file.
+     *
+     * @return The number of bytes.
+     */
+    public long getCapacity()
+    {
+        return (long) blockCount * BLOCK_SIZE;
+    }
+
+    /**
+     * Gets the number of tracks that were cached.
+     *
+     * @return The number of stored tracks.
+     */
+    public long getStored()
+    {
+        return stored.sum();
+    }
+
+    /**
+     * Gets the number of tracks evicted to make room for others.
+     *
+     * @return The number of evicted tracks.
+     */
+    public long getEvicted()
+    {
+        return evicted.sum();
+    }
+
+    /**
+     * Gets the number of times a track was played from the cache.
+     *
+     * @return The number of replays.
+     */
+    public long getReplays()
+    {
+        return replays.sum();
+    }
+
+    /**
+     * Gets the number of frames played from the cache.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesReplayed()
+    {
+        return framesReplayed.sum();
+    }
+
+    /**
+     * Gets the number of bytes of frames played from the cache, which did not have to be
+     * downloaded again.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesReplayed()
+    {
+        return bytesReplayed.sum();
+    }
+
+    /**
+     * Gets the CPU time spent playing tracks from the cache.
+     *
+     * @return The CPU time in nanoseconds.
+     */
+    public long getReplayCpuNanos()
+    {
+        return replayCpuNanos.sum();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    // guarded by this
+    private void release(Entry entry)
+    {
+        free(entry.blocks);
+        usedBytes -= entry.length;
+    }
+
+    // guarded by this
+    private void free(int[] blocks)
+    {
+        for(int block: blocks)
+            freeBlocks[freeCount++] = block;
+    }
+
+    /**
+     * The room reserved for the frames of a track, which are written once.
+     */
+    public class Reservation
+    {
+        private final Entry entry;
+
+        private Reservation(Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        /**
+         * Writes the frames of the track, and lets the readers waiting for them read.
+         *
+         * @param chunks The frames, each as its length in two bytes followed by its data,
+         *               split into chunks of {@value #BLOCK_SIZE} bytes.
+         */
+        public void write(List<byte[]> chunks)
+        {
+            // the blocks are not evicted or read until the entry is written
+            ByteBuffer view = map.duplicate();
+            for(int i = 0; i * BLOCK_SIZE < entry.length; i++)
+            {
+                view.position(entry.blocks[i] * BLOCK_SIZE);
+                view.put(chunks.get(i), 0, Math.min(BLOCK_SIZE, entry.length - i * BLOCK_SIZE));
+            }
+            synchronized(OpusSegmentCache.this)
+            {
+                entry.written = true;
+                stored.increment();
+                OpusSegmentCache.this.notifyAll();
+            }
+        }
+    }
+
+    private static class Entry
+    {
+        private final int[] blocks;
+        private final int length;
+        private final int frames;
+        private final int[] checkpoints;
+        private int readers = 0; // guarded by the cache
+        private boolean written = false; // guarded by the cache
+
+        private Entry(int[] blocks, int length, int frames, int[] checkpoints)
+        {
+            this.blocks = blocks;
+            this.length = length;
+            this.frames = frames;
+            this.checkpoints = checkpoints;
+        }
+    }
+
+    /**
+     * Reads the frames of a cached track, one at a time, on one thread.
+     */
+    public class Reader implements Closeable
+    {
+        private final Entry entry;
+        private final ByteBuffer view = map.duplicate();
+        private final byte[] frame = new byte[MAX_FRAME_SIZE];
+        private final ByteBuffer frameBuffer = ByteBuffer.wrap(frame);
+        private final byte[] header = new byte[2];
+        private int offset = 0;
+        private int index = 0;
+        private boolean closed = false;
+
+        private Reader(Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        /**
+         * Reads the next frame.
+         *
+         * @return The frame, overwritten by the next call, or null after the last frame.
+         */
+        public ByteBuffer next()
+        {
+            if(index >= entry.frames)
+                return null;
+            int length = readLength();
+            read(offset + 2, frame, length);
+            offset += 2 + length;
+            index++;
+            framesReplayed.increment();
+            bytesReplayed.add(length);
+            frameBuffer.clear();
+            frameBuffer.limit(length);
+            return frameBuffer;
+        }
+
+        /**
+         * Moves to the frame that plays at a position.
+         *
+         * @param position The position in milliseconds.
+         * @return The position of that frame in milliseconds.
+         */
+        public long seek(long position)
+        {
+            int target = (int) Math.max(0, Math.min(entry.frames, position / FRAME_MILLIS));
+            int checkpoint = Math.min(target / CHECKPOINT_FRAMES, entry.checkpoints.length - 1);
+            offset = checkpoint < 0 ? 0 : entry.checkpoints[checkpoint];
+            index = checkpoint < 0 ? 0 : checkpoint * CHECKPOINT_FRAMES;
+            while(index < target)
+            {
+                offset += 2 + readLength();
+                index++;
+            }
+            return (long) index * FRAME_MILLIS;
+        }
+
+        @Override
+        public void close()
+        {
+            synchronized(OpusSegmentCache.this)
+            {
+                if(!closed)
+                    entry.readers--;
+                closed = true;
+            }
+        }
+
+        private int readLength()
+        {
+            read(offset, header, 2);
+            return (header[0] & 0xFF) << 8 | header[1] & 0xFF;
+        }
+
+        // reads from where the bytes are in the file, which may be in two blocks
+        private void read(int position, byte[] target, int length)
+        {
+            int done = 0;
+            while(done < length)
+            {
+                int within = (position + done) % BLOCK_SIZE;
+                int count = Math.min(length - done, BLOCK_SIZE - within);
+                view.position(entry.blocks[(position + done) / BLOCK_SIZE] * BLOCK_SIZE + within);
+                view.get(target, done, count);
+                done += count;
+            }
+        }
+    }
+}
@@ -17,9 +17,13 @@ package com.jagrosh.jmusicbot.audio;
 
 import com.dunctebot.sourcemanagers.DuncteBotSources;
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.BotConfig;
+import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.sedmelluq.discord.lavaplayer.container.MediaContainerRegistry;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
 import com.sedmelluq.discord.lavaplayer.source.bandcamp.BandcampAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.beam.BeamAudioSourceManager;
@@ -29,8 +33,17 @@ import com.sedmelluq.discord.lavaplayer.source.nico.NicoAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.soundcloud.SoundCloudAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.twitch.TwitchStreamAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.vimeo.VimeoAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.NonAllocatingAudioFrameBuffer;
 import dev.lavalink.youtube.YoutubeAudioSourceManager;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import net.dv8tion.jda.api.entities.Guild;
+import org.slf4j.LoggerFactory;
 
 /**
  * Manages the audio players and source managers for the bot.
@@ -41,6 +54,14 @@ import net.dv8tion.jda.api.entities.Guild;
 public class PlayerManager extends DefaultAudioPlayerManager
 {
     private final Bot bot;
+    private final FrameAllocationStats frameStats = new FrameAllocationStats();
+    private final TrackGapStats gapStats = new TrackGapStats();
+    private List<TransformativeAudioSourceManager> transforms = Collections.emptyList();
+    private RoutingAudioSourceManager router;
+    private SearchCache searchCache;
+    private OpusSegmentCache segmentCache;
+    private final LoadCoalescer coalescer = new LoadCoalescer(
+            (orderingKey, identifier, handler) -> super.loadItemOrdered(orderingKey, identifier, handler));
     
     /**
      * Constructs a new PlayerManager.
@@ -57,24 +78,65 @@ public class PlayerManager extends DefaultAudioPlayerManager
      */
     public void init()
     {
-        TransformativeAudioSourceManager.createTransforms(bot.getConfig().getTransforms()).forEach(t -> registerSourceManager(t));
+        if(bot.getConfig().useReusableFrames())
+            getConfiguration().setFrameBufferFactory(NonAllocatingAudioFrameBuffer::new);
+
+        transforms = TransformativeAudioSourceManager.createTransforms(bot.getConfig().getTransforms());
 
         YoutubeAudioSourceManager yt = new YoutubeAudioSourceManager(true);
         yt.setPlaylistPageCount(bot.getConfig().getMaxYTPlaylistPages());
-        registerSourceManager(yt);
+        SoundCloudAudioSourceManager soundcloud = SoundCloudAudioSourceManager.createDefault();
+        BandcampAudioSourceManager bandcamp = new BandcampAudioSourceManager();
+        VimeoAudioSourceManager vimeo = new VimeoAudioSourceManager();
+        TwitchStreamAudioSourceManager twitch = new TwitchStreamAudioSourceManager();
+        GetyarnAudioSourceManager getyarn = new GetyarnAudioSourceManager();
+        NicoAudioSourceManager nico = new NicoAudioSourceManager();
+
+        // identifiers with a known owner skip every source manager before it
+        router = new RoutingAudioSourceManager(transforms, new SourceRoutes<AudioSourceManager>()
+                .addPrefix("ytsearch:", yt)
+                .addPrefix("ytmsearch:", yt)
+                .addPrefix("scsearch:", soundcloud)
+                .addDomain("youtube.com", yt)
+                .addDomain("youtu.be", yt)
+                .addDomain("soundcloud.com", soundcloud)
+                .addDomain("bandcamp.com", bandcamp)
+                .addDomain("vimeo.com", vimeo)
+                .addDomain("twitch.tv", twitch)
+                .addDomain("getyarn.io", getyarn)
+                .addDomain("nicovideo.jp", nico));
+        registerSourceManager(router);
 
-        registerSourceManager(SoundCloudAudioSourceManager.createDefault());
-        registerSourceManager(new BandcampAudioSourceManager());
-        registerSourceManager(new VimeoAudioSourceManager());
-        registerSourceManager(new TwitchStreamAudioSourceManager());
+        transforms.forEach(t -> registerSourceManager(t));
+        registerSourceManager(yt);
+        registerSourceManager(soundcloud);
+        registerSourceManager(bandcamp);
+        registerSourceManager(vimeo);
+        registerSourceManager(twitch);
         registerSourceManager(new BeamAudioSourceManager());
-        registerSourceManager(new GetyarnAudioSourceManager());
-        registerSourceManager(new NicoAudioSourceManager());
+        registerSourceManager(getyarn);
+        registerSourceManager(nico);
         registerSourceManager(new HttpAudioSourceManager(MediaContainerRegistry.DEFAULT_REGISTRY));
 
         AudioSourceManagers.registerLocalSource(this);
 
         DuncteBotSources.registerAll(this, "en-US");
+
+        BotConfig config = bot.getConfig();
+        searchCache = new SearchCache(this, config.getSearchCacheSize(), TimeUnit.MINUTES.toMillis(config.getSearchCacheMinutes()),
+                OtherUtil.getPath(SearchCache.CACHE_FOLDER), config.getSearchCacheDisk() * 1024 * 1024, bot.getScheduler());
+
+        if(config.getAudioCache() > 0)
+        {
+            try
+            {
+                segmentCache = new OpusSegmentCache(OtherUtil.getPath(OpusSegmentCache.CACHE_FILE), config.getAudioCache() * 1024 * 1024);
+            }
+            catch(IOException | RuntimeException e)
+            {
+                LoggerFactory.getLogger("PlayerManager").warn("Failed to create " + OpusSegmentCache.CACHE_FILE + ", tracks will not be cached: " + e);
+            }
+        }
     }
     
     /**
@@ -87,6 +149,151 @@ public class PlayerManager extends DefaultAudioPlayerManager
         return bot;
     }
     
+    /**
+     * Gets the stats of the frames sent by all audio handlers.
+     *
+     * @return The {@link FrameAllocationStats}.
+     */
+    public FrameAllocationStats getFrameStats()
+    {
+        return frameStats;
+    }
+    
+    /**
+     * Gets the gaps between tracks played by all audio handlers.
+     *
+     * @return The {@link TrackGapStats}.
+     */
+    public TrackGapStats getGapStats()
+    {
+        return gapStats;
+    }
+    
+    /**
+     * Gets the transforms from the config, which are registered as source managers.
+     *
+     * @return The {@link TransformativeAudioSourceManager}s.
+     */
+    public List<TransformativeAudioSourceManager> getTransforms()
+    {
+        return transforms;
+    }
+    
+    /**
+     * Gets the source manager that sends identifiers straight to their owner.
+     *
+     * @return The {@link RoutingAudioSourceManager}.
+     */
+    public RoutingAudioSourceManager getRouter()
+    {
+        return router;
+    }
+    
+    /**
+     * Gets the cache of search results.
+     *
+     * @return The {@link SearchCache}.
+     */
+    public SearchCache getSearchCache()
+    {
+        return searchCache;
+    }
+    
+    /**
+     * Stops loading and playing tracks, and closes the cache of played tracks, for when
+     * the bot shuts down.
+     */
+    @Override
+    public void shutdown()
+    {
+        super.shutdown();
+        if(segmentCache != null)
+        {
+            try
+            {
+                segmentCache.close();
+            }
+            catch(IOException e)
+            {
+                LoggerFactory.getLogger("PlayerManager").warn("Failed to close " + OpusSegmentCache.CACHE_FILE + ": " + e);
+            }
+        }
+    }
+    
+    /**
+     * Gets the cache of the Opus frames of played tracks.
+     *
+     * @return The {@link OpusSegmentCache}, or null if tracks are not cached.
+     */
+    public OpusSegmentCache getSegmentCache()
+    {
+        return segmentCache;
+    }
+    
+    /**
+     * Gets a track that plays from the frames cached for a track, if there are any.
+     *
+     * @param track A track that has not been played yet.
+     * @return A {@link CachedOpusTrack} replaying the track, or the track itself if its
+     *         frames are not cached.
+     */
+    public AudioTrack replayOf(AudioTrack track)
+    {
+        if(segmentCache == null || track instanceof CachedOpusTrack || track.getPosition() != 0)
+            return track;
+        String key = CachedOpusTrack.keyOf(track);
+        if(!segmentCache.contains(key))
+            return track;
+        AudioTrack replay = new CachedOpusTrack(this, key, track);
+        replay.setUserData(track.getUserData());
+        return replay;
+    }
+    
+    /**
+     * Loads an identifier, in order with the other loads of the ordering key. A load of an
+     * identifier that is already being loaded joins that load instead of starting another.
+     *
+     * @param orderingKey The key of the loads whose handlers are called in order.
+     * @param identifier  The identifier to load.
+     * @param handler     Receives the result.
+     * @return A future that completes once the handler has been called.
+     */
+    @Override
+    public Future<Void> loadItemOrdered(Object orderingKey, String identifier, AudioLoadResultHandler handler)
+    {
+        return coalescer.load(orderingKey, identifier, handler);
+    }
+    
+    /**
+     * Gets the layer that merges loads of the same identifier.
+     *
+     * @return The {@link LoadCoalescer}.
+     */
+    public LoadCoalescer getCoalescer()
+    {
+        return coalescer;
+    }
+    
+    /**
+     * Searches for a query, answering it from the search cache if the same thing was
+     * searched for recently.
+     *
+     * @param guild   The guild the search is for, whose loads are handled in order.
+     * @param prefix  The search prefix, such as {@code ytsearch:}.
+     * @param query   The search query.
+     * @param handler Receives the search results.
+     */
+    public void loadSearch(Guild guild, String prefix, String query, AudioLoadResultHandler handler)
+    {
+        String key = SearchCache.keyOf(prefix, query);
+        Consumer<AudioLoadResultHandler> cached = searchCache.lookup(key);
+        // a cached result still waits for the loads the guild started before it
+        if(cached != null)
+            coalescer.resolve(guild, handler, cached);
+        else
+            loadItemOrdered(guild, prefix + query, searchCache.storing(key, handler));
+    }
+    
     /**
      * Checks if a guild has an audio handler.
      *
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which guilds' "now playing" messages are refreshed on each tick, and remembers
+ * what each message last showed. Every guild is refreshed in one slot of the wheel, so the
+ * refreshes of many guilds are spread evenly over a revolution instead of all being sent
+ * at once, and a refresh that would show the same thing again can be skipped.
+ * <p>
+ * Guilds can be added and their fingerprints changed from any thread, but the wheel should
+ * only be advanced by one.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class RefreshWheel
+{
+    private final List<Set<Long>> slots;
+    private final Map<Long,String> shown; // guild -> what its message shows
+    private int tick = 0;
+
+    /**
+     * Constructs a new RefreshWheel.
+     *
+     * @param slots The number of slots in a revolution.
+     */
+    public RefreshWheel(int slots)
+    {
+        this.slots = new ArrayList<>(slots);
+        for(int i = 0; i < slots; i++)
+            this.slots.add(ConcurrentHashMap.newKeySet());
+        this.shown = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the number of slots in a revolution.
+     *
+     * @return The number of slots.
+     */
+    public int getSlotCount()
+    {
+        return slots.size();
+    }
+
+    /**
+     * Gets the slot a guild is refreshed in.
+     *
+     * @param guildId The ID of the guild.
+     * @return The index of the slot.
+     */
+    public int slotOf(long guildId)
+    {
+        // the low bits of snowflakes are much alike, so the id is mixed before picking a slot
+        return Math.floorMod((int) ((guildId * 0x9E3779B97F4A7C15L) >>> 32), slots.size());
+    }
+
+    /**
+     * Adds a guild to its slot. Adding a guild that is already in the wheel does nothing.
+     *
+     * @param guildId The ID of the guild.
+     */
+    public void add(long guildId)
+    {
+        slots.get(slotOf(guildId)).add(guildId);
+    }
+
+    /**
+     * Moves the wheel on by one slot.
+     *
+     * @return The index of the slot that is due.
+     */
+    public int advance()
+    {
+        int slot = tick;
+        tick = (tick + 1) % slots.size();
+        return slot;
+    }
+
+    /**
+     * Gets the guilds in a slot. Guilds can be removed from the returned set.
+     *
+     * @param slot The index of the slot.
+     * @return The guilds refreshed in the slot.
+     */
+    public Set<Long> getGuilds(int slot)
+    {
+        return slots.get(slot);
+    }
+
+    /**
+     * Checks whether a guild's message already shows something.
+     *
+     * @param guildId The ID of the guild.
+     * @param fingerprint What the message would show after a refresh.
+     * @return {@code true} if the refresh can be skipped.
+     */
+    public boolean isShown(long guildId, String fingerprint)
+    {
+        return fingerprint.equals(shown.get(guildId));
+    }
+
+    /**
+     * Records what a guild's message shows.
+     *
+     * @param guildId The ID of the guild.
+     * @param fingerprint What the message shows, or {@code null} if it is not known.
+     */
+    public void setShown(long guildId, String fingerprint)
+    {
+        if(fingerprint==null)
+            shown.remove(guildId);
+        else
+            shown.put(guildId, fingerprint);
+    }
+}
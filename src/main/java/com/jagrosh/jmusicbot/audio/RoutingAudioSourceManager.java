@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A source manager that is registered before every other one, and hands identifiers it
+ * knows the owner of straight to that source manager, so they are not first offered to
+ * every source manager before it. Anything it does not know, or that its owner does not
+ * load, is left to the other source managers in the order they were registered.
+ * <p>
+ * Identifiers matched by a transform are never routed, so the transforms still get them
+ * first.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class RoutingAudioSourceManager implements AudioSourceManager
+{
+    private final List<TransformativeAudioSourceManager> transforms;
+    private final SourceRoutes<AudioSourceManager> routes;
+    private final LongAdder routed = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+
+    /**
+     * Constructs a new RoutingAudioSourceManager.
+     *
+     * @param transforms The transforms, which take precedence over every route.
+     * @param routes     The source manager to route each known identifier to.
+     */
+    public RoutingAudioSourceManager(List<TransformativeAudioSourceManager> transforms, SourceRoutes<AudioSourceManager> routes)
+    {
+        this.transforms = transforms;
+        this.routes = routes;
+    }
+
+    @Override
+    public String getSourceName()
+    {
+        return "routing";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+    {
+        AudioSourceManager owner = reference.identifier == null ? null : routes.route(reference.identifier);
+        if(owner != null)
+        {
+            for(TransformativeAudioSourceManager transform: transforms)
+                if(transform.matches(reference.identifier))
+                {
+                    owner = null;
+                    break;
+                }
+        }
+        AudioItem item = owner == null ? null : owner.loadItem(manager, reference);
+        (item == null ? scanned : routed).increment();
+        return item;
+    }
+
+    /**
+     * Gets the number of identifiers that were loaded by the source manager they were
+     * routed to.
+     *
+     * @return The number of routed identifiers.
+     */
+    public long getRoutedCount()
+    {
+        return routed.sum();
+    }
+
+    /**
+     * Gets the number of identifiers that were left to every source manager in order.
+     *
+     * @return The number of identifiers that were not routed.
+     */
+    public long getScannedCount()
+    {
+        return scanned.sum();
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track)
+    {
+        // the tracks belong to the source managers identifiers were routed to
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void shutdown() {}
+}
@@ -0,0 +1,546 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.jagrosh.jmusicbot.settings.JsonSettingsStore;
+import com.jagrosh.jmusicbot.utils.ExpiringLruCache;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrack;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the results of searches such as {@code ytsearch:} for a while, so searching
+ * for the same thing again is answered without going over the network. Searches are
+ * matched regardless of case and spacing. The tracks are kept encoded by lavaplayer, and
+ * decoded again for every search, so each search gets tracks of its own.
+ * <p>
+ * Optionally, results are also written to the {@value #CACHE_FOLDER} folder, one file per
+ * search, so they are still found once they are dropped from memory or the bot restarts.
+ * When the folder grows past its size, the files used least recently are deleted.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class SearchCache
+{
+    public final static String CACHE_FOLDER = "searchcache";
+    private final static Logger LOG = LoggerFactory.getLogger("SearchCache");
+    private final static int MAGIC = 0x4A4D5343; // "JMSC"
+    private final static int VERSION = 1;
+    private final static String EXTENSION = ".bin";
+
+    private final AudioPlayerManager manager;
+    private final long ttl;
+    private final ExpiringLruCache<String, Entry> memory;
+    private final Path folder;
+    private final long maxDiskBytes;
+    private final Scheduler scheduler;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final AtomicBoolean pruning = new AtomicBoolean();
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new SearchCache.
+     *
+     * @param manager      The manager used to encode and decode the tracks.
+     * @param maxSize      The most searches to keep in memory, or 0 or less to not cache
+     *                     anything.
+     * @param ttl          How long the results of a search are used, in milliseconds.
+     * @param folder       The folder to also keep results in.
+     * @param maxDiskBytes The most bytes to keep in the folder, or 0 or less to only keep
+     *                     results in memory.
+     * @param scheduler    The scheduler that writes to the folder.
+     */
+    public SearchCache(AudioPlayerManager manager, int maxSize, long ttl, Path folder, long maxDiskBytes, Scheduler scheduler)
+    {
+        this.manager = manager;
+        this.ttl = maxSize > 0 ? ttl : 0;
+        this.memory = new ExpiringLruCache<>(maxSize, ttl, TimeUnit.MILLISECONDS);
+        this.folder = folder;
+        this.maxDiskBytes = isEnabled() ? maxDiskBytes : 0;
+        this.scheduler = scheduler;
+        if(isDiskEnabled())
+            openFolder();
+    }
+
+    /**
+     * Checks if anything is cached.
+     *
+     * @return true if searches are cached
+     */
+    public boolean isEnabled()
+    {
+        return ttl > 0;
+    }
+
+    /**
+     * Checks if results are also kept on disk.
+     *
+     * @return true if results are written to the cache folder
+     */
+    public boolean isDiskEnabled()
+    {
+        return maxDiskBytes > 0;
+    }
+
+    /**
+     * Turns a search into the key it is cached with, so searches that only differ in case,
+     * spacing or how their characters are written share their results.
+     *
+     * @param prefix The search prefix, such as {@code ytsearch:}.
+     * @param query  The search query.
+     * @return The key of the search.
+     */
+    public static String keyOf(String prefix, String query)
+    {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(prefix.length() + normalized.length()).append(prefix);
+        boolean space = false;
+        for(int i = 0; i < normalized.length(); i++)
+        {
+            char c = normalized.charAt(i);
+            if(Character.isWhitespace(c) || Character.isSpaceChar(c))
+                space = true;
+            else
+            {
+                if(space && key.length() > prefix.length())
+                    key.append(' ');
+                space = false;
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Looks a search up in the cache. If the search is not cached, it should be loaded with
+     * a handler from {@link #storing(String, AudioLoadResultHandler)}.
+     *
+     * @param key The key of the search, from {@link #keyOf(String, String)}.
+     * @return Hands the cached results to a handler, or null if the search is not cached.
+     */
+    public Consumer<AudioLoadResultHandler> lookup(String key)
+    {
+        if(!isEnabled())
+            return null;
+        boolean fromDisk = false;
+        Entry entry = memory.get(key);
+        if(entry == null && isDiskEnabled())
+        {
+            entry = readFile(key);
+            if(entry != null)
+            {
+                fromDisk = true;
+                memory.put(key, entry);
+            }
+        }
+        List<AudioTrack> tracks = entry == null || isExpired(entry) ? null : decode(entry);
+        if(tracks == null)
+        {
+            // tracks of a source that is no longer registered can not be decoded
+            if(entry != null)
+                memory.remove(key);
+            misses.increment();
+            return null;
+        }
+        (fromDisk ? diskHits : memoryHits).increment();
+        if(entry.playlistName == null)
+        {
+            AudioTrack track = tracks.get(0);
+            return handler -> handler.trackLoaded(track);
+        }
+        AudioPlaylist playlist = new BasicAudioPlaylist(entry.playlistName, tracks, null, true);
+        return handler -> handler.playlistLoaded(playlist);
+    }
+
+    /**
+     * Wraps a handler so that the results of a search are cached before they are handed to
+     * the handler.
+     *
+     * @param key     The key of the search, from {@link #keyOf(String, String)}.
+     * @param handler The handler to wrap.
+     * @return The handler to load the search with.
+     */
+    public AudioLoadResultHandler storing(String key, AudioLoadResultHandler handler)
+    {
+        if(!isEnabled())
+            return handler;
+        return new AudioLoadResultHandler()
+        {
+            @Override
+            public void trackLoaded(AudioTrack track)
+            {
+                store(key, null, List.of(track));
+                handler.trackLoaded(track);
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist)
+            {
+                if(playlist.isSearchResult())
+                    store(key, playlist.getName() == null ? "" : playlist.getName(), playlist.getTracks());
+                handler.playlistLoaded(playlist);
+            }
+
+            @Override
+            public void noMatches()
+            {
+                handler.noMatches();
+            }
+
+            @Override
+            public void loadFailed(FriendlyException fe)
+            {
+                handler.loadFailed(fe);
+            }
+        };
+    }
+
+    /**
+     * Gets the number of searches answered from memory.
+     *
+     * @return The number of memory hits.
+     */
+    public long getMemoryHits()
+    {
+        return memoryHits.sum();
+    }
+
+    /**
+     * Gets the number of searches answered from the cache folder.
+     *
+     * @return The number of disk hits.
+     */
+    public long getDiskHits()
+    {
+        return diskHits.sum();
+    }
+
+    /**
+     * Gets the number of searches that were not cached.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the share of searches answered from the cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was searched.
+     */
+    public double getHitRate()
+    {
+        long hits = getMemoryHits() + getDiskHits(), total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Gets the number of searches kept in memory.
+     *
+     * @return The number of searches.
+     */
+    public int getSize()
+    {
+        return memory.size();
+    }
+
+    /**
+     * Gets the size of the files in the cache folder.
+     *
+     * @return The size in bytes.
+     */
+    public long getDiskBytes()
+    {
+        return diskBytes.get();
+    }
+
+    private boolean isExpired(Entry entry)
+    {
+        return System.currentTimeMillis() - entry.savedAt >= ttl;
+    }
+
+    private void store(String key, String playlistName, List<AudioTrack> tracks)
+    {
+        if(tracks.isEmpty())
+            return;
+        try
+        {
+            byte[][] encoded = new byte[tracks.size()][];
+            for(int i = 0; i < encoded.length; i++)
+            {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                manager.encodeTrack(new MessageOutput(bytes), tracks.get(i));
+                encoded[i] = bytes.toByteArray();
+            }
+            Entry entry = new Entry(System.currentTimeMillis(), playlistName, encoded);
+            memory.put(key, entry);
+            if(isDiskEnabled())
+                scheduler.submit(JobClass.BACKGROUND, "search-cache-write", () -> writeFile(key, entry));
+        }
+        catch(IOException e)
+        {
+            LOG.debug("Failed to encode the results of " + key + ": " + e);
+        }
+    }
+
+    private List<AudioTrack> decode(Entry entry)
+    {
+        List<AudioTrack> tracks = new ArrayList<>(entry.tracks.length);
+        try
+        {
+            for(byte[] track: entry.tracks)
+            {
+                DecodedTrack decoded = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(track)));
+                if(decoded == null)
+                    return null;
+                tracks.add(decoded.decodedTrack);
+            }
+        }
+        catch(IOException e)
+        {
+            return null;
+        }
+        return tracks;
+    }
+
+    private void openFolder()
+    {
+        long total = 0;
+        try
+        {
+            Files.createDirectories(folder);
+            try(DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + EXTENSION))
+            {
+                for(Path file: files)
+                    total += Files.size(file);
+            }
+        }
+        catch(IOException e)
+        {
+            LOG.warn("Failed to open the " + folder.getFileName() + " folder: " + e);
+        }
+        diskBytes.set(total);
+        prune();
+    }
+
+    private Entry readFile(String key)
+    {
+        Path file = fileOf(key);
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            // a different search with the same hash, or a file of another version, is a miss
+            if(in.readInt() != MAGIC || in.readInt() != VERSION || !readString(in).equals(key))
+                return null;
+            long savedAt = in.readLong();
+            String playlistName = in.readBoolean() ? readString(in) : null;
+            byte[][] tracks = new byte[in.readInt()][];
+            for(int i = 0; i < tracks.length; i++)
+            {
+                tracks[i] = new byte[in.readInt()];
+                in.readFully(tracks[i]);
+            }
+            Entry entry = new Entry(savedAt, playlistName, tracks);
+            if(isExpired(entry))
+            {
+                delete(file);
+                return null;
+            }
+            // the least recently used files are deleted first
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        }
+        catch(NoSuchFileException e)
+        {
+            return null;
+        }
+        catch(IOException | RuntimeException e)
+        {
+            LOG.debug("Failed to read the cached results of " + key + ": " + e);
+            return null;
+        }
+    }
+
+    private void writeFile(String key, Entry entry)
+    {
+        Path file = fileOf(key);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try
+        {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, key);
+                out.writeLong(entry.savedAt);
+                out.writeBoolean(entry.playlistName != null);
+                if(entry.playlistName != null)
+                    writeString(out, entry.playlistName);
+                out.writeInt(entry.tracks.length);
+                for(byte[] track: entry.tracks)
+                {
+                    out.writeInt(track.length);
+                    out.write(track);
+                }
+            }
+            long replaced = Files.exists(file) ? Files.size(file) : 0;
+            JsonSettingsStore.replace(temp, file);
+            if(diskBytes.addAndGet(Files.size(file) - replaced) > maxDiskBytes)
+                prune();
+        }
+        catch(IOException e)
+        {
+            LOG.warn("Failed to write the cached results of " + key + ": " + e);
+            delete(temp);
+        }
+    }
+
+    // deletes the least recently used files until the folder fits
+    private void prune()
+    {
+        if(!pruning.compareAndSet(false, true))
+            return;
+        try
+        {
+            List<Path> files = new ArrayList<>();
+            try(DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + EXTENSION))
+            {
+                stream.forEach(files::add);
+            }
+            files.sort(Comparator.comparingLong(SearchCache::lastModified));
+            for(Path file: files)
+            {
+                if(diskBytes.get() <= maxDiskBytes)
+                    break;
+                delete(file);
+            }
+        }
+        catch(IOException e)
+        {
+            LOG.warn("Failed to prune the " + folder.getFileName() + " folder: " + e);
+        }
+        finally
+        {
+            pruning.set(false);
+        }
+    }
+
+    private void delete(Path file)
+    {
+        try
+        {
+            long size = Files.size(file);
+            if(Files.deleteIfExists(file) && file.getFileName().toString().endsWith(EXTENSION))
+                diskBytes.addAndGet(-size);
+        }
+        catch(IOException ignore) {}
+    }
+
+    private Path fileOf(String key)
+    {
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(32 + EXTENSION.length());
+            for(int i = 0; i < 16; i++)
+                name.append(Character.forDigit(hash[i] >> 4 & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            return folder.resolve(name.append(EXTENSION).toString());
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long lastModified(Path file)
+    {
+        try
+        {
+            return Files.getLastModifiedTime(file).toMillis();
+        }
+        catch(IOException e)
+        {
+            return 0;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry
+    {
+        private final long savedAt;
+        private final String playlistName; // null for a single track
+        private final byte[][] tracks;
+
+        private Entry(long savedAt, String playlistName, byte[][] tracks)
+        {
+            this.savedAt = savedAt;
+            this.playlistName = playlistName;
+            this.tracks = tracks;
+        }
+    }
+}
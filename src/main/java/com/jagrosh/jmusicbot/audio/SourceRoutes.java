@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds what an identifier should be loaded with, from its search prefix (such as
+ * {@code ytsearch:}) or the host of its URL, with a couple of map lookups and without any
+ * regular expression. A domain also matches its subdomains, so {@code youtube.com}
+ * matches {@code music.youtube.com}.
+ *
+ * @param <T> The type of what an identifier is routed to.
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class SourceRoutes<T>
+{
+    private final Map<String, T> prefixes = new HashMap<>();
+    private final Map<String, T> domains = new HashMap<>();
+
+    /**
+     * Routes identifiers starting with a search prefix.
+     *
+     * @param prefix The prefix including its colon, such as {@code ytsearch:}.
+     * @param target What the identifiers are routed to.
+     * @return This object, for chaining.
+     */
+    public SourceRoutes<T> addPrefix(String prefix, T target)
+    {
+        if(!prefix.endsWith(":"))
+            throw new IllegalArgumentException("A prefix has to end with a colon: " + prefix);
+        prefixes.put(prefix, target);
+        return this;
+    }
+
+    /**
+     * Routes http and https URLs of a domain and its subdomains.
+     *
+     * @param domain The domain, such as {@code youtube.com}.
+     * @param target What the URLs are routed to.
+     * @return This object, for chaining.
+     */
+    public SourceRoutes<T> addDomain(String domain, T target)
+    {
+        domains.put(domain.toLowerCase(Locale.ROOT), target);
+        return this;
+    }
+
+    /**
+     * Finds what an identifier is routed to.
+     *
+     * @param identifier The identifier to load.
+     * @return What the identifier is routed to, or null if it has no route.
+     */
+    public T route(String identifier)
+    {
+        int colon = identifier.indexOf(':');
+        if(colon <= 0)
+            return null;
+        T target = prefixes.get(identifier.substring(0, colon + 1));
+        if(target != null)
+            return target;
+        // try the host, then every parent domain of it
+        String host = hostOf(identifier, colon);
+        while(host != null)
+        {
+            target = domains.get(host);
+            if(target != null)
+                return target;
+            int dot = host.indexOf('.');
+            host = dot < 0 ? null : host.substring(dot + 1);
+        }
+        return null;
+    }
+
+    // the lowercase host of an http or https URL, or null if the identifier is not one
+    private static String hostOf(String identifier, int colon)
+    {
+        boolean http = colon == 4 && identifier.regionMatches(true, 0, "http", 0, 4)
+                || colon == 5 && identifier.regionMatches(true, 0, "https", 0, 5);
+        if(!http || !identifier.startsWith("//", colon + 1))
+            return null;
+        int start = colon + 3, end = start;
+        while(end < identifier.length())
+        {
+            char c = identifier.charAt(end);
+            if(c == '/' || c == '?' || c == '#' || c == ':')
+                break;
+            // user info comes before the host, and is rarely used in links
+            if(c == '@')
+                return null;
+            end++;
+        }
+        return end == start ? null : identifier.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+}
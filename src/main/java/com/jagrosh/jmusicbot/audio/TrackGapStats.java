@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the silence between two tracks: the time from a track finishing to the
+ * first frame of the next track being handed to Discord. Transitions to a track that
+ * was prefetched are counted separately from ones where the track only started loading
+ * when the previous one ended.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class TrackGapStats
+{
+    private final Gaps prefetched = new Gaps();
+    private final Gaps loaded = new Gaps();
+
+    /**
+     * Records the gap of one transition between tracks.
+     *
+     * @param gapNanos   The time from the end of the previous track to the first frame of
+     *                   the next one.
+     * @param prefetched True if the next track had been prefetched.
+     */
+    public void record(long gapNanos, boolean prefetched)
+    {
+        (prefetched ? this.prefetched : this.loaded).record(gapNanos);
+    }
+
+    /**
+     * Gets the number of transitions between tracks.
+     *
+     * @param prefetched True for transitions to a prefetched track, false for the others.
+     * @return The number of transitions.
+     */
+    public long getTransitions(boolean prefetched)
+    {
+        return (prefetched ? this.prefetched : this.loaded).count.sum();
+    }
+
+    /**
+     * Gets the average gap between tracks.
+     *
+     * @param prefetched True for transitions to a prefetched track, false for the others.
+     * @return The average gap in milliseconds, or 0 if there were no transitions.
+     */
+    public double getAverageGapMillis(boolean prefetched)
+    {
+        Gaps gaps = prefetched ? this.prefetched : this.loaded;
+        long count = gaps.count.sum();
+        return count == 0 ? 0 : gaps.nanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Gets the longest gap between tracks.
+     *
+     * @param prefetched True for transitions to a prefetched track, false for the others.
+     * @return The longest gap in milliseconds.
+     */
+    public double getMaxGapMillis(boolean prefetched)
+    {
+        return (prefetched ? this.prefetched : this.loaded).max.get() / 1e6;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d prefetched (avg %.1f ms, max %.1f ms), %d loaded (avg %.1f ms, max %.1f ms)",
+                getTransitions(true), getAverageGapMillis(true), getMaxGapMillis(true),
+                getTransitions(false), getAverageGapMillis(false), getMaxGapMillis(false));
+    }
+
+    private static class Gaps
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private void record(long gapNanos)
+        {
+            count.increment();
+            nanos.add(gapNanos);
+            max.accumulateAndGet(gapNanos, Math::max);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.entities.Pair;
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.jagrosh.jmusicbot.scheduler.TimerWheel;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Starts loading the first track of the queue, paused, on a spare player a little before
+ * the playing track ends, so the next track can start from frames that are already
+ * decoded. The prefetched track is only handed over if it is still the first entry of
+ * the queue and is still loaded on the spare player; otherwise it is dropped and the
+ * next track is started the usual way.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class TrackPrefetcher
+{
+    private final Scheduler scheduler;
+    private final long window; // milliseconds
+    private final Supplier<AudioPlayer> createPlayer;
+    private final Supplier<QueuedTrack> next;
+
+    // lavaplayer sends track events while holding the player's lock, so the players
+    // are only called after this lock is released
+    private AudioPlayer player; // the spare player, created on the first prefetch
+    private QueuedTrack entry; // the queue entry whose track is loading on the spare player
+    private AudioTrack track;
+    private TimerWheel.Timeout timeout;
+
+    /**
+     * Constructs a new TrackPrefetcher.
+     *
+     * @param scheduler    The scheduler that runs the prefetches.
+     * @param window       How long before the end of a track the next one starts loading, in
+     *                     milliseconds, or 0 to never prefetch.
+     * @param createPlayer Creates the spare player, with the listener of the playing one.
+     * @param next         Gets the queue entry to prefetch, or null if nothing should be.
+     */
+    public TrackPrefetcher(Scheduler scheduler, long window, Supplier<AudioPlayer> createPlayer, Supplier<QueuedTrack> next)
+    {
+        this.scheduler = scheduler;
+        this.window = window;
+        this.createPlayer = createPlayer;
+        this.next = next;
+    }
+
+    /**
+     * Schedules the next track to start loading a little before a track that just
+     * started ends. Any earlier schedule is replaced.
+     *
+     * @param playing The player the track is playing on.
+     * @param current The track that started.
+     */
+    public void schedule(AudioPlayer playing, AudioTrack current)
+    {
+        if(window <= 0 || current.getDuration() == Long.MAX_VALUE)
+            return;
+        long delay = Math.max(0, current.getDuration() - current.getPosition() - window);
+        synchronized(this)
+        {
+            if(timeout != null)
+                timeout.cancel();
+            timeout = scheduler.newTimeout(JobClass.PLAYBACK, "track-prefetch",
+                    () -> prefetch(playing, current), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void prefetch(AudioPlayer playing, AudioTrack current)
+    {
+        AudioPlayer spare;
+        AudioTrack clone;
+        synchronized(this)
+        {
+            timeout = null;
+            if(playing.getPlayingTrack() != current)
+                return;
+            // the track was paused or sought backwards since the timeout was set
+            if(current.getDuration() - current.getPosition() > window + 1000)
+            {
+                schedule(playing, current);
+                return;
+            }
+            QueuedTrack first = next.get();
+            if(first == null || first == entry)
+                return;
+            clone = first.getTrack().makeClone();
+            if(clone.isSeekable())
+                clone.setPosition(first.getTrack().getPosition());
+            if(player == null)
+                player = createPlayer.get();
+            spare = player;
+            entry = first;
+            track = clone;
+        }
+        // a paused player keeps decoding until its frame buffer is full, and playing a
+        // track stops whatever was prefetched before
+        spare.setPaused(true);
+        spare.playTrack(clone);
+    }
+
+    /**
+     * Drops the prefetched track and any scheduled prefetch.
+     */
+    public void cancel()
+    {
+        AudioPlayer spare;
+        synchronized(this)
+        {
+            if(timeout != null)
+                timeout.cancel();
+            timeout = null;
+            entry = null;
+            track = null;
+            spare = player;
+        }
+        if(spare != null)
+            spare.stopTrack();
+    }
+
+    /**
+     * Hands the prefetched track over in place of the track that just ended, if it is
+     * still the first entry of the queue. The entry is then pulled from the queue, and
+     * the player whose track ended becomes the spare player. Otherwise, the prefetched
+     * track is dropped.
+     *
+     * @param ended The player whose track ended.
+     * @param queue The queue.
+     * @return The player now playing the prefetched track and that track, or null if
+     *         nothing was handed over.
+     */
+    public Pair<AudioPlayer,AudioTrack> handOver(AudioPlayer ended, AbstractQueue<QueuedTrack> queue)
+    {
+        Pair<AudioPlayer,AudioTrack> handedOver = null;
+        synchronized(this)
+        {
+            if(entry == null)
+                return null;
+            // the queue may have changed, or the prefetched track may have failed or been cleaned up
+            if(!queue.isEmpty() && queue.get(0) == entry && player.getPlayingTrack() == track)
+            {
+                queue.pull();
+                handedOver = new Pair<>(player, track);
+                entry = null;
+                track = null;
+                player = ended;
+            }
+        }
+        if(handedOver == null)
+            cancel();
+        return handedOver;
+    }
+
+    /**
+     * Drops the prefetched track and destroys the spare player, for when the bot shuts down.
+     */
+    public void destroy()
+    {
+        cancel();
+        AudioPlayer spare;
+        synchronized(this)
+        {
+            spare = player;
+            player = null;
+        }
+        if(spare != null)
+            spare.destroy();
+    }
+}
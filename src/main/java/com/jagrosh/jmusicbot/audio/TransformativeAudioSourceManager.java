@@ -15,14 +15,19 @@
  */
 package com.jagrosh.jmusicbot.audio;
 
+import com.jagrosh.jmusicbot.utils.ExpiringLruCache;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.track.AudioItem;
 import com.sedmelluq.discord.lavaplayer.track.AudioReference;
 import com.typesafe.config.Config;
 import dev.lavalink.youtube.YoutubeAudioSourceManager;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 import org.jsoup.Jsoup;
@@ -33,13 +38,20 @@ import org.slf4j.LoggerFactory;
 /**
  * A custom audio source manager that transforms URLs before loading them.
  * This is used to support custom sources that are not natively supported by Lavaplayer.
+ * <p>
+ * The value scraped for a transformed URL is cached for a while, so the same link
+ * requested many times only scrapes the page once.
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class TransformativeAudioSourceManager extends YoutubeAudioSourceManager
 {
     private final static Logger log = LoggerFactory.getLogger(TransformativeAudioSourceManager.class);
+    private final static int CACHE_SIZE = 1000;
+    private final static long CACHE_HOURS = 6;
     private final String name, regex, replacement, selector, format;
+    private final Pattern pattern;
+    private final ExpiringLruCache<String, String> resolved = new ExpiringLruCache<>(CACHE_SIZE, CACHE_HOURS, TimeUnit.HOURS);
     
     public TransformativeAudioSourceManager(String name, Config object)
     {
@@ -62,6 +74,20 @@ public class TransformativeAudioSourceManager extends YoutubeAudioSourceManager
         this.replacement = replacement;
         this.selector = selector;
         this.format = format;
+        this.pattern = compile(name, regex);
+    }
+    
+    private static Pattern compile(String name, String regex)
+    {
+        try
+        {
+            return Pattern.compile(regex);
+        }
+        catch (PatternSyntaxException ex)
+        {
+            log.info(String.format("Invalid pattern syntax '%s' in source '%s'", regex, name));
+            return null;
+        }
     }
 
     @Override
@@ -70,26 +96,44 @@ public class TransformativeAudioSourceManager extends YoutubeAudioSourceManager
         return name;
     }
 
+    /**
+     * Gets the cache of values scraped for transformed URLs.
+     *
+     * @return The cache, from transformed URL to the formatted value.
+     */
+    public ExpiringLruCache<String, String> getCache()
+    {
+        return resolved;
+    }
+
+    /**
+     * Checks if an identifier is transformed by this source.
+     *
+     * @param identifier The identifier to check.
+     * @return true if the identifier matches the regex of this source
+     */
+    public boolean matches(String identifier)
+    {
+        return pattern != null && pattern.matcher(identifier).matches();
+    }
+
     @Override
     public AudioItem loadItem(AudioPlayerManager apm, AudioReference ar)
     {
-        if(ar.identifier == null || !ar.identifier.matches(regex))
+        if(ar.identifier == null || pattern == null)
+            return null;
+        Matcher matcher = pattern.matcher(ar.identifier);
+        if(!matcher.matches())
             return null;
         try
         {
-            String url = ar.identifier.replaceAll(regex, replacement);
-            Document doc = Jsoup.connect(url).get();
-            String value = doc.selectFirst(selector).ownText();
-            String formattedValue = String.format(format, value);
+            String url = matcher.replaceAll(replacement);
+            String formattedValue = resolved.getOrLoad(url, this::scrape);
             return super.loadItem(apm, new AudioReference(formattedValue, null));
         }
-        catch (PatternSyntaxException ex)
+        catch (UncheckedIOException ex)
         {
-            log.info(String.format("Invalid pattern syntax '%s' in source '%s'", regex, name));
-        }
-        catch (IOException ex)
-        {
-            log.warn(String.format("Failed to resolve URL in source '%s': ", name), ex);
+            log.warn(String.format("Failed to resolve URL in source '%s': ", name), ex.getCause());
         }
         catch (Exception ex)
         {
@@ -98,6 +142,20 @@ public class TransformativeAudioSourceManager extends YoutubeAudioSourceManager
         return null;
     }
     
+    private String scrape(String url)
+    {
+        try
+        {
+            Document doc = Jsoup.connect(url).get();
+            String value = doc.selectFirst(selector).ownText();
+            return String.format(format, value);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
     /**
      * Creates a list of {@link TransformativeAudioSourceManager}s from a configuration.
      *
@@ -67,6 +67,7 @@ public class VolumeCmd extends DJCommand
             {
                 handler.getPlayer().setVolume(nvolume);
                 settings.setVolume(nvolume);
+                bot.getNowplayingHandler().onPlayerUpdate(event.getGuild().getIdLong());
                 event.reply(FormatUtil.volumeIcon(nvolume)+" Volume changed from `"+volume+"` to `"+nvolume+"`");
             }
         }
@@ -18,9 +18,12 @@ package com.jagrosh.jmusicbot.commands.music;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.Bot;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.audio.ListenerTracker;
 import com.jagrosh.jmusicbot.audio.RequestMetadata;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
+import com.jagrosh.jmusicbot.utils.TimeUtil;
+import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 
 /**
  * A command to vote to skip the current song.
@@ -60,21 +63,20 @@ public class SkipCmd extends MusicCommand
         }
         else
         {
-            int listeners = (int)event.getSelfMember().getVoiceState().getChannel().getMembers().stream()
-                    .filter(m -> !m.getUser().isBot() && !m.getVoiceState().isDeafened()).count();
+            ListenerTracker tracker = handler.getListenerTracker();
+            AudioChannel channel = event.getSelfMember().getVoiceState().getChannel();
+            long now = System.currentTimeMillis();
             String msg;
-            if(handler.getVotes().contains(event.getAuthor().getId()))
-                msg = event.getClient().getWarning()+" You already voted to skip this song `[";
-            else
-            {
+            if(tracker.addVote(event.getAuthor().getIdLong(), now, skipRatio))
                 msg = event.getClient().getSuccess()+" You voted to skip the song `[";
-                handler.getVotes().add(event.getAuthor().getId());
-            }
-            int skippers = (int)event.getSelfMember().getVoiceState().getChannel().getMembers().stream()
-                    .filter(m -> handler.getVotes().contains(m.getUser().getId())).count();
-            int required = (int)Math.ceil(listeners * skipRatio);
+            else
+                msg = event.getClient().getWarning()+" You already voted to skip this song "
+                        + TimeUtil.formatTime(now - tracker.getVoteTime(event.getAuthor().getIdLong())) + " ago `[";
+            int listeners = tracker.getListenerCount(channel);
+            int skippers = tracker.getVotersPresent(channel);
+            int required = tracker.getRequiredVotes(channel);
             msg += skippers + " votes, " + required + "/" + listeners + " needed]`";
-            if(skippers>=required)
+            if(tracker.takeSkip(channel))
             {
                 msg += "\n" + event.getClient().getSuccess() + " Skipped **" + handler.getPlayer().getPlayingTrack().getInfo().title
                     + "** " + (rm.getOwner() == 0L ? "(autoplay)" : "(requested by **" + FormatUtil.formatUsername(rm.user) + "**)");
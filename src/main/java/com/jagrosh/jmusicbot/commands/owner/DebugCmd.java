@@ -18,7 +18,16 @@ package com.jagrosh.jmusicbot.commands.owner;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.commons.JDAUtilitiesInfo;
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.audio.FrameAllocationStats;
+import com.jagrosh.jmusicbot.audio.TrackGapStats;
+import com.jagrosh.jmusicbot.audio.LoadCoalescer;
+import com.jagrosh.jmusicbot.audio.OpusSegmentCache;
+import com.jagrosh.jmusicbot.audio.RoutingAudioSourceManager;
+import com.jagrosh.jmusicbot.audio.SearchCache;
+import com.jagrosh.jmusicbot.audio.TransformativeAudioSourceManager;
 import com.jagrosh.jmusicbot.commands.OwnerCommand;
+import com.jagrosh.jmusicbot.playlist.TrackCache;
+import com.jagrosh.jmusicbot.scheduler.TaskStats;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.sedmelluq.discord.lavaplayer.tools.PlayerLibrary;
 import net.dv8tion.jda.api.JDAInfo;
@@ -79,6 +88,74 @@ public class DebugCmd extends OwnerCommand
         sb.append("\n\nRuntime Information:")
                 .append("\n  Total Memory = ").append(total)
                 .append("\n  Used Memory = ").append(used);
+        FrameAllocationStats frames = bot.getPlayerManager().getFrameStats();
+        sb.append("\n\nAudio Send Information:")
+                .append("\n  ReuseFrames = ").append(bot.getConfig().useReusableFrames())
+                .append("\n  Frames Sent = ").append(frames.getFrames())
+                .append("\n  Bytes Allocated Per Frame = ").append(frames.isSupported()
+                        ? String.format("%.1f", frames.getBytesPerFrame()) : "unsupported");
+        TrackGapStats gaps = bot.getPlayerManager().getGapStats();
+        sb.append("\n\nTrack Transition Information:")
+                .append("\n  PrefetchSeconds = ").append(bot.getConfig().getPrefetchSeconds())
+                .append(String.format("\n  Prefetched = %d, gap %.1f/%.1f ms (avg/max)",
+                        gaps.getTransitions(true), gaps.getAverageGapMillis(true), gaps.getMaxGapMillis(true)))
+                .append(String.format("\n  Not Prefetched = %d, gap %.1f/%.1f ms (avg/max)",
+                        gaps.getTransitions(false), gaps.getAverageGapMillis(false), gaps.getMaxGapMillis(false)));
+        TrackCache cache = bot.getPlaylistLoader().getTrackCache();
+        sb.append("\n\nPlaylist Information:")
+                .append("\n  PlaylistParallelism = ").append(bot.getConfig().getPlaylistParallelism())
+                .append("\n  PlaylistCacheHours = ").append(bot.getConfig().getPlaylistCacheHours())
+                .append("\n  Cached Entries = ").append(cache.getSize())
+                .append("\n  Cache Hits = ").append(cache.getHits())
+                .append("\n  Cache Misses = ").append(cache.getMisses());
+        OpusSegmentCache audio = bot.getPlayerManager().getSegmentCache();
+        sb.append("\n\nAudio Cache Information:")
+                .append("\n  AudioCache = ").append(bot.getConfig().getAudioCache());
+        if(audio != null)
+        {
+            long replayedFrames = audio.getFramesReplayed();
+            sb.append("\n  Cached Tracks = ").append(audio.getSize())
+                    .append(String.format("\n  Used = %.1f/%.1f MB", audio.getUsedBytes() / 1048576.0, audio.getCapacity() / 1048576.0))
+                    .append("\n  Stored = ").append(audio.getStored()).append(", Evicted = ").append(audio.getEvicted())
+                    .append("\n  Replays = ").append(audio.getReplays()).append(", Frames = ").append(replayedFrames)
+                    .append(String.format("\n  Download Saved = %.1f MB", audio.getBytesReplayed() / 1048576.0))
+                    .append(String.format("\n  Replay CPU = %.1f ms (%.1f us/frame)",
+                            audio.getReplayCpuNanos() / 1e6, replayedFrames == 0 ? 0 : audio.getReplayCpuNanos() / 1e3 / replayedFrames));
+        }
+        LoadCoalescer coalescer = bot.getPlayerManager().getCoalescer();
+        sb.append("\n\nLoad Information:")
+                .append("\n  Loads Started = ").append(coalescer.getLoads())
+                .append("\n  Loads Coalesced = ").append(coalescer.getCoalesced());
+        SearchCache search = bot.getPlayerManager().getSearchCache();
+        sb.append("\n\nSearch Cache Information:")
+                .append("\n  SearchCacheSize = ").append(bot.getConfig().getSearchCacheSize())
+                .append("\n  SearchCacheMinutes = ").append(bot.getConfig().getSearchCacheMinutes())
+                .append("\n  SearchCacheDisk = ").append(bot.getConfig().getSearchCacheDisk())
+                .append("\n  Cached Searches = ").append(search.getSize())
+                .append("\n  Disk Bytes = ").append(search.getDiskBytes())
+                .append(String.format("\n  Hits = %d memory, %d disk, %d misses (%.1f%% hit rate)",
+                        search.getMemoryHits(), search.getDiskHits(), search.getMisses(), search.getHitRate() * 100));
+        RoutingAudioSourceManager router = bot.getPlayerManager().getRouter();
+        sb.append("\n\nSource Routing Information:")
+                .append("\n  Routed = ").append(router.getRoutedCount())
+                .append("\n  Scanned = ").append(router.getScannedCount());
+        sb.append("\n\nTransform Information:");
+        for(TransformativeAudioSourceManager transform: bot.getPlayerManager().getTransforms())
+            sb.append("\n  ").append(transform.getSourceName()).append(" = ").append(transform.getCache());
+        sb.append("\n\nNow Playing Information:")
+                .append("\n  Messages Edited = ").append(bot.getNowplayingHandler().getEditCount())
+                .append("\n  Unchanged Edits Skipped = ").append(bot.getNowplayingHandler().getSkippedEditCount())
+                .append("\n  Edits Per Second = ").append(String.format("%.2f", bot.getNowplayingHandler().getEditsPerSecond()))
+                .append("\n  Dropped Refreshes = ").append(bot.getNowplayingHandler().getDroppedRefreshCount())
+                .append("\n  Rate Limited Edits = ").append(bot.getNowplayingHandler().getRateLimitCount())
+                .append("\n  Channels Backing Off = ").append(bot.getNowplayingHandler().getBackedOffChannelCount());
+        sb.append("\n\nScheduler Information:")
+                .append("\n  Pending Timeouts = ").append(bot.getScheduler().getPendingTimeouts());
+        for(TaskStats task: bot.getScheduler().getStats())
+            sb.append("\n  ").append(task.getName()).append(" (").append(task.getJobClass().getUserFriendlyName()).append(")")
+                    .append(String.format(" = %d runs, %d failed, run %.1f/%.1f ms, delay %.1f/%.1f ms (avg/max)",
+                            task.getRuns(), task.getFailures(), task.getAverageRunMillis(), task.getMaxRunMillis(),
+                            task.getAverageDelayMillis(), task.getMaxDelayMillis()));
         sb.append("\n\nDiscord Information:")
                 .append("\n  ID = ").append(event.getJDA().getSelfUser().getId())
                 .append("\n  Guilds = ").append(event.getJDA().getGuildCache().size())
@@ -89,6 +166,22 @@ public class DebugCmd extends OwnerCommand
                 || event.getSelfMember().hasPermission(event.getTextChannel(), Permission.MESSAGE_ATTACH_FILES))
             event.getChannel().sendFiles(FileUpload.fromData(sb.toString().getBytes(), "debug_information.txt")).queue();
         else
-            event.reply("Debug Information: " + sb.toString());
+        {
+            // a message holds at most 2000 characters, so longer text is split between sections
+            String content = sb.substring(4, sb.length() - 4);
+            String header = "Debug Information: ";
+            while(content.length() > 1960)
+            {
+                int index = content.lastIndexOf("\n\n", 1960);
+                if(index == -1)
+                    index = content.lastIndexOf("\n", 1960);
+                if(index == -1)
+                    index = 1960;
+                event.reply(header + "```\n" + content.substring(0, index).trim() + "\n```");
+                content = content.substring(index).trim();
+                header = "";
+            }
+            event.reply(header + "```\n" + content + "\n```");
+        }
     }
 }
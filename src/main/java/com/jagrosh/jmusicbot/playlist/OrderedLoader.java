@@ -0,0 +1,265 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a list of items with a bounded number of loads running at once, and hands the
+ * results over in the order of the items. A result is handed over as soon as it and
+ * every result before it are ready, so the first results arrive without waiting for
+ * the whole list.
+ * <p>
+ * Results are handed over by one thread at a time, whichever completed a load that made
+ * the next results ready. A loader may also give its result before returning.
+ * <p>
+ * A loader that throws before giving its result completes its item with an error result,
+ * and a consumer that throws is logged and skipped, so the remaining items are still
+ * loaded and handed over, and the callback still runs.
+ *
+ * @param <T> The type of the results.
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class OrderedLoader<T>
+{
+    private final static Logger LOG = LoggerFactory.getLogger("OrderedLoader");
+
+    private final int count;
+    private final int parallelism;
+    private final Loader<T> loader;
+    private final BiFunction<Integer,RuntimeException,T> failed;
+    private final Consumer<T> consumer;
+    private final Runnable callback;
+
+    private final Object[] results;
+    private final boolean[] completed;
+    private int started = 0;
+    private int running = 0;
+    private int nextResult = 0;
+    private boolean starting = false;
+    private boolean handingOver = false;
+
+    /**
+     * Constructs a new OrderedLoader.
+     *
+     * @param count       The number of items.
+     * @param parallelism The most loads to run at once.
+     * @param loader      Starts loading an item.
+     * @param consumer    Receives the results, in the order of the items. A null result
+     *                    is skipped.
+     * @param callback    Run once after the last result has been handed over.
+     */
+    public OrderedLoader(int count, int parallelism, Loader<T> loader, Consumer<T> consumer, Runnable callback)
+    {
+        this(count, parallelism, loader, (index, e) -> null, consumer, callback);
+    }
+
+    /**
+     * Constructs a new OrderedLoader.
+     *
+     * @param count       The number of items.
+     * @param parallelism The most loads to run at once.
+     * @param loader      Starts loading an item.
+     * @param failed      Gives the result of an item whose loader threw, from the index of
+     *                    the item and what was thrown.
+     * @param consumer    Receives the results, in the order of the items. A null result
+     *                    is skipped.
+     * @param callback    Run once after the last result has been handed over.
+     */
+    public OrderedLoader(int count, int parallelism, Loader<T> loader, BiFunction<Integer,RuntimeException,T> failed,
+            Consumer<T> consumer, Runnable callback)
+    {
+        this.count = count;
+        this.parallelism = Math.max(1, parallelism);
+        this.loader = loader;
+        this.failed = failed;
+        this.consumer = consumer;
+        this.callback = callback;
+        this.results = new Object[count];
+        this.completed = new boolean[count];
+    }
+
+    /**
+     * Starts loading the first items.
+     */
+    public void start()
+    {
+        if(count == 0)
+        {
+            if(callback != null)
+                callback.run();
+            return;
+        }
+        startMore();
+    }
+
+    private void complete(int index, T result)
+    {
+        synchronized(this)
+        {
+            if(completed[index])
+                throw new IllegalStateException("Item " + index + " was completed twice");
+            results[index] = result;
+            completed[index] = true;
+            running--;
+        }
+        startMore();
+        handOver();
+    }
+
+    private void fail(int index, RuntimeException e)
+    {
+        synchronized(this)
+        {
+            // the loader gave its result before throwing
+            if(completed[index])
+            {
+                LOG.warn("Loading item " + index + " threw after it completed", e);
+                return;
+            }
+        }
+        LOG.warn("Loading item " + index + " failed", e);
+        complete(index, failed.apply(index, e));
+    }
+
+    private void startMore()
+    {
+        synchronized(this)
+        {
+            if(starting)
+                return;
+            starting = true;
+        }
+        // loads can complete before load returns, such as from a cache, and would nest
+        // deeper with every item if each completion started the next load itself
+        boolean stopped = false;
+        try
+        {
+            while(true)
+            {
+                int index;
+                synchronized(this)
+                {
+                    // a load completing after this check finds starting unset and takes over
+                    if(started == count || running == parallelism)
+                    {
+                        starting = false;
+                        stopped = true;
+                        return;
+                    }
+                    index = started++;
+                    running++;
+                }
+                try
+                {
+                    loader.load(index, result -> complete(index, result));
+                }
+                catch(RuntimeException e)
+                {
+                    fail(index, e);
+                }
+            }
+        }
+        finally
+        {
+            // only reached without stopping if something was thrown, such as by the callback
+            if(!stopped)
+            {
+                synchronized(this)
+                {
+                    starting = false;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handOver()
+    {
+        synchronized(this)
+        {
+            if(handingOver)
+                return;
+            handingOver = true;
+        }
+        boolean stopped = false;
+        try
+        {
+            while(true)
+            {
+                int index;
+                T result;
+                boolean last;
+                synchronized(this)
+                {
+                    // a load completing after this check finds handingOver unset and takes over
+                    if(nextResult == count || !completed[nextResult])
+                    {
+                        handingOver = false;
+                        stopped = true;
+                        return;
+                    }
+                    index = nextResult;
+                    result = (T) results[nextResult];
+                    results[nextResult] = null;
+                    last = ++nextResult == count;
+                }
+                if(result != null)
+                {
+                    try
+                    {
+                        consumer.accept(result);
+                    }
+                    catch(RuntimeException e)
+                    {
+                        LOG.warn("Handing over item " + index + " failed", e);
+                    }
+                }
+                if(last && callback != null)
+                    callback.run();
+            }
+        }
+        finally
+        {
+            if(!stopped)
+            {
+                synchronized(this)
+                {
+                    handingOver = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts loading one item.
+     *
+     * @param <T> The type of the result.
+     */
+    public interface Loader<T>
+    {
+        /**
+         * Starts loading an item. The result has to be given exactly once, from any thread.
+         *
+         * @param index  The index of the item.
+         * @param result Receives the result of the item.
+         */
+        void load(int index, Consumer<T> result);
+    }
+}
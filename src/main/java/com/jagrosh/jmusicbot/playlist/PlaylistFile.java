@@ -0,0 +1,365 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The entries of a playlist file. Every line that is not empty or a comment is an entry,
+ * and a {@code #shuffle} or {@code //shuffle} comment asks for the entries to be shuffled.
+ * <p>
+ * Small files are kept in memory as strings. For larger files, only where each entry is
+ * in the file is kept, 8 bytes per entry, and entries are read from the file when they
+ * are used, a window of entries at a time. The file is read through a small buffer, so a
+ * file with millions of lines never has to fit in memory, and shuffling only shuffles the
+ * positions of the entries.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class PlaylistFile
+{
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static long IN_MEMORY_BYTES = 1024 * 1024; // files up to this size are kept as strings
+    private final static int LENGTH_BITS = 24;
+    private final static long MAX_LENGTH = (1L << LENGTH_BITS) - 1;
+    private final static String CHANGED = "The playlist file has changed since it was read";
+
+    private final Path path;
+    private final long size;
+    private final boolean shuffle;
+    private final List<String> strings; // null if the entries are read from the file
+    private final long[] entries;       // offset << LENGTH_BITS | length of every entry
+
+    private PlaylistFile(Path path, long size, boolean shuffle, List<String> strings, long[] entries)
+    {
+        this.path = path;
+        this.size = size;
+        this.shuffle = shuffle;
+        this.strings = strings;
+        this.entries = entries;
+    }
+
+    /**
+     * Reads a playlist file.
+     *
+     * @param path The path of the file.
+     * @return The entries of the file.
+     * @throws IOException If the file can not be read.
+     */
+    public static PlaylistFile read(Path path) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            boolean inMemory = size <= IN_MEMORY_BYTES;
+            ByteBuffer buffer = ByteBuffer.allocate((int) (inMemory ? Math.max(1, size) : BUFFER_SIZE));
+            Scanner scanner = new Scanner();
+            if(inMemory)
+            {
+                while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+                buffer.flip();
+                scanner.scan(buffer, 0);
+            }
+            else
+            {
+                long position = 0;
+                while(channel.read(buffer) >= 0)
+                {
+                    buffer.flip();
+                    position = scanner.scan(buffer, position);
+                    buffer.clear();
+                }
+            }
+            long[] entries = scanner.finish();
+            if(!inMemory)
+                return new PlaylistFile(path, size, scanner.shuffle, null, entries);
+            // the whole file fit in the buffer, so the entries can be decoded from it
+            List<String> strings = new ArrayList<>(entries.length);
+            for(long entry: entries)
+                strings.add(new String(buffer.array(), (int) offsetOf(entry), lengthOf(entry), StandardCharsets.UTF_8));
+            return new PlaylistFile(path, size, scanner.shuffle, Collections.unmodifiableList(strings), null);
+        }
+    }
+
+    /**
+     * Checks if the playlist asks to be shuffled.
+     *
+     * @return true if the file has a shuffle line
+     */
+    public boolean isShuffle()
+    {
+        return shuffle;
+    }
+
+    /**
+     * Checks if the entries are kept in memory, or read from the file when used.
+     *
+     * @return true if the entries are kept in memory
+     */
+    public boolean isInMemory()
+    {
+        return strings != null;
+    }
+
+    /**
+     * Gets the entries of the playlist, in the order of the file. For a large file, getting
+     * an entry reads it from the file, and throws an {@link UncheckedIOException} if that
+     * fails or the file has changed since it was read.
+     *
+     * @return An unmodifiable list of the entries.
+     */
+    public List<String> getItems()
+    {
+        return strings != null ? strings : new Entries(null);
+    }
+
+    /**
+     * Gets the entries of the playlist in a random order. Only the order is new, the
+     * entries themselves are not copied.
+     *
+     * @return An unmodifiable list of the entries, shuffled.
+     */
+    public List<String> getShuffledItems()
+    {
+        int count = strings != null ? strings.size() : entries.length;
+        int[] order = new int[count];
+        for(int i = 0; i < count; i++)
+            order[i] = i;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for(int i = count - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        if(strings == null)
+            return new Entries(order);
+        List<String> shuffled = new ArrayList<>(count);
+        for(int i: order)
+            shuffled.add(strings.get(i));
+        return Collections.unmodifiableList(shuffled);
+    }
+
+    private static long offsetOf(long entry)
+    {
+        return entry >>> LENGTH_BITS;
+    }
+
+    private static int lengthOf(long entry)
+    {
+        return (int) (entry & MAX_LENGTH);
+    }
+
+    // the entries of a large file, read when used, optionally in a different order. The
+    // entries are read a window of up to a buffer at a time, through one channel that is
+    // closed again once the window with the last entry has been read
+    private class Entries extends AbstractList<String> implements RandomAccess
+    {
+        private final int[] order;
+        private FileChannel channel = null;
+        private int windowStart = 0;
+        private String[] window = new String[0];
+
+        private Entries(int[] order)
+        {
+            this.order = order;
+        }
+
+        @Override
+        public synchronized String get(int index)
+        {
+            if(index < 0 || index >= entries.length)
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+entries.length);
+            if(index < windowStart || index >= windowStart + window.length)
+            {
+                try
+                {
+                    readWindow(index);
+                }
+                catch(IOException e)
+                {
+                    closeChannel();
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return window[index - windowStart];
+        }
+
+        private void readWindow(int start) throws IOException
+        {
+            // the entries from start on, as many as fit in the buffer, but at least one
+            int end = start;
+            long bytes = 0;
+            while(end < entries.length && (end == start || bytes + lengthOf(entryAt(end)) <= BUFFER_SIZE))
+                bytes += lengthOf(entryAt(end++));
+            if(channel == null)
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            if(channel.size() != size)
+                throw new IOException(CHANGED);
+            // sorted by where they are in the file, so entries close together are read together
+            Integer[] indexes = new Integer[end - start];
+            for(int i = 0; i < indexes.length; i++)
+                indexes[i] = start + i;
+            Arrays.sort(indexes, (a, b) -> Long.compare(offsetOf(entryAt(a)), offsetOf(entryAt(b))));
+            String[] read = new String[indexes.length];
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(BUFFER_SIZE, bytes));
+            for(int first = 0, last; first < indexes.length; first = last)
+            {
+                long from = offsetOf(entryAt(indexes[first]));
+                long to = from + lengthOf(entryAt(indexes[first]));
+                for(last = first + 1; last < indexes.length; last++)
+                {
+                    long entry = entryAt(indexes[last]);
+                    if(offsetOf(entry) + lengthOf(entry) - from > buffer.capacity())
+                        break;
+                    to = offsetOf(entry) + lengthOf(entry);
+                }
+                buffer.clear().limit((int) (to - from));
+                while(buffer.hasRemaining())
+                    if(channel.read(buffer, from + buffer.position()) < 0)
+                        throw new EOFException(CHANGED);
+                for(int i = first; i < last; i++)
+                {
+                    long entry = entryAt(indexes[i]);
+                    read[indexes[i] - start] = new String(buffer.array(), (int) (offsetOf(entry) - from), lengthOf(entry), StandardCharsets.UTF_8);
+                }
+            }
+            windowStart = start;
+            window = read;
+            if(end == entries.length)
+                closeChannel();
+        }
+
+        private long entryAt(int index)
+        {
+            return entries[order == null ? index : order[index]];
+        }
+
+        private void closeChannel()
+        {
+            if(channel == null)
+                return;
+            try
+            {
+                channel.close();
+            }
+            catch(IOException ignored) {}
+            channel = null;
+        }
+
+        @Override
+        public int size()
+        {
+            return entries.length;
+        }
+    }
+
+    // finds the entries of a file one buffer at a time, so lines may span buffers
+    private static class Scanner
+    {
+        private final static String[] SHUFFLE = {"#shuffle", "//shuffle"};
+
+        private long[] entries = new long[64];
+        private int count = 0;
+        private boolean shuffle = false;
+
+        private long first = -1, last = -1; // the first and last non-whitespace byte of the line
+        private boolean slashSlash = false;  // the line starts with "//"
+        private final byte[] comment = new byte[9]; // the non-whitespace bytes of a comment, up to the length of "//shuffle"
+        private int commentLength = 0;
+
+        private long scan(ByteBuffer buffer, long position)
+        {
+            byte[] bytes = buffer.array();
+            int end = buffer.arrayOffset() + buffer.limit();
+            for(int i = buffer.arrayOffset() + buffer.position(); i < end; i++)
+            {
+                int b = bytes[i] & 0xFF;
+                if(b == '\n')
+                    endLine();
+                else if(b > ' ')
+                {
+                    if(first < 0)
+                        first = position;
+                    else if(position == first + 1 && b == '/' && firstByte() == '/')
+                        slashSlash = true;
+                    last = position;
+                    if(commentLength < comment.length)
+                        comment[commentLength] = (byte) b;
+                    commentLength++;
+                }
+                position++;
+            }
+            return position;
+        }
+
+        private long[] finish()
+        {
+            endLine();
+            return Arrays.copyOf(entries, count);
+        }
+
+        private int firstByte()
+        {
+            return comment[0];
+        }
+
+        private void endLine()
+        {
+            if(first >= 0)
+            {
+                if(firstByte() == '#' || slashSlash)
+                {
+                    if(commentLength <= comment.length)
+                    {
+                        String text = new String(comment, 0, commentLength, StandardCharsets.ISO_8859_1);
+                        for(String directive: SHUFFLE)
+                            if(text.equalsIgnoreCase(directive))
+                                shuffle = true;
+                    }
+                }
+                else
+                {
+                    long length = last - first + 1;
+                    if(length > MAX_LENGTH)
+                        length = MAX_LENGTH; // no link is this long, so it will fail to load either way
+                    if(count == entries.length)
+                        entries = Arrays.copyOf(entries, count * 2);
+                    entries[count++] = first << LENGTH_BITS | length;
+                }
+            }
+            first = -1;
+            last = -1;
+            slashSlash = false;
+            commentLength = 0;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the parsed contents of every playlist file in memory, so looking up a playlist
+ * does not list the playlists folder or read a file. A {@link WatchService} reloads a
+ * playlist whenever its file is created, changed or deleted. The entries of very large
+ * playlists are still read from their file when used, see {@link PlaylistFile}.
+ * <p>
+ * If the folder can not be watched, such as when it does not exist yet, every lookup
+ * reads the folder again, until {@link #start()} succeeds.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class PlaylistIndex
+{
+    private final static Logger LOG = LoggerFactory.getLogger("PlaylistIndex");
+    private final static String EXTENSION = ".txt";
+
+    private final Path folder;
+    private final Map<String, PlaylistFile> playlists = new ConcurrentHashMap<>();
+    private WatchService watcher;
+    private volatile boolean watching = false;
+
+    /**
+     * Constructs a new PlaylistIndex.
+     *
+     * @param folder The playlists folder.
+     */
+    public PlaylistIndex(Path folder)
+    {
+        this.folder = folder;
+    }
+
+    /**
+     * Starts watching the playlists folder and reads every playlist in it. Does nothing
+     * if the folder is already watched.
+     *
+     * @return true if the folder is watched
+     */
+    public synchronized boolean start()
+    {
+        if(watching)
+            return true;
+        if(!Files.isDirectory(folder))
+            return false;
+        try
+        {
+            watcher = folder.getFileSystem().newWatchService();
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch(IOException | UnsupportedOperationException e)
+        {
+            LOG.warn("Failed to watch the playlists folder, playlists will be read on every use: " + e);
+            return false;
+        }
+        // anything that changes from here on is reloaded by the watcher
+        watching = true;
+        scan();
+        WatchService service = watcher;
+        Thread thread = new Thread(() -> watch(service), "playlist-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Stops watching the playlists folder.
+     */
+    public synchronized void stop()
+    {
+        watching = false;
+        if(watcher != null)
+        {
+            try
+            {
+                watcher.close();
+            }
+            catch(IOException ignore) {}
+        }
+    }
+
+    /**
+     * Checks if the playlists folder is watched, so lookups are served from memory.
+     *
+     * @return true if the folder is watched
+     */
+    public boolean isWatching()
+    {
+        return watching;
+    }
+
+    /**
+     * Gets the names of every playlist.
+     *
+     * @return The playlist names, sorted.
+     */
+    public List<String> getNames()
+    {
+        if(!watching)
+            scan();
+        List<String> names = new ArrayList<>(playlists.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Gets the contents of a playlist.
+     *
+     * @param name The name of the playlist.
+     * @return The playlist's entries, or null if there is no such playlist.
+     */
+    public PlaylistFile get(String name)
+    {
+        if(fileOf(name) == null)
+            return null;
+        if(!watching)
+            refresh(name);
+        return playlists.get(name);
+    }
+
+    /**
+     * Reads a playlist's file again, for when it was just written or deleted and the
+     * change should be seen before the watcher picks it up.
+     *
+     * @param name The name of the playlist.
+     */
+    public synchronized void refresh(String name)
+    {
+        Path file = fileOf(name);
+        if(file == null)
+            return;
+        // reading and storing under one lock, so an older read never replaces a newer one
+        try
+        {
+            playlists.put(name, PlaylistFile.read(file));
+        }
+        catch(NoSuchFileException e)
+        {
+            playlists.remove(name);
+        }
+        catch(IOException e)
+        {
+            LOG.warn("Failed to read playlist " + name + ": " + e);
+            playlists.remove(name);
+        }
+    }
+
+    private synchronized void scan()
+    {
+        List<String> found = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + EXTENSION))
+        {
+            for(Path file: files)
+                found.add(nameOf(file));
+        }
+        catch(IOException e)
+        {
+            playlists.clear();
+            return;
+        }
+        playlists.keySet().retainAll(found);
+        found.forEach(this::refresh);
+    }
+
+    private void watch(WatchService service)
+    {
+        while(true)
+        {
+            WatchKey key;
+            try
+            {
+                key = service.take();
+            }
+            catch(InterruptedException | ClosedWatchServiceException e)
+            {
+                return;
+            }
+            for(WatchEvent<?> event: key.pollEvents())
+            {
+                if(event.kind() == StandardWatchEventKinds.OVERFLOW)
+                    scan();
+                else
+                {
+                    String name = nameOf((Path) event.context());
+                    if(name != null)
+                        refresh(name);
+                }
+            }
+            if(!key.reset())
+            {
+                // the folder was deleted or moved
+                LOG.warn("The playlists folder is no longer watched, playlists will be read on every use");
+                stop();
+                return;
+            }
+        }
+    }
+
+    // names come from users, so only files directly in the playlists folder are read
+    private Path fileOf(String name)
+    {
+        if(name.isEmpty() || name.contains("/") || name.contains("\\") || name.contains(".."))
+            return null;
+        try
+        {
+            Path file = folder.resolve(name + EXTENSION);
+            return folder.equals(file.getParent()) ? file : null;
+        }
+        catch(InvalidPathException e)
+        {
+            return null;
+        }
+    }
+
+    private static String nameOf(Path file)
+    {
+        String fileName = file.getFileName().toString();
+        return fileName.endsWith(EXTENSION) ? fileName.substring(0, fileName.length() - EXTENSION.length()) : null;
+    }
+}
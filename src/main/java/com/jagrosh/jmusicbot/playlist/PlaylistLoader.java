@@ -16,6 +16,7 @@
 package com.jagrosh.jmusicbot.playlist;
 
 import com.jagrosh.jmusicbot.BotConfig;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
@@ -24,10 +25,11 @@ import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * Manages loading and saving of playlists.
@@ -37,10 +39,36 @@ import java.util.stream.Collectors;
 public class PlaylistLoader
 {
     private final BotConfig config;
+    private final TrackCache trackCache;
+    private final PlaylistIndex index;
     
-    public PlaylistLoader(BotConfig config)
+    public PlaylistLoader(BotConfig config, Scheduler scheduler)
     {
         this.config = config;
+        this.index = new PlaylistIndex(OtherUtil.getPath(config.getPlaylistsFolder()));
+        this.index.start();
+        this.trackCache = new TrackCache(OtherUtil.getPath(TrackCache.CACHE_FILE), 
+                TimeUnit.HOURS.toMillis(config.getPlaylistCacheHours()), scheduler);
+    }
+    
+    /**
+     * Gets the cache of what playlist entries resolved to.
+     *
+     * @return The {@link TrackCache}.
+     */
+    public TrackCache getTrackCache()
+    {
+        return trackCache;
+    }
+    
+    /**
+     * Stops watching the playlists folder and writes the track cache, for when the bot
+     * shuts down.
+     */
+    public void shutdown()
+    {
+        index.stop();
+        trackCache.save();
     }
     
     /**
@@ -50,12 +78,8 @@ public class PlaylistLoader
      */
     public List<String> getPlaylistNames()
     {
-        if(folderExists())
-        {
-            File folder = new File(OtherUtil.getPath(config.getPlaylistsFolder()).toString());
-            return Arrays.asList(folder.listFiles((pathname) -> pathname.getName().endsWith(".txt")))
-                    .stream().map(f -> f.getName().substring(0,f.getName().length()-4)).collect(Collectors.toList());
-        }
+        if(index.isWatching() || folderExists())
+            return index.getNames();
         else
         {
             createFolder();
@@ -73,6 +97,7 @@ public class PlaylistLoader
             Files.createDirectory(OtherUtil.getPath(config.getPlaylistsFolder()));
         } 
         catch (IOException ignore) {}
+        index.start();
     }
     
     /**
@@ -94,6 +119,7 @@ public class PlaylistLoader
     public void createPlaylist(String name) throws IOException
     {
         Files.createFile(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"));
+        index.refresh(name);
     }
     
     /**
@@ -105,6 +131,7 @@ public class PlaylistLoader
     public void deletePlaylist(String name) throws IOException
     {
         Files.delete(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"));
+        index.refresh(name);
     }
     
     /**
@@ -117,52 +144,27 @@ public class PlaylistLoader
     public void writePlaylist(String name, String text) throws IOException
     {
         Files.write(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"), text.trim().getBytes());
+        index.refresh(name);
     }
     
     /**
-     * Gets a playlist by name.
+     * Gets a playlist by name. The playlist's file is only read when it changes, so this
+     * can be called from the player thread.
      *
      * @param name The name of the playlist.
      * @return The {@link Playlist} object, or null if not found.
      */
     public Playlist getPlaylist(String name)
     {
-        if(!getPlaylistNames().contains(name))
-            return null;
-        try
-        {
-            if(folderExists())
-            {
-                boolean[] shuffle = {false};
-                List<String> list = new ArrayList<>();
-                Files.readAllLines(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt")).forEach(str -> 
-                {
-                    String s = str.trim();
-                    if(s.isEmpty())
-                        return;
-                    if(s.startsWith("#") || s.startsWith("//"))
-                    {
-                        s = s.replaceAll("\\s+", "");
-                        if(s.equalsIgnoreCase("#shuffle") || s.equalsIgnoreCase("//shuffle"))
-                            shuffle[0]=true;
-                    }
-                    else
-                        list.add(s);
-                });
-                if(shuffle[0])
-                    shuffle(list);
-                return new Playlist(name, list, shuffle[0]);
-            }
-            else
-            {
-                createFolder();
-                return null;
-            }
-        }
-        catch(IOException e)
+        if(!index.isWatching() && !folderExists())
         {
+            createFolder();
             return null;
         }
+        PlaylistFile file = index.get(name);
+        if(file == null)
+            return null;
+        return new Playlist(name, file.isShuffle() ? file.getShuffledItems() : file.getItems(), file.isShuffle());
     }
     
     
@@ -195,39 +197,51 @@ public class PlaylistLoader
         }
         
         public void loadTracks(AudioPlayerManager manager, Consumer<AudioTrack> consumer, Runnable callback)
+        {
+            loadTrackBatches(manager, batch -> batch.forEach(consumer), callback);
+        }
+        
+        /**
+         * Loads the tracks of this playlist, handing them over one batch per playlist
+         * entry, so that an entry that is itself a playlist can be queued in one go.
+         * Several entries are loaded at the same time, but the batches are still handed
+         * over in the order of the playlist, each one as soon as the entries before it
+         * have loaded. Entries that were loaded before are taken from the track cache.
+         *
+         * @param manager  The manager used to load the entries.
+         * @param consumer Receives the tracks of each entry, in order.
+         * @param callback Run after the last entry has been loaded.
+         */
+        public void loadTrackBatches(AudioPlayerManager manager, Consumer<List<AudioTrack>> consumer, Runnable callback)
         {
             if(loaded)
                 return;
             loaded = true;
-            for(int i=0; i<items.size(); i++)
+            new OrderedLoader<LoadedEntry>(items.size(), config.getPlaylistParallelism(), (index, result) -> 
             {
-                boolean last = i+1 == items.size();
-                int index = i;
-                manager.loadItemOrdered(name, items.get(i), new AudioLoadResultHandler() 
+                String item;
+                try
+                {
+                    item = items.get(index);
+                }
+                catch(UncheckedIOException e)
+                {
+                    // the entries of a large playlist are read from its file as they are loaded
+                    result.accept(new LoadedEntry(new PlaylistLoadError(index, "", "Failed to read the playlist file: "+e.getCause().getMessage())));
+                    return;
+                }
+                loadItem(manager, item, new AudioLoadResultHandler() 
                 {
-                    private void done()
-                    {
-                        if(last)
-                        {
-                            if(shuffle)
-                                shuffleTracks();
-                            if(callback != null)
-                                callback.run();
-                        }
-                    }
-
                     @Override
                     public void trackLoaded(AudioTrack at) 
                     {
                         if(config.isTooLong(at))
-                            errors.add(new PlaylistLoadError(index, items.get(index), "This track is longer than the allowed maximum"));
+                            result.accept(new LoadedEntry(new PlaylistLoadError(index, item, "This track is longer than the allowed maximum")));
                         else
                         {
                             at.setUserData(0L);
-                            tracks.add(at);
-                            consumer.accept(at);
+                            result.accept(new LoadedEntry(Collections.singletonList(at)));
                         }
-                        done();
                     }
 
                     @Override
@@ -245,36 +259,63 @@ public class PlaylistLoader
                         {
                             List<AudioTrack> loaded = new ArrayList<>(ap.getTracks());
                             if(shuffle)
-                                for(int first =0; first<loaded.size(); first++)
-                                {
-                                    int second = (int)(Math.random()*loaded.size());
-                                    AudioTrack tmp = loaded.get(first);
-                                    loaded.set(first, loaded.get(second));
-                                    loaded.set(second, tmp);
-                                }
+                                shuffle(loaded);
                             loaded.removeIf(track -> config.isTooLong(track));
                             loaded.forEach(at -> at.setUserData(0L));
-                            tracks.addAll(loaded);
-                            loaded.forEach(at -> consumer.accept(at));
+                            result.accept(new LoadedEntry(loaded));
                         }
-                        done();
                     }
 
                     @Override
                     public void noMatches() 
                     {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "No matches found."));
-                        done();
+                        result.accept(new LoadedEntry(new PlaylistLoadError(index, item, "No matches found.")));
                     }
 
                     @Override
                     public void loadFailed(FriendlyException fe) 
                     {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "Failed to load track: "+fe.getLocalizedMessage()));
-                        done();
+                        result.accept(new LoadedEntry(new PlaylistLoadError(index, item, "Failed to load track: "+fe.getLocalizedMessage())));
                     }
                 });
+            }, this::failedEntry, entry -> 
+            {
+                // entries are handed over one at a time, so the lists need no locking
+                if(entry.error != null)
+                    errors.add(entry.error);
+                else
+                {
+                    tracks.addAll(entry.tracks);
+                    consumer.accept(entry.tracks);
+                }
+            }, () -> 
+            {
+                if(shuffle)
+                    shuffleTracks();
+                if(callback != null)
+                    callback.run();
+            }).start();
+        }
+
+        // the result of an entry whose loading threw, instead of giving a result
+        private LoadedEntry failedEntry(int index, RuntimeException e)
+        {
+            String item;
+            try
+            {
+                item = items.get(index);
             }
+            catch(UncheckedIOException ex)
+            {
+                item = "";
+            }
+            return new LoadedEntry(new PlaylistLoadError(index, item, "Failed to load track: "+e));
+        }
+        
+        private void loadItem(AudioPlayerManager manager, String item, AudioLoadResultHandler handler)
+        {
+            if(!trackCache.load(manager, item, handler))
+                manager.loadItem(item, trackCache.storing(manager, item, handler));
         }
         
         public void shuffleTracks()
@@ -303,6 +344,24 @@ public class PlaylistLoader
         }
     }
     
+    private static class LoadedEntry
+    {
+        private final List<AudioTrack> tracks;
+        private final PlaylistLoadError error;
+        
+        private LoadedEntry(List<AudioTrack> tracks)
+        {
+            this.tracks = tracks;
+            this.error = null;
+        }
+        
+        private LoadedEntry(PlaylistLoadError error)
+        {
+            this.tracks = null;
+            this.error = error;
+        }
+    }
+    
     public class PlaylistLoadError
     {
         private final int number;
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.jagrosh.jmusicbot.settings.JsonSettingsStore;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrack;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers what the entries of local playlists resolved to, so loading a playlist again
+ * does not go over the network for every entry. The tracks are kept encoded by lavaplayer
+ * and stored in {@value #CACHE_FILE}, which is read when the bot starts and written a
+ * little while after the cache changes.
+ * <p>
+ * Cached tracks are decoded and handed to the handler by a scheduler job, so a playlist
+ * that is cached entirely does not load on the thread that asked for it, which may be
+ * one of lavaplayer's. An entry older than the time to live is still used, but the
+ * playlist entry is also loaded again in the background to update it. Entries that have not been updated for
+ * much longer than that, such as ones removed from every playlist, are dropped when the
+ * file is read.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class TrackCache
+{
+    public final static String CACHE_FILE = "trackcache.bin";
+    private final static Logger LOG = LoggerFactory.getLogger("TrackCache");
+    private final static int MAGIC = 0x4A4D5443; // "JMTC"
+    private final static int VERSION = 1;
+    private final static long SAVE_DELAY = 10; // seconds
+    private final static int KEEP_TTLS = 10; // entries not updated for this many times the time to live are dropped
+
+    private final Path path;
+    private final long ttl;
+    private final Scheduler scheduler;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new TrackCache and reads the cache file, if there is one.
+     *
+     * @param path      The path of the cache file.
+     * @param ttl       How long an entry is used before it is updated, in milliseconds, or
+     *                  0 or less to not cache anything.
+     * @param scheduler The scheduler that hands over cached tracks and writes the cache file.
+     */
+    public TrackCache(Path path, long ttl, Scheduler scheduler)
+    {
+        this.path = path;
+        this.ttl = ttl;
+        this.scheduler = scheduler;
+        if(isEnabled())
+            read();
+    }
+
+    /**
+     * Checks if anything is cached.
+     *
+     * @return true if the time to live is positive
+     */
+    public boolean isEnabled()
+    {
+        return ttl > 0;
+    }
+
+    /**
+     * Loads a playlist entry from the cache. If the entry is cached, the handler is called
+     * from the scheduler with the cached tracks, and the entry is updated in the background
+     * if it is stale. If the cached tracks can no longer be decoded, the entry is loaded
+     * with the manager instead. If the entry is not cached, it should be loaded with a
+     * handler from {@link #storing(AudioPlayerManager, String, AudioLoadResultHandler)}.
+     *
+     * @param manager The manager used to decode the tracks.
+     * @param item    The playlist entry.
+     * @param handler Receives the cached tracks.
+     * @return true if the entry was cached and the handler will be called
+     */
+    public boolean load(AudioPlayerManager manager, String item, AudioLoadResultHandler handler)
+    {
+        if(!isEnabled())
+            return false;
+        Entry entry = entries.get(item);
+        if(entry == null)
+        {
+            misses.increment();
+            return false;
+        }
+        scheduler.submit(JobClass.LOADING, "track-cache-load", () -> handOver(manager, item, entry, handler));
+        return true;
+    }
+
+    private void handOver(AudioPlayerManager manager, String item, Entry entry, AudioLoadResultHandler handler)
+    {
+        List<AudioTrack> tracks = decode(manager, entry);
+        if(tracks == null)
+        {
+            // tracks of a source that is no longer registered can not be decoded
+            entries.remove(item, entry);
+            misses.increment();
+            manager.loadItem(item, storing(manager, item, handler));
+            return;
+        }
+        hits.increment();
+        if(System.currentTimeMillis() - entry.savedAt >= ttl && revalidating.add(item))
+            manager.loadItem(item, storing(manager, item, null));
+        if(entry.playlistName == null)
+            handler.trackLoaded(tracks.get(0));
+        else
+            handler.playlistLoaded(new BasicAudioPlaylist(entry.playlistName, tracks, null, false));
+    }
+
+    /**
+     * Wraps a handler so that what a playlist entry resolves to is cached before it is
+     * handed to the handler.
+     *
+     * @param manager The manager used to encode the tracks.
+     * @param item    The playlist entry.
+     * @param handler The handler to wrap, or null to only update the cache.
+     * @return The handler to load the entry with.
+     */
+    public AudioLoadResultHandler storing(AudioPlayerManager manager, String item, AudioLoadResultHandler handler)
+    {
+        return new AudioLoadResultHandler()
+        {
+            @Override
+            public void trackLoaded(AudioTrack track)
+            {
+                store(manager, item, null, List.of(track));
+                revalidating.remove(item);
+                if(handler != null)
+                    handler.trackLoaded(track);
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist)
+            {
+                // search results and selected tracks are played as a single track
+                if(playlist.isSearchResult() && !playlist.getTracks().isEmpty())
+                    store(manager, item, null, List.of(playlist.getTracks().get(0)));
+                else if(playlist.getSelectedTrack() != null)
+                    store(manager, item, null, List.of(playlist.getSelectedTrack()));
+                else if(!playlist.isSearchResult())
+                    store(manager, item, playlist.getName(), playlist.getTracks());
+                revalidating.remove(item);
+                if(handler != null)
+                    handler.playlistLoaded(playlist);
+            }
+
+            @Override
+            public void noMatches()
+            {
+                if(isEnabled() && entries.remove(item) != null)
+                    scheduleSave();
+                revalidating.remove(item);
+                if(handler != null)
+                    handler.noMatches();
+            }
+
+            @Override
+            public void loadFailed(FriendlyException fe)
+            {
+                // the cached tracks are kept, the failure may not last
+                revalidating.remove(item);
+                if(handler != null)
+                    handler.loadFailed(fe);
+            }
+        };
+    }
+
+    /**
+     * Gets the number of cached playlist entries.
+     *
+     * @return The number of entries.
+     */
+    public int getSize()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of playlist entries loaded from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of playlist entries that were not cached.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Writes the cache file now, for when the bot shuts down.
+     */
+    public void save()
+    {
+        if(!isEnabled())
+            return;
+        saveScheduled.set(false);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try
+        {
+            synchronized(this)
+            {
+                try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+                {
+                    List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(snapshot.size());
+                    for(Map.Entry<String, Entry> e: snapshot)
+                    {
+                        Entry entry = e.getValue();
+                        writeString(out, e.getKey());
+                        out.writeLong(entry.savedAt);
+                        out.writeBoolean(entry.playlistName != null);
+                        if(entry.playlistName != null)
+                            writeString(out, entry.playlistName);
+                        out.writeInt(entry.tracks.length);
+                        for(byte[] track: entry.tracks)
+                        {
+                            out.writeInt(track.length);
+                            out.write(track);
+                        }
+                    }
+                }
+                JsonSettingsStore.replace(temp, path);
+            }
+        }
+        catch(IOException e)
+        {
+            LOG.warn("Failed to write " + path.getFileName() + ": " + e);
+        }
+    }
+
+    private void store(AudioPlayerManager manager, String item, String playlistName, List<AudioTrack> tracks)
+    {
+        if(!isEnabled() || tracks.isEmpty())
+            return;
+        try
+        {
+            byte[][] encoded = new byte[tracks.size()][];
+            for(int i = 0; i < encoded.length; i++)
+            {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                MessageOutput output = new MessageOutput(bytes);
+                manager.encodeTrack(output, tracks.get(i));
+                encoded[i] = bytes.toByteArray();
+            }
+            entries.put(item, new Entry(System.currentTimeMillis(), playlistName, encoded));
+            scheduleSave();
+        }
+        catch(IOException e)
+        {
+            LOG.debug("Failed to encode the tracks of " + item + ": " + e);
+        }
+    }
+
+    private void scheduleSave()
+    {
+        if(saveScheduled.compareAndSet(false, true))
+            scheduler.schedule(JobClass.BACKGROUND, "track-cache-save", this::save, SAVE_DELAY, TimeUnit.SECONDS);
+    }
+
+    private List<AudioTrack> decode(AudioPlayerManager manager, Entry entry)
+    {
+        List<AudioTrack> tracks = new ArrayList<>(entry.tracks.length);
+        try
+        {
+            for(byte[] track: entry.tracks)
+            {
+                DecodedTrack decoded = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(track)));
+                if(decoded == null)
+                    return null;
+                tracks.add(decoded.decodedTrack);
+            }
+        }
+        catch(IOException e)
+        {
+            return null;
+        }
+        return tracks;
+    }
+
+    private void read()
+    {
+        long oldest = System.currentTimeMillis() - ttl * KEEP_TTLS;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+        {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                LOG.warn(path.getFileName() + " is not a track cache of this version and will be replaced");
+                return;
+            }
+            int count = in.readInt();
+            for(int i = 0; i < count; i++)
+            {
+                String item = readString(in);
+                long savedAt = in.readLong();
+                String playlistName = in.readBoolean() ? readString(in) : null;
+                byte[][] tracks = new byte[in.readInt()][];
+                for(int j = 0; j < tracks.length; j++)
+                {
+                    tracks[j] = new byte[in.readInt()];
+                    in.readFully(tracks[j]);
+                }
+                if(savedAt >= oldest)
+                    entries.put(item, new Entry(savedAt, playlistName, tracks));
+            }
+            LOG.info("Loaded " + entries.size() + " cached playlist entries from " + path.toAbsolutePath());
+        }
+        catch(NoSuchFileException e)
+        {
+            LOG.info(path.getFileName() + " will be created in " + path.toAbsolutePath());
+        }
+        catch(IOException | RuntimeException e)
+        {
+            entries.clear();
+            LOG.warn("Failed to read " + path.getFileName() + ", playlist entries will be loaded again: " + e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry
+    {
+        private final long savedAt;
+        private final String playlistName; // null for a single track
+        private final byte[][] tracks;
+
+        private Entry(long savedAt, String playlistName, byte[][] tracks)
+        {
+            this.savedAt = savedAt;
+            this.playlistName = playlistName;
+            this.tracks = tracks;
+        }
+    }
+}
@@ -16,8 +16,9 @@
 package com.jagrosh.jmusicbot.queue;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * An abstract base class for different queue implementations.
@@ -29,13 +30,45 @@ public abstract class AbstractQueue<T extends Queueable>
 {
     protected AbstractQueue(AbstractQueue<T> queue)
     {
-        this.list = queue != null ? queue.getList() : new LinkedList<>();
+        this(queue, IndexedTreeList::new);
+    }
+
+    /**
+     * Creates a queue with a specific backing list, copying over the items of the previous queue.
+     *
+     * @param queue   The previous queue, used for transferring items.
+     * @param storage Creates the list that backs this queue.
+     */
+    protected AbstractQueue(AbstractQueue<T> queue, Supplier<List<T>> storage)
+    {
+        this.list = storage.get();
+        if(queue != null)
+            this.list.addAll(queue.getList());
     }
 
     protected final List<T> list;
 
     public abstract int add(T item);
 
+    /**
+     * Adds several items to the queue, placing them as if they were added one by one.
+     * Implementations can override this to place the whole batch in a single pass.
+     *
+     * @param items The items to add, in order.
+     * @return The index at which the first item was added, or -1 if there were no items.
+     */
+    public int addAll(Collection<? extends T> items)
+    {
+        int first = -1;
+        for(T item: items)
+        {
+            int index = add(item);
+            if(first == -1)
+                first = index;
+        }
+        return first;
+    }
+
     /**
      * Adds an item at a specific index in the queue.
      *
@@ -0,0 +1,666 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A fair queue that keeps a sub-queue per requester instead of one flat list.
+ * <p>
+ * The order produced by {@link FairQueue} is always a series of rounds: each round holds
+ * at most one item per requester, and requesters appear in every round in the same
+ * rotation order. Pulling the first item moves that requester to the back of the
+ * rotation. This class stores exactly that: a bucket per requester, plus a rotation with
+ * a round-robin cursor, so adding and pulling no longer scan the queue. Items placed at
+ * the very front (for example with {@code playnext}) are kept in a small explicit
+ * segment ahead of the rounds. The flat order is only materialized when it is asked for.
+ * <p>
+ * Operations that can leave the queue in an order that is not made of rounds (moving or
+ * removing an item from the middle) fall back to the flat list and the placement logic
+ * of {@link FairQueue}, and the buckets are rebuilt once the order is regular again.
+ * Either way, the resulting order is identical to the one {@link FairQueue} produces.
+ *
+ * @param <T> The type of the items in the queue.
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class BucketedFairQueue<T extends Queueable> extends FairQueue<T>
+{
+    private final List<T> front = new ArrayList<>();
+    private final List<Bucket<T>> rotation = new ArrayList<>();
+    private final Map<Long, Bucket<T>> buckets = new HashMap<>();
+    private int cursor = 0;
+    private int total = 0;
+
+    private boolean bucketed = true;
+    private int operationsUntilRetry = 0;
+    private List<T> snapshot = null;
+
+    public BucketedFairQueue(AbstractQueue<T> queue)
+    {
+        super(queue);
+        tryRebuildBuckets();
+    }
+
+    /**
+     * Adds an item to the queue, attempting to place it fairly.
+     *
+     * @param item The item to add.
+     * @return The index at which the item was added.
+     */
+    @Override
+    public int add(T item)
+    {
+        if(!bucketed)
+        {
+            int index = super.add(item);
+            countOperation();
+            return index;
+        }
+        snapshot = null;
+        Bucket<T> bucket = buckets.get(item.getIdentifier());
+        if(bucket != null)
+        {
+            // the requester already has items in the rounds, so this one starts the next round for them
+            int index = front.size() + indexInRound(bucket, bucket.size());
+            bucket.add(item);
+            total++;
+            return index;
+        }
+        if(front.isEmpty())
+        {
+            int index = rotation.size();
+            insertIntoRotation(rotation.size(), newBucket(item));
+            return index;
+        }
+        return addAfterFront(item);
+    }
+
+    /**
+     * Adds several items to the queue in a single pass. Each item is appended to its
+     * requester's bucket, so the fair interleave of the whole batch falls out of the
+     * rounds, and only the index of the first item is computed.
+     *
+     * @param items The items to add, in order.
+     * @return The index at which the first item was added, or -1 if there were no items.
+     */
+    @Override
+    public int addAll(Collection<? extends T> items)
+    {
+        if(items.isEmpty())
+            return -1;
+        if(!bucketed)
+            tryRebuildBuckets();
+        if(!bucketed)
+            return super.addAll(items);
+        Iterator<? extends T> iterator = items.iterator();
+        int first = add(iterator.next());
+        while(iterator.hasNext())
+        {
+            T item = iterator.next();
+            Bucket<T> bucket = buckets.get(item.getIdentifier());
+            if(bucket != null)
+            {
+                bucket.add(item);
+                total++;
+            }
+            else if(front.isEmpty())
+                insertIntoRotation(rotation.size(), newBucket(item));
+            else
+                addAfterFront(item);
+        }
+        return first;
+    }
+
+    /**
+     * Adds an item at a specific index in the queue.
+     *
+     * @param index The index at which to add the item.
+     * @param item  The item to add.
+     */
+    @Override
+    public void addAt(int index, T item)
+    {
+        if(bucketed)
+        {
+            snapshot = null;
+            if(index <= front.size() && (index < size() || total == 0))
+            {
+                front.add(Math.min(index, front.size()), item);
+                return;
+            }
+            if(index >= size())
+            {
+                Bucket<T> bucket = buckets.get(item.getIdentifier());
+                if(bucket != null && bucket.size() == maxBucketSize())
+                {
+                    bucket.add(item);
+                    total++;
+                    return;
+                }
+            }
+            flatten();
+        }
+        super.addAt(index, item);
+        tryRebuildBuckets();
+    }
+
+    @Override
+    public int size()
+    {
+        return bucketed ? front.size() + total : super.size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return bucketed ? front.isEmpty() && total == 0 : super.isEmpty();
+    }
+
+    @Override
+    public T pull()
+    {
+        if(!bucketed)
+        {
+            T item = super.pull();
+            countOperation();
+            return item;
+        }
+        snapshot = null;
+        if(!front.isEmpty())
+            return front.remove(0);
+        if(total == 0)
+            throw new IndexOutOfBoundsException("Index: 0, Size: 0");
+        return pollHead();
+    }
+
+    /**
+     * Gets the items in the queue, in order.
+     * While the queue is held in buckets, this is a read-only list that is
+     * materialized on demand and reused until the queue changes.
+     *
+     * @return The list of items.
+     */
+    @Override
+    public List<T> getList()
+    {
+        if(!bucketed)
+            return super.getList();
+        if(snapshot == null)
+            snapshot = Collections.unmodifiableList(materialize());
+        return snapshot;
+    }
+
+    @Override
+    public T get(int index)
+    {
+        if(!bucketed)
+            return super.get(index);
+        if(index < front.size())
+            return front.get(index);
+        Position<T> position = locate(index - front.size());
+        return position.bucket.get(position.round);
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        if(bucketed)
+        {
+            snapshot = null;
+            if(index < front.size())
+                return front.remove(index);
+            Position<T> position = locate(index - front.size());
+            if(index == front.size())
+                return pollHead();
+            if(position.round == position.bucket.size() - 1)
+            {
+                // dropping the last item of a requester keeps every round intact
+                T item = position.bucket.removeLast();
+                total--;
+                if(position.bucket.size() == 0)
+                    removeFromRotation(position.bucket);
+                return item;
+            }
+            flatten();
+        }
+        T item = super.remove(index);
+        tryRebuildBuckets();
+        return item;
+    }
+
+    @Override
+    public int removeAll(long identifier)
+    {
+        if(!bucketed)
+        {
+            int count = super.removeAll(identifier);
+            tryRebuildBuckets();
+            return count;
+        }
+        snapshot = null;
+        int count = 0;
+        for(int i = front.size() - 1; i >= 0; i--)
+        {
+            if(front.get(i).getIdentifier() == identifier)
+            {
+                front.remove(i);
+                count++;
+            }
+        }
+        Bucket<T> bucket = buckets.get(identifier);
+        if(bucket != null)
+        {
+            count += bucket.size();
+            total -= bucket.size();
+            removeFromRotation(bucket);
+        }
+        return count;
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        front.clear();
+        rotation.clear();
+        buckets.clear();
+        cursor = 0;
+        total = 0;
+        bucketed = true;
+        snapshot = null;
+    }
+
+    @Override
+    public int shuffle(long identifier)
+    {
+        if(!bucketed)
+            return super.shuffle(identifier);
+        snapshot = null;
+        // the requester's items are shuffled among their own positions, in queue order
+        List<Integer> frontIndexes = new ArrayList<>();
+        List<T> items = new ArrayList<>();
+        for(int i = 0; i < front.size(); i++)
+        {
+            if(front.get(i).getIdentifier() == identifier)
+            {
+                frontIndexes.add(i);
+                items.add(front.get(i));
+            }
+        }
+        Bucket<T> bucket = buckets.get(identifier);
+        if(bucket != null)
+            for(int k = 0; k < bucket.size(); k++)
+                items.add(bucket.get(k));
+        for(int j = 0; j < items.size(); j++)
+        {
+            int second = (int)(Math.random()*items.size());
+            T temp = items.get(j);
+            items.set(j, items.get(second));
+            items.set(second, temp);
+        }
+        for(int j = 0; j < frontIndexes.size(); j++)
+            front.set(frontIndexes.get(j), items.get(j));
+        if(bucket != null)
+            for(int k = 0; k < bucket.size(); k++)
+                bucket.set(k, items.get(frontIndexes.size() + k));
+        return items.size();
+    }
+
+    @Override
+    public void skip(int number)
+    {
+        if(!bucketed)
+        {
+            super.skip(number);
+            tryRebuildBuckets();
+            return;
+        }
+        if(number <= 0)
+            return;
+        if(number > size())
+            throw new IndexOutOfBoundsException("toIndex = " + number);
+        snapshot = null;
+        int fromFront = Math.min(number, front.size());
+        front.subList(0, fromFront).clear();
+        for(int i = fromFront; i < number; i++)
+            pollHead();
+    }
+
+    @Override
+    public T moveItem(int from, int to)
+    {
+        if(bucketed)
+            flatten();
+        T item = super.moveItem(from, to);
+        tryRebuildBuckets();
+        return item;
+    }
+
+    // Private methods
+    private Bucket<T> newBucket(T item)
+    {
+        Bucket<T> bucket = new Bucket<>(item.getIdentifier());
+        bucket.add(item);
+        buckets.put(bucket.identifier, bucket);
+        total++;
+        return bucket;
+    }
+
+    /**
+     * Places the first item of a requester that has no items in the rounds,
+     * while there are items in the front segment. This follows the scan done
+     * by {@link FairQueue#add}, starting after the requester's last front item.
+     */
+    private int addAfterFront(T item)
+    {
+        int start = 0;
+        for(int i = front.size() - 1; i >= 0; i--)
+        {
+            if(front.get(i).getIdentifier() == item.getIdentifier())
+            {
+                start = i + 1;
+                break;
+            }
+        }
+        Set<Long> seen = new HashSet<>();
+        for(int i = start; i < front.size(); i++)
+        {
+            if(!seen.add(front.get(i).getIdentifier()))
+            {
+                front.add(i, item);
+                return i;
+            }
+        }
+        // the scan continues into the first round, and stops at the first requester already seen
+        int offset = 0;
+        for(; offset < rotation.size(); offset++)
+            if(seen.contains(rotationAt(offset).identifier))
+                break;
+        insertIntoRotation(offset, newBucket(item));
+        return front.size() + offset;
+    }
+
+    // the number of items (after the front segment) that come before round 'round' of the given bucket
+    private int indexInRound(Bucket<T> target, int round)
+    {
+        int index = 0;
+        boolean before = true;
+        for(int offset = 0; offset < rotation.size(); offset++)
+        {
+            Bucket<T> bucket = rotationAt(offset);
+            if(bucket == target)
+                before = false;
+            index += Math.min(bucket.size(), round);
+            if(before && bucket.size() > round)
+                index++;
+        }
+        return index;
+    }
+
+    private int itemsBeforeRound(int round)
+    {
+        int count = 0;
+        for(Bucket<T> bucket: rotation)
+            count += Math.min(bucket.size(), round);
+        return count;
+    }
+
+    private int maxBucketSize()
+    {
+        int max = 0;
+        for(Bucket<T> bucket: rotation)
+            max = Math.max(max, bucket.size());
+        return max;
+    }
+
+    private Position<T> locate(int index)
+    {
+        if(index < 0 || index >= total)
+            throw new IndexOutOfBoundsException("Index: " + (index + front.size()) + ", Size: " + size());
+        // binary search for the last round that starts at or before the index
+        int low = 0, high = maxBucketSize() - 1;
+        while(low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if(itemsBeforeRound(mid) <= index)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        int remaining = index - itemsBeforeRound(low);
+        for(int offset = 0; offset < rotation.size(); offset++)
+        {
+            Bucket<T> bucket = rotationAt(offset);
+            if(bucket.size() > low && remaining-- == 0)
+                return new Position<>(bucket, low);
+        }
+        throw new IllegalStateException("Queue buckets are inconsistent");
+    }
+
+    private T pollHead()
+    {
+        Bucket<T> head = rotation.get(cursor);
+        T item = head.poll();
+        total--;
+        if(head.size() == 0)
+            removeFromRotation(head);
+        else
+            cursor = (cursor + 1) % rotation.size();
+        return item;
+    }
+
+    private Bucket<T> rotationAt(int offset)
+    {
+        return rotation.get((cursor + offset) % rotation.size());
+    }
+
+    // inserts a bucket so that it ends up at the given offset from the cursor
+    private void insertIntoRotation(int offset, Bucket<T> bucket)
+    {
+        if(rotation.isEmpty())
+        {
+            rotation.add(bucket);
+            cursor = 0;
+        }
+        else if(offset >= rotation.size())
+        {
+            rotation.add(cursor, bucket);
+            cursor++;
+        }
+        else
+        {
+            int index = (cursor + offset) % rotation.size();
+            rotation.add(index, bucket);
+            if(index < cursor)
+                cursor++;
+        }
+    }
+
+    private void removeFromRotation(Bucket<T> bucket)
+    {
+        buckets.remove(bucket.identifier);
+        int index = rotation.indexOf(bucket);
+        rotation.remove(index);
+        if(index < cursor)
+            cursor--;
+        if(cursor >= rotation.size())
+            cursor = 0;
+    }
+
+    private List<T> materialize()
+    {
+        List<T> items = new ArrayList<>(size());
+        items.addAll(front);
+        List<Bucket<T>> active = new ArrayList<>(rotation.size());
+        for(int offset = 0; offset < rotation.size(); offset++)
+            active.add(rotationAt(offset));
+        for(int round = 0; !active.isEmpty(); round++)
+        {
+            int kept = 0;
+            for(Bucket<T> bucket: active)
+            {
+                items.add(bucket.get(round));
+                if(bucket.size() > round + 1)
+                    active.set(kept++, bucket);
+            }
+            active.subList(kept, active.size()).clear();
+        }
+        return items;
+    }
+
+    private void flatten()
+    {
+        List<T> items = materialize();
+        front.clear();
+        rotation.clear();
+        buckets.clear();
+        cursor = 0;
+        total = 0;
+        snapshot = null;
+        list.clear();
+        list.addAll(items);
+        bucketed = false;
+    }
+
+    private void countOperation()
+    {
+        if(--operationsUntilRetry <= 0)
+            tryRebuildBuckets();
+    }
+
+    /**
+     * Moves the flat list back into buckets, if its order is made of rounds.
+     * When it is not, the next attempt is delayed until roughly as many operations
+     * as there are items have happened, so checking stays O(1) amortized.
+     */
+    private void tryRebuildBuckets()
+    {
+        // the first round holds every requester once, in the order they first appear
+        Map<Long, Bucket<T>> found = new HashMap<>();
+        List<Bucket<T>> order = new ArrayList<>();
+        for(T item: list)
+        {
+            Bucket<T> bucket = found.get(item.getIdentifier());
+            if(bucket == null)
+            {
+                bucket = new Bucket<>(item.getIdentifier());
+                found.put(bucket.identifier, bucket);
+                order.add(bucket);
+            }
+            bucket.add(item);
+        }
+        Iterator<T> items = list.iterator();
+        List<Bucket<T>> active = new ArrayList<>(order);
+        for(int round = 0; !active.isEmpty(); round++)
+        {
+            int kept = 0;
+            for(Bucket<T> bucket: active)
+            {
+                if(items.next() != bucket.get(round))
+                {
+                    bucketed = false;
+                    operationsUntilRetry = Math.max(list.size(), 16);
+                    return;
+                }
+                if(bucket.size() > round + 1)
+                    active.set(kept++, bucket);
+            }
+            active.subList(kept, active.size()).clear();
+        }
+        front.clear();
+        rotation.clear();
+        rotation.addAll(order);
+        buckets.clear();
+        buckets.putAll(found);
+        cursor = 0;
+        total = list.size();
+        snapshot = null;
+        list.clear();
+        bucketed = true;
+    }
+
+    private static class Position<T extends Queueable>
+    {
+        private final Bucket<T> bucket;
+        private final int round;
+
+        private Position(Bucket<T> bucket, int round)
+        {
+            this.bucket = bucket;
+            this.round = round;
+        }
+    }
+
+    /**
+     * The items of a single requester, in the order they will be played.
+     */
+    private static class Bucket<T>
+    {
+        private final long identifier;
+        private final List<T> items = new ArrayList<>();
+        private int head = 0;
+
+        private Bucket(long identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        private T get(int index)
+        {
+            return items.get(head + index);
+        }
+
+        private void set(int index, T item)
+        {
+            items.set(head + index, item);
+        }
+
+        private int size()
+        {
+            return items.size() - head;
+        }
+
+        private void add(T item)
+        {
+            items.add(item);
+        }
+
+        private T poll()
+        {
+            T item = items.set(head++, null);
+            // compact once the consumed prefix is at least half of the storage
+            if(head * 2 >= items.size())
+            {
+                items.subList(0, head).clear();
+                head = 0;
+            }
+            return item;
+        }
+
+        private T removeLast()
+        {
+            return items.remove(items.size() - 1);
+        }
+    }
+}
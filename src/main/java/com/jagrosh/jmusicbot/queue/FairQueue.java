@@ -16,7 +16,9 @@
 package com.jagrosh.jmusicbot.queue;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * A queue that attempts to fairly distribute tracks among users.
@@ -31,6 +33,11 @@ public class FairQueue<T extends Queueable> extends AbstractQueue<T>
         super(queue);
     }
 
+    public FairQueue(AbstractQueue<T> queue, Supplier<List<T>> storage)
+    {
+        super(queue, storage);
+    }
+
     protected final Set<Long> set = new HashSet<>();
 
     /**
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A list backed by an implicit treap, which is a randomized balanced binary tree
+ * that is keyed by position instead of by value.
+ * Random access, insertion and removal at any index take O(log n) expected time,
+ * and removing a whole range (for example through {@code subList(a, b).clear()})
+ * is also O(log n), which makes it a good backing store for long queues.
+ *
+ * @param <T> The type of the items in the list.
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class IndexedTreeList<T> extends AbstractList<T> implements RandomAccess
+{
+    private Node<T> root;
+
+    /**
+     * Constructs an empty list.
+     */
+    public IndexedTreeList()
+    {
+        this.root = null;
+    }
+
+    /**
+     * Constructs a list containing the items of the given collection, in iteration order.
+     *
+     * @param items The items to add.
+     */
+    public IndexedTreeList(Collection<? extends T> items)
+    {
+        this.root = build(items);
+    }
+
+    @Override
+    public int size()
+    {
+        return size(root);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return root == null;
+    }
+
+    @Override
+    public T get(int index)
+    {
+        checkIndex(index, size());
+        return nodeAt(index).value;
+    }
+
+    @Override
+    public T set(int index, T item)
+    {
+        checkIndex(index, size());
+        Node<T> node = nodeAt(index);
+        T old = node.value;
+        node.value = item;
+        return old;
+    }
+
+    @Override
+    public boolean add(T item)
+    {
+        root = merge(root, new Node<>(item));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, T item)
+    {
+        checkIndex(index, size() + 1);
+        Node<T>[] parts = split(root, index);
+        root = merge(merge(parts[0], new Node<>(item)), parts[1]);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> items)
+    {
+        if(items.isEmpty())
+            return false;
+        root = merge(root, build(items));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> items)
+    {
+        checkIndex(index, size() + 1);
+        if(items.isEmpty())
+            return false;
+        Node<T>[] parts = split(root, index);
+        root = merge(merge(parts[0], build(items)), parts[1]);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        checkIndex(index, size());
+        Node<T>[] parts = split(root, index);
+        Node<T>[] rest = split(parts[1], 1);
+        root = merge(parts[0], rest[1]);
+        modCount++;
+        return rest[0].value;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        if(fromIndex >= toIndex)
+            return;
+        Node<T>[] parts = split(root, fromIndex);
+        Node<T>[] rest = split(parts[1], toIndex - fromIndex);
+        root = merge(parts[0], rest[1]);
+        modCount++;
+    }
+
+    @Override
+    public void clear()
+    {
+        root = null;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new InOrderIterator();
+    }
+
+    // Private methods
+    private Node<T> nodeAt(int index)
+    {
+        Node<T> node = root;
+        while(true)
+        {
+            int left = size(node.left);
+            if(index < left)
+                node = node.left;
+            else if(index == left)
+                return node;
+            else
+            {
+                index -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static void checkIndex(int index, int size)
+    {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private static int size(Node<?> node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <T> Node<T> update(Node<T> node)
+    {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static <T> Node<T> merge(Node<T> left, Node<T> right)
+    {
+        if(left == null)
+            return right;
+        if(right == null)
+            return left;
+        if(left.priority > right.priority)
+        {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    // splits the tree so that the first part holds exactly 'count' nodes
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] split(Node<T> node, int count)
+    {
+        if(node == null)
+            return new Node[]{null, null};
+        int left = size(node.left);
+        if(count <= left)
+        {
+            Node<T>[] parts = split(node.left, count);
+            node.left = parts[1];
+            parts[1] = update(node);
+            return parts;
+        }
+        Node<T>[] parts = split(node.right, count - left - 1);
+        node.right = parts[0];
+        parts[0] = update(node);
+        return parts;
+    }
+
+    // builds a treap in linear time by keeping the right spine on a stack
+    private static <T> Node<T> build(Collection<? extends T> items)
+    {
+        Deque<Node<T>> spine = new ArrayDeque<>();
+        for(T item: items)
+        {
+            Node<T> node = new Node<>(item);
+            Node<T> last = null;
+            while(!spine.isEmpty() && spine.peek().priority < node.priority)
+                last = update(spine.pop());
+            node.left = last;
+            if(!spine.isEmpty())
+                spine.peek().right = node;
+            spine.push(node);
+        }
+        Node<T> top = null;
+        while(!spine.isEmpty())
+            top = update(spine.pop());
+        return top;
+    }
+
+    private static class Node<T>
+    {
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private T value;
+        private int size = 1;
+        private Node<T> left, right;
+
+        private Node(T value)
+        {
+            this.value = value;
+        }
+    }
+
+    private class InOrderIterator implements Iterator<T>
+    {
+        private final Deque<Node<T>> stack = new ArrayDeque<>();
+        private int expectedModCount = modCount;
+        private int nextIndex = 0;
+        private boolean canRemove = false;
+
+        private InOrderIterator()
+        {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public T next()
+        {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(stack.isEmpty())
+                throw new NoSuchElementException();
+            Node<T> node = stack.pop();
+            pushLeft(node.right);
+            nextIndex++;
+            canRemove = true;
+            return node.value;
+        }
+
+        @Override
+        public void remove()
+        {
+            if(!canRemove)
+                throw new IllegalStateException();
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            // removing restructures the tree, so the traversal is rebuilt from the next index
+            IndexedTreeList.this.remove(--nextIndex);
+            expectedModCount = modCount;
+            canRemove = false;
+            stack.clear();
+            Node<T> node = root;
+            int index = nextIndex;
+            while(node != null)
+            {
+                int left = size(node.left);
+                if(index < left)
+                {
+                    stack.push(node);
+                    node = node.left;
+                }
+                else if(index == left)
+                {
+                    stack.push(node);
+                    break;
+                }
+                else
+                {
+                    index -= left + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        private void pushLeft(Node<T> node)
+        {
+            while(node != null)
+            {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
@@ -15,6 +15,10 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
 /**
  * A standard, first-in, first-out queue.
  *
@@ -28,6 +32,11 @@ public class LinearQueue<T extends Queueable> extends AbstractQueue<T>
         super(queue);
     }
 
+    public LinearQueue(AbstractQueue<T> queue, Supplier<List<T>> storage)
+    {
+        super(queue, storage);
+    }
+
     /**
      * Adds an item to the end of the queue.
      *
@@ -41,4 +50,20 @@ public class LinearQueue<T extends Queueable> extends AbstractQueue<T>
         return list.size() - 1;
     }
 
+    /**
+     * Adds several items to the end of the queue at once.
+     *
+     * @param items The items to add, in order.
+     * @return The index at which the first item was added, or -1 if there were no items.
+     */
+    @Override
+    public int addAll(Collection<? extends T> items)
+    {
+        if(items.isEmpty())
+            return -1;
+        int index = list.size();
+        list.addAll(items);
+        return index;
+    }
+
 }
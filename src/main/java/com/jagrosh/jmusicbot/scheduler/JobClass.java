@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.scheduler;
+
+/**
+ * An enum representing the kinds of background jobs the bot runs. Each kind gets its
+ * own pool of threads, so a slow job of one kind never delays jobs of another.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public enum JobClass
+{
+    VOICE("Voice connections", 2),
+    NOWPLAYING("Now playing updates", 1),
+    PLAYBACK("Track prefetching", 1),
+    LOADING("Cached track loading", 1),
+    BACKGROUND("Background tasks", 1);
+
+    private final String userFriendlyName;
+    private final int defaultThreads;
+
+    JobClass(String userFriendlyName, int defaultThreads)
+    {
+        this.userFriendlyName = userFriendlyName;
+        this.defaultThreads = defaultThreads;
+    }
+
+    /**
+     * Gets the name of this job class as shown to users.
+     *
+     * @return The user friendly name.
+     */
+    public String getUserFriendlyName()
+    {
+        return userFriendlyName;
+    }
+
+    /**
+     * Gets the number of threads used for this job class when the config does not set one.
+     *
+     * @return The default number of threads.
+     */
+    public int getDefaultThreads()
+    {
+        return defaultThreads;
+    }
+
+    /**
+     * Gets the name of this job class in the config file.
+     *
+     * @return The lowercase name.
+     */
+    public String getConfigName()
+    {
+        return name().toLowerCase();
+    }
+}
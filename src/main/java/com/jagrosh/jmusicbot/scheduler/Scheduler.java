@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.scheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the bot's background jobs, with a separate pool of threads for each
+ * {@link JobClass}, so for example voice disconnects never wait behind now playing
+ * updates. Every job is given a name, and the run time and queue delay of each
+ * named job are recorded in a {@link TaskStats}.
+ * <p>
+ * A periodic job that throws is logged and keeps running, instead of being silently
+ * cancelled as a plain executor would do.
+ * <p>
+ * Timeouts that are usually cancelled before they are due, which may be pending for
+ * many guilds at once, wait on a {@link TimerWheel} instead of in a pool's queue.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class Scheduler
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Scheduler");
+    private final Map<JobClass, ScheduledThreadPoolExecutor> pools = new EnumMap<>(JobClass.class);
+    private final Map<String, TaskStats> stats = new ConcurrentHashMap<>();
+    private final TimerWheel timers = new TimerWheel("scheduler-timer", 10, TimeUnit.MILLISECONDS, 1024);
+
+    /**
+     * Constructs a new Scheduler and starts its thread pools.
+     *
+     * @param threads The number of threads to use for each job class.
+     */
+    public Scheduler(ToIntFunction<JobClass> threads)
+    {
+        for(JobClass jobClass: JobClass.values())
+        {
+            AtomicInteger count = new AtomicInteger();
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Math.max(1, threads.applyAsInt(jobClass)), r ->
+                    new Thread(r, "scheduler-" + jobClass.getConfigName() + "-" + count.incrementAndGet()));
+            pool.setRemoveOnCancelPolicy(true);
+            pools.put(jobClass, pool);
+        }
+    }
+
+    /**
+     * Runs a job as soon as a thread of its job class is free.
+     *
+     * @param jobClass The job class to run the job in.
+     * @param name     The name the job's metrics are recorded under.
+     * @param job      The job to run.
+     * @return A future for the job.
+     */
+    public Future<?> submit(JobClass jobClass, String name, Runnable job)
+    {
+        return pools.get(jobClass).submit(new TrackedJob(stats(jobClass, name), job, 0, 0));
+    }
+
+    /**
+     * Runs a job once after a delay.
+     *
+     * @param jobClass The job class to run the job in.
+     * @param name     The name the job's metrics are recorded under.
+     * @param job      The job to run.
+     * @param delay    The delay before running the job.
+     * @param unit     The unit of the delay.
+     * @return A future for the job.
+     */
+    public ScheduledFuture<?> schedule(JobClass jobClass, String name, Runnable job, long delay, TimeUnit unit)
+    {
+        return pools.get(jobClass).schedule(new TrackedJob(stats(jobClass, name), job, unit.toNanos(delay), 0), delay, unit);
+    }
+
+    /**
+     * Runs a job repeatedly, waiting a fixed delay between the end of one run and the
+     * start of the next.
+     *
+     * @param jobClass     The job class to run the job in.
+     * @param name         The name the job's metrics are recorded under.
+     * @param job          The job to run.
+     * @param initialDelay The delay before the first run.
+     * @param delay        The delay between runs.
+     * @param unit         The unit of the delays.
+     * @return A future that can cancel the job.
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(JobClass jobClass, String name, Runnable job, long initialDelay, long delay, TimeUnit unit)
+    {
+        TrackedJob tracked = new TrackedJob(stats(jobClass, name), job, unit.toNanos(initialDelay), unit.toNanos(delay));
+        return pools.get(jobClass).scheduleWithFixedDelay(tracked, initialDelay, delay, unit);
+    }
+
+    /**
+     * Runs a job once after a delay, unless the returned timeout is cancelled first.
+     * Unlike {@link #schedule}, waiting and cancelled timeouts cost almost nothing, so
+     * this suits many timeouts that rarely run. The job runs at most 10ms late.
+     *
+     * @param jobClass The job class to run the job in.
+     * @param name     The name the job's metrics are recorded under.
+     * @param job      The job to run.
+     * @param delay    The delay before running the job.
+     * @param unit     The unit of the delay.
+     * @return The timeout, which can cancel the job.
+     */
+    public TimerWheel.Timeout newTimeout(JobClass jobClass, String name, Runnable job, long delay, TimeUnit unit)
+    {
+        TaskStats jobStats = stats(jobClass, name);
+        return timers.newTimeout(() -> pools.get(jobClass).execute(new TrackedJob(jobStats, job, 0, 0)), delay, unit);
+    }
+
+    /**
+     * Gets the metrics of every job that has been scheduled, sorted by job class and name.
+     *
+     * @return The metrics of each job.
+     */
+    public List<TaskStats> getStats()
+    {
+        List<TaskStats> list = new ArrayList<>(stats.values());
+        list.sort(Comparator.comparing(TaskStats::getJobClass).thenComparing(TaskStats::getName));
+        return list;
+    }
+
+    /**
+     * Gets the number of jobs of a job class that are waiting to run, including
+     * periodic jobs waiting for their next run.
+     *
+     * @param jobClass The job class.
+     * @return The number of waiting jobs.
+     */
+    public int getQueuedJobs(JobClass jobClass)
+    {
+        return pools.get(jobClass).getQueue().size();
+    }
+
+    /**
+     * Gets the number of timeouts that have neither run nor been cancelled.
+     *
+     * @return The number of pending timeouts.
+     */
+    public int getPendingTimeouts()
+    {
+        return timers.getPendingCount();
+    }
+
+    /**
+     * Stops every pool, interrupting running jobs and dropping waiting ones and pending
+     * timeouts.
+     */
+    public void shutdownNow()
+    {
+        timers.stop();
+        pools.values().forEach(ScheduledThreadPoolExecutor::shutdownNow);
+    }
+
+    private TaskStats stats(JobClass jobClass, String name)
+    {
+        return stats.computeIfAbsent(name, n -> new TaskStats(n, jobClass));
+    }
+
+    /**
+     * Wraps a job to time its runs and keep it scheduled if it throws.
+     */
+    private static class TrackedJob implements Runnable
+    {
+        private final TaskStats stats;
+        private final Runnable job;
+        private final long period;
+        private volatile long due;
+
+        private TrackedJob(TaskStats stats, Runnable job, long initialDelay, long period)
+        {
+            this.stats = stats;
+            this.job = job;
+            this.period = period;
+            this.due = System.nanoTime() + initialDelay;
+        }
+
+        @Override
+        public void run()
+        {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try
+            {
+                job.run();
+            }
+            catch(Exception e)
+            {
+                failed = true;
+                LOG.error("Scheduled job " + stats.getName() + " failed", e);
+            }
+            long end = System.nanoTime();
+            stats.record(start - due, end - start, failed);
+            due = end + period;
+        }
+    }
+}
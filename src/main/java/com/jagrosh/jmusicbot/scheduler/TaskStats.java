@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.scheduler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the runs of one scheduled task, how long they took, and how long they waited
+ * past the time they were due, which is the time spent queued behind other jobs.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class TaskStats
+{
+    private final String name;
+    private final JobClass jobClass;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAdder delayNanos = new LongAdder();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+    private final AtomicLong maxDelayNanos = new AtomicLong();
+
+    /**
+     * Constructs a new TaskStats.
+     *
+     * @param name     The name of the task.
+     * @param jobClass The job class the task runs in.
+     */
+    public TaskStats(String name, JobClass jobClass)
+    {
+        this.name = name;
+        this.jobClass = jobClass;
+    }
+
+    /**
+     * Records one run of the task.
+     *
+     * @param delayNanos How long the run started after it was due, in nanoseconds.
+     * @param runNanos   How long the run took, in nanoseconds.
+     * @param failed     Whether the run threw an exception.
+     */
+    public void record(long delayNanos, long runNanos, boolean failed)
+    {
+        delayNanos = Math.max(delayNanos, 0);
+        runs.increment();
+        if(failed)
+            failures.increment();
+        this.runNanos.add(runNanos);
+        this.delayNanos.add(delayNanos);
+        maxRunNanos.accumulateAndGet(runNanos, Math::max);
+        maxDelayNanos.accumulateAndGet(delayNanos, Math::max);
+    }
+
+    /**
+     * Gets the name of the task.
+     *
+     * @return The name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Gets the job class the task runs in.
+     *
+     * @return The job class.
+     */
+    public JobClass getJobClass()
+    {
+        return jobClass;
+    }
+
+    /**
+     * Gets the number of times the task has run.
+     *
+     * @return The number of runs.
+     */
+    public long getRuns()
+    {
+        return runs.sum();
+    }
+
+    /**
+     * Gets the number of runs that threw an exception.
+     *
+     * @return The number of failed runs.
+     */
+    public long getFailures()
+    {
+        return failures.sum();
+    }
+
+    /**
+     * Gets the average time a run took.
+     *
+     * @return The average run time in milliseconds, or 0 if the task has not run.
+     */
+    public double getAverageRunMillis()
+    {
+        long count = getRuns();
+        return count == 0 ? 0 : runNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Gets the longest time a run took.
+     *
+     * @return The longest run time in milliseconds.
+     */
+    public double getMaxRunMillis()
+    {
+        return maxRunNanos.get() / 1e6;
+    }
+
+    /**
+     * Gets the average time a run waited past the time it was due.
+     *
+     * @return The average queue delay in milliseconds, or 0 if the task has not run.
+     */
+    public double getAverageDelayMillis()
+    {
+        long count = getRuns();
+        return count == 0 ? 0 : delayNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Gets the longest time a run waited past the time it was due.
+     *
+     * @return The longest queue delay in milliseconds.
+     */
+    public double getMaxDelayMillis()
+    {
+        return maxDelayNanos.get() / 1e6;
+    }
+}
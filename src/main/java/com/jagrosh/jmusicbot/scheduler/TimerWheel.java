@@ -0,0 +1,276 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.scheduler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel for many cancellable one-shot timeouts. Each timeout is put in
+ * the bucket of the tick it is due on, so adding and cancelling one is constant time,
+ * and a timeout costs one small object no matter how many are pending.
+ * <p>
+ * Timeouts can be added and cancelled from any thread. The buckets are only touched by
+ * the wheel's own thread, which is handed new and cancelled timeouts through lock-free
+ * queues. The thread sleeps until the next bucket that holds a timeout is due, so an
+ * idle wheel does not wake up at all. A timeout runs at most one tick after its delay.
+ * <p>
+ * The timeout tasks run on the wheel's thread, so they should only hand the real work
+ * to another thread.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class TimerWheel
+{
+    private final static Logger LOG = LoggerFactory.getLogger("TimerWheel");
+    private final static long IDLE = Long.MAX_VALUE;
+
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] buckets; // only touched by the worker
+    private final long start = System.nanoTime();
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+    private long tick = 0; // the next tick to expire, only touched by the worker
+    private volatile long wakeAt = 0; // the tick the worker sleeps until
+    private volatile boolean stopped = false;
+
+    /**
+     * Constructs a new TimerWheel and starts its thread.
+     *
+     * @param name      The name of the wheel's thread.
+     * @param tick      The duration of a tick, which is how late a timeout may run.
+     * @param unit      The unit of the tick.
+     * @param wheelSize The number of buckets, which is rounded up to a power of two.
+     */
+    public TimerWheel(String name, long tick, TimeUnit unit, int wheelSize)
+    {
+        if(tick <= 0 || wheelSize <= 0)
+            throw new IllegalArgumentException("The tick and the wheel size must be positive");
+        this.tickNanos = unit.toNanos(tick);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs a task once after a delay, unless it is cancelled first.
+     *
+     * @param task  The task to run, on the wheel's thread.
+     * @param delay The delay before running the task.
+     * @param unit  The unit of the delay.
+     * @return The timeout, which can cancel the task.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit)
+    {
+        if(stopped)
+            throw new IllegalStateException("The timer wheel has been stopped");
+        long deadline = System.nanoTime() - start + Math.max(0, unit.toNanos(delay));
+        // the first tick that starts at or after the deadline
+        Timeout timeout = new Timeout(this, task, (deadline + tickNanos - 1) / tickNanos);
+        pending.incrementAndGet();
+        added.add(timeout);
+        if(timeout.tick < wakeAt)
+            LockSupport.unpark(worker);
+        return timeout;
+    }
+
+    /**
+     * Gets the number of timeouts that have neither run nor been cancelled.
+     *
+     * @return The number of pending timeouts.
+     */
+    public int getPendingCount()
+    {
+        return pending.get();
+    }
+
+    /**
+     * Stops the wheel. Pending timeouts never run.
+     */
+    public void stop()
+    {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run()
+    {
+        while(!stopped)
+        {
+            long now = (System.nanoTime() - start) / tickNanos;
+            transfer();
+            // after a long sleep every bucket is visited once rather than every missed tick
+            for(long t = Math.max(tick, now - mask); t <= now; t++)
+                expire((int) (t & mask), now);
+            tick = Math.max(tick, now + 1);
+
+            wakeAt = nextDueTick();
+            // anything added after the queues were drained may be due before the chosen tick
+            if(!added.isEmpty() || !cancelled.isEmpty())
+                continue;
+            if(wakeAt == IDLE)
+                LockSupport.park(this);
+            else
+                LockSupport.parkNanos(this, start + wakeAt * tickNanos - System.nanoTime());
+        }
+    }
+
+    private void transfer()
+    {
+        Timeout timeout;
+        while((timeout = cancelled.poll()) != null)
+            timeout.unlink();
+        while((timeout = added.poll()) != null)
+        {
+            if(timeout.state != Timeout.PENDING)
+                continue;
+            // a timeout for a tick that has already been expired goes in the current bucket
+            int bucket = (int) (Math.max(timeout.tick, tick) & mask);
+            timeout.next = buckets[bucket];
+            if(timeout.next != null)
+                timeout.next.prev = timeout;
+            timeout.bucket = bucket;
+            buckets[bucket] = timeout;
+        }
+    }
+
+    private void expire(int bucket, long now)
+    {
+        Timeout timeout = buckets[bucket];
+        while(timeout != null)
+        {
+            Timeout next = timeout.next;
+            // timeouts further away than one turn of the wheel stay for a later turn
+            if(timeout.tick <= now && timeout.expire())
+            {
+                timeout.unlink();
+                try
+                {
+                    timeout.task.run();
+                }
+                catch(Exception e)
+                {
+                    LOG.error("Timeout task failed", e);
+                }
+            }
+            else if(timeout.state == Timeout.CANCELLED)
+                timeout.unlink();
+            timeout = next;
+        }
+    }
+
+    private long nextDueTick()
+    {
+        for(int i = 0; i <= mask; i++)
+            if(buckets[(int) ((tick + i) & mask)] != null)
+                return tick + i;
+        return IDLE;
+    }
+
+    /**
+     * A task waiting in a {@link TimerWheel}.
+     */
+    public static class Timeout
+    {
+        private final static int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+        private final static AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long tick;
+        private volatile int state = PENDING;
+        // the links of the bucket list, only touched by the worker
+        private Timeout prev, next;
+        private int bucket = -1;
+
+        private Timeout(TimerWheel wheel, Runnable task, long tick)
+        {
+            this.wheel = wheel;
+            this.task = task;
+            this.tick = tick;
+        }
+
+        /**
+         * Cancels the timeout, so its task never runs.
+         *
+         * @return true if the timeout was cancelled, false if its task already ran or it
+         *         was already cancelled
+         */
+        public boolean cancel()
+        {
+            if(!STATE.compareAndSet(this, PENDING, CANCELLED))
+                return false;
+            wheel.pending.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * Checks if the timeout was cancelled.
+         *
+         * @return true if the timeout was cancelled
+         */
+        public boolean isCancelled()
+        {
+            return state == CANCELLED;
+        }
+
+        /**
+         * Checks if the timeout's task has been run.
+         *
+         * @return true if the timeout's delay has passed and its task was run
+         */
+        public boolean isExpired()
+        {
+            return state == EXPIRED;
+        }
+
+        private boolean expire()
+        {
+            if(!STATE.compareAndSet(this, PENDING, EXPIRED))
+                return false;
+            wheel.pending.decrementAndGet();
+            return true;
+        }
+
+        private void unlink()
+        {
+            if(bucket < 0)
+                return;
+            if(prev != null)
+                prev.next = next;
+            else
+                wheel.buckets[bucket] = next;
+            if(next != null)
+                next.prev = prev;
+            prev = next = null;
+            bucket = -1;
+        }
+    }
+}
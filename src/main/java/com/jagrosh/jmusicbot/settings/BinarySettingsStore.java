@@ -0,0 +1,545 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the settings of every guild in a compact binary file, which is memory-mapped
+ * and read one guild at a time, so nothing has to be parsed at startup.
+ * <p>
+ * The file holds a header, one fixed-width record per guild sorted by guild ID, and a
+ * string table with every distinct prefix and playlist name:
+ * <pre>
+ * header:  magic (4), version (4), record count (4), string count (4), string table offset (8), unused (8)
+ * record:  guild ID (8), text channel (8), voice channel (8), DJ role (8), skip ratio (8),
+ *          volume (4), prefix (4), default playlist (4), repeat mode (1), queue type (1), unused (2)
+ * strings: length (4), UTF-8 bytes, ...
+ * </pre>
+ * Strings are stored as their index in the string table, or -1 for none. Repeat modes and
+ * queue types are stored as fixed codes, which do not depend on the order of the enums.
+ * <p>
+ * A write only appends the changed guilds to a journal next to the file (see
+ * {@link JournalSettingsStore}), and keeps them in memory. Once enough guilds have
+ * changed, their records are merged into a new file with the next generation number,
+ * which starts an empty journal of its own, and the old file and journal are deleted.
+ * A file is never overwritten or renamed while it is mapped. The header of a new file is
+ * written last, so a file left incomplete by a crash is recognized and skipped.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class BinarySettingsStore implements LazySettingsStore
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+    public final static int DEFAULT_COMPACT_THRESHOLD = 10000; // changed guilds
+    private final static int MAGIC = 0x4A4D5342;
+    private final static int VERSION = 1;
+    private final static int HEADER_SIZE = 32;
+    private final static int RECORD_SIZE = 56;
+    private final static String EXTENSION = ".bin";
+    private final static String JOURNAL_EXTENSION = ".changes";
+    // the code of each value is its index, so values may only ever be added at the end
+    private final static RepeatMode[] REPEAT_MODE_CODES = {RepeatMode.OFF, RepeatMode.ALL, RepeatMode.SINGLE};
+    private final static QueueType[] QUEUE_TYPE_CODES = {QueueType.LINEAR, QueueType.FAIR};
+
+    private final Path folder;
+    private final String name;
+    private final int compactThreshold;
+    // records changed since the current file was written, which are in its journal
+    private final Map<Long, JSONObject> changed = new HashMap<>();
+    // records that could not be appended yet, which are retried with the next write
+    private final Map<Long, JSONObject> unwritten = new HashMap<>();
+    private Snapshot snapshot;
+    private long generation;
+    private FileChannel journal;
+
+    /**
+     * Constructs a new BinarySettingsStore. The files are kept next to the given settings
+     * file, named after it with a generation number and the extension {@code .bin}.
+     *
+     * @param path             The path of the settings file.
+     * @param compactThreshold The number of changed guilds past which a new file is written.
+     */
+    public BinarySettingsStore(Path path, int compactThreshold)
+    {
+        Path bin = JsonSettingsStore.siblingPath(path, "bin");
+        String file = bin.getFileName().toString();
+        this.folder = bin.toAbsolutePath().getParent();
+        this.name = file.substring(0, file.length() - EXTENSION.length());
+        this.compactThreshold = compactThreshold;
+    }
+
+    @Override
+    public synchronized Map<Long, JSONObject> load() throws IOException
+    {
+        long latest = latestGeneration();
+        if(latest < 0)
+        {
+            LOG.info(file(1).getFileName() + " will be created in " + folder);
+            create(Collections.emptyMap());
+            latest = latestGeneration();
+        }
+        open(latest);
+        // files of older generations are no longer mapped by anything
+        for(long other: generations())
+            if(other != latest)
+                delete(other);
+        LOG.info(file(generation).getFileName() + " mapped from " + folder + " with " + snapshot.count
+                + " servers and " + changed.size() + " recent changes");
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public synchronized JSONObject read(long guildId) throws IOException
+    {
+        checkOpen();
+        if(unwritten.containsKey(guildId) || changed.containsKey(guildId))
+        {
+            JSONObject record = unwritten.containsKey(guildId) ? unwritten.get(guildId) : changed.get(guildId);
+            return record.length() == 0 ? null : record;
+        }
+        int index = snapshot.find(guildId);
+        return index < 0 ? null : snapshot.decode(index);
+    }
+
+    @Override
+    public synchronized void write(Map<Long, JSONObject> records) throws IOException
+    {
+        checkOpen();
+        unwritten.putAll(records);
+        StringBuilder lines = new StringBuilder();
+        unwritten.forEach((guildId, record) -> lines.append(JournalSettingsStore.line(guildId, record)));
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        long start = journal.size();
+        try
+        {
+            for(long position = start; buffer.hasRemaining();)
+                position += journal.write(buffer, position);
+            journal.force(false);
+        }
+        catch(IOException e)
+        {
+            // a partly appended line would stop the replay before anything appended after it
+            journal.truncate(start);
+            throw e;
+        }
+        changed.putAll(unwritten);
+        unwritten.clear();
+        if(changed.size() > compactThreshold)
+            compact();
+    }
+
+    /**
+     * Merges the changed records into a file of the next generation, and deletes the
+     * current file and its journal.
+     *
+     * @throws IOException If the new file could not be written.
+     */
+    public synchronized void compact() throws IOException
+    {
+        checkOpen();
+        Snapshot current = snapshot;
+        TreeMap<Long, JSONObject> sorted = new TreeMap<>(changed);
+        long previous = generation;
+        writeFile(file(previous + 1), sink ->
+        {
+            Iterator<Map.Entry<Long, JSONObject>> it = sorted.entrySet().iterator();
+            Map.Entry<Long, JSONObject> next = it.hasNext() ? it.next() : null;
+            for(int i = 0; i < current.count || next != null;)
+            {
+                long stored = i < current.count ? current.guildId(i) : Long.MAX_VALUE;
+                if(next != null && next.getKey() <= stored)
+                {
+                    // a changed record replaces the stored one
+                    if(next.getKey() == stored)
+                        i++;
+                    sink.accept(next.getKey(), next.getValue());
+                    next = it.hasNext() ? it.next() : null;
+                }
+                else
+                {
+                    sink.accept(stored, current.decode(i));
+                    i++;
+                }
+            }
+        });
+        closeJournal();
+        open(previous + 1);
+        delete(previous);
+    }
+
+    @Override
+    public boolean exists()
+    {
+        try
+        {
+            return !generations().isEmpty();
+        }
+        catch(IOException e)
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized Map<Long, JSONObject> readAll() throws IOException
+    {
+        Map<Long, JSONObject> records = new HashMap<>();
+        long latest = latestGeneration();
+        if(latest < 0)
+            return records;
+        // read into memory instead of mapping, so the files can be moved aside right after
+        Snapshot stored = new Snapshot(file(latest), ByteBuffer.wrap(Files.readAllBytes(file(latest))));
+        for(int i = 0; i < stored.count; i++)
+            records.put(stored.guildId(i), stored.decode(i));
+        JournalSettingsStore.replay(journalFile(latest), records);
+        return records;
+    }
+
+    @Override
+    public synchronized void create(Map<Long, JSONObject> records) throws IOException
+    {
+        TreeMap<Long, JSONObject> sorted = new TreeMap<>(records);
+        writeFile(file(Math.max(latestGeneration(), 0) + 1), sink ->
+        {
+            for(Map.Entry<Long, JSONObject> record: sorted.entrySet())
+                sink.accept(record.getKey(), record.getValue());
+        });
+    }
+
+    @Override
+    public synchronized void archive() throws IOException
+    {
+        close();
+        for(long other: generations())
+        {
+            JsonSettingsStore.moveAside(file(other));
+            JsonSettingsStore.moveAside(journalFile(other));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        // the mapping itself is released once the snapshot is garbage collected
+        snapshot = null;
+        changed.clear();
+        closeJournal();
+    }
+
+    // maps the file of a generation and opens its journal for appending
+    private void open(long newGeneration) throws IOException
+    {
+        Path file = file(newGeneration);
+        Snapshot mapped;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            mapped = new Snapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        Path journalFile = journalFile(newGeneration);
+        Map<Long, JSONObject> replayed = new HashMap<>();
+        long valid = JournalSettingsStore.replay(journalFile, replayed::put);
+        FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if(channel.size() > valid)
+        {
+            LOG.warn("Discarding " + (channel.size() - valid) + " bytes of incomplete settings journal entries");
+            channel.truncate(valid);
+        }
+        snapshot = mapped;
+        generation = newGeneration;
+        journal = channel;
+        changed.clear();
+        changed.putAll(replayed);
+    }
+
+    private void closeJournal() throws IOException
+    {
+        if(journal != null)
+            journal.close();
+        journal = null;
+    }
+
+    private void checkOpen() throws IOException
+    {
+        if(snapshot == null)
+            throw new IOException(name + EXTENSION + " is not open");
+    }
+
+    private Path file(long fileGeneration)
+    {
+        return folder.resolve(name + "-" + fileGeneration + EXTENSION);
+    }
+
+    private Path journalFile(long fileGeneration)
+    {
+        return folder.resolve(name + "-" + fileGeneration + JOURNAL_EXTENSION);
+    }
+
+    // the generations that have a file, newest first
+    private List<Long> generations() throws IOException
+    {
+        List<Long> found = new ArrayList<>();
+        if(!Files.isDirectory(folder))
+            return found;
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(folder, name + "-*" + EXTENSION))
+        {
+            for(Path file: files)
+            {
+                String fileName = file.getFileName().toString();
+                try
+                {
+                    found.add(Long.parseLong(fileName.substring(name.length() + 1, fileName.length() - EXTENSION.length())));
+                }
+                catch(NumberFormatException ignore)
+                {
+                    // not one of the generation files
+                }
+            }
+        }
+        found.sort(Collections.reverseOrder());
+        return found;
+    }
+
+    // the newest generation whose file is complete, or -1 if there is none
+    private long latestGeneration() throws IOException
+    {
+        for(long candidate: generations())
+        {
+            try(FileChannel channel = FileChannel.open(file(candidate), StandardOpenOption.READ))
+            {
+                ByteBuffer header = ByteBuffer.allocate(8);
+                if(channel.read(header, 0) == 8 && header.getInt(0) == MAGIC && header.getInt(4) == VERSION)
+                    return candidate;
+            }
+            LOG.warn(file(candidate).getFileName() + " is incomplete and will be ignored");
+        }
+        return -1;
+    }
+
+    private void delete(long oldGeneration)
+    {
+        try
+        {
+            Files.deleteIfExists(journalFile(oldGeneration));
+            Files.deleteIfExists(file(oldGeneration));
+        }
+        catch(IOException e)
+        {
+            // some systems refuse to delete a file that is still mapped; it is deleted the next time the store is opened
+            LOG.debug("Could not delete " + file(oldGeneration).getFileName() + " yet: " + e);
+        }
+    }
+
+    // writes a new file from records given in guild ID order, with the header last
+    private static void writeFile(Path file, RecordSource source) throws IOException
+    {
+        List<String> table = new ArrayList<>();
+        Map<String, Integer> indexes = new HashMap<>();
+        int[] records = {0};
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer out = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            channel.position(HEADER_SIZE);
+            source.writeTo((guildId, record) ->
+            {
+                // guilds with only default settings are not stored
+                if(record.length() == 0)
+                    return;
+                if(!out.hasRemaining())
+                    flush(channel, out);
+                encode(out, guildId, record, table, indexes);
+                records[0]++;
+            });
+            flush(channel, out);
+            long stringTable = channel.position();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream strings = new DataOutputStream(bytes);
+            for(String string: table)
+            {
+                byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+                strings.writeInt(encoded.length);
+                strings.write(encoded);
+            }
+            ByteBuffer stringBuffer = ByteBuffer.wrap(bytes.toByteArray());
+            while(stringBuffer.hasRemaining())
+                channel.write(stringBuffer);
+            // the records have to be on disk before a header can say the file is complete
+            channel.force(true);
+            out.putInt(MAGIC).putInt(VERSION).putInt(records[0]).putInt(table.size()).putLong(stringTable).putLong(0);
+            out.flip();
+            channel.write(out, 0);
+            channel.force(true);
+        }
+    }
+
+    private static void encode(ByteBuffer out, long guildId, JSONObject record, List<String> table, Map<String, Integer> indexes) throws IOException
+    {
+        // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
+        RepeatMode repeatMode = record.has("repeat_mode") ? record.getEnum(RepeatMode.class, "repeat_mode")
+                : record.has("repeat") && record.getBoolean("repeat") ? RepeatMode.ALL : RepeatMode.OFF;
+        QueueType queueType = record.has("queue_type") ? record.getEnum(QueueType.class, "queue_type") : QueueType.FAIR;
+        out.putLong(guildId);
+        out.putLong(record.has("text_channel_id") ? Long.parseLong(record.getString("text_channel_id")) : 0);
+        out.putLong(record.has("voice_channel_id") ? Long.parseLong(record.getString("voice_channel_id")) : 0);
+        out.putLong(record.has("dj_role_id") ? Long.parseLong(record.getString("dj_role_id")) : 0);
+        out.putDouble(record.has("skip_ratio") ? record.getDouble("skip_ratio") : -1);
+        out.putInt(record.has("volume") ? record.getInt("volume") : 100);
+        out.putInt(record.has("prefix") ? intern(record.getString("prefix"), table, indexes) : -1);
+        out.putInt(record.has("default_playlist") ? intern(record.getString("default_playlist"), table, indexes) : -1);
+        out.put(code(REPEAT_MODE_CODES, repeatMode));
+        out.put(code(QUEUE_TYPE_CODES, queueType));
+        out.putShort((short) 0);
+    }
+
+    private static <E extends Enum<E>> byte code(E[] codes, E value) throws IOException
+    {
+        for(int i = 0; i < codes.length; i++)
+            if(codes[i] == value)
+                return (byte) i;
+        throw new IOException(value + " has no code in the binary settings format");
+    }
+
+    // an unknown code, as written by a newer version, reads as the default
+    private static <E extends Enum<E>> E fromCode(E[] codes, byte code, E defaultValue)
+    {
+        return code >= 0 && code < codes.length ? codes[code] : defaultValue;
+    }
+
+    private static int intern(String string, List<String> table, Map<String, Integer> indexes)
+    {
+        return indexes.computeIfAbsent(string, s ->
+        {
+            table.add(s);
+            return table.size() - 1;
+        });
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException
+    {
+        out.flip();
+        while(out.hasRemaining())
+            channel.write(out);
+        out.clear();
+    }
+
+    // the records and strings of one file, either mapped or read into memory
+    private static class Snapshot
+    {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+        private final int count;
+
+        private Snapshot(Path file, ByteBuffer buffer) throws IOException
+        {
+            if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+                throw new IOException(file.getFileName() + " is not a settings file");
+            if(buffer.getInt(4) != VERSION)
+                throw new IOException(file.getFileName() + " has unsupported version " + buffer.getInt(4));
+            this.buffer = buffer;
+            this.count = buffer.getInt(8);
+            this.strings = new String[buffer.getInt(12)];
+            int position = (int) buffer.getLong(16);
+            for(int i = 0; i < strings.length; i++)
+            {
+                byte[] bytes = new byte[buffer.getInt(position)];
+                buffer.position(position + 4);
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += 4 + bytes.length;
+            }
+        }
+
+        private long guildId(int index)
+        {
+            return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE);
+        }
+
+        // the index of a guild's record, or -1 if it has none
+        private int find(long guildId)
+        {
+            int low = 0, high = count - 1;
+            while(low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                long id = guildId(mid);
+                if(id < guildId)
+                    low = mid + 1;
+                else if(id > guildId)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
+        }
+
+        // turns the record at an index into the JSON record the manager expects, leaving out defaults
+        private JSONObject decode(int index)
+        {
+            int offset = HEADER_SIZE + index * RECORD_SIZE;
+            JSONObject record = new JSONObject();
+            if(buffer.getLong(offset + 8) != 0)
+                record.put("text_channel_id", Long.toString(buffer.getLong(offset + 8)));
+            if(buffer.getLong(offset + 16) != 0)
+                record.put("voice_channel_id", Long.toString(buffer.getLong(offset + 16)));
+            if(buffer.getLong(offset + 24) != 0)
+                record.put("dj_role_id", Long.toString(buffer.getLong(offset + 24)));
+            if(buffer.getDouble(offset + 32) != -1)
+                record.put("skip_ratio", buffer.getDouble(offset + 32));
+            if(buffer.getInt(offset + 40) != 100)
+                record.put("volume", buffer.getInt(offset + 40));
+            if(buffer.getInt(offset + 44) >= 0)
+                record.put("prefix", strings[buffer.getInt(offset + 44)]);
+            if(buffer.getInt(offset + 48) >= 0)
+                record.put("default_playlist", strings[buffer.getInt(offset + 48)]);
+            RepeatMode repeatMode = fromCode(REPEAT_MODE_CODES, buffer.get(offset + 52), RepeatMode.OFF);
+            if(repeatMode != RepeatMode.OFF)
+                record.put("repeat_mode", repeatMode.name());
+            QueueType queueType = fromCode(QUEUE_TYPE_CODES, buffer.get(offset + 53), QueueType.FAIR);
+            if(queueType != QueueType.FAIR)
+                record.put("queue_type", queueType.name());
+            return record;
+        }
+    }
+
+    private interface RecordSink
+    {
+        void accept(long guildId, JSONObject record) throws IOException;
+    }
+
+    private interface RecordSource
+    {
+        void writeTo(RecordSink sink) throws IOException;
+    }
+}
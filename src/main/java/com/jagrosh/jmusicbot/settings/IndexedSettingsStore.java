@@ -0,0 +1,453 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the settings of every guild in a records file with an index next to it, and
+ * reads a guild's record only when it is asked for.
+ * <p>
+ * The records file starts with a header line, followed by one journal line per record
+ * (see {@link JournalSettingsStore}). The index lists the guild ID and file offset of
+ * every record in the sorted part of the records file, as fixed-width entries sorted by
+ * guild ID, and ends with a trailer that ties it to one version of the records file:
+ * <pre>
+ * entries: guild ID (8 bytes), offset (8 bytes), ...
+ * trailer: magic (4 bytes), generation (8 bytes), length of the indexed part (8 bytes)
+ * </pre>
+ * A write appends lines to the records file, and remembers their offsets in memory until
+ * enough have piled up, at which point both files are rewritten with the latest record of
+ * each guild. Guilds that are back to the default settings are dropped at that point.
+ * <p>
+ * Opening the store only reads the lines appended since the last rewrite, so startup
+ * does not depend on the number of guilds. If the index is missing or belongs to
+ * another version of the records file, as after a crash in the middle of a rewrite, it
+ * is rebuilt from the records file.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class IndexedSettingsStore implements LazySettingsStore
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+    public final static int DEFAULT_COMPACT_THRESHOLD = 10000; // appended records
+
+    private final static String HEADER = "JMusicBot settings ";
+    private final static int MAGIC = 0x4A4D5349;
+    private final static int ENTRY_SIZE = 16;
+    private final static int TRAILER_SIZE = 20;
+    private final static long REMOVED = -1;
+
+    private final Path data;
+    private final Path index;
+    private final int compactThreshold;
+    // offsets of the records appended since the last rewrite, or REMOVED for default settings
+    private final Map<Long, Long> appended = new HashMap<>();
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+    private FileChannel channel;
+    private FileChannel indexChannel;
+    private long generation;
+    private long indexedLength;
+    private int count;
+
+    /**
+     * Constructs a new IndexedSettingsStore. The records and the index are kept next to
+     * the given settings file, with its extension replaced by {@code .records} and
+     * {@code .index}.
+     *
+     * @param path             The path of the settings file.
+     * @param compactThreshold The number of appended records after which both files are rewritten.
+     */
+    public IndexedSettingsStore(Path path, int compactThreshold)
+    {
+        this.data = JsonSettingsStore.siblingPath(path, "records");
+        this.index = JsonSettingsStore.siblingPath(path, "index");
+        this.compactThreshold = compactThreshold;
+    }
+
+    @Override
+    public synchronized Map<Long, JSONObject> load() throws IOException
+    {
+        if(!exists())
+        {
+            LOG.info(data.getFileName() + " will be created in " + data.toAbsolutePath());
+            create(Collections.emptyMap());
+        }
+        open();
+        if(!openIndex())
+        {
+            LOG.warn("Rebuilding " + index.getFileName() + ", as it does not match " + data.getFileName());
+            count = 0;
+            indexedLength = headerLength();
+            scan();
+            compact();
+        }
+        else
+            scan();
+        LOG.info(data.getFileName() + " opened from " + data.toAbsolutePath() + " with " + count
+                + " indexed servers and " + appended.size() + " recent changes");
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public synchronized JSONObject read(long guildId) throws IOException
+    {
+        checkOpen();
+        Long offset = appended.get(guildId);
+        if(offset == null)
+            offset = find(guildId);
+        if(offset == null || offset == REMOVED)
+            return null;
+        Map.Entry<Long, JSONObject> record = JournalSettingsStore.parse(new String(readLine(offset), StandardCharsets.UTF_8));
+        if(record == null || record.getKey() != guildId)
+            throw new IOException("Damaged record for " + guildId + " at offset " + offset + " of " + data.getFileName());
+        return record.getValue();
+    }
+
+    @Override
+    public synchronized void write(Map<Long, JSONObject> records) throws IOException
+    {
+        checkOpen();
+        long offset = channel.size();
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for(Map.Entry<Long, JSONObject> record: records.entrySet())
+        {
+            byte[] line = JournalSettingsStore.line(record.getKey(), record.getValue()).getBytes(StandardCharsets.UTF_8);
+            appended.put(record.getKey(), record.getValue().length() == 0 ? REMOVED : offset + lines.size());
+            lines.write(line);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+        while(buffer.hasRemaining())
+            offset += channel.write(buffer, offset);
+        channel.force(false);
+        if(appended.size() > compactThreshold)
+            compact();
+    }
+
+    /**
+     * Rewrites the records file with the latest record of every guild, sorted by guild
+     * ID, and writes a new index for it.
+     *
+     * @throws IOException If the files could not be written.
+     */
+    public synchronized void compact() throws IOException
+    {
+        checkOpen();
+        TreeMap<Long, Long> recent = new TreeMap<>(appended);
+        rewrite(generation + 1, sink ->
+        {
+            Iterator<Map.Entry<Long, Long>> it = recent.entrySet().iterator();
+            Map.Entry<Long, Long> next = it.hasNext() ? it.next() : null;
+            for(int i = 0; i < count || next != null;)
+            {
+                long indexed = i < count ? readEntry(i) : Long.MAX_VALUE;
+                long guildId, offset;
+                if(next != null && next.getKey() <= indexed)
+                {
+                    guildId = next.getKey();
+                    offset = next.getValue();
+                    next = it.hasNext() ? it.next() : null;
+                    // a recent record replaces the indexed one
+                    if(guildId == indexed)
+                        i++;
+                }
+                else
+                {
+                    guildId = indexed;
+                    offset = entry.getLong(8);
+                    i++;
+                }
+                if(offset != REMOVED)
+                    sink.accept(guildId, readLine(offset));
+            }
+        });
+        close();
+        appended.clear();
+        open();
+        if(!openIndex())
+            throw new IOException(index.getFileName() + " does not match " + data.getFileName() + " after rewriting it");
+    }
+
+    @Override
+    public boolean exists()
+    {
+        return Files.exists(data);
+    }
+
+    @Override
+    public synchronized Map<Long, JSONObject> readAll() throws IOException
+    {
+        load();
+        try
+        {
+            Map<Long, JSONObject> records = new HashMap<>();
+            for(int i = 0; i < count; i++)
+            {
+                long guildId = readEntry(i);
+                if(!appended.containsKey(guildId))
+                    records.put(guildId, read(guildId));
+            }
+            for(long guildId: appended.keySet())
+            {
+                JSONObject record = read(guildId);
+                if(record != null)
+                    records.put(guildId, record);
+            }
+            return records;
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void create(Map<Long, JSONObject> records) throws IOException
+    {
+        TreeMap<Long, JSONObject> sorted = new TreeMap<>(records);
+        rewrite(System.currentTimeMillis(), sink ->
+        {
+            for(Map.Entry<Long, JSONObject> record: sorted.entrySet())
+                if(record.getValue().length() != 0)
+                {
+                    String line = JournalSettingsStore.line(record.getKey(), record.getValue());
+                    // the sink adds the line break itself
+                    sink.accept(record.getKey(), line.substring(0, line.length() - 1).getBytes(StandardCharsets.UTF_8));
+                }
+        });
+    }
+
+    @Override
+    public synchronized void archive() throws IOException
+    {
+        close();
+        JsonSettingsStore.moveAside(data);
+        JsonSettingsStore.moveAside(index);
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if(channel != null)
+            channel.close();
+        if(indexChannel != null)
+            indexChannel.close();
+        channel = null;
+        indexChannel = null;
+    }
+
+    // opens the records file and reads its generation from the header line
+    private void open() throws IOException
+    {
+        channel = FileChannel.open(data, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        String header = new String(readLine(0), StandardCharsets.UTF_8);
+        if(!header.startsWith(HEADER))
+            throw new IOException(data.getFileName() + " is not a settings records file");
+        try
+        {
+            generation = Long.parseLong(header.substring(HEADER.length()));
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IOException(data.getFileName() + " has a damaged header");
+        }
+    }
+
+    // opens the index, or returns false if it does not belong to the open records file
+    private boolean openIndex() throws IOException
+    {
+        if(!Files.exists(index))
+            return false;
+        indexChannel = FileChannel.open(index, StandardOpenOption.READ);
+        long size = indexChannel.size();
+        if(size < TRAILER_SIZE || (size - TRAILER_SIZE) % ENTRY_SIZE != 0)
+            return false;
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        readFully(indexChannel, trailer, size - TRAILER_SIZE);
+        if(trailer.getInt(0) != MAGIC || trailer.getLong(4) != generation || trailer.getLong(12) > channel.size())
+            return false;
+        count = (int) ((size - TRAILER_SIZE) / ENTRY_SIZE);
+        indexedLength = trailer.getLong(12);
+        return true;
+    }
+
+    // reads the lines after the indexed part, and cuts off a damaged tail
+    private void scan() throws IOException
+    {
+        long valid = indexedLength;
+        try(InputStream in = new BufferedInputStream(Files.newInputStream(data)))
+        {
+            for(long skipped = 0; skipped < indexedLength;)
+            {
+                long n = in.skip(indexedLength - skipped);
+                if(n <= 0)
+                    break;
+                skipped += n;
+            }
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = indexedLength;
+            for(int b = in.read(); b >= 0; b = in.read())
+            {
+                offset++;
+                if(b != '\n')
+                {
+                    line.write(b);
+                    continue;
+                }
+                Map.Entry<Long, JSONObject> record = JournalSettingsStore.parse(line.toString(StandardCharsets.UTF_8));
+                if(record == null)
+                    break;
+                appended.put(record.getKey(), record.getValue().length() == 0 ? REMOVED : valid);
+                valid = offset;
+                line.reset();
+            }
+        }
+        if(channel.size() > valid)
+        {
+            LOG.warn("Discarding " + (channel.size() - valid) + " bytes of incomplete settings records");
+            channel.truncate(valid);
+            channel.force(false);
+        }
+    }
+
+    // writes new records and index files from lines given in guild ID order, then moves them in place
+    private void rewrite(long newGeneration, LineSource source) throws IOException
+    {
+        Path tempData = data.resolveSibling(data.getFileName() + ".tmp");
+        Path tempIndex = index.resolveSibling(index.getFileName() + ".tmp");
+        long length;
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempData));
+                DataOutputStream entries = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempIndex))))
+        {
+            byte[] header = (HEADER + newGeneration + "\n").getBytes(StandardCharsets.UTF_8);
+            out.write(header);
+            long[] offset = {header.length};
+            source.writeTo((guildId, line) ->
+            {
+                entries.writeLong(guildId);
+                entries.writeLong(offset[0]);
+                out.write(line);
+                out.write('\n');
+                offset[0] += line.length + 1;
+            });
+            length = offset[0];
+            entries.writeInt(MAGIC);
+            entries.writeLong(newGeneration);
+            entries.writeLong(length);
+        }
+        try(FileChannel synced = FileChannel.open(tempData, StandardOpenOption.WRITE))
+        {
+            synced.force(true);
+        }
+        // the index goes last, so a crash in between leaves an index that is rebuilt on startup
+        close();
+        JsonSettingsStore.replace(tempData, data);
+        JsonSettingsStore.replace(tempIndex, index);
+    }
+
+    // binary searches the index for the offset of a guild's record
+    private Long find(long guildId) throws IOException
+    {
+        int low = 0, high = count - 1;
+        while(low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            long id = readEntry(mid);
+            if(id < guildId)
+                low = mid + 1;
+            else if(id > guildId)
+                high = mid - 1;
+            else
+                return entry.getLong(8);
+        }
+        return null;
+    }
+
+    // reads an index entry into the entry buffer, and returns its guild ID
+    private long readEntry(int i) throws IOException
+    {
+        entry.clear();
+        readFully(indexChannel, entry, (long) i * ENTRY_SIZE);
+        return entry.getLong(0);
+    }
+
+    // reads the line starting at an offset of the records file, without its line break
+    private byte[] readLine(long offset) throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        for(long position = offset;; position += buffer.position())
+        {
+            buffer.clear();
+            if(channel.read(buffer, position) < 0)
+                throw new IOException("Record at offset " + offset + " of " + data.getFileName() + " is cut off");
+            for(int i = 0; i < buffer.position(); i++)
+            {
+                if(buffer.get(i) == '\n')
+                    return line.toByteArray();
+                line.write(buffer.get(i));
+            }
+        }
+    }
+
+    private long headerLength() throws IOException
+    {
+        return readLine(0).length + 1;
+    }
+
+    private void checkOpen() throws IOException
+    {
+        if(channel == null)
+            throw new IOException(data.getFileName() + " is not open");
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        while(buffer.hasRemaining())
+            if(channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of file");
+    }
+
+    private interface LineSink
+    {
+        void accept(long guildId, byte[] line) throws IOException;
+    }
+
+    private interface LineSource
+    {
+        void writeTo(LineSink sink) throws IOException;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the settings of every guild as a JSON snapshot plus an append-only journal.
+ * <p>
+ * A write appends one line per changed guild to the journal, so its cost depends on the
+ * number of changes and not on the number of guilds. Each line holds a checksum, the
+ * guild ID and the guild's full record, which is empty once a guild is back to the
+ * default settings:
+ * <pre>
+ * 1a2b3c4d 123456789012345678 {"volume":50}
+ * </pre>
+ * On startup the journal is replayed over the snapshot. Replay stops at the first line
+ * that is incomplete or fails its checksum, which is what a crash in the middle of an
+ * append leaves behind, and the journal is cut back to the last good line. Once the
+ * journal grows past a threshold, the snapshot is rewritten and the journal emptied.
+ * Since every line holds a full record, replaying a line twice does no harm, so a crash
+ * between those two steps is safe too.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class JournalSettingsStore extends JsonSettingsStore
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+    public final static long DEFAULT_COMPACT_THRESHOLD = 1024 * 1024; // bytes
+
+    private final Path journal;
+    private final long compactThreshold;
+    private FileChannel channel;
+
+    /**
+     * Constructs a new JournalSettingsStore. The journal is kept next to the snapshot,
+     * with the extension of the snapshot replaced by {@code .journal}.
+     *
+     * @param path             The path of the snapshot file.
+     * @param compactThreshold The journal size, in bytes, past which the snapshot is rewritten.
+     */
+    public JournalSettingsStore(Path path, long compactThreshold)
+    {
+        super(path);
+        this.journal = journalPath(path);
+        this.compactThreshold = compactThreshold;
+    }
+
+    @Override
+    public Map<Long, JSONObject> load() throws IOException
+    {
+        Map<Long, JSONObject> records = new HashMap<>();
+        try
+        {
+            records.putAll(readSnapshot());
+        }
+        finally
+        {
+            // the journal is opened even if the snapshot could not be read, so later writes
+            // still work, and its entries are kept so compaction does not drop them
+            openJournal(replay(journal, records));
+            replaceDocument(records);
+        }
+        return records;
+    }
+
+    @Override
+    public void write(Map<Long, JSONObject> records) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        records.forEach((id, record) ->
+        {
+            if(record.length() == 0)
+                document.remove(Long.toString(id));
+            else
+                document.put(Long.toString(id), record);
+            sb.append(line(id, record));
+        });
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        channel.force(false);
+        if(channel.size() > compactThreshold)
+            compact();
+    }
+
+    /**
+     * Opens the journal for appending, cutting off anything past its valid part.
+     *
+     * @param valid The length in bytes of the valid part of the journal.
+     * @throws IOException If the journal could not be opened or truncated.
+     */
+    private void openJournal(long valid) throws IOException
+    {
+        channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if(channel.size() > valid)
+        {
+            LOG.warn("Discarding " + (channel.size() - valid) + " bytes of incomplete settings journal entries");
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+    }
+
+    /**
+     * Rewrites the snapshot with every record and empties the journal.
+     *
+     * @throws IOException If the snapshot or the journal could not be written.
+     */
+    public void compact() throws IOException
+    {
+        writeSnapshot();
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(false);
+    }
+
+    /**
+     * Rewrites the snapshot, so the journal is empty when the bot starts again,
+     * and closes the journal.
+     *
+     * @throws IOException If the snapshot or the journal could not be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(channel == null || !channel.isOpen())
+            return;
+        compact();
+        channel.close();
+    }
+
+    /**
+     * Gets the path of the journal that belongs to a snapshot file.
+     *
+     * @param path The path of the snapshot file.
+     * @return The path of the journal file.
+     */
+    static Path journalPath(Path path)
+    {
+        return siblingPath(path, "journal");
+    }
+
+    /**
+     * Replays the valid entries of a journal into a set of records.
+     *
+     * @param journal The path of the journal file.
+     * @param records The records to update, keyed by guild ID.
+     * @return The length in bytes of the valid part of the journal.
+     * @throws IOException If the journal exists but could not be read.
+     */
+    static long replay(Path journal, Map<Long, JSONObject> records) throws IOException
+    {
+        return replay(journal, (guildId, record) ->
+        {
+            if(record.length() == 0)
+                records.remove(guildId);
+            else
+                records.put(guildId, record);
+        });
+    }
+
+    /**
+     * Replays the valid entries of a journal, in order.
+     *
+     * @param journal The path of the journal file.
+     * @param entries Receives the guild ID and record of every valid entry, where an
+     *                empty record means the guild is back to the default settings.
+     * @return The length in bytes of the valid part of the journal.
+     * @throws IOException If the journal exists but could not be read.
+     */
+    static long replay(Path journal, BiConsumer<Long, JSONObject> entries) throws IOException
+    {
+        byte[] data;
+        try
+        {
+            data = Files.readAllBytes(journal);
+        }
+        catch(NoSuchFileException e)
+        {
+            return 0;
+        }
+        int start = 0;
+        for(int end = 0; end < data.length; end++)
+        {
+            if(data[end] != '\n')
+                continue;
+            Map.Entry<Long, JSONObject> entry = parse(new String(data, start, end - start, StandardCharsets.UTF_8));
+            if(entry == null)
+                break;
+            entries.accept(entry.getKey(), entry.getValue());
+            start = end + 1;
+        }
+        return start;
+    }
+
+    /**
+     * Formats a record as a journal line. An empty record means the guild has only
+     * default settings, and removes the guild when replayed.
+     *
+     * @param guildId The ID of the guild.
+     * @param record  The guild's record.
+     * @return The line, ending with a line break.
+     */
+    static String line(long guildId, JSONObject record)
+    {
+        String entry = guildId + " " + record.toString();
+        return String.format("%08x", checksum(entry)) + ' ' + entry + '\n';
+    }
+
+    /**
+     * Parses a single journal line, without its line break.
+     *
+     * @param line The line to parse.
+     * @return The guild ID and record, or null if the line is damaged.
+     */
+    static Map.Entry<Long, JSONObject> parse(String line)
+    {
+        int space = line.indexOf(' ');
+        int second = space < 0 ? -1 : line.indexOf(' ', space + 1);
+        if(space != 8 || second < 0)
+            return null;
+        String entry = line.substring(space + 1);
+        try
+        {
+            if(Long.parseLong(line.substring(0, space), 16) != checksum(entry))
+                return null;
+            return new AbstractMap.SimpleImmutableEntry<>(Long.parseLong(line.substring(space + 1, second)),
+                    new JSONObject(line.substring(second + 1)));
+        }
+        catch(NumberFormatException | JSONException e)
+        {
+            return null;
+        }
+    }
+
+    private static long checksum(String entry)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(entry.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
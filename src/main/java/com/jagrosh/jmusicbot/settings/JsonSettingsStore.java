@@ -0,0 +1,214 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the settings of every guild in a single JSON file, which is rewritten
+ * in full on every write.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class JsonSettingsStore implements SettingsStore
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+    protected final Path path;
+    protected final JSONObject document = new JSONObject();
+
+    /**
+     * Constructs a new JsonSettingsStore.
+     *
+     * @param path The path of the settings file.
+     */
+    public JsonSettingsStore(Path path)
+    {
+        this.path = path;
+    }
+
+    @Override
+    public Map<Long, JSONObject> load() throws IOException
+    {
+        Map<Long, JSONObject> records = readSnapshot();
+        // a journal left behind by the journal storage is folded into the snapshot
+        Path journal = JournalSettingsStore.journalPath(path);
+        if(Files.exists(journal))
+        {
+            JournalSettingsStore.replay(journal, records);
+            replaceDocument(records);
+            writeSnapshot();
+            Files.delete(journal);
+        }
+        return records;
+    }
+
+    @Override
+    public void write(Map<Long, JSONObject> records) throws IOException
+    {
+        records.forEach((id, record) ->
+        {
+            if(record.length() == 0)
+                document.remove(Long.toString(id));
+            else
+                document.put(Long.toString(id), record);
+        });
+        writeSnapshot();
+    }
+
+    @Override
+    public boolean exists()
+    {
+        return Files.exists(path);
+    }
+
+    @Override
+    public Map<Long, JSONObject> readAll() throws IOException
+    {
+        Map<Long, JSONObject> records = parseSnapshot();
+        JournalSettingsStore.replay(JournalSettingsStore.journalPath(path), records);
+        return records;
+    }
+
+    @Override
+    public void create(Map<Long, JSONObject> records) throws IOException
+    {
+        replaceDocument(records);
+        writeSnapshot();
+    }
+
+    @Override
+    public void archive() throws IOException
+    {
+        moveAside(path);
+        moveAside(JournalSettingsStore.journalPath(path));
+    }
+
+    /**
+     * Reads every record from the settings file, creating the file if it does not exist.
+     *
+     * @return The records, keyed by guild ID.
+     * @throws IOException If the file could not be read or created.
+     */
+    protected Map<Long, JSONObject> readSnapshot() throws IOException
+    {
+        Map<Long, JSONObject> records;
+        try
+        {
+            records = parseSnapshot();
+        }
+        catch(NoSuchFileException e)
+        {
+            // create an empty json file
+            LOG.info(path.getFileName() + " will be created in " + path.toAbsolutePath());
+            writeSnapshot();
+            return new HashMap<>();
+        }
+        replaceDocument(records);
+        LOG.info(path.getFileName() + " loaded from " + path.toAbsolutePath());
+        return records;
+    }
+
+    /**
+     * Writes every record to the settings file. The file is written to a temporary
+     * file first, so a crash mid-write leaves the old file intact.
+     *
+     * @throws IOException If the file could not be written.
+     */
+    protected void writeSnapshot() throws IOException
+    {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, document.toString(4).getBytes());
+        replace(temp, path);
+    }
+
+    /**
+     * Makes the document hold exactly the given records.
+     *
+     * @param records The records, keyed by guild ID.
+     */
+    protected void replaceDocument(Map<Long, JSONObject> records)
+    {
+        for(String id: new ArrayList<>(document.keySet()))
+            document.remove(id);
+        records.forEach((id, record) -> document.put(Long.toString(id), record));
+    }
+
+    /**
+     * Gets the path of a file that belongs to a settings file, which has the same name
+     * but a different extension.
+     *
+     * @param path      The path of the settings file.
+     * @param extension The extension of the other file, without the dot.
+     * @return The path of the other file.
+     */
+    static Path siblingPath(Path path, String extension)
+    {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return path.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "." + extension);
+    }
+
+    /**
+     * Moves a file over another one, atomically if the file system allows it.
+     *
+     * @param source The file to move.
+     * @param target The file to replace.
+     * @throws IOException If the file could not be moved.
+     */
+    public static void replace(Path source, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e)
+        {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Renames a file to end in {@code .bak}, if it exists, so settings that were moved
+     * to another storage are kept but no longer loaded.
+     *
+     * @param file The file to move aside.
+     * @throws IOException If the file could not be renamed.
+     */
+    static void moveAside(Path file) throws IOException
+    {
+        if(Files.exists(file))
+            Files.move(file, file.resolveSibling(file.getFileName() + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Map<Long, JSONObject> parseSnapshot() throws IOException
+    {
+        Map<Long, JSONObject> records = new HashMap<>();
+        JSONObject loaded = new JSONObject(new String(Files.readAllBytes(path)));
+        loaded.keySet().forEach(id -> records.put(Long.parseLong(id), loaded.getJSONObject(id)));
+        return records;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import org.json.JSONObject;
+
+/**
+ * A {@link SettingsStore} that reads the record of each guild when it is first needed,
+ * instead of loading every guild at startup. Its {@link #load()} only opens the store,
+ * and returns no records.
+ * <p>
+ * Reads and writes are never called at the same time.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public interface LazySettingsStore extends SettingsStore
+{
+    /**
+     * Reads the record of a single guild.
+     *
+     * @param guildId The ID of the guild.
+     * @return The guild's record, or null if the guild only has default settings.
+     * @throws IOException If the storage could not be read.
+     */
+    JSONObject read(long guildId) throws IOException;
+}
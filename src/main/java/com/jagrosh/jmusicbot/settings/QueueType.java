@@ -16,7 +16,7 @@
 package com.jagrosh.jmusicbot.settings;
 
 import com.jagrosh.jmusicbot.queue.AbstractQueue;
-import com.jagrosh.jmusicbot.queue.FairQueue;
+import com.jagrosh.jmusicbot.queue.BucketedFairQueue;
 import com.jagrosh.jmusicbot.queue.LinearQueue;
 import com.jagrosh.jmusicbot.queue.Queueable;
 import com.jagrosh.jmusicbot.queue.QueueSupplier;
@@ -32,8 +32,8 @@ import java.util.stream.Collectors;
  */
 public enum QueueType
 {
-    LINEAR("\u23E9", "Linear", LinearQueue::new),     // ⏩
-    FAIR("\uD83D\uDD22", "Fair", FairQueue::new);     // 🔢
+    LINEAR("\u23E9", "Linear", LinearQueue::new),             // ⏩
+    FAIR("\uD83D\uDD22", "Fair", BucketedFairQueue::new);     // 🔢
 
     private final String userFriendlyName;
     private final String emoji;
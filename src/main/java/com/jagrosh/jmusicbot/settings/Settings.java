@@ -32,20 +32,25 @@ import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
 public class Settings implements GuildSettingsProvider
 {
     private final SettingsManager manager;
-    protected long textId;
-    protected long voiceId;
-    protected long roleId;
-    private int volume;
-    private String defaultPlaylist;
-    private RepeatMode repeatMode;
-    private QueueType queueType;
-    private String prefix;
-    private double skipRatio;
+    private final long guildId;
+    // settings are changed and read from different threads, so every field is volatile
+    protected volatile long textId;
+    protected volatile long voiceId;
+    protected volatile long roleId;
+    private volatile int volume;
+    private volatile String defaultPlaylist;
+    private volatile RepeatMode repeatMode;
+    private volatile QueueType queueType;
+    private volatile String prefix;
+    private volatile double skipRatio;
+    // when these settings were last handed out, so idle settings can be dropped from memory
+    volatile long lastAccess;
 
     /**
      * Constructs a new Settings object from string representations of IDs.
      *
      * @param manager         The settings manager.
+     * @param guildId         The ID of the guild these settings belong to.
      * @param textId          The ID of the text channel.
      * @param voiceId         The ID of the voice channel.
      * @param roleId          The ID of the DJ role.
@@ -56,9 +61,10 @@ public class Settings implements GuildSettingsProvider
      * @param skipRatio       The skip ratio.
      * @param queueType       The queue type.
      */
-    public Settings(SettingsManager manager, String textId, String voiceId, String roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
+    public Settings(SettingsManager manager, long guildId, String textId, String voiceId, String roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
     {
         this.manager = manager;
+        this.guildId = guildId;
         try
         {
             this.textId = Long.parseLong(textId);
@@ -95,6 +101,7 @@ public class Settings implements GuildSettingsProvider
      * Constructs a new Settings object from long representations of IDs.
      *
      * @param manager         The settings manager.
+     * @param guildId         The ID of the guild these settings belong to.
      * @param textId          The ID of the text channel.
      * @param voiceId         The ID of the voice channel.
      * @param roleId          The ID of the DJ role.
@@ -105,9 +112,10 @@ public class Settings implements GuildSettingsProvider
      * @param skipRatio       The skip ratio.
      * @param queueType       The queue type.
      */
-    public Settings(SettingsManager manager, long textId, long voiceId, long roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
+    public Settings(SettingsManager manager, long guildId, long textId, long voiceId, long roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
     {
         this.manager = manager;
+        this.guildId = guildId;
         this.textId = textId;
         this.voiceId = voiceId;
         this.roleId = roleId;
@@ -121,6 +129,16 @@ public class Settings implements GuildSettingsProvider
     
     // Getters
 
+    /**
+     * Gets the ID of the guild these settings belong to.
+     *
+     * @return The guild ID.
+     */
+    public long getGuildId()
+    {
+        return guildId;
+    }
+
     /**
      * Gets the text channel for the guild.
      *
@@ -230,7 +248,7 @@ public class Settings implements GuildSettingsProvider
     public void setTextChannel(TextChannel tc)
     {
         this.textId = tc == null ? 0 : tc.getIdLong();
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     /**
@@ -241,7 +259,7 @@ public class Settings implements GuildSettingsProvider
     public void setVoiceChannel(VoiceChannel vc)
     {
         this.voiceId = vc == null ? 0 : vc.getIdLong();
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     /**
@@ -252,7 +270,7 @@ public class Settings implements GuildSettingsProvider
     public void setDJRole(Role role)
     {
         this.roleId = role == null ? 0 : role.getIdLong();
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     /**
@@ -263,7 +281,7 @@ public class Settings implements GuildSettingsProvider
     public void setVolume(int volume)
     {
         this.volume = volume;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     /**
@@ -274,7 +292,7 @@ public class Settings implements GuildSettingsProvider
     public void setDefaultPlaylist(String defaultPlaylist)
     {
         this.defaultPlaylist = defaultPlaylist;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     /**
@@ -285,7 +303,7 @@ public class Settings implements GuildSettingsProvider
     public void setRepeatMode(RepeatMode mode)
     {
         this.repeatMode = mode;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     /**
@@ -296,7 +314,7 @@ public class Settings implements GuildSettingsProvider
     public void setPrefix(String prefix)
     {
         this.prefix = prefix;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
 
     /**
@@ -307,7 +325,7 @@ public class Settings implements GuildSettingsProvider
     public void setSkipRatio(double skipRatio)
     {
         this.skipRatio = skipRatio;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
 
     /**
@@ -318,6 +336,6 @@ public class Settings implements GuildSettingsProvider
     public void setQueueType(QueueType queueType)
     {
         this.queueType = queueType;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
 }
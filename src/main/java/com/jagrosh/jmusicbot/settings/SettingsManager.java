@@ -16,11 +16,19 @@
 package com.jagrosh.jmusicbot.settings;
 
 import com.jagrosh.jdautilities.command.GuildSettingsManager;
-import com.jagrosh.jmusicbot.utils.OtherUtil;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import net.dv8tion.jda.api.entities.Guild;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -28,58 +36,105 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Manages the loading and saving of guild-specific settings from a JSON file.
+ * Manages the loading and saving of guild-specific settings through a {@link SettingsStore}.
+ * <p>
+ * Changing a setting only marks its guild as dirty. The changes are written by a
+ * background thread shortly afterwards, so several changes in a row end up in a
+ * single write, and only the dirty guilds are handed to the store. If a write fails,
+ * the changed guilds stay dirty and are written again later.
+ * <p>
+ * Settings are read and changed from the JDA event threads, the command threads and
+ * the audio player threads. They are kept in a concurrent map, and every setting is a
+ * volatile field, so reading settings never takes a lock.
+ * <p>
+ * With a {@link LazySettingsStore}, the settings of a guild are only read when they are
+ * first needed, and the map becomes a bounded cache: once it holds more than its limit,
+ * the background thread drops the settings that have not been used for a while. Changed
+ * settings stay in the dirty map until they are written, so they are never lost, and a
+ * guild whose settings are dropped before that gets the same settings object back.
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class SettingsManager implements GuildSettingsManager<Settings>
 {
     private final static Logger LOG = LoggerFactory.getLogger("Settings");
-    private final static String SETTINGS_FILE = "serversettings.json";
-    private final HashMap<Long,Settings> settings;
+    private final static long WRITE_DELAY = 2000; // milliseconds
+    public final static int CACHE_SIZE = 10000; // guilds
+    private final static long MIN_IDLE_TIME = 60000; // milliseconds
+    private final long writeDelay;
+    private final SettingsStore store;
+    private final LazySettingsStore lazyStore; // null when every guild is loaded at startup
+    private final int cacheSize;
+    private final ConcurrentMap<Long,Settings> settings;
+    private final ConcurrentMap<Long,Settings> dirty = new ConcurrentHashMap<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean evictScheduled = new AtomicBoolean(false);
+    // the number of guilds in memory that triggers the next eviction
+    private volatile int evictAt;
+    // taken when reading from or writing to the store; never taken for settings already in memory
+    private final Object storeLock = new Object();
+    private final ScheduledThreadPoolExecutor writer;
 
     /**
-     * Constructs a new SettingsManager and loads the settings from the file.
+     * Constructs a new SettingsManager and loads the settings from the JSON file.
      */
     public SettingsManager()
     {
-        this.settings = new HashMap<>();
+        this(SettingsStorage.JSON.createStore());
+    }
+
+    /**
+     * Constructs a new SettingsManager and loads the settings from the given store.
+     *
+     * @param store The store that holds the settings.
+     */
+    public SettingsManager(SettingsStore store)
+    {
+        this(store, WRITE_DELAY);
+    }
+
+    /**
+     * Constructs a new SettingsManager that waits a specific time before writing changes.
+     *
+     * @param store      The store that holds the settings.
+     * @param writeDelay How long to wait, in milliseconds, after a change before writing it.
+     */
+    public SettingsManager(SettingsStore store, long writeDelay)
+    {
+        this(store, writeDelay, CACHE_SIZE);
+    }
+
+    /**
+     * Constructs a new SettingsManager with a specific cache size.
+     *
+     * @param store      The store that holds the settings.
+     * @param writeDelay How long to wait, in milliseconds, after a change before writing it.
+     * @param cacheSize  How many guilds to keep in memory, if the store is a {@link LazySettingsStore}.
+     */
+    public SettingsManager(SettingsStore store, long writeDelay, int cacheSize)
+    {
+        this.store = store;
+        this.lazyStore = store instanceof LazySettingsStore ? (LazySettingsStore) store : null;
+        this.writeDelay = writeDelay;
+        this.cacheSize = cacheSize;
+        this.evictAt = cacheSize;
+        this.settings = new ConcurrentHashMap<>();
+        this.writer = new ScheduledThreadPoolExecutor(1, r ->
+        {
+            Thread thread = new Thread(r, "settings-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        // settings that went idle after the last eviction are dropped by the next periodic pass
+        if(lazyStore != null)
+            this.writer.scheduleWithFixedDelay(this::evict, MIN_IDLE_TIME, MIN_IDLE_TIME, TimeUnit.MILLISECONDS);
 
         try {
-            JSONObject loadedSettings = new JSONObject(new String(Files.readAllBytes(OtherUtil.getPath(SETTINGS_FILE))));
-            loadedSettings.keySet().forEach((id) -> {
-                JSONObject o = loadedSettings.getJSONObject(id);
-
-                // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
-                if (!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
-                    o.put("repeat_mode", RepeatMode.ALL);
-
-
-                settings.put(Long.parseLong(id), new Settings(this,
-                        o.has("text_channel_id") ? o.getString("text_channel_id")            : null,
-                        o.has("voice_channel_id")? o.getString("voice_channel_id")           : null,
-                        o.has("dj_role_id")      ? o.getString("dj_role_id")                 : null,
-                        o.has("volume")          ? o.getInt("volume")                        : 100,
-                        o.has("default_playlist")? o.getString("default_playlist")           : null,
-                        o.has("repeat_mode")     ? o.getEnum(RepeatMode.class, "repeat_mode"): RepeatMode.OFF,
-                        o.has("prefix")          ? o.getString("prefix")                     : null,
-                        o.has("skip_ratio")      ? o.getDouble("skip_ratio")                 : -1,
-                        o.has("queue_type")      ? o.getEnum(QueueType.class, "queue_type")  : QueueType.FAIR));
-            });
-        } catch (NoSuchFileException e) {
-            // create an empty json file
-            try {
-                LOG.info("serversettings.json will be created in " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
-                Files.write(OtherUtil.getPath("serversettings.json"), new JSONObject().toString(4).getBytes());
-            } catch(IOException ex) {
-                LOG.warn("Failed to create new settings file: "+ex);
-            }
-            return;
+            store.load().forEach((guildId, o) -> settings.put(guildId, fromJson(guildId, o)));
         } catch(IOException | JSONException e) {
             LOG.warn("Failed to load server settings: "+e);
         }
-
-        LOG.info("serversettings.json loaded from " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
     }
 
     /**
@@ -102,47 +157,218 @@ public class SettingsManager implements GuildSettingsManager<Settings>
      */
     public Settings getSettings(long guildId)
     {
-        return settings.computeIfAbsent(guildId, id -> createDefaultSettings());
+        // a plain lookup never locks, so the common case stays cheap on the player threads
+        Settings s = settings.get(guildId);
+        if(lazyStore == null)
+            return s != null ? s : settings.computeIfAbsent(guildId, id -> createDefaultSettings(id));
+        if(s == null)
+            return loadSettings(guildId);
+        long now = System.currentTimeMillis();
+        // only a coarse time is needed, and skipping most writes keeps the field from bouncing between cores
+        if(now - s.lastAccess > 1000)
+            s.lastAccess = now;
+        return s;
     }
 
-    private Settings createDefaultSettings()
+    /**
+     * Gets the number of guilds whose settings are currently in memory.
+     *
+     * @return The number of guilds in memory.
+     */
+    public int getLoadedCount()
     {
-        return new Settings(this, 0, 0, 0, 100, null, RepeatMode.OFF, null, -1, QueueType.FAIR);
+        return settings.size();
     }
 
     /**
-     * Writes the current settings to the settings file.
+     * Writes any pending changes and stops the background writer.
+     * Changes made after this are no longer saved.
      */
-    protected void writeSettings()
-    {
-        JSONObject obj = new JSONObject();
-        settings.keySet().stream().forEach(key -> {
-            JSONObject o = new JSONObject();
-            Settings s = settings.get(key);
-            if(s.textId!=0)
-                o.put("text_channel_id", Long.toString(s.textId));
-            if(s.voiceId!=0)
-                o.put("voice_channel_id", Long.toString(s.voiceId));
-            if(s.roleId!=0)
-                o.put("dj_role_id", Long.toString(s.roleId));
-            if(s.getVolume()!=100)
-                o.put("volume",s.getVolume());
-            if(s.getDefaultPlaylist() != null)
-                o.put("default_playlist", s.getDefaultPlaylist());
-            if(s.getRepeatMode()!=RepeatMode.OFF)
-                o.put("repeat_mode", s.getRepeatMode());
-            if(s.getPrefix() != null)
-                o.put("prefix", s.getPrefix());
-            if(s.getSkipRatio() != -1)
-                o.put("skip_ratio", s.getSkipRatio());
-            if(s.getQueueType() != QueueType.FAIR)
-                o.put("queue_type", s.getQueueType().name());
-            obj.put(Long.toString(key), o);
-        });
+    @Override
+    public void shutdown()
+    {
+        writer.shutdown();
+        try
+        {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        flush();
         try {
-            Files.write(OtherUtil.getPath(SETTINGS_FILE), obj.toString(4).getBytes());
-        } catch(IOException ex){
-            LOG.warn("Failed to write to file: "+ex);
+            store.close();
+        } catch(IOException ex) {
+            LOG.warn("Failed to close settings storage: "+ex);
         }
     }
+
+    private Settings createDefaultSettings(long guildId)
+    {
+        return new Settings(this, guildId, 0, 0, 0, 100, null, RepeatMode.OFF, null, -1, QueueType.FAIR);
+    }
+
+    private Settings fromJson(long guildId, JSONObject o)
+    {
+        // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
+        if (!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
+            o.put("repeat_mode", RepeatMode.ALL);
+
+        return new Settings(this, guildId,
+                o.has("text_channel_id") ? o.getString("text_channel_id")            : null,
+                o.has("voice_channel_id")? o.getString("voice_channel_id")           : null,
+                o.has("dj_role_id")      ? o.getString("dj_role_id")                 : null,
+                o.has("volume")          ? o.getInt("volume")                        : 100,
+                o.has("default_playlist")? o.getString("default_playlist")           : null,
+                o.has("repeat_mode")     ? o.getEnum(RepeatMode.class, "repeat_mode"): RepeatMode.OFF,
+                o.has("prefix")          ? o.getString("prefix")                     : null,
+                o.has("skip_ratio")      ? o.getDouble("skip_ratio")                 : -1,
+                o.has("queue_type")      ? o.getEnum(QueueType.class, "queue_type")  : QueueType.FAIR);
+    }
+
+    // reads the settings of a guild that is not in memory from the lazy store
+    private Settings loadSettings(long guildId)
+    {
+        synchronized(storeLock)
+        {
+            Settings s = settings.get(guildId);
+            if(s != null)
+                return s;
+            // settings dropped from memory before their changes were written are still dirty
+            s = dirty.get(guildId);
+            if(s == null)
+            {
+                try {
+                    JSONObject o = lazyStore.read(guildId);
+                    s = o == null ? createDefaultSettings(guildId) : fromJson(guildId, o);
+                } catch(IOException | JSONException e) {
+                    LOG.warn("Failed to load settings of server "+guildId+": "+e);
+                    s = createDefaultSettings(guildId);
+                }
+            }
+            s.lastAccess = System.currentTimeMillis();
+            settings.put(guildId, s);
+            if(settings.size() > evictAt && evictScheduled.compareAndSet(false, true))
+            {
+                try
+                {
+                    writer.execute(this::evict);
+                }
+                catch(RejectedExecutionException ignore)
+                {
+                    // shutting down
+                }
+            }
+            return s;
+        }
+    }
+
+    // drops the least recently used settings, down to 90% of the cache size
+    private void evict()
+    {
+        evictScheduled.set(false);
+        synchronized(storeLock)
+        {
+            int excess = settings.size() - cacheSize * 9 / 10;
+            evictAt = cacheSize;
+            if(settings.size() <= cacheSize)
+                return;
+            // settings used very recently may still be held by a command, so they are kept
+            long cutoff = System.currentTimeMillis() - MIN_IDLE_TIME;
+            List<Settings> idle = settings.values().stream()
+                    .filter(s -> s.lastAccess < cutoff)
+                    .sorted(Comparator.comparingLong(s -> s.lastAccess))
+                    .limit(excess)
+                    .collect(Collectors.toList());
+            idle.forEach(s -> settings.remove(s.getGuildId(), s));
+            // if too few settings were idle, wait for the cache to grow a bit before trying again
+            evictAt = Math.max(cacheSize, settings.size() + cacheSize / 10);
+        }
+    }
+
+    /**
+     * Marks the settings of a guild as changed, and schedules a write if none is pending.
+     *
+     * @param s The settings that changed.
+     */
+    protected void markDirty(Settings s)
+    {
+        dirty.put(s.getGuildId(), s);
+        scheduleWrite();
+    }
+
+    private void scheduleWrite()
+    {
+        if(writeScheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                writer.schedule(this::flush, writeDelay, TimeUnit.MILLISECONDS);
+            }
+            catch(RejectedExecutionException ignore)
+            {
+                // shutting down; shutdown() writes whatever is still dirty
+            }
+        }
+    }
+
+    /**
+     * Writes the settings of every dirty guild to the store.
+     */
+    void flush()
+    {
+        writeScheduled.set(false);
+        if(dirty.isEmpty())
+            return;
+        // holding the lock until the write is done keeps a lazy load from reading a record that
+        // is no longer dirty but not yet written
+        synchronized(storeLock)
+        {
+            Map<Long, Settings> written = new HashMap<>();
+            Map<Long, JSONObject> records = new HashMap<>();
+            for(Iterator<Settings> it = dirty.values().iterator(); it.hasNext();)
+            {
+                Settings s = it.next();
+                it.remove();
+                // removing the guild from the dirty map before reading its settings means that a
+                // change racing with this write marks the guild dirty again instead of being lost
+                written.put(s.getGuildId(), s);
+                records.put(s.getGuildId(), toJson(s));
+            }
+            try {
+                store.write(records);
+            } catch(IOException | RuntimeException ex){
+                LOG.warn("Failed to write the settings, trying again later: "+ex);
+                // the guilds stay dirty until their settings are written, so a guild dropped from
+                // memory in the meantime is not read back from the stale record
+                written.forEach(dirty::putIfAbsent);
+                scheduleWrite();
+            }
+        }
+    }
+
+    private JSONObject toJson(Settings s)
+    {
+        JSONObject o = new JSONObject();
+        if(s.textId!=0)
+            o.put("text_channel_id", Long.toString(s.textId));
+        if(s.voiceId!=0)
+            o.put("voice_channel_id", Long.toString(s.voiceId));
+        if(s.roleId!=0)
+            o.put("dj_role_id", Long.toString(s.roleId));
+        if(s.getVolume()!=100)
+            o.put("volume",s.getVolume());
+        if(s.getDefaultPlaylist() != null)
+            o.put("default_playlist", s.getDefaultPlaylist());
+        if(s.getRepeatMode()!=RepeatMode.OFF)
+            o.put("repeat_mode", s.getRepeatMode());
+        if(s.getPrefix() != null)
+            o.put("prefix", s.getPrefix());
+        if(s.getSkipRatio() != -1)
+            o.put("skip_ratio", s.getSkipRatio());
+        if(s.getQueueType() != QueueType.FAIR)
+            o.put("queue_type", s.getQueueType().name());
+        return o;
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import com.jagrosh.jmusicbot.utils.OtherUtil;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An enum representing the different ways guild settings can be stored.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public enum SettingsStorage
+{
+    JSON(path -> new JsonSettingsStore(path)),
+    JOURNAL(path -> new JournalSettingsStore(path, JournalSettingsStore.DEFAULT_COMPACT_THRESHOLD)),
+    INDEXED(path -> new IndexedSettingsStore(path, IndexedSettingsStore.DEFAULT_COMPACT_THRESHOLD)),
+    BINARY(path -> new BinarySettingsStore(path, BinarySettingsStore.DEFAULT_COMPACT_THRESHOLD));
+
+    public final static String SETTINGS_FILE = "serversettings.json";
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+
+    private final Function<Path, SettingsStore> factory;
+
+    SettingsStorage(Function<Path, SettingsStore> factory)
+    {
+        this.factory = factory;
+    }
+
+    /**
+     * Gets the storage type with the given name, ignoring case.
+     *
+     * @param name The name of the storage type.
+     * @return The matching storage type, or {@link #JSON} if there is none.
+     */
+    public static SettingsStorage fromName(String name)
+    {
+        for(SettingsStorage storage: values())
+            if(storage.name().equalsIgnoreCase(name))
+                return storage;
+        return JSON;
+    }
+
+    /**
+     * Creates a store of this type for the default settings file.
+     *
+     * @return A new store.
+     */
+    public SettingsStore createStore()
+    {
+        return createStore(OtherUtil.getPath(SETTINGS_FILE));
+    }
+
+    /**
+     * Creates a store of this type for a specific settings file. If the store does not
+     * exist yet, the settings kept by another storage type are moved into it.
+     *
+     * @param path The path of the settings file.
+     * @return A new store.
+     */
+    public SettingsStore createStore(Path path)
+    {
+        SettingsStore store = factory.apply(path);
+        if(!store.exists())
+            migrate(store, path);
+        return store;
+    }
+
+    private void migrate(SettingsStore store, Path path)
+    {
+        for(SettingsStorage other: values())
+        {
+            SettingsStore source = other.factory.apply(path);
+            if(other == this || !source.exists())
+                continue;
+            try
+            {
+                store.create(source.readAll());
+                source.archive();
+                LOG.info("Moved server settings from "
+                        + other.name().toLowerCase() + " to " + name().toLowerCase() + " storage");
+            }
+            catch(IOException e)
+            {
+                LOG.warn("Failed to move server settings from "
+                        + other.name().toLowerCase() + " storage: " + e);
+            }
+            return;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Persists the settings of every guild. Each guild is stored as one record, which is
+ * the JSON object found under the guild's ID in {@code serversettings.json}, with
+ * default values left out. An empty record means the guild only has default settings,
+ * and a store does not need to keep it.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public interface SettingsStore
+{
+    /**
+     * Reads the records of every stored guild.
+     *
+     * @return The records, keyed by guild ID.
+     * @throws IOException If the storage could not be read.
+     */
+    Map<Long, JSONObject> load() throws IOException;
+
+    /**
+     * Stores the current records of the given guilds, replacing their previous records.
+     * This is only called from one thread at a time.
+     *
+     * @param records The records of the guilds that changed, keyed by guild ID.
+     * @throws IOException If the storage could not be written.
+     */
+    void write(Map<Long, JSONObject> records) throws IOException;
+
+    /**
+     * Checks whether the files of this store exist. If they do not, the settings of
+     * another kind of store can be moved over with {@link #create(Map)} before loading.
+     *
+     * @return Whether the store has been created.
+     */
+    default boolean exists()
+    {
+        return false;
+    }
+
+    /**
+     * Reads the records of every stored guild without preparing the store for writes,
+     * so the settings can be moved to another kind of store.
+     *
+     * @return The records, keyed by guild ID.
+     * @throws IOException If the storage could not be read.
+     */
+    default Map<Long, JSONObject> readAll() throws IOException
+    {
+        return load();
+    }
+
+    /**
+     * Creates the files of this store holding the given records. This is called
+     * before {@link #load()}, when settings are moved from another kind of store.
+     *
+     * @param records The records, keyed by guild ID.
+     * @throws IOException If the storage could not be written.
+     */
+    default void create(Map<Long, JSONObject> records) throws IOException
+    {
+        write(records);
+    }
+
+    /**
+     * Moves the files of this store aside, after its settings were moved to another
+     * kind of store, so they are no longer loaded.
+     *
+     * @throws IOException If the files could not be moved.
+     */
+    default void archive() throws IOException
+    {
+    }
+
+    /**
+     * Releases the storage after the last write.
+     *
+     * @throws IOException If pending data could not be written.
+     */
+    default void close() throws IOException
+    {
+    }
+}
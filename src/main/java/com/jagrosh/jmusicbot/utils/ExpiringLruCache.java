@@ -0,0 +1,263 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache holding up to a fixed number of values, each for a fixed time.
+ * When the cache is full, the least recently used value is evicted.
+ * <p>
+ * Values can be loaded through the cache with {@link #getOrLoad(Object, Function)}, in
+ * which case callers asking for a key that is already being loaded wait for that load
+ * instead of starting their own.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class ExpiringLruCache<K, V>
+{
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true); // guarded by this
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>(); // guarded by this
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new ExpiringLruCache.
+     *
+     * @param maxSize The most values to hold.
+     * @param ttl     How long a value is kept.
+     * @param unit    The unit of the time to live.
+     */
+    public ExpiringLruCache(int maxSize, long ttl, TimeUnit unit)
+    {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Gets a value, if it is cached and has not expired.
+     *
+     * @param key The key of the value.
+     * @return The value, or null if it is not cached.
+     */
+    public V get(K key)
+    {
+        V value;
+        synchronized(this)
+        {
+            value = lookup(key);
+        }
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    /**
+     * Caches a value, replacing any value cached for the key.
+     *
+     * @param key   The key of the value.
+     * @param value The value, not null.
+     */
+    public synchronized void put(K key, V value)
+    {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        if(entries.size() > maxSize)
+            evict();
+    }
+
+    /**
+     * Gets a value, loading and caching it if it is not cached. If the key is already
+     * being loaded by another thread, this waits for that load instead. A null value
+     * is returned to every waiting caller but not cached, and an exception thrown by the
+     * loader is thrown to every waiting caller.
+     *
+     * @param key    The key of the value.
+     * @param loader Loads the value of a key, on the calling thread.
+     * @return The value, or null if the loader returned null.
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader)
+    {
+        CompletableFuture<V> future;
+        boolean load = false;
+        synchronized(this)
+        {
+            V value = lookup(key);
+            if(value != null)
+            {
+                hits.increment();
+                return value;
+            }
+            future = loading.get(key);
+            if(future == null)
+            {
+                future = new CompletableFuture<>();
+                loading.put(key, future);
+                load = true;
+            }
+        }
+        // only the caller that loads counts as a miss, the others are spared a load
+        (load ? misses : hits).increment();
+        if(!load)
+        {
+            try
+            {
+                return future.join();
+            }
+            catch(CompletionException ex)
+            {
+                if(ex.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) ex.getCause();
+                throw ex;
+            }
+        }
+        try
+        {
+            V value = loader.apply(key);
+            synchronized(this)
+            {
+                loading.remove(key);
+                if(value != null)
+                    put(key, value);
+            }
+            future.complete(value);
+            return value;
+        }
+        catch(RuntimeException | Error ex)
+        {
+            synchronized(this)
+            {
+                loading.remove(key);
+            }
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Removes a value from the cache.
+     *
+     * @param key The key of the value.
+     */
+    public synchronized void remove(K key)
+    {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes every value from the cache.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of values in the cache, some of which may have expired.
+     *
+     * @return The number of values.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that found a value, or waited for another caller's load.
+     *
+     * @return The number of hits.
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that did not find a value.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the share of lookups that found a value.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was looked up.
+     */
+    public double getHitRate()
+    {
+        long hits = getHits(), total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d cached, %d hits, %d misses (%.1f%% hit rate)", size(), getHits(), getMisses(), getHitRate() * 100);
+    }
+
+    private V lookup(K key)
+    {
+        Entry<V> entry = entries.get(key);
+        if(entry == null)
+            return null;
+        if(entry.expiresAt - System.nanoTime() <= 0)
+        {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    // drops the least recently used values until the cache fits, and any expired ones among them
+    private void evict()
+    {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while(it.hasNext())
+        {
+            Entry<V> entry = it.next();
+            if(entries.size() <= maxSize && entry.expiresAt - now > 0)
+                break;
+            it.remove();
+        }
+    }
+
+    private static class Entry<V>
+    {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt)
+        {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
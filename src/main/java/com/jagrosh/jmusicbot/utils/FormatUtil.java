@@ -28,6 +28,7 @@ import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
  * @author John Grosh <john.a.grosh@gmail.com>
  */
 public class FormatUtil {
+    public final static int PROGRESS_BAR_LENGTH = 12;
 
     /**
      * Formats a username with a discriminator.
@@ -70,6 +71,17 @@ public class FormatUtil {
         return formatUsername(user.getName(), user.getDiscriminator());
     }
 
+    /**
+     * Gets the cell of the progress bar that holds the marker.
+     *
+     * @param percent The percentage to display.
+     * @return The index of the marker, which is outside the bar for negative percentages.
+     */
+    public static int progressBarPosition(double percent)
+    {
+        return (int)(percent*PROGRESS_BAR_LENGTH);
+    }
+
     /**
      * Creates a progress bar.
      *
@@ -79,8 +91,8 @@ public class FormatUtil {
     public static String progressBar(double percent)
     {
         String str = "";
-        for(int i=0; i<12; i++)
-            if(i == (int)(percent*12))
+        for(int i=0; i<PROGRESS_BAR_LENGTH; i++)
+            if(i == progressBarPosition(percent))
                 str+="\uD83D\uDD18"; // 🔘
             else
                 str+="▬";
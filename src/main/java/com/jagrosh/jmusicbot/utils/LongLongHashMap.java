@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to long values, stored in two primitive arrays with linear
+ * probing, so nothing is boxed and nothing is allocated unless the map has to grow.
+ * Meant for snowflake IDs, so the key 0 is not allowed.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class LongLongHashMap
+{
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Constructs a new LongLongHashMap.
+     *
+     * @param expectedSize The number of entries the map holds without growing.
+     */
+    public LongLongHashMap(int expectedSize)
+    {
+        // kept at most half full, so probes stay short
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Gets the value for a key.
+     *
+     * @param key     The key.
+     * @param missing The value to return if the key is not in the map.
+     * @return The value for the key, or the missing value.
+     */
+    public long get(long key, long missing)
+    {
+        int i = find(key);
+        return i < 0 ? missing : values[i];
+    }
+
+    /**
+     * Checks if a key is in the map.
+     *
+     * @param key The key.
+     * @return true if the key is in the map
+     */
+    public boolean containsKey(long key)
+    {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Sets the value for a key.
+     *
+     * @param key   The key, which may not be 0.
+     * @param value The value.
+     * @return true if the key was not in the map before
+     */
+    public boolean put(long key, long value)
+    {
+        if(key == 0)
+            throw new IllegalArgumentException("The key 0 is not allowed");
+        int i = slot(key);
+        while(keys[i] != 0)
+        {
+            if(keys[i] == key)
+            {
+                values[i] = value;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if(++size * 2 > keys.length)
+            grow();
+        return true;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key     The key.
+     * @param missing The value to return if the key is not in the map.
+     * @return The value the key had, or the missing value.
+     */
+    public long remove(long key, long missing)
+    {
+        int i = find(key);
+        if(i < 0)
+            return missing;
+        long value = values[i];
+        // moves the following entries of the probe run back, so no tombstones are needed
+        int j = i;
+        while(true)
+        {
+            j = (j + 1) & mask;
+            if(keys[j] == 0)
+                break;
+            int home = slot(keys[j]);
+            if(((j - home) & mask) >= ((j - i) & mask))
+            {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        size--;
+        return value;
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes every entry, keeping the arrays for reuse.
+     */
+    public void clear()
+    {
+        if(size == 0)
+            return;
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    private int find(long key)
+    {
+        if(key == 0)
+            return -1;
+        int i = slot(key);
+        while(keys[i] != 0)
+        {
+            if(keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key)
+    {
+        // the low bits of snowflakes are much alike, so the key is mixed first
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys, oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        mask = keys.length - 1;
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldKeys[i] == 0)
+                continue;
+            int j = slot(oldKeys[i]);
+            while(keys[j] != 0)
+                j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+}
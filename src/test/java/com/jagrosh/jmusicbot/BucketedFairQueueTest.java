@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.BucketedFairQueue;
+import com.jagrosh.jmusicbot.queue.FairQueue;
+import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Differential tests that check {@link BucketedFairQueue} against {@link FairQueue}.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class BucketedFairQueueTest
+{
+    @Test
+    public void differentIdentifierSize()
+    {
+        FairQueue<Q> expected = new FairQueue<>(null);
+        BucketedFairQueue<Q> queue = new BucketedFairQueue<>(null);
+        int size = 100;
+        for(int i=0; i<size; i++)
+        {
+            Q q = new Q(i);
+            assertEquals(expected.add(q), queue.add(q));
+        }
+        assertEquals(queue.size(), size);
+        assertEquals(expected.getList(), queue.getList());
+    }
+
+    @Test
+    public void sameIdentifierSize()
+    {
+        FairQueue<Q> expected = new FairQueue<>(null);
+        BucketedFairQueue<Q> queue = new BucketedFairQueue<>(null);
+        int size = 100;
+        for(int i=0; i<size; i++)
+        {
+            Q q = new Q(0);
+            assertEquals(expected.add(q), queue.add(q));
+        }
+        assertEquals(queue.size(), size);
+        assertEquals(expected.getList(), queue.getList());
+    }
+
+    @Test
+    public void interleavedPlaylists()
+    {
+        FairQueue<Q> expected = new FairQueue<>(null);
+        BucketedFairQueue<Q> queue = new BucketedFairQueue<>(null);
+        for(int i=0; i<500; i++)
+            add(expected, queue, new Q(1));
+        for(int i=0; i<300; i++)
+            add(expected, queue, new Q(2));
+        for(int i=0; i<50; i++)
+        {
+            assertSame(expected.pull(), queue.pull());
+            add(expected, queue, new Q(3));
+        }
+        assertEquals(expected.getList(), queue.getList());
+    }
+
+    @Test
+    public void playNextThenAdd()
+    {
+        FairQueue<Q> expected = new FairQueue<>(null);
+        BucketedFairQueue<Q> queue = new BucketedFairQueue<>(null);
+        for(int i=0; i<10; i++)
+            add(expected, queue, new Q(i % 3));
+        Q next = new Q(2);
+        expected.addAt(0, next);
+        queue.addAt(0, next);
+        add(expected, queue, new Q(4));
+        add(expected, queue, new Q(2));
+        assertEquals(expected.getList(), queue.getList());
+        assertSame(expected.pull(), queue.pull());
+        assertEquals(expected.getList(), queue.getList());
+    }
+
+    @Test
+    public void randomOperations()
+    {
+        Random random = new Random(42);
+        for(int run=0; run<200; run++)
+        {
+            FairQueue<Q> expected = new FairQueue<>(null);
+            BucketedFairQueue<Q> queue = new BucketedFairQueue<>(null);
+            int users = 1 + random.nextInt(6);
+            for(int op=0; op<300; op++)
+            {
+                int size = expected.size();
+                int choice = random.nextInt(100);
+                if(choice < 50)
+                    add(expected, queue, new Q(random.nextInt(users)));
+                else if(choice < 65 && size > 0)
+                    assertSame(expected.pull(), queue.pull());
+                else if(choice < 72)
+                {
+                    Q q = new Q(random.nextInt(users));
+                    int index = random.nextInt(3) == 0 ? 0 : random.nextInt(size + 2);
+                    expected.addAt(index, q);
+                    queue.addAt(index, q);
+                }
+                else if(choice < 77 && size > 0)
+                {
+                    int index = random.nextInt(size);
+                    assertSame(expected.remove(index), queue.remove(index));
+                }
+                else if(choice < 80)
+                {
+                    long identifier = random.nextInt(users);
+                    assertEquals(expected.removeAll(identifier), queue.removeAll(identifier));
+                }
+                else if(choice < 82 && size > 0)
+                {
+                    int from = random.nextInt(size), to = random.nextInt(size);
+                    assertSame(expected.moveItem(from, to), queue.moveItem(from, to));
+                }
+                else if(choice < 85 && size > 0)
+                {
+                    int number = random.nextInt(Math.min(size, 5) + 1);
+                    expected.skip(number);
+                    queue.skip(number);
+                }
+                else if(choice < 86)
+                {
+                    expected.clear();
+                    queue.clear();
+                }
+                else if(size > 0)
+                {
+                    int index = random.nextInt(size);
+                    assertSame(expected.get(index), queue.get(index));
+                }
+                assertEquals(expected.size(), queue.size());
+                assertEquals(expected.getList(), queue.getList());
+            }
+        }
+    }
+
+    @Test
+    public void addAllMatchesSequentialAdds()
+    {
+        Random random = new Random(7);
+        for(int run=0; run<200; run++)
+        {
+            FairQueue<Q> expected = new FairQueue<>(null);
+            BucketedFairQueue<Q> queue = new BucketedFairQueue<>(null);
+            for(int batch=0; batch<10; batch++)
+            {
+                if(random.nextInt(4) == 0)
+                {
+                    Q next = new Q(random.nextInt(5));
+                    expected.addAt(0, next);
+                    queue.addAt(0, next);
+                }
+                if(random.nextInt(5) == 0 && expected.size() > 1)
+                {
+                    int from = random.nextInt(expected.size()), to = random.nextInt(expected.size());
+                    assertSame(expected.moveItem(from, to), queue.moveItem(from, to));
+                }
+                List<Q> items = new ArrayList<>();
+                for(int i=random.nextInt(30); i>0; i--)
+                    items.add(new Q(random.nextInt(5)));
+                assertEquals(expected.addAll(items), queue.addAll(items));
+                assertEquals(expected.getList(), queue.getList());
+                if(expected.size() > 0)
+                    assertSame(expected.pull(), queue.pull());
+            }
+        }
+    }
+
+    private void add(FairQueue<Q> expected, BucketedFairQueue<Q> queue, Q q)
+    {
+        assertEquals(expected.add(q), queue.add(q));
+    }
+
+    private class Q implements Queueable
+    {
+        private final long identifier;
+
+        private Q(long identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.ExpiringLruCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests eviction, expiry and shared loads of the cache used for resolved links.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ExpiringLruCacheTest
+{
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(2, 1, TimeUnit.HOURS);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, (int) cache.get("a"));
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(1, (int) cache.get("a"));
+        assertEquals(3, (int) cache.get("c"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void expiresValues() throws InterruptedException
+    {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, 50, TimeUnit.MILLISECONDS);
+        cache.put("a", 1);
+        assertEquals(1, (int) cache.get("a"));
+        Thread.sleep(100);
+        assertNull(cache.get("a"));
+        assertEquals(2, (int) cache.getOrLoad("a", key -> 2));
+        assertEquals(2, (int) cache.get("a"));
+    }
+
+    @Test
+    public void concurrentLoadsShareOneLoad() throws InterruptedException
+    {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, 1, TimeUnit.HOURS);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        for(int i = 0; i < 50; i++)
+        {
+            Thread thread = new Thread(() -> 
+            {
+                String value = cache.getOrLoad("link", key -> 
+                {
+                    loads.incrementAndGet();
+                    try
+                    {
+                        release.await();
+                    }
+                    catch(InterruptedException ignore) {}
+                    return key + "!";
+                });
+                synchronized(results)
+                {
+                    results.add(value);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        // give every thread the time to ask for the link while it is still loading
+        Thread.sleep(200);
+        release.countDown();
+        for(Thread thread: threads)
+            thread.join();
+        assertEquals(1, loads.get());
+        assertEquals(50, results.size());
+        results.forEach(value -> assertEquals("link!", value));
+        assertEquals(1, cache.getMisses());
+        assertEquals(49, cache.getHits());
+    }
+
+    @Test
+    public void failedLoadsAreNotCached()
+    {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, 1, TimeUnit.HOURS);
+        try
+        {
+            cache.getOrLoad("link", key -> 
+            {
+                throw new IllegalStateException("offline");
+            });
+            fail("The load did not fail");
+        }
+        catch(IllegalStateException expected) {}
+        assertNull(cache.getOrLoad("link", key -> null));
+        assertEquals("value", cache.getOrLoad("link", key -> "value"));
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.IndexedTreeList;
+import com.jagrosh.jmusicbot.queue.LinearQueue;
+import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the treap list that backs the queues against an {@link ArrayList}.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class IndexedTreeListTest
+{
+    @Test
+    public void matchesArrayList()
+    {
+        Random random = new Random(0);
+        IndexedTreeList<Integer> list = new IndexedTreeList<>();
+        List<Integer> expected = new ArrayList<>();
+        for(int i = 0; i < 100_000; i++)
+        {
+            int size = expected.size();
+            // grows while it is small, so every operation also runs on deeper trees
+            int op = random.nextInt(size < 50 ? 4 : 9);
+            switch(op)
+            {
+                case 0:
+                    assertEquals(expected.add(i), list.add(i));
+                    break;
+                case 1:
+                case 2:
+                {
+                    int index = random.nextInt(size + 1);
+                    expected.add(index, i);
+                    list.add(index, i);
+                    break;
+                }
+                case 3:
+                {
+                    int index = random.nextInt(size + 1);
+                    List<Integer> items = Arrays.asList(i, -i, i + 1);
+                    expected.addAll(index, items);
+                    list.addAll(index, items);
+                    break;
+                }
+                case 4:
+                case 5:
+                {
+                    int index = random.nextInt(size);
+                    assertEquals(expected.remove(index), list.remove(index));
+                    break;
+                }
+                case 6:
+                {
+                    int index = random.nextInt(size);
+                    assertEquals(expected.set(index, i), list.set(index, i));
+                    break;
+                }
+                case 7:
+                {
+                    // the same remove and add as AbstractQueue.moveItem
+                    int from = random.nextInt(size), to = random.nextInt(size);
+                    expected.add(to, expected.remove(from));
+                    list.add(to, list.remove(from));
+                    break;
+                }
+                default:
+                {
+                    int index = random.nextInt(size);
+                    assertEquals(expected.get(index), list.get(index));
+                    break;
+                }
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+        assertEquals(expected, new ArrayList<>(list));
+    }
+
+    @Test
+    public void iteratorRemoveMatchesArrayList()
+    {
+        Random random = new Random(1);
+        for(int round = 0; round < 200; round++)
+        {
+            int size = random.nextInt(300);
+            List<Integer> expected = new ArrayList<>();
+            for(int i = 0; i < size; i++)
+                expected.add(i);
+            IndexedTreeList<Integer> list = new IndexedTreeList<>(expected);
+            // the same choices for both, with the odd round removing every item
+            long seed = random.nextLong();
+            removeSome(expected.iterator(), new Random(seed), round % 2 == 1);
+            removeSome(list.iterator(), new Random(seed), round % 2 == 1);
+            assertEquals(expected, list);
+            for(int i = 0; i < expected.size(); i++)
+                assertEquals(expected.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void iteratorFailsFast()
+    {
+        IndexedTreeList<Integer> list = new IndexedTreeList<>(Arrays.asList(1, 2, 3));
+        Iterator<Integer> it = list.iterator();
+        it.next();
+        try
+        {
+            it.remove();
+            it.remove();
+            fail();
+        }
+        catch(IllegalStateException expected) {}
+        list.add(4);
+        try
+        {
+            it.next();
+            fail();
+        }
+        catch(ConcurrentModificationException expected) {}
+    }
+
+    @Test
+    public void moveItemInQueue()
+    {
+        Random random = new Random(2);
+        LinearQueue<Q> queue = new LinearQueue<>(null);
+        List<Q> expected = new ArrayList<>();
+        for(int i = 0; i < 500; i++)
+        {
+            Q item = new Q(i);
+            queue.add(item);
+            expected.add(item);
+        }
+        for(int i = 0; i < 5000; i++)
+        {
+            int from = random.nextInt(expected.size()), to = random.nextInt(expected.size());
+            Q moved = expected.remove(from);
+            expected.add(to, moved);
+            assertSame(moved, queue.moveItem(from, to));
+        }
+        assertEquals(expected, queue.getList());
+    }
+
+    private static void removeSome(Iterator<Integer> it, Random random, boolean all)
+    {
+        while(it.hasNext())
+        {
+            it.next();
+            if(all || random.nextInt(3) == 0)
+                it.remove();
+        }
+    }
+
+    private static class Q implements Queueable
+    {
+        private final long identifier;
+
+        private Q(long identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
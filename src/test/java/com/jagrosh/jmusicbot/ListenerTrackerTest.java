@@ -0,0 +1,222 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.ListenerTracker;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the listeners and skip votes of a voice channel follow members joining,
+ * leaving and (un)deafening, and that the track is skipped once enough of the remaining
+ * listeners have voted.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ListenerTrackerTest
+{
+    private final static long CHANNEL = 100, OTHER_CHANNEL = 200;
+
+    private final AtomicInteger skips = new AtomicInteger();
+    private ListenerTracker tracker;
+
+    @Before
+    public void setUp()
+    {
+        tracker = new ListenerTracker(skips::incrementAndGet);
+        tracker.connect(CHANNEL);
+    }
+
+    @Test
+    public void countsListenersAsTheyJoinAndLeave()
+    {
+        join(1);
+        join(2);
+        assertEquals(2, tracker.getListenerCount());
+        // bots and deafened members are not listeners
+        tracker.onMove(3, true, false, 0, CHANNEL);
+        tracker.onMove(4, false, true, 0, CHANNEL);
+        assertEquals(2, tracker.getListenerCount());
+        // a member is only counted once
+        join(1);
+        assertEquals(2, tracker.getListenerCount());
+        // other channels are not tracked
+        tracker.onMove(5, false, false, 0, OTHER_CHANNEL);
+        assertEquals(2, tracker.getListenerCount());
+        tracker.onMove(1, false, false, CHANNEL, OTHER_CHANNEL);
+        assertEquals(1, tracker.getListenerCount());
+        tracker.onMove(5, false, false, OTHER_CHANNEL, CHANNEL);
+        assertEquals(2, tracker.getListenerCount());
+        leave(2);
+        leave(5);
+        assertEquals(0, tracker.getListenerCount());
+        // leaving twice or leaving without having joined changes nothing
+        leave(5);
+        leave(6);
+        assertEquals(0, tracker.getListenerCount());
+    }
+
+    @Test
+    public void countsListenersAsTheyDeafen()
+    {
+        join(1);
+        tracker.onMove(2, false, true, 0, CHANNEL);
+        assertEquals(1, tracker.getListenerCount());
+        tracker.onDeafen(2, false);
+        assertEquals(2, tracker.getListenerCount());
+        tracker.onDeafen(1, true);
+        tracker.onDeafen(1, true);
+        assertEquals(1, tracker.getListenerCount());
+        // members outside the channel are ignored
+        tracker.onDeafen(3, false);
+        assertEquals(1, tracker.getListenerCount());
+        // a deafened member leaving does not change the listeners
+        leave(1);
+        assertEquals(1, tracker.getListenerCount());
+    }
+
+    @Test
+    public void countsOnlyVotesOfMembersPresent()
+    {
+        join(1);
+        join(2);
+        assertTrue(tracker.addVote(1, 1000, 1));
+        assertFalse(tracker.addVote(1, 2000, 1));
+        assertEquals(1000, tracker.getVoteTime(1));
+        assertEquals(0, tracker.getVoteTime(2));
+        // a vote from outside the channel counts once its author joins
+        assertTrue(tracker.addVote(3, 3000, 1));
+        assertEquals(1, tracker.getVotersPresent());
+        join(3);
+        assertEquals(2, tracker.getVotersPresent());
+        leave(3);
+        assertEquals(1, tracker.getVotersPresent());
+        assertEquals(0, skips.get());
+        tracker.clearVotes();
+        assertEquals(0, tracker.getVotersPresent());
+        assertEquals(0, tracker.getVoteTime(1));
+    }
+
+    @Test
+    public void requiresTheSkipRatioOfListeners()
+    {
+        for(long id = 1; id <= 5; id++)
+            join(id);
+        tracker.addVote(1, 0, 0.55);
+        assertEquals(3, tracker.getRequiredVotes());
+        // the ratio of the last vote is used
+        tracker.addVote(2, 0, 0.2);
+        assertEquals(1, tracker.getRequiredVotes());
+        tracker.addVote(2, 0, 1);
+        assertEquals(5, tracker.getRequiredVotes());
+        tracker.onDeafen(3, true);
+        assertEquals(4, tracker.getRequiredVotes());
+    }
+
+    @Test
+    public void skipsOnceEnoughVoted()
+    {
+        join(1);
+        join(2);
+        join(3);
+        tracker.addVote(1, 0, 0.55);
+        assertFalse(tracker.takeSkip());
+        tracker.addVote(2, 0, 0.55);
+        assertTrue(tracker.takeSkip());
+        // the votes are gone, so only one caller skips
+        assertFalse(tracker.takeSkip());
+        assertEquals(0, tracker.getVotersPresent());
+        // the skip was taken by the caller, not run by the tracker
+        assertEquals(0, skips.get());
+    }
+
+    @Test
+    public void skipsWhenListenersLeave()
+    {
+        for(long id = 1; id <= 4; id++)
+            join(id);
+        tracker.addVote(1, 0, 0.5);
+        assertFalse(tracker.takeSkip());
+        leave(2);
+        assertEquals(0, skips.get());
+        // one vote of the two remaining listeners is enough
+        leave(3);
+        assertEquals(1, skips.get());
+        assertEquals(0, tracker.getVotersPresent());
+        leave(4);
+        assertEquals(1, skips.get());
+    }
+
+    @Test
+    public void skipsWhenListenersDeafen()
+    {
+        join(1);
+        join(2);
+        join(3);
+        tracker.addVote(1, 0, 0.5);
+        tracker.onDeafen(2, true);
+        assertEquals(1, skips.get());
+    }
+
+    @Test
+    public void countsVotesOfDeafenedVoters()
+    {
+        join(1);
+        join(2);
+        tracker.addVote(1, 0, 1);
+        // the voter is no longer a listener, but their vote still counts for the one left
+        tracker.onDeafen(1, true);
+        assertEquals(1, tracker.getListenerCount());
+        assertEquals(1, skips.get());
+    }
+
+    @Test
+    public void doesNotSkipWithoutVotes()
+    {
+        join(1);
+        tracker.addVote(2, 0, 0.5);
+        leave(1);
+        // nobody who voted is in the channel
+        assertEquals(0, skips.get());
+        assertFalse(tracker.takeSkip());
+    }
+
+    @Test
+    public void forgetsMembersWhenMoved()
+    {
+        join(1);
+        tracker.addVote(1, 0, 1);
+        tracker.connect(OTHER_CHANNEL);
+        assertEquals(0, tracker.getListenerCount());
+        assertEquals(0, tracker.getVotersPresent());
+        // the vote is kept for the current track, and is enough once its author follows
+        tracker.onMove(1, false, false, CHANNEL, OTHER_CHANNEL);
+        assertEquals(1, skips.get());
+        assertEquals(0, tracker.getVotersPresent());
+    }
+
+    private void join(long userId)
+    {
+        tracker.onMove(userId, false, false, 0, CHANNEL);
+    }
+
+    private void leave(long userId)
+    {
+        tracker.onMove(userId, false, false, CHANNEL, 0);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.LoadCoalescer;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that overlapping loads of an identifier are merged, and that every handler gets
+ * its own tracks, in the order of its ordering key.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LoadCoalescerTest
+{
+    private final List<String> started = new ArrayList<>();
+    private final List<AudioLoadResultHandler> running = new ArrayList<>();
+    private final List<String> handled = new ArrayList<>();
+    private final LoadCoalescer coalescer = new LoadCoalescer((orderingKey, identifier, handler) ->
+    {
+        started.add(identifier);
+        running.add(handler);
+    });
+
+    @Test
+    public void mergesOverlappingLoads()
+    {
+        List<AudioTrack> received = new ArrayList<>();
+        Future<Void> first = coalescer.load("guild1", "https://youtu.be/a", recording("one", received));
+        Future<Void> second = coalescer.load("guild1", "https://youtu.be/a", recording("two", received));
+        Future<Void> third = coalescer.load("guild2", "https://youtu.be/a", recording("three", received));
+        assertEquals(List.of("https://youtu.be/a"), started);
+        assertFalse(first.isDone());
+
+        AudioTrack track = track("a");
+        running.get(0).trackLoaded(track);
+        assertEquals(List.of("one a", "two a", "three a"), handled);
+        assertTrue(first.isDone() && second.isDone() && third.isDone());
+        // every handler has a track of its own
+        assertSame(track, received.get(0));
+        assertNotSame(track, received.get(1));
+        assertNotSame(received.get(1), received.get(2));
+        assertEquals(1, coalescer.getLoads());
+        assertEquals(2, coalescer.getCoalesced());
+
+        // a finished load is not joined
+        coalescer.load("guild1", "https://youtu.be/a", recording("four", received));
+        assertEquals(2, started.size());
+    }
+
+    @Test
+    public void keepsTheOrderOfEachKey()
+    {
+        coalescer.load("guild2", "slow", recording("guild2 slow", null));
+        coalescer.load("guild1", "fast", recording("guild1 fast", null));
+        coalescer.load("guild1", "slow", recording("guild1 slow", null));
+        coalescer.load("guild1", "other", recording("guild1 other", null));
+
+        running.get(2).noMatches();
+        running.get(1).trackLoaded(track("fast"));
+        // guild1 is still waiting for the load it joined
+        assertEquals(List.of("guild1 fast fast"), handled);
+        running.get(0).loadFailed(new FriendlyException("gone", FriendlyException.Severity.COMMON, null));
+        assertEquals(List.of("guild1 fast fast", "guild2 slow failed", "guild1 slow failed", "guild1 other none"), handled);
+    }
+
+    @Test
+    public void knownResultsWaitForEarlierLoads()
+    {
+        AudioTrack cached = track("cached");
+        // nothing to wait for, so the handler is called right away
+        assertTrue(coalescer.resolve("guild1", recording("guild1 first", null), handler -> handler.trackLoaded(cached)).isDone());
+        coalescer.load("guild1", "slow", recording("guild1 slow", null));
+        Future<Void> hit = coalescer.resolve("guild1", recording("guild1 hit", null), handler -> handler.trackLoaded(cached));
+        coalescer.resolve("guild2", recording("guild2 hit", null), handler -> handler.trackLoaded(cached));
+        assertFalse(hit.isDone());
+        assertEquals(List.of("guild1 first cached", "guild2 hit cached"), handled);
+        running.get(0).noMatches();
+        assertTrue(hit.isDone());
+        assertEquals(List.of("guild1 first cached", "guild2 hit cached", "guild1 slow none", "guild1 hit cached"), handled);
+        assertEquals(1, coalescer.getLoads());
+    }
+
+    @Test
+    public void clonesPlaylists()
+    {
+        List<AudioPlaylist> received = new ArrayList<>();
+        AudioLoadResultHandler handler = new Recorder("", null)
+        {
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist)
+            {
+                received.add(playlist);
+            }
+        };
+        coalescer.load("guild1", "list", handler);
+        coalescer.load("guild2", "list", handler);
+        List<AudioTrack> tracks = List.of(track("a"), track("b"));
+        running.get(0).playlistLoaded(new BasicAudioPlaylist("mix", tracks, tracks.get(1), false));
+
+        AudioPlaylist clone = received.get(1);
+        assertEquals("mix", clone.getName());
+        assertEquals(2, clone.getTracks().size());
+        assertNotSame(tracks.get(0), clone.getTracks().get(0));
+        assertSame(clone.getTracks().get(1), clone.getSelectedTrack());
+    }
+
+    private AudioLoadResultHandler recording(String name, List<AudioTrack> received)
+    {
+        return new Recorder(name, received);
+    }
+
+    private static AudioTrack track(String name)
+    {
+        return (AudioTrack) Proxy.newProxyInstance(AudioTrack.class.getClassLoader(), new Class<?>[]{AudioTrack.class},
+                (proxy, method, args) ->
+                {
+                    switch(method.getName())
+                    {
+                        case "makeClone":
+                            return track(name);
+                        case "toString":
+                            return name;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private class Recorder implements AudioLoadResultHandler
+    {
+        private final String name;
+        private final List<AudioTrack> received;
+
+        private Recorder(String name, List<AudioTrack> received)
+        {
+            this.name = name;
+            this.received = received;
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            handled.add(name + " " + track);
+            if(received != null)
+                received.add(track);
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            handled.add(name + " playlist");
+        }
+
+        @Override
+        public void noMatches()
+        {
+            handled.add(name + " none");
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            handled.add(name + " failed");
+        }
+    }
+}
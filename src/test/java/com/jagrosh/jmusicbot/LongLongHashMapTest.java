@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.LongLongHashMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the primitive map used for skip votes against a {@link HashMap}.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LongLongHashMapTest
+{
+    @Test
+    public void matchesHashMap()
+    {
+        Random random = new Random(0);
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        for(int i = 0; i < 200_000; i++)
+        {
+            // a small key range, so keys are often found, replaced and removed
+            long key = 1 + random.nextInt(2000);
+            if(random.nextInt(3) == 0)
+            {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+            }
+            else
+                assertEquals(expected.put(key, (long) i) == null, map.put(key, i));
+            assertEquals(expected.size(), map.size());
+        }
+        for(long key = 1; key <= 2000; key++)
+        {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals((long) expected.getOrDefault(key, -1L), map.get(key, -1));
+        }
+    }
+
+    @Test
+    public void clearKeepsWorking()
+    {
+        LongLongHashMap map = new LongLongHashMap(16);
+        for(long key = 1; key <= 100; key++)
+            map.put(key << 22, key);
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(5L << 22));
+        assertTrue(map.put(5L << 22, 7));
+        assertEquals(7, map.get(5L << 22, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroKeyIsRejected()
+    {
+        new LongLongHashMap(16).put(0, 1);
+    }
+}
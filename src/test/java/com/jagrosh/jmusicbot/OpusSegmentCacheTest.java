@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.OpusSegmentCache;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests storing, reading, seeking and evicting the frames of cached tracks, and reading
+ * tracks whose frames are still being written.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class OpusSegmentCacheTest
+{
+    private final static int BLOCK = OpusSegmentCache.BLOCK_SIZE;
+
+    private Path path;
+    private OpusSegmentCache cache;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        path = Files.createTempFile("audiocache", ".bin");
+        cache = new OpusSegmentCache(path, 4 * BLOCK);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        cache.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void readsFramesInOrder()
+    {
+        // frames of 1000 bytes do not fit evenly in a block, so some of them span two
+        assertTrue(store("a", 150, 1000));
+        assertTrue(cache.contains("a"));
+        try(OpusSegmentCache.Reader reader = cache.open("a"))
+        {
+            for(int i = 0; i < 150; i++)
+                assertFrame(reader.next(), i, 1000);
+            assertNull(reader.next());
+        }
+        assertEquals(150, cache.getFramesReplayed());
+        assertEquals(150 * 1000, cache.getBytesReplayed());
+    }
+
+    @Test
+    public void seeksToFrames()
+    {
+        store("a", 120, 300);
+        try(OpusSegmentCache.Reader reader = cache.open("a"))
+        {
+            assertEquals(1460, reader.seek(1475));
+            assertFrame(reader.next(), 73, 300);
+            assertEquals(0, reader.seek(0));
+            assertFrame(reader.next(), 0, 300);
+            assertEquals(120 * OpusSegmentCache.FRAME_MILLIS, reader.seek(999999));
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyPlayed()
+    {
+        store("a", 60, 1000);
+        store("b", 60, 1000);
+        cache.open("a").close();
+        // needs three of the four blocks, so the track played least recently goes
+        assertTrue(store("c", 140, 1000));
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertEquals(1, cache.getEvicted());
+    }
+
+    @Test
+    public void keepsTracksBeingPlayed()
+    {
+        store("a", 120, 1000);
+        OpusSegmentCache.Reader reader = cache.open("a");
+        assertFalse(store("b", 200, 1000));
+        assertTrue(cache.contains("a"));
+        reader.close();
+        assertTrue(store("b", 200, 1000));
+        assertFalse(cache.contains("a"));
+        assertEquals(200 * 1002, cache.getUsedBytes());
+    }
+
+    @Test
+    public void readersWaitForReservedFrames() throws InterruptedException
+    {
+        List<byte[]> chunks = new ArrayList<>();
+        int[] checkpoints = new int[2];
+        int length = frames(100, 500, chunks, checkpoints);
+        OpusSegmentCache.Reservation reservation = cache.reserve("a", length, 100, checkpoints);
+        assertNotNull(reservation);
+        // the track counts as cached before its frames are written
+        assertTrue(cache.contains("a"));
+        assertNull(cache.reserve("a", length, 100, checkpoints));
+        BlockingQueue<OpusSegmentCache.Reader> opened = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> opened.add(cache.open("a")));
+        reader.start();
+        Thread.sleep(100);
+        assertTrue(opened.isEmpty());
+        // frames that are still being written are not evicted
+        assertFalse(store("b", 200, 1000));
+        reservation.write(chunks);
+        try(OpusSegmentCache.Reader read = opened.poll(5, TimeUnit.SECONDS))
+        {
+            assertNotNull(read);
+            for(int i = 0; i < 100; i++)
+                assertFrame(read.next(), i, 500);
+            assertNull(read.next());
+        }
+        assertEquals(1, cache.getStored());
+    }
+
+    private boolean store(String key, int frames, int size)
+    {
+        List<byte[]> chunks = new ArrayList<>();
+        int[] checkpoints = new int[(frames + OpusSegmentCache.CHECKPOINT_FRAMES - 1) / OpusSegmentCache.CHECKPOINT_FRAMES];
+        return cache.store(key, chunks, frames(frames, size, chunks, checkpoints), frames, checkpoints);
+    }
+
+    // fills chunks with frames the way they are recorded, and returns their length
+    private static int frames(int frames, int size, List<byte[]> chunks, int[] checkpoints)
+    {
+        byte[] data = new byte[frames * (size + 2)];
+        for(int i = 0; i < frames; i++)
+        {
+            int offset = i * (size + 2);
+            if(i % OpusSegmentCache.CHECKPOINT_FRAMES == 0)
+                checkpoints[i / OpusSegmentCache.CHECKPOINT_FRAMES] = offset;
+            data[offset] = (byte) (size >> 8);
+            data[offset + 1] = (byte) size;
+            for(int j = 0; j < size; j++)
+                data[offset + 2 + j] = (byte) (i + j);
+        }
+        for(int offset = 0; offset < data.length; offset += BLOCK)
+            chunks.add(Arrays.copyOfRange(data, offset, offset + BLOCK));
+        return data.length;
+    }
+
+    private static void assertFrame(ByteBuffer frame, int index, int size)
+    {
+        assertNotNull(frame);
+        assertEquals(size, frame.remaining());
+        for(int j = 0; j < size; j++)
+            assertEquals((byte) (index + j), frame.get(frame.position() + j));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.playlist.OrderedLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that playlist entries loaded at the same time are still handed over in order.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class OrderedLoaderTest
+{
+    @Test
+    public void handsOverInOrderWithBoundedLoads() throws InterruptedException
+    {
+        int count = 500, parallelism = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> handedOver = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger callbacks = new AtomicInteger();
+        new OrderedLoader<Integer>(count, parallelism, (index, result) -> pool.execute(() -> 
+        {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try
+            {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            }
+            catch(InterruptedException ignore) {}
+            running.decrementAndGet();
+            // every tenth entry fails to load, and is skipped
+            result.accept(index % 10 == 9 ? null : index);
+        }), handedOver::add, () -> 
+        {
+            callbacks.incrementAndGet();
+            done.countDown();
+        }).start();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(1, callbacks.get());
+        assertTrue(maxRunning.get() <= parallelism);
+        assertEquals(count - count / 10, handedOver.size());
+        for(int i = 1; i < handedOver.size(); i++)
+            assertTrue(handedOver.get(i - 1) < handedOver.get(i));
+    }
+
+    @Test
+    public void firstResultDoesNotWaitForTheRest() throws InterruptedException
+    {
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newCachedThreadPool();
+        new OrderedLoader<Integer>(4, 4, (index, result) -> pool.execute(() -> 
+        {
+            // everything but the first entry stays loading until the first is handed over
+            if(index != 0)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch(InterruptedException ignore) {}
+            }
+            result.accept(index);
+        }), index -> first.countDown(), null).start();
+        assertTrue(first.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        pool.shutdown();
+    }
+
+    @Test
+    public void synchronousLoadsDoNotNest()
+    {
+        // as many items as would overflow the stack if every completion started the next load
+        int count = 200_000;
+        int[] next = {0};
+        AtomicInteger callbacks = new AtomicInteger();
+        new OrderedLoader<Integer>(count, 4, (index, result) -> result.accept(index), index -> assertEquals(next[0]++, (int) index), 
+                callbacks::incrementAndGet).start();
+        assertEquals(count, next[0]);
+        assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    public void throwingLoaderAndConsumerDoNotStall()
+    {
+        List<Integer> handedOver = new ArrayList<>();
+        AtomicInteger callbacks = new AtomicInteger();
+        new OrderedLoader<Integer>(10, 2, (index, result) -> 
+        {
+            if(index == 5)
+                result.accept(index);
+            if(index == 3 || index == 5)
+                throw new IllegalStateException("load " + index);
+            result.accept(index);
+        }, (index, e) -> 100 + index, index -> 
+        {
+            handedOver.add(index);
+            if(index == 7)
+                throw new IllegalStateException("consume " + index);
+        }, callbacks::incrementAndGet).start();
+        // the failed load gets the error result, and the one that threw after completing keeps its result
+        assertEquals(List.of(0, 1, 2, 103, 4, 5, 6, 7, 8, 9), handedOver);
+        assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    public void throwingLoadsInParallelStillComplete() throws InterruptedException
+    {
+        int count = 300;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Integer> handedOver = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        new OrderedLoader<Integer>(count, 4, (index, result) -> 
+        {
+            // every third load throws before it is started, the others complete on the pool
+            if(index % 3 == 0)
+                throw new IllegalStateException("load " + index);
+            pool.execute(() -> result.accept(index));
+        }, (index, e) -> -index, index -> 
+        {
+            handedOver.add(index);
+            if(index % 5 == 0)
+                throw new IllegalStateException("consume " + index);
+        }, done::countDown).start();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(count, handedOver.size());
+        for(int i = 0; i < count; i++)
+            assertEquals(i % 3 == 0 ? -i : i, (int) handedOver.get(i));
+    }
+
+    @Test
+    public void emptyListRunsCallback()
+    {
+        AtomicInteger callbacks = new AtomicInteger();
+        new OrderedLoader<Integer>(0, 4, (index, result) -> fail("Nothing to load"), index -> fail("Nothing to hand over"), callbacks::incrementAndGet).start();
+        assertEquals(1, callbacks.get());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.playlist.PlaylistFile;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that playlist files read through a buffer have the same entries as when every
+ * line is read as a string.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class PlaylistFileTest
+{
+    private final static String[] LINES = {"https://youtu.be/dQw4w9WgXcQ", "  ytsearch:caf\u00e9 del mar  ", "", "   ",
+        "# a comment", "// another comment", "#shuffle", "// Shuff le", "#shuffled", "/ not a comment", "\tspotify:track:\u00fc\u00f1\u00ee\r"};
+
+    @Test
+    public void smallFileMatchesLines() throws IOException
+    {
+        checkMatchesLines(1_000, true);
+    }
+
+    @Test
+    public void largeFileMatchesLines() throws IOException
+    {
+        // large enough to be read in many buffers, with lines spanning them
+        checkMatchesLines(200_000, false);
+    }
+
+    @Test
+    public void shuffledItemsArePermutation() throws IOException
+    {
+        for(int lines: new int[]{1_000, 200_000})
+        {
+            PlaylistFile file = PlaylistFile.read(write(lines, new Random(lines)));
+            List<String> sorted = new ArrayList<>(file.getShuffledItems());
+            List<String> expected = new ArrayList<>(file.getItems());
+            assertNotEquals(expected, sorted);
+            Collections.sort(sorted);
+            Collections.sort(expected);
+            assertEquals(expected, sorted);
+        }
+    }
+
+    @Test
+    public void readsEntriesInAnyOrder() throws IOException
+    {
+        Path path = write(200_000, new Random(1));
+        // an entry longer than the window the entries are read in
+        char[] longEntry = new char[200_000];
+        Arrays.fill(longEntry, 'x');
+        Files.write(path, Arrays.asList("", new String(longEntry), "https://youtu.be/after"), StandardOpenOption.APPEND);
+        PlaylistFile file = PlaylistFile.read(path);
+        List<String> items = file.getItems();
+        List<String> expected = new ArrayList<>(items);
+        assertEquals(new String(longEntry), expected.get(expected.size() - 2));
+        Random random = new Random(2);
+        for(int i = 0; i < 10_000; i++)
+        {
+            int index = random.nextInt(items.size());
+            assertEquals(expected.get(index), items.get(index));
+        }
+        // the shuffled entries are read by window too, wherever they are in the file
+        List<String> shuffled = file.getShuffledItems();
+        List<String> copy = new ArrayList<>(shuffled);
+        for(int i = shuffled.size() - 1; i >= 0; i -= 7)
+            assertEquals(copy.get(i), shuffled.get(i));
+        Collections.sort(copy);
+        Collections.sort(expected);
+        assertEquals(expected, copy);
+    }
+
+    @Test
+    public void changedLargeFileIsNotRead() throws IOException
+    {
+        Path path = write(200_000, new Random(0));
+        PlaylistFile file = PlaylistFile.read(path);
+        assertFalse(file.isInMemory());
+        Files.write(path, Arrays.asList("something else"));
+        try
+        {
+            file.getItems().get(0);
+            fail("A changed file was read");
+        }
+        catch(UncheckedIOException expected) {}
+    }
+
+    private void checkMatchesLines(int lines, boolean inMemory) throws IOException
+    {
+        Path path = write(lines, new Random(lines));
+        PlaylistFile file = PlaylistFile.read(path);
+        assertEquals(inMemory, file.isInMemory());
+        // how the playlist loader parsed files before
+        boolean shuffle = false;
+        List<String> expected = new ArrayList<>();
+        for(String line: Files.readAllLines(path))
+        {
+            String s = line.trim();
+            if(s.isEmpty())
+                continue;
+            if(s.startsWith("#") || s.startsWith("//"))
+            {
+                s = s.replaceAll("\\s+", "");
+                if(s.equalsIgnoreCase("#shuffle") || s.equalsIgnoreCase("//shuffle"))
+                    shuffle = true;
+            }
+            else
+                expected.add(s);
+        }
+        assertTrue(shuffle);
+        assertEquals(shuffle, file.isShuffle());
+        assertEquals(expected, new ArrayList<>(file.getItems()));
+    }
+
+    private static Path write(int lines, Random random) throws IOException
+    {
+        Path path = Files.createTempFile("playlist", ".txt");
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < lines; i++)
+        {
+            String line = LINES[random.nextInt(LINES.length)];
+            // most lines are unique links
+            text.append(line.startsWith("https") ? line + "&i=" + i : line).append('\n');
+        }
+        // the last line has no line break
+        text.append("https://youtu.be/last");
+        Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+        path.toFile().deleteOnExit();
+        return path;
+    }
+}
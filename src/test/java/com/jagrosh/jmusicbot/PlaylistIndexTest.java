@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.playlist.PlaylistIndex;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the playlist index follows changes to the playlists folder.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class PlaylistIndexTest
+{
+    @Test
+    public void followsFileChanges() throws IOException, InterruptedException
+    {
+        Path folder = Files.createTempDirectory("playlists");
+        Files.write(folder.resolve("rock.txt"), Arrays.asList("#shuffle", "", "first", "// a comment", "second"));
+        Files.write(folder.resolve("notes.md"), Arrays.asList("not a playlist"));
+        PlaylistIndex index = new PlaylistIndex(folder);
+        try
+        {
+            assertTrue(index.start());
+            assertEquals(Collections.singletonList("rock"), index.getNames());
+            assertEquals(Arrays.asList("first", "second"), index.get("rock").getItems());
+            assertTrue(index.get("rock").isShuffle());
+
+            // changes made behind the index's back are picked up by the watcher
+            Files.write(folder.resolve("jazz.txt"), Arrays.asList("only"));
+            awaitTrue(() -> index.get("jazz") != null && index.get("jazz").getItems().equals(Collections.singletonList("only")));
+            Files.write(folder.resolve("rock.txt"), Arrays.asList("third"));
+            awaitTrue(() -> index.get("rock").getItems().equals(Collections.singletonList("third")));
+            assertFalse(index.get("rock").isShuffle());
+            Files.delete(folder.resolve("jazz.txt"));
+            awaitTrue(() -> index.get("jazz") == null);
+            assertEquals(Collections.singletonList("rock"), index.getNames());
+        }
+        finally
+        {
+            index.stop();
+        }
+    }
+
+    @Test
+    public void refreshSeesChangesRightAway() throws IOException
+    {
+        Path folder = Files.createTempDirectory("playlists");
+        PlaylistIndex index = new PlaylistIndex(folder);
+        try
+        {
+            assertTrue(index.start());
+            Files.write(folder.resolve("new.txt"), Arrays.asList("item"));
+            index.refresh("new");
+            assertEquals(Collections.singletonList("item"), index.get("new").getItems());
+            Files.delete(folder.resolve("new.txt"));
+            index.refresh("new");
+            assertNull(index.get("new"));
+        }
+        finally
+        {
+            index.stop();
+        }
+    }
+
+    @Test
+    public void missingFolderIsReadOnUse() throws IOException
+    {
+        Path folder = Files.createTempDirectory("playlists").resolve("missing");
+        PlaylistIndex index = new PlaylistIndex(folder);
+        assertFalse(index.start());
+        assertFalse(index.isWatching());
+        Files.createDirectory(folder);
+        Files.write(folder.resolve("late.txt"), Arrays.asList("item"));
+        assertEquals(Collections.singletonList("late"), index.getNames());
+        assertEquals(Collections.singletonList("item"), index.get("late").getItems());
+    }
+
+    @Test
+    public void onlyReadsPlaylistsInTheFolder() throws IOException
+    {
+        Path parent = Files.createTempDirectory("playlists");
+        Path folder = Files.createDirectory(parent.resolve("playlists"));
+        Files.createDirectory(folder.resolve("nested"));
+        Files.write(parent.resolve("secret.txt"), Arrays.asList("outside"));
+        Files.write(folder.resolve("nested").resolve("inner.txt"), Arrays.asList("nested"));
+        Files.write(folder.resolve("rock.txt"), Arrays.asList("inside"));
+        PlaylistIndex index = new PlaylistIndex(folder);
+        // not watching, so every lookup reads the named file
+        for(String name: Arrays.asList("../secret", "..\\secret", "nested/inner", "nested\\inner", "..", "", "rock\u0000"))
+        {
+            assertNull(name, index.get(name));
+            index.refresh(name);
+        }
+        assertEquals(Collections.singletonList("rock"), index.getNames());
+        assertEquals(Collections.singletonList("inside"), index.get("rock").getItems());
+        // the same names are rejected while the folder is watched
+        try
+        {
+            assertTrue(index.start());
+            assertNull(index.get("../secret"));
+            assertNull(index.get("nested/inner"));
+        }
+        finally
+        {
+            index.stop();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while(!condition.getAsBoolean())
+        {
+            assertTrue("Timed out waiting for the index to change", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
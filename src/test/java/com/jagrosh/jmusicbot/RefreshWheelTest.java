@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.RefreshWheel;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that "now playing" refreshes are spread over the wheel and that refreshes which
+ * would show the same thing again are skipped.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class RefreshWheelTest
+{
+    private final static long DISCORD_EPOCH = 1420070400000L;
+
+    @Test
+    public void spreadsSnowflakesEvenly()
+    {
+        RefreshWheel wheel = new RefreshWheel(50);
+        Random random = new Random(0);
+        int[] counts = new int[wheel.getSlotCount()];
+        for(int i = 0; i < 5000; i++)
+        {
+            // guilds created over a few years, on few workers, mostly with a zero increment
+            long created = 1_600_000_000_000L + (long) (random.nextDouble() * 100_000_000_000L) - DISCORD_EPOCH;
+            long id = (created << 22) | ((long) random.nextInt(2) << 17) | random.nextInt(2);
+            wheel.add(id);
+            counts[wheel.slotOf(id)]++;
+        }
+        for(int slot = 0; slot < counts.length; slot++)
+        {
+            assertTrue("slot " + slot + " has " + counts[slot], counts[slot] > 60 && counts[slot] < 140);
+            assertEquals(counts[slot], wheel.getGuilds(slot).size());
+        }
+    }
+
+    @Test
+    public void refreshesEachGuildOncePerRevolution()
+    {
+        RefreshWheel wheel = new RefreshWheel(8);
+        Set<Long> guilds = new HashSet<>();
+        for(long id = 1; id <= 100; id++)
+        {
+            guilds.add(id << 22);
+            wheel.add(id << 22);
+            // adding a guild again does not refresh it twice
+            wheel.add(id << 22);
+        }
+        for(int revolution = 0; revolution < 3; revolution++)
+        {
+            Set<Long> refreshed = new HashSet<>();
+            for(int i = 0; i < wheel.getSlotCount(); i++)
+            {
+                int slot = wheel.advance();
+                assertEquals(i, slot);
+                for(long id: wheel.getGuilds(slot))
+                    assertTrue(refreshed.add(id));
+            }
+            assertEquals(guilds, refreshed);
+        }
+    }
+
+    @Test
+    public void removedGuildsAreNotRefreshed()
+    {
+        RefreshWheel wheel = new RefreshWheel(4);
+        wheel.add(1L << 22);
+        wheel.add(2L << 22);
+        wheel.getGuilds(wheel.slotOf(1L << 22)).remove(1L << 22);
+        int total = 0;
+        for(int i = 0; i < wheel.getSlotCount(); i++)
+            total += wheel.getGuilds(wheel.advance()).size();
+        assertEquals(1, total);
+    }
+
+    @Test
+    public void skipsUnchangedMessages()
+    {
+        RefreshWheel wheel = new RefreshWheel(4);
+        // nothing is known about a message that was never shown
+        assertFalse(wheel.isShown(1L, "track false 3 vol"));
+        wheel.setShown(1L, "track false 3 vol");
+        assertTrue(wheel.isShown(1L, "track false 3 vol"));
+        // the progress bar moved
+        assertFalse(wheel.isShown(1L, "track false 4 vol"));
+        // pausing changes the message
+        assertFalse(wheel.isShown(1L, "track true 3 vol"));
+        // other guilds are not affected
+        assertFalse(wheel.isShown(2L, "track false 3 vol"));
+        // a message whose edit failed is redrawn on the next refresh
+        wheel.setShown(1L, null);
+        assertFalse(wheel.isShown(1L, "track false 3 vol"));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.jagrosh.jmusicbot.scheduler.TaskStats;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that jobs of one class are not held up by jobs of another, and that their
+ * metrics are recorded.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SchedulerTest
+{
+    private final Scheduler scheduler = new Scheduler(JobClass::getDefaultThreads);
+
+    @After
+    public void tearDown()
+    {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void slowJobDoesNotDelayOtherClasses() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(JobClass.NOWPLAYING, "slow", () -> awaitQuietly(release));
+        CountDownLatch closed = new CountDownLatch(1);
+        scheduler.submit(JobClass.VOICE, "close", closed::countDown);
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void failingPeriodicJobKeepsRunning() throws Exception
+    {
+        CountDownLatch runs = new CountDownLatch(3);
+        scheduler.scheduleWithFixedDelay(JobClass.BACKGROUND, "failing", () ->
+        {
+            runs.countDown();
+            throw new IllegalStateException("expected");
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+
+        TaskStats stats = scheduler.getStats().get(0);
+        assertEquals("failing", stats.getName());
+        assertEquals(JobClass.BACKGROUND, stats.getJobClass());
+        assertTrue(stats.getRuns() >= 2);
+        assertEquals(stats.getRuns(), stats.getFailures());
+    }
+
+    @Test
+    public void queueDelayIsRecorded() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(JobClass.NOWPLAYING, "blocking", () ->
+        {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.submit(JobClass.NOWPLAYING, "queued", done::countDown);
+        Thread.sleep(100);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        TaskStats queued = scheduler.getStats().stream().filter(s -> s.getName().equals("queued")).findFirst().get();
+        assertTrue(queued.getMaxDelayMillis() >= 90);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
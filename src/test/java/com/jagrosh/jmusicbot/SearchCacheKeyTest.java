@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.SearchCache;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests which searches share their cached results.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SearchCacheKeyTest
+{
+    @Test
+    public void ignoresCaseAndSpacing()
+    {
+        String key = SearchCache.keyOf("ytsearch:", "never gonna give you up");
+        assertEquals("ytsearch:never gonna give you up", key);
+        assertEquals(key, SearchCache.keyOf("ytsearch:", "  Never  Gonna\tGive You UP "));
+        assertEquals(key, SearchCache.keyOf("ytsearch:", "never\u3000gonna give you up"));
+    }
+
+    @Test
+    public void normalizesCharacters()
+    {
+        // full width letters and composed accents are written differently but look the same
+        assertEquals(SearchCache.keyOf("ytsearch:", "abc"), SearchCache.keyOf("ytsearch:", "\uff41\uff42\uff43"));
+        assertEquals(SearchCache.keyOf("ytsearch:", "caf\u00e9"), SearchCache.keyOf("ytsearch:", "cafe\u0301"));
+    }
+
+    @Test
+    public void keepsPrefixesApart()
+    {
+        assertNotEquals(SearchCache.keyOf("ytsearch:", "lofi"), SearchCache.keyOf("scsearch:", "lofi"));
+        assertNotEquals(SearchCache.keyOf("ytsearch:", "lofi beats"), SearchCache.keyOf("ytsearch:", "lofibeats"));
+    }
+}
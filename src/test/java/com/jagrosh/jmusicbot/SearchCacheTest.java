@@ -0,0 +1,283 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.SearchCache;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrack;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that searches are cached until they expire or are evicted, and that the results
+ * written to the cache folder are read again, pruned when the folder is full, and ignored
+ * when they can not be read.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class SearchCacheTest
+{
+    private final static long HOUR = TimeUnit.HOURS.toMillis(1);
+    private final static long DISK = 1024 * 1024;
+
+    private final Scheduler scheduler = new Scheduler(JobClass::getDefaultThreads);
+    private final AudioPlayerManager manager = manager();
+    private Path folder;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("searchcache");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        scheduler.shutdownNow();
+        for(Path file: files())
+            Files.delete(file);
+        Files.delete(folder);
+    }
+
+    @Test
+    public void expiresAfterTheTimeToLive() throws InterruptedException, IOException
+    {
+        SearchCache cache = new SearchCache(manager, 10, 100, folder, DISK, scheduler);
+        store(cache, "ytsearch:a", "song-a");
+        assertEquals("song-a", lookup(cache, "ytsearch:a"));
+        awaitFiles(1);
+        Thread.sleep(150);
+        assertNull(lookup(cache, "ytsearch:a"));
+        // the expired file is deleted when it is read
+        assertNull(lookup(new SearchCache(manager, 10, 100, folder, DISK, scheduler), "ytsearch:a"));
+        assertEquals(0, files().size());
+        assertEquals(1, cache.getMemoryHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        SearchCache cache = new SearchCache(manager, 2, HOUR, folder, 0, scheduler);
+        store(cache, "ytsearch:a", "song-a");
+        store(cache, "ytsearch:b", "song-b");
+        assertEquals("song-a", lookup(cache, "ytsearch:a"));
+        store(cache, "ytsearch:c", "song-c");
+        assertEquals(2, cache.getSize());
+        assertNull(lookup(cache, "ytsearch:b"));
+        assertEquals("song-a", lookup(cache, "ytsearch:a"));
+        assertEquals("song-c", lookup(cache, "ytsearch:c"));
+    }
+
+    @Test
+    public void readsResultsFromTheFolder() throws InterruptedException, IOException
+    {
+        SearchCache cache = new SearchCache(manager, 10, HOUR, folder, DISK, scheduler);
+        cache.storing("ytsearch:mix", new Recorder()).playlistLoaded(new BasicAudioPlaylist("Search results for: mix",
+                List.of(track("one"), track("two")), null, true));
+        store(cache, "ytsearch:a", "song-a");
+        awaitFiles(2);
+        SearchCache restarted = new SearchCache(manager, 10, HOUR, folder, DISK, scheduler);
+        assertEquals(cache.getDiskBytes(), restarted.getDiskBytes());
+        assertEquals("Search results for: mix: one two", lookup(restarted, "ytsearch:mix"));
+        assertEquals("song-a", lookup(restarted, "ytsearch:a"));
+        assertEquals(2, restarted.getDiskHits());
+        // now they are in memory again
+        assertEquals("song-a", lookup(restarted, "ytsearch:a"));
+        assertEquals(1, restarted.getMemoryHits());
+    }
+
+    @Test
+    public void prunesLeastRecentlyUsedFiles() throws InterruptedException, IOException
+    {
+        SearchCache cache = new SearchCache(manager, 10, HOUR, folder, DISK, scheduler);
+        String[] names = {"a", "b", "c"};
+        for(int i = 0; i < names.length; i++)
+        {
+            store(cache, "ytsearch:" + names[i], "song-" + names[i]);
+            awaitFiles(i + 1);
+            Thread.sleep(20);
+        }
+        // reading a file from disk counts as using it
+        assertEquals("song-a", lookup(new SearchCache(manager, 10, HOUR, folder, DISK, scheduler), "ytsearch:a"));
+        long fileSize = cache.getDiskBytes() / 3;
+        SearchCache pruned = new SearchCache(manager, 10, HOUR, folder, 2 * fileSize, scheduler);
+        assertEquals(2 * fileSize, pruned.getDiskBytes());
+        assertEquals(2, files().size());
+        assertNull(lookup(pruned, "ytsearch:b"));
+        assertEquals("song-a", lookup(pruned, "ytsearch:a"));
+        assertEquals("song-c", lookup(pruned, "ytsearch:c"));
+    }
+
+    @Test
+    public void ignoresCorruptFiles() throws InterruptedException, IOException
+    {
+        SearchCache cache = new SearchCache(manager, 10, HOUR, folder, DISK, scheduler);
+        store(cache, "ytsearch:a", "song-a");
+        awaitFiles(1);
+        Path file = files().get(0);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        SearchCache restarted = new SearchCache(manager, 10, HOUR, folder, DISK, scheduler);
+        assertNull(lookup(restarted, "ytsearch:a"));
+        assertEquals(1, restarted.getMisses());
+        // the search is loaded and written again
+        store(restarted, "ytsearch:a", "song-a");
+        long end = System.currentTimeMillis() + 5000;
+        while(Files.size(file) != bytes.length && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertEquals("song-a", lookup(new SearchCache(manager, 10, HOUR, folder, DISK, scheduler), "ytsearch:a"));
+    }
+
+    private static void store(SearchCache cache, String key, String identifier)
+    {
+        cache.storing(key, new Recorder()).trackLoaded(track(identifier));
+    }
+
+    private static String lookup(SearchCache cache, String key)
+    {
+        Consumer<AudioLoadResultHandler> cached = cache.lookup(key);
+        if(cached == null)
+            return null;
+        Recorder recorder = new Recorder();
+        cached.accept(recorder);
+        return recorder.result;
+    }
+
+    private List<Path> files() throws IOException
+    {
+        try(Stream<Path> files = Files.list(folder))
+        {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    // files are written on the scheduler
+    private void awaitFiles(int count) throws InterruptedException, IOException
+    {
+        long end = System.currentTimeMillis() + 5000;
+        while(countWritten() < count && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertEquals(count, countWritten());
+    }
+
+    private long countWritten() throws IOException
+    {
+        return files().stream().filter(file -> file.toString().endsWith(".bin")).count();
+    }
+
+    private static AudioPlayerManager manager()
+    {
+        return (AudioPlayerManager) Proxy.newProxyInstance(AudioPlayerManager.class.getClassLoader(), new Class<?>[]{AudioPlayerManager.class},
+                (proxy, method, args) ->
+                {
+                    switch(method.getName())
+                    {
+                        case "encodeTrack":
+                        {
+                            MessageOutput output = (MessageOutput) args[0];
+                            DataOutput data = output.startMessage();
+                            data.writeUTF(((AudioTrack) args[1]).getIdentifier());
+                            output.commitMessage();
+                            return null;
+                        }
+                        case "decodeTrack":
+                        {
+                            DataInput data = ((MessageInput) args[0]).nextMessage();
+                            return new DecodedTrack(track(data.readUTF()), 0);
+                        }
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static AudioTrack track(String identifier)
+    {
+        return (AudioTrack) Proxy.newProxyInstance(AudioTrack.class.getClassLoader(), new Class<?>[]{AudioTrack.class},
+                (proxy, method, args) ->
+                {
+                    switch(method.getName())
+                    {
+                        case "getIdentifier":
+                        case "toString":
+                            return identifier;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class Recorder implements AudioLoadResultHandler
+    {
+        private String result;
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            result = track.getIdentifier();
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            result = playlist.getName() + ": " + playlist.getTracks().stream().map(AudioTrack::getIdentifier).collect(Collectors.joining(" "));
+        }
+
+        @Override
+        public void noMatches()
+        {
+            result = "no matches";
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            result = "failed";
+        }
+    }
+}
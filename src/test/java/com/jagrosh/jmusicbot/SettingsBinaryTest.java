@@ -0,0 +1,230 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.settings.BinarySettingsStore;
+import com.jagrosh.jmusicbot.settings.JsonSettingsStore;
+import com.jagrosh.jmusicbot.settings.QueueType;
+import com.jagrosh.jmusicbot.settings.RepeatMode;
+import com.jagrosh.jmusicbot.settings.Settings;
+import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.settings.SettingsStorage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the binary settings format, and moving settings between it and JSON.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SettingsBinaryTest
+{
+    private Path folder, settingsFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("settings");
+        settingsFile = folder.resolve("serversettings.json");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try(Stream<Path> files = Files.walk(folder))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void everySettingSurvivesRestart()
+    {
+        SettingsManager manager = new SettingsManager(new BinarySettingsStore(settingsFile, 100));
+        Settings settings = manager.getSettings(7L);
+        settings.setVolume(35);
+        settings.setDefaultPlaylist("chill");
+        settings.setRepeatMode(RepeatMode.SINGLE);
+        settings.setPrefix("!!");
+        settings.setSkipRatio(0.75);
+        settings.setQueueType(QueueType.LINEAR);
+        manager.getSettings(8L).setPrefix("!!");
+        manager.shutdown();
+
+        SettingsManager restarted = new SettingsManager(new BinarySettingsStore(settingsFile, 100));
+        Settings loaded = restarted.getSettings(7L);
+        assertEquals(35, loaded.getVolume());
+        assertEquals("chill", loaded.getDefaultPlaylist());
+        assertEquals(RepeatMode.SINGLE, loaded.getRepeatMode());
+        assertEquals("!!", loaded.getPrefix());
+        assertEquals(0.75, loaded.getSkipRatio(), 0);
+        assertEquals(QueueType.LINEAR, loaded.getQueueType());
+        assertEquals("!!", restarted.getSettings(8L).getPrefix());
+        assertEquals(100, restarted.getSettings(9L).getVolume());
+        restarted.shutdown();
+    }
+
+    @Test
+    public void writesMergeWithStoredRecords() throws IOException
+    {
+        // every write is merged into a new file
+        BinarySettingsStore store = new BinarySettingsStore(settingsFile, 0);
+        store.load();
+        for(long guild = 10; guild > 0; guild -= 2)
+            store.write(Collections.singletonMap(guild, new JSONObject().put("volume", (int) guild)));
+        Map<Long, JSONObject> changes = new HashMap<>();
+        changes.put(1L, new JSONObject().put("prefix", "?"));
+        changes.put(4L, new JSONObject());
+        changes.put(6L, new JSONObject().put("volume", 60));
+        changes.put(11L, new JSONObject().put("volume", 11));
+        store.write(changes);
+
+        assertEquals("?", store.read(1).getString("prefix"));
+        assertEquals(2, store.read(2).getInt("volume"));
+        assertNull(store.read(4));
+        assertEquals(60, store.read(6).getInt("volume"));
+        assertEquals(10, store.read(10).getInt("volume"));
+        assertEquals(11, store.read(11).getInt("volume"));
+        assertNull(store.read(3));
+        store.close();
+    }
+
+    @Test
+    public void movesSettingsFromJsonAndBack() throws IOException
+    {
+        Map<Long, JSONObject> stored = new HashMap<>();
+        stored.put(1L, new JSONObject().put("volume", 20).put("repeat", true));
+        stored.put(2L, new JSONObject().put("default_playlist", "rock").put("dj_role_id", "1234"));
+        new JsonSettingsStore(settingsFile).create(stored);
+
+        SettingsManager manager = new SettingsManager(SettingsStorage.BINARY.createStore(settingsFile));
+        assertFalse(Files.exists(settingsFile));
+        assertEquals(RepeatMode.ALL, manager.getSettings(1L).getRepeatMode());
+        manager.getSettings(3L).setVolume(70);
+        manager.shutdown();
+
+        Map<Long, JSONObject> loaded = SettingsStorage.JSON.createStore(settingsFile).load();
+        assertEquals(0, count("serversettings-*.bin"));
+        assertEquals(3, loaded.size());
+        assertEquals(20, loaded.get(1L).getInt("volume"));
+        assertEquals("rock", loaded.get(2L).getString("default_playlist"));
+        assertEquals("1234", loaded.get(2L).getString("dj_role_id"));
+        assertEquals(70, loaded.get(3L).getInt("volume"));
+    }
+
+    @Test
+    public void writesOnlyAppendUntilCompacted() throws IOException
+    {
+        BinarySettingsStore store = new BinarySettingsStore(settingsFile, 3);
+        store.load();
+        Path file = folder.resolve("serversettings-1.bin");
+        byte[] stored = Files.readAllBytes(file);
+        store.write(Collections.singletonMap(1L, new JSONObject().put("volume", 10)));
+        store.write(Collections.singletonMap(2L, new JSONObject().put("volume", 20)));
+        store.write(Collections.singletonMap(1L, new JSONObject().put("volume", 15)));
+        // the mapped file is left alone, and the changes are in its journal
+        assertArrayEquals(stored, Files.readAllBytes(file));
+        assertEquals(3, Files.readAllLines(folder.resolve("serversettings-1.changes")).size());
+        assertEquals(15, store.read(1).getInt("volume"));
+        store.close();
+
+        store = new BinarySettingsStore(settingsFile, 3);
+        store.load();
+        assertEquals(15, store.read(1).getInt("volume"));
+        assertEquals(20, store.read(2).getInt("volume"));
+        Map<Long, JSONObject> changes = new HashMap<>();
+        changes.put(2L, new JSONObject());
+        changes.put(3L, new JSONObject().put("volume", 30));
+        changes.put(4L, new JSONObject().put("volume", 40));
+        store.write(changes);
+        // a fourth changed guild merges everything into a new file, and the old files go away
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(folder.resolve("serversettings-1.changes")));
+        assertTrue(Files.exists(folder.resolve("serversettings-2.bin")));
+        assertEquals(15, store.read(1).getInt("volume"));
+        assertNull(store.read(2));
+        assertEquals(40, store.read(4).getInt("volume"));
+        store.close();
+
+        store = new BinarySettingsStore(settingsFile, 3);
+        store.load();
+        assertEquals(30, store.read(3).getInt("volume"));
+        assertNull(store.read(2));
+        store.close();
+    }
+
+    @Test
+    public void skipsIncompleteFiles() throws IOException
+    {
+        BinarySettingsStore store = new BinarySettingsStore(settingsFile, 100);
+        store.load();
+        store.write(Collections.singletonMap(5L, new JSONObject().put("prefix", "?")));
+        store.close();
+        // a crash while writing the next file leaves it without its header
+        Files.write(folder.resolve("serversettings-2.bin"), new byte[100]);
+
+        store = new BinarySettingsStore(settingsFile, 100);
+        store.load();
+        assertEquals("?", store.read(5).getString("prefix"));
+        assertFalse(Files.exists(folder.resolve("serversettings-2.bin")));
+        store.close();
+    }
+
+    @Test
+    public void storesFixedEnumCodes() throws IOException
+    {
+        Map<Long, JSONObject> records = new HashMap<>();
+        records.put(1L, new JSONObject().put("repeat_mode", "SINGLE").put("queue_type", "LINEAR"));
+        records.put(2L, new JSONObject().put("repeat_mode", "ALL"));
+        new BinarySettingsStore(settingsFile, 100).create(records);
+        byte[] bytes = Files.readAllBytes(folder.resolve("serversettings-1.bin"));
+        // records start after the 32 byte header and are 56 bytes long, with the codes at 52 and 53
+        assertEquals(2, bytes[32 + 52]);
+        assertEquals(0, bytes[32 + 53]);
+        assertEquals(1, bytes[32 + 56 + 52]);
+        assertEquals(1, bytes[32 + 56 + 53]);
+
+        BinarySettingsStore store = new BinarySettingsStore(settingsFile, 100);
+        store.load();
+        assertEquals("SINGLE", store.read(1).get("repeat_mode").toString());
+        assertEquals("LINEAR", store.read(1).get("queue_type").toString());
+        assertFalse(store.read(2).has("queue_type"));
+        store.close();
+    }
+
+    private long count(String glob) throws IOException
+    {
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(folder, glob))
+        {
+            long found = 0;
+            for(Path file: files)
+                found++;
+            return found;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.settings.RepeatMode;
+import com.jagrosh.jmusicbot.settings.Settings;
+import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.settings.SettingsStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Hammers {@link SettingsManager} from many threads at once, and checks that no
+ * settings object is created twice and no change is lost, in memory or in storage.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SettingsConcurrencyTest
+{
+    private final static int THREADS = 8;
+    private final static int GUILDS = 64;
+    private final static int ITERATIONS = 50_000;
+
+    @Test
+    public void noLostUpdates() throws InterruptedException
+    {
+        MemoryStore store = new MemoryStore();
+        // writing right away keeps the background writer racing with the setters
+        SettingsManager manager = new SettingsManager(store, 0);
+        Map<Long, Settings> seen = new ConcurrentHashMap<>();
+        int[][] lastVolume = new int[THREADS][GUILDS];
+        for(int[] volumes: lastVolume)
+            Arrays.fill(volumes, 100);
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for(int t = 0; t < THREADS; t++)
+        {
+            int thread = t;
+            threads[t] = new Thread(() ->
+            {
+                Random random = new Random(thread);
+                awaitQuietly(start);
+                for(int i = 0; i < ITERATIONS; i++)
+                {
+                    long guildId = random.nextInt(GUILDS);
+                    Settings settings = manager.getSettings(guildId);
+                    if(seen.computeIfAbsent(guildId, id -> settings) != settings)
+                        failures.incrementAndGet();
+                    // every guild is written by a single thread, and read by all of them
+                    if(guildId % THREADS == thread)
+                    {
+                        int volume = random.nextInt(150);
+                        settings.setVolume(volume);
+                        lastVolume[thread][(int) guildId] = volume;
+                        if(settings.getVolume() != volume)
+                            failures.incrementAndGet();
+                    }
+                    else if(settings.getRepeatMode() == null)
+                        failures.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for(Thread thread: threads)
+            thread.join();
+        assertEquals(0, failures.get());
+
+        for(int guild = 0; guild < GUILDS; guild++)
+        {
+            int expected = lastVolume[guild % THREADS][guild];
+            assertEquals(expected, manager.getSettings(guild).getVolume());
+        }
+
+        manager.shutdown();
+        for(int guild = 0; guild < GUILDS; guild++)
+        {
+            JSONObject record = store.records.get((long) guild);
+            int stored = record != null && record.has("volume") ? record.getInt("volume") : 100;
+            assertEquals(lastVolume[guild % THREADS][guild], stored);
+        }
+    }
+
+    @Test
+    public void concurrentFirstAccessCreatesOneSettings() throws InterruptedException
+    {
+        for(int run = 0; run < 200; run++)
+        {
+            SettingsManager manager = new SettingsManager(new MemoryStore());
+            Settings[] results = new Settings[THREADS];
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[THREADS];
+            for(int t = 0; t < THREADS; t++)
+            {
+                int thread = t;
+                threads[t] = new Thread(() ->
+                {
+                    awaitQuietly(start);
+                    results[thread] = manager.getSettings(42L);
+                    results[thread].setRepeatMode(RepeatMode.values()[thread % RepeatMode.values().length]);
+                });
+                threads[t].start();
+            }
+            start.countDown();
+            for(Thread thread: threads)
+                thread.join();
+            for(Settings result: results)
+                assertSame(results[0], result);
+            manager.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class MemoryStore implements SettingsStore
+    {
+        private final Map<Long, JSONObject> records = new ConcurrentHashMap<>();
+
+        @Override
+        public Map<Long, JSONObject> load()
+        {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void write(Map<Long, JSONObject> changed)
+        {
+            records.putAll(changed);
+        }
+    }
+}
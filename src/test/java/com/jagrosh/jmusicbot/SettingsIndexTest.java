@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.settings.IndexedSettingsStore;
+import com.jagrosh.jmusicbot.settings.JsonSettingsStore;
+import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.settings.SettingsStorage;
+import com.jagrosh.jmusicbot.settings.SettingsStore;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the indexed settings storage, and the manager loading settings from it on demand.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SettingsIndexTest
+{
+    private Path folder, settingsFile, records, index;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("settings");
+        settingsFile = folder.resolve("serversettings.json");
+        records = folder.resolve("serversettings.records");
+        index = folder.resolve("serversettings.index");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try(Stream<Path> files = Files.walk(folder))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void readsRecordsBeforeAndAfterCompaction() throws IOException
+    {
+        IndexedSettingsStore store = open(4);
+        for(int i = 0; i < 10; i++)
+            store.write(record(i, "volume", i));
+        store.write(record(3, "volume", 30));
+        store.write(Collections.singletonMap(5L, new JSONObject()));
+
+        assertRecords(store);
+        assertRecords(reopen(store));
+    }
+
+    @Test
+    public void defaultSettingsAreNotStored() throws IOException
+    {
+        IndexedSettingsStore store = open(1000);
+        store.write(record(1, "volume", 50));
+        store.write(Collections.singletonMap(1L, new JSONObject()));
+        store.compact();
+        assertNull(store.read(1));
+        // only the header line is left
+        assertEquals(1, Files.readAllLines(records).size());
+        store.close();
+    }
+
+    @Test
+    public void tornTailIsDropped() throws IOException
+    {
+        IndexedSettingsStore store = open(1000);
+        store.write(record(1, "volume", 50));
+        long valid = Files.size(records);
+        store.close();
+        Files.write(records, "1234abcd 2 {\"vol".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        IndexedSettingsStore recovered = reopen(null);
+        assertEquals(valid, Files.size(records));
+        assertEquals(50, recovered.read(1).getInt("volume"));
+        assertNull(recovered.read(2));
+        recovered.close();
+    }
+
+    @Test
+    public void staleIndexIsRebuilt() throws IOException
+    {
+        IndexedSettingsStore store = open(1000);
+        store.write(record(1, "volume", 50));
+        store.compact();
+        byte[] oldIndex = Files.readAllBytes(index);
+        store.write(record(2, "volume", 60));
+        store.compact();
+        store.close();
+        // put an index for another version of the records back, as a crash mid-rewrite would
+        Files.write(index, oldIndex);
+
+        IndexedSettingsStore recovered = reopen(null);
+        assertEquals(50, recovered.read(1).getInt("volume"));
+        assertEquals(60, recovered.read(2).getInt("volume"));
+        recovered.close();
+    }
+
+    @Test
+    public void movesSettingsFromJsonAndBack() throws IOException
+    {
+        Map<Long, JSONObject> stored = new HashMap<>();
+        stored.put(1L, new JSONObject().put("volume", 20));
+        stored.put(2L, new JSONObject().put("prefix", "!"));
+        new JsonSettingsStore(settingsFile).create(stored);
+
+        SettingsStore indexed = SettingsStorage.INDEXED.createStore(settingsFile);
+        assertFalse(Files.exists(settingsFile));
+        indexed.load();
+        assertEquals(20, ((IndexedSettingsStore) indexed).read(1).getInt("volume"));
+        indexed.write(record(3, "volume", 70));
+        indexed.close();
+
+        Map<Long, JSONObject> loaded = SettingsStorage.JSON.createStore(settingsFile).load();
+        assertFalse(Files.exists(records));
+        assertEquals(3, loaded.size());
+        assertEquals("!", loaded.get(2L).getString("prefix"));
+        assertEquals(70, loaded.get(3L).getInt("volume"));
+    }
+
+    @Test
+    public void managerLoadsSettingsOnDemand() throws IOException
+    {
+        SettingsManager manager = new SettingsManager(new IndexedSettingsStore(settingsFile, 1000), 60000, 10);
+        for(long guild = 0; guild <= 100; guild++)
+            manager.getSettings(guild).setVolume((int) guild);
+        manager.shutdown();
+
+        SettingsManager restarted = new SettingsManager(new IndexedSettingsStore(settingsFile, 1000), 60000, 10);
+        assertEquals(0, restarted.getLoadedCount());
+        for(long guild = 0; guild <= 100; guild++)
+            assertEquals(guild, restarted.getSettings(guild).getVolume());
+        assertEquals(101, restarted.getLoadedCount());
+        restarted.shutdown();
+    }
+
+    private static void assertRecords(IndexedSettingsStore store) throws IOException
+    {
+        assertEquals(0, store.read(0).getInt("volume"));
+        assertEquals(30, store.read(3).getInt("volume"));
+        assertEquals(9, store.read(9).getInt("volume"));
+        assertNull(store.read(5));
+        assertNull(store.read(42));
+    }
+
+    private IndexedSettingsStore open(int compactThreshold) throws IOException
+    {
+        IndexedSettingsStore store = new IndexedSettingsStore(settingsFile, compactThreshold);
+        store.load();
+        return store;
+    }
+
+    private IndexedSettingsStore reopen(IndexedSettingsStore previous) throws IOException
+    {
+        if(previous != null)
+            previous.close();
+        return open(1000);
+    }
+
+    private static Map<Long, JSONObject> record(long guildId, String key, Object value)
+    {
+        return Collections.singletonMap(guildId, new JSONObject().put(key, value));
+    }
+}
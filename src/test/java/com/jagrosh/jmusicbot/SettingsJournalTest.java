@@ -0,0 +1,219 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.settings.JournalSettingsStore;
+import com.jagrosh.jmusicbot.settings.JsonSettingsStore;
+import com.jagrosh.jmusicbot.settings.RepeatMode;
+import com.jagrosh.jmusicbot.settings.SettingsManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the settings journal, including recovery from a crash in the middle of a write.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SettingsJournalTest
+{
+    private Path folder, snapshot, journal;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("settings");
+        snapshot = folder.resolve("serversettings.json");
+        journal = folder.resolve("serversettings.journal");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try(Stream<Path> files = Files.walk(folder))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void replaysJournalOverSnapshot() throws IOException
+    {
+        JournalSettingsStore store = open(Long.MAX_VALUE);
+        store.write(record(1, "volume", 50));
+        store.write(record(2, "prefix", "!"));
+        store.write(record(1, "volume", 70));
+
+        // the first store is never closed, as if the bot had crashed
+        Map<Long, JSONObject> records = reload();
+        assertEquals(2, records.size());
+        assertEquals(70, records.get(1L).getInt("volume"));
+        assertEquals("!", records.get(2L).getString("prefix"));
+    }
+
+    @Test
+    public void tornLastRecordIsDropped() throws IOException
+    {
+        JournalSettingsStore store = open(Long.MAX_VALUE);
+        store.write(record(1, "volume", 50));
+        store.write(record(2, "volume", 60));
+        long valid = Files.size(journal);
+        append("9c1f00aa 3 {\"volu");
+
+        JournalSettingsStore recovered = new JournalSettingsStore(snapshot, Long.MAX_VALUE);
+        Map<Long, JSONObject> records = recovered.load();
+        assertEquals(2, records.size());
+        assertFalse(records.containsKey(3L));
+        assertEquals(valid, Files.size(journal));
+
+        // entries written after recovery must not end up behind the torn bytes
+        recovered.write(record(3, "volume", 80));
+        records = reload();
+        assertEquals(3, records.size());
+        assertEquals(80, records.get(3L).getInt("volume"));
+    }
+
+    @Test
+    public void corruptedLastRecordIsDropped() throws IOException
+    {
+        JournalSettingsStore store = open(Long.MAX_VALUE);
+        store.write(record(1, "volume", 50));
+        append("00000000 1 {\"volume\":10}\n");
+
+        Map<Long, JSONObject> records = reload();
+        assertEquals(50, records.get(1L).getInt("volume"));
+    }
+
+    @Test
+    public void compactionRewritesSnapshot() throws IOException
+    {
+        JournalSettingsStore store = open(64);
+        for(int i = 0; i < 10; i++)
+            store.write(record(i, "volume", i));
+        assertTrue(Files.size(journal) <= 64);
+        JSONObject written = new JSONObject(new String(Files.readAllBytes(snapshot), StandardCharsets.UTF_8));
+        assertTrue(written.has("0"));
+
+        Map<Long, JSONObject> records = reload();
+        assertEquals(10, records.size());
+        for(int i = 0; i < 10; i++)
+            assertEquals(i, records.get((long) i).getInt("volume"));
+    }
+
+    @Test
+    public void crashDuringCompactionIsHarmless() throws IOException
+    {
+        JournalSettingsStore store = open(Long.MAX_VALUE);
+        store.write(record(1, "volume", 50));
+        store.write(record(1, "volume", 40));
+        byte[] entries = Files.readAllBytes(journal);
+        store.compact();
+        // put the journal back, as if the bot had crashed before emptying it
+        Files.write(journal, entries);
+
+        Map<Long, JSONObject> records = reload();
+        assertEquals(1, records.size());
+        assertEquals(40, records.get(1L).getInt("volume"));
+    }
+
+    @Test
+    public void corruptSnapshotStillAcceptsWrites() throws IOException
+    {
+        JournalSettingsStore store = open(Long.MAX_VALUE);
+        store.write(record(1, "volume", 50));
+        Files.write(snapshot, "{\"1\": {\"vol".getBytes(StandardCharsets.UTF_8));
+
+        JournalSettingsStore recovered = new JournalSettingsStore(snapshot, Long.MAX_VALUE);
+        try
+        {
+            recovered.load();
+            fail("the snapshot should not load");
+        }
+        catch(JSONException expected)
+        {
+            // the manager logs this and carries on with the store
+        }
+        recovered.write(record(2, "volume", 60));
+        recovered.close();
+
+        Map<Long, JSONObject> records = reload();
+        assertEquals(50, records.get(1L).getInt("volume"));
+        assertEquals(60, records.get(2L).getInt("volume"));
+    }
+
+    @Test
+    public void jsonStorageFoldsInLeftoverJournal() throws IOException
+    {
+        JournalSettingsStore store = open(Long.MAX_VALUE);
+        store.write(record(1, "volume", 50));
+
+        Map<Long, JSONObject> records = new JsonSettingsStore(snapshot).load();
+        assertEquals(50, records.get(1L).getInt("volume"));
+        assertFalse(Files.exists(journal));
+        records = new JsonSettingsStore(snapshot).load();
+        assertEquals(50, records.get(1L).getInt("volume"));
+    }
+
+    @Test
+    public void settingsSurviveRestart()
+    {
+        SettingsManager manager = new SettingsManager(new JournalSettingsStore(snapshot, Long.MAX_VALUE));
+        manager.getSettings(1L).setVolume(30);
+        manager.getSettings(2L).setPrefix("?");
+        manager.getSettings(2L).setRepeatMode(RepeatMode.SINGLE);
+        manager.shutdown();
+
+        SettingsManager restarted = new SettingsManager(new JournalSettingsStore(snapshot, Long.MAX_VALUE));
+        assertEquals(30, restarted.getSettings(1L).getVolume());
+        assertEquals("?", restarted.getSettings(2L).getPrefix());
+        assertEquals(RepeatMode.SINGLE, restarted.getSettings(2L).getRepeatMode());
+        restarted.shutdown();
+    }
+
+    private JournalSettingsStore open(long compactThreshold) throws IOException
+    {
+        JournalSettingsStore store = new JournalSettingsStore(snapshot, compactThreshold);
+        store.load();
+        return store;
+    }
+
+    private Map<Long, JSONObject> reload() throws IOException
+    {
+        return new JournalSettingsStore(snapshot, Long.MAX_VALUE).load();
+    }
+
+    private void append(String data) throws IOException
+    {
+        Files.write(journal, data.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static Map<Long, JSONObject> record(long guildId, String key, Object value)
+    {
+        return Collections.singletonMap(guildId, new JSONObject().put(key, value));
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.settings.RepeatMode;
+import com.jagrosh.jmusicbot.settings.Settings;
+import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.settings.SettingsStore;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that changed settings are written behind the threads that change them: several
+ * changes are written together, only changed guilds are written, a change made during a
+ * write is written again, a failed write is tried again, and shutting down waits for the
+ * writer before the last write.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SettingsWriteTest
+{
+    @Test
+    public void coalescesChanges() throws InterruptedException
+    {
+        RecordingStore store = new RecordingStore();
+        SettingsManager manager = new SettingsManager(store, 200);
+        Settings first = manager.getSettings(1L);
+        first.setVolume(10);
+        first.setVolume(20);
+        first.setVolume(30);
+        manager.getSettings(2L).setRepeatMode(RepeatMode.ALL);
+        assertTrue(store.awaitWrites(1));
+        Thread.sleep(400);
+        List<Map<Long, JSONObject>> writes = store.getWrites();
+        assertEquals(1, writes.size());
+        assertEquals(2, writes.get(0).size());
+        assertEquals(30, writes.get(0).get(1L).getInt("volume"));
+        assertEquals("ALL", writes.get(0).get(2L).get("repeat_mode").toString());
+        manager.shutdown();
+        // nothing was left to write
+        assertEquals(1, store.getWrites().size());
+    }
+
+    @Test
+    public void writesOnlyChangedGuilds() throws InterruptedException
+    {
+        RecordingStore store = new RecordingStore();
+        SettingsManager manager = new SettingsManager(store, 50);
+        manager.getSettings(1L).setVolume(10);
+        manager.getSettings(2L).setVolume(20);
+        assertTrue(store.awaitWrites(1));
+        manager.getSettings(2L).setVolume(25);
+        assertTrue(store.awaitWrites(2));
+        Map<Long, JSONObject> second = store.getWrites().get(1);
+        assertEquals(Collections.singleton(2L), second.keySet());
+        assertEquals(25, second.get(2L).getInt("volume"));
+        manager.shutdown();
+    }
+
+    @Test
+    public void changeDuringWriteIsWrittenAgain() throws InterruptedException
+    {
+        RecordingStore store = new RecordingStore();
+        store.block();
+        SettingsManager manager = new SettingsManager(store, 0);
+        Settings settings = manager.getSettings(1L);
+        settings.setVolume(10);
+        assertTrue(store.awaitWriting());
+        // the first write already took its copy of the settings
+        settings.setVolume(20);
+        store.release();
+        assertTrue(store.awaitWrites(2));
+        List<Map<Long, JSONObject>> writes = store.getWrites();
+        assertEquals(10, writes.get(0).get(1L).getInt("volume"));
+        assertEquals(20, writes.get(writes.size() - 1).get(1L).getInt("volume"));
+        manager.shutdown();
+    }
+
+    @Test
+    public void failedWriteIsRetried() throws InterruptedException
+    {
+        RecordingStore store = new RecordingStore();
+        store.fail(2);
+        SettingsManager manager = new SettingsManager(store, 50);
+        manager.getSettings(1L).setVolume(10);
+        manager.getSettings(2L).setVolume(20);
+        assertTrue(store.awaitWrites(1));
+        Map<Long, JSONObject> written = store.getWrites().get(0);
+        assertEquals(2, written.size());
+        assertEquals(10, written.get(1L).getInt("volume"));
+        assertEquals(20, written.get(2L).getInt("volume"));
+        manager.shutdown();
+    }
+
+    @Test
+    public void shutdownWritesPendingChanges()
+    {
+        RecordingStore store = new RecordingStore();
+        // the scheduled write would only run in an hour
+        SettingsManager manager = new SettingsManager(store, TimeUnit.HOURS.toMillis(1));
+        manager.getSettings(1L).setVolume(10);
+        manager.getSettings(2L).setPrefix("!");
+        assertTrue(store.getWrites().isEmpty());
+        manager.shutdown();
+        List<Map<Long, JSONObject>> writes = store.getWrites();
+        assertEquals(1, writes.size());
+        assertEquals(10, writes.get(0).get(1L).getInt("volume"));
+        assertEquals("!", writes.get(0).get(2L).getString("prefix"));
+        assertEquals(Collections.singletonList("close"), store.getEventsAfterWrites());
+    }
+
+    @Test
+    public void shutdownWaitsForRunningWrite() throws InterruptedException
+    {
+        RecordingStore store = new RecordingStore();
+        store.block();
+        SettingsManager manager = new SettingsManager(store, 0);
+        Settings settings = manager.getSettings(1L);
+        settings.setVolume(10);
+        assertTrue(store.awaitWriting());
+        settings.setVolume(20);
+        Thread shutdown = new Thread(manager::shutdown);
+        shutdown.start();
+        Thread.sleep(200);
+        // the store is not closed under the running write
+        assertTrue(shutdown.isAlive());
+        assertFalse(store.isClosed());
+        store.release();
+        shutdown.join(5000);
+        assertFalse(shutdown.isAlive());
+        List<Map<Long, JSONObject>> writes = store.getWrites();
+        assertEquals(2, writes.size());
+        assertEquals(20, writes.get(1).get(1L).getInt("volume"));
+        assertEquals(Collections.singletonList("close"), store.getEventsAfterWrites());
+    }
+
+    private static class RecordingStore implements SettingsStore
+    {
+        private final List<Map<Long, JSONObject>> writes = new ArrayList<>();
+        private final List<String> events = new ArrayList<>();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile CountDownLatch blocked;
+
+        @Override
+        public Map<Long, JSONObject> load()
+        {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void write(Map<Long, JSONObject> records) throws IOException
+        {
+            if(failures.getAndDecrement() > 0)
+                throw new IOException("disk full");
+            writing.countDown();
+            CountDownLatch latch = blocked;
+            if(latch != null)
+            {
+                try
+                {
+                    latch.await(5, TimeUnit.SECONDS);
+                }
+                catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized(this)
+            {
+                writes.add(new HashMap<>(records));
+                events.add("write");
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void close()
+        {
+            events.add("close");
+        }
+
+        private void fail(int count)
+        {
+            failures.set(count);
+        }
+
+        private void block()
+        {
+            blocked = new CountDownLatch(1);
+        }
+
+        private void release()
+        {
+            blocked.countDown();
+            blocked = null;
+        }
+
+        private boolean awaitWriting() throws InterruptedException
+        {
+            return writing.await(5, TimeUnit.SECONDS);
+        }
+
+        private synchronized boolean awaitWrites(int count) throws InterruptedException
+        {
+            long end = System.currentTimeMillis() + 5000;
+            while(writes.size() < count && System.currentTimeMillis() < end)
+                wait(100);
+            return writes.size() >= count;
+        }
+
+        private synchronized List<Map<Long, JSONObject>> getWrites()
+        {
+            return new ArrayList<>(writes);
+        }
+
+        private synchronized boolean isClosed()
+        {
+            return events.contains("close");
+        }
+
+        private synchronized List<String> getEventsAfterWrites()
+        {
+            return new ArrayList<>(events.subList(events.lastIndexOf("write") + 1, events.size()));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.SourceRoutes;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests which source manager identifiers are routed to.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SourceRoutesTest
+{
+    private final SourceRoutes<String> routes = new SourceRoutes<String>()
+            .addPrefix("ytsearch:", "youtube")
+            .addPrefix("scsearch:", "soundcloud")
+            .addDomain("youtube.com", "youtube")
+            .addDomain("youtu.be", "youtube")
+            .addDomain("soundcloud.com", "soundcloud");
+
+    @Test
+    public void routesSearchPrefixes()
+    {
+        assertEquals("youtube", routes.route("ytsearch:never gonna give you up"));
+        assertEquals("soundcloud", routes.route("scsearch:lofi"));
+        assertNull(routes.route("spsearch:lofi"));
+    }
+
+    @Test
+    public void routesDomainsAndSubdomains()
+    {
+        assertEquals("youtube", routes.route("https://www.youtube.com/watch?v=dQw4w9WgXcQ"));
+        assertEquals("youtube", routes.route("https://music.youtube.com/playlist?list=PL1"));
+        assertEquals("youtube", routes.route("http://youtu.be/dQw4w9WgXcQ"));
+        assertEquals("soundcloud", routes.route("HTTPS://SoundCloud.com:443/artist/track"));
+        assertEquals("youtube", routes.route("https://youtube.com"));
+    }
+
+    @Test
+    public void leavesUnknownIdentifiers()
+    {
+        assertNull(routes.route("never gonna give you up"));
+        assertNull(routes.route("https://example.com/song.mp3"));
+        assertNull(routes.route("https://notyoutube.com/watch?v=1"));
+        assertNull(routes.route("https://youtube.com.example.com/watch?v=1"));
+        assertNull(routes.route("https://user@youtube.com/watch?v=1"));
+        assertNull(routes.route("ftp://youtube.com/watch"));
+        assertNull(routes.route("C:\\music\\song.mp3"));
+        assertNull(routes.route("/home/music/song.mp3"));
+        assertNull(routes.route(""));
+    }
+}
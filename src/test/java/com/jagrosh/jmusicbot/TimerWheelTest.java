@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.scheduler.TimerWheel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that timeouts run after their delay, and that cancelled ones never run.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TimerWheelTest
+{
+    // a small wheel, so the delays below span several turns
+    private final TimerWheel wheel = new TimerWheel("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+
+    @After
+    public void tearDown()
+    {
+        wheel.stop();
+    }
+
+    @Test
+    public void runsNoEarlierThanItsDelay() throws Exception
+    {
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicLong elapsed = new AtomicLong();
+        long start = System.nanoTime();
+        TimerWheel.Timeout timeout = wheel.newTimeout(() ->
+        {
+            elapsed.set(System.nanoTime() - start);
+            ran.countDown();
+        }, 250, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(elapsed.get() >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverRun() throws Exception
+    {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch last = new CountDownLatch(1);
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+        for(int i = 0; i < 100_000; i++)
+            timeouts.add(wheel.newTimeout(runs::incrementAndGet, 1000 + i % 200, TimeUnit.MILLISECONDS));
+        assertEquals(100_000, wheel.getPendingCount());
+        for(int i = 0; i < timeouts.size(); i += 2)
+            assertTrue(timeouts.get(i).cancel());
+        assertEquals(50_000, wheel.getPendingCount());
+        wheel.newTimeout(last::countDown, 1500, TimeUnit.MILLISECONDS);
+
+        assertTrue(last.await(5, TimeUnit.SECONDS));
+        assertEquals(50_000, runs.get());
+        assertEquals(0, wheel.getPendingCount());
+        assertTrue(timeouts.get(0).isCancelled());
+        assertTrue(timeouts.get(1).isExpired());
+    }
+
+    @Test
+    public void earlierTimeoutWakesSleepingWheel() throws Exception
+    {
+        wheel.newTimeout(() -> {}, 1, TimeUnit.HOURS);
+        Thread.sleep(50);
+        CountDownLatch ran = new CountDownLatch(1);
+        wheel.newTimeout(ran::countDown, 20, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertEquals(1, wheel.getPendingCount());
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.playlist.TrackCache;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrack;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that cached playlist entries are handed over from the scheduler, updated once
+ * they are stale, loaded again when they can not be decoded, and kept across restarts.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class TrackCacheTest
+{
+    private final static long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final Scheduler scheduler = new Scheduler(JobClass::getDefaultThreads);
+    // the loads the cache started, as the entry and the handler to complete it with
+    private final List<String> loads = Collections.synchronizedList(new ArrayList<>());
+    private final List<AudioLoadResultHandler> loadHandlers = Collections.synchronizedList(new ArrayList<>());
+    private final AudioPlayerManager manager = manager();
+    private Path dir;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("trackcache");
+        path = dir.resolve(TrackCache.CACHE_FILE);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        scheduler.shutdownNow();
+        try(Stream<Path> files = Files.list(dir))
+        {
+            for(Path file: files.collect(Collectors.toList()))
+                Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void handsOverHitsFromTheScheduler() throws InterruptedException
+    {
+        TrackCache cache = new TrackCache(path, HOUR, scheduler);
+        cache.storing(manager, "a", null).trackLoaded(track("song-a"));
+        Recorder recorder = new Recorder();
+        assertTrue(cache.load(manager, "a", recorder));
+        assertEquals("song-a", recorder.next());
+        assertNotSame(Thread.currentThread(), recorder.thread);
+        assertEquals(1, cache.getHits());
+        // a fresh entry is not loaded again
+        assertTrue(loads.isEmpty());
+        assertFalse(cache.load(manager, "b", recorder));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void updatesStaleEntries() throws InterruptedException
+    {
+        TrackCache cache = new TrackCache(path, 100, scheduler);
+        cache.storing(manager, "a", null).trackLoaded(track("old"));
+        Thread.sleep(150);
+        Recorder recorder = new Recorder();
+        assertTrue(cache.load(manager, "a", recorder));
+        assertTrue(cache.load(manager, "a", recorder));
+        // the stale tracks are still used, and only one update runs at a time
+        assertEquals("old", recorder.next());
+        assertEquals("old", recorder.next());
+        assertEquals(Collections.singletonList("a"), loads);
+        loadHandlers.get(0).trackLoaded(track("new"));
+        assertTrue(cache.load(manager, "a", recorder));
+        assertEquals("new", recorder.next());
+        assertEquals(1, loads.size());
+    }
+
+    @Test
+    public void dropsEntriesThatNoLongerMatch() throws InterruptedException
+    {
+        TrackCache cache = new TrackCache(path, 100, scheduler);
+        cache.storing(manager, "a", null).trackLoaded(track("old"));
+        Thread.sleep(150);
+        Recorder recorder = new Recorder();
+        cache.load(manager, "a", recorder);
+        recorder.next();
+        loadHandlers.get(0).noMatches();
+        assertEquals(0, cache.getSize());
+        assertFalse(cache.load(manager, "a", recorder));
+    }
+
+    @Test
+    public void keepsEntriesWhenUpdateFails() throws InterruptedException
+    {
+        TrackCache cache = new TrackCache(path, 100, scheduler);
+        cache.storing(manager, "a", null).trackLoaded(track("old"));
+        Thread.sleep(150);
+        Recorder recorder = new Recorder();
+        cache.load(manager, "a", recorder);
+        recorder.next();
+        loadHandlers.get(0).loadFailed(new FriendlyException("down", FriendlyException.Severity.COMMON, null));
+        assertTrue(cache.load(manager, "a", recorder));
+        assertEquals("old", recorder.next());
+        // the failed update may be tried again
+        assertEquals(2, loads.size());
+    }
+
+    @Test
+    public void loadsUndecodableEntriesAgain() throws InterruptedException
+    {
+        TrackCache cache = new TrackCache(path, HOUR, scheduler);
+        // the source of this track is gone, so it can not be decoded
+        cache.storing(manager, "a", null).trackLoaded(track("gone"));
+        Recorder recorder = new Recorder();
+        assertTrue(cache.load(manager, "a", recorder));
+        long end = System.currentTimeMillis() + 5000;
+        while(loads.isEmpty() && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertEquals(Collections.singletonList("a"), loads);
+        assertEquals(1, cache.getMisses());
+        // the entry is loaded with the caller's handler, and cached again
+        loadHandlers.get(0).trackLoaded(track("found"));
+        assertEquals("found", recorder.next());
+        assertTrue(cache.load(manager, "a", recorder));
+        assertEquals("found", recorder.next());
+    }
+
+    @Test
+    public void keepsEntriesAcrossRestarts() throws InterruptedException
+    {
+        TrackCache cache = new TrackCache(path, HOUR, scheduler);
+        cache.storing(manager, "a", null).trackLoaded(track("single"));
+        cache.storing(manager, "p", null).playlistLoaded(new BasicAudioPlaylist("mix", List.of(track("one"), track("two")), null, false));
+        cache.save();
+        TrackCache read = new TrackCache(path, HOUR, scheduler);
+        assertEquals(2, read.getSize());
+        Recorder recorder = new Recorder();
+        read.load(manager, "a", recorder);
+        assertEquals("single", recorder.next());
+        read.load(manager, "p", recorder);
+        assertEquals("mix: one two", recorder.next());
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    public void dropsLongUnusedEntriesWhenRead() throws InterruptedException
+    {
+        TrackCache cache = new TrackCache(path, HOUR, scheduler);
+        cache.storing(manager, "a", null).trackLoaded(track("single"));
+        cache.save();
+        Thread.sleep(50);
+        // entries are kept for ten times the time to live
+        assertEquals(0, new TrackCache(path, 1, scheduler).getSize());
+        assertEquals(1, new TrackCache(path, HOUR, scheduler).getSize());
+    }
+
+    @Test
+    public void replacesCorruptFile() throws IOException
+    {
+        Files.write(path, new byte[]{0x4A, 0x4D, 0x54, 0x43, 0, 0, 0, 1, 0, 0, 0, 5, 1, 2});
+        TrackCache cache = new TrackCache(path, HOUR, scheduler);
+        assertEquals(0, cache.getSize());
+        cache.storing(manager, "a", null).trackLoaded(track("single"));
+        cache.save();
+        assertEquals(1, new TrackCache(path, HOUR, scheduler).getSize());
+        assertFalse(Files.exists(path.resolveSibling(TrackCache.CACHE_FILE + ".tmp")));
+    }
+
+    private AudioPlayerManager manager()
+    {
+        return (AudioPlayerManager) Proxy.newProxyInstance(AudioPlayerManager.class.getClassLoader(), new Class<?>[]{AudioPlayerManager.class},
+                (proxy, method, args) ->
+                {
+                    switch(method.getName())
+                    {
+                        case "loadItem":
+                            loads.add((String) args[0]);
+                            loadHandlers.add((AudioLoadResultHandler) args[1]);
+                            return null;
+                        case "encodeTrack":
+                        {
+                            MessageOutput output = (MessageOutput) args[0];
+                            DataOutput data = output.startMessage();
+                            data.writeUTF(((AudioTrack) args[1]).getIdentifier());
+                            output.commitMessage();
+                            return null;
+                        }
+                        case "decodeTrack":
+                        {
+                            DataInput data = ((MessageInput) args[0]).nextMessage();
+                            String identifier = data.readUTF();
+                            return identifier.equals("gone") ? null : new DecodedTrack(track(identifier), 0);
+                        }
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static AudioTrack track(String identifier)
+    {
+        return (AudioTrack) Proxy.newProxyInstance(AudioTrack.class.getClassLoader(), new Class<?>[]{AudioTrack.class},
+                (proxy, method, args) ->
+                {
+                    switch(method.getName())
+                    {
+                        case "getIdentifier":
+                        case "toString":
+                            return identifier;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class Recorder implements AudioLoadResultHandler
+    {
+        private final BlockingQueue<String> results = new LinkedBlockingQueue<>();
+        private volatile Thread thread;
+
+        private String next() throws InterruptedException
+        {
+            String result = results.poll(5, TimeUnit.SECONDS);
+            assertNotNull(result);
+            return result;
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            thread = Thread.currentThread();
+            results.add(track.getIdentifier());
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            thread = Thread.currentThread();
+            results.add(playlist.getName() + ": " + playlist.getTracks().stream().map(AudioTrack::getIdentifier).collect(Collectors.joining(" ")));
+        }
+
+        @Override
+        public void noMatches()
+        {
+            results.add("no matches");
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            results.add("failed");
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.QueuedTrack;
+import com.jagrosh.jmusicbot.audio.RequestMetadata;
+import com.jagrosh.jmusicbot.audio.TrackPrefetcher;
+import com.jagrosh.jmusicbot.entities.Pair;
+import com.jagrosh.jmusicbot.queue.LinearQueue;
+import com.jagrosh.jmusicbot.scheduler.JobClass;
+import com.jagrosh.jmusicbot.scheduler.Scheduler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the next track is loaded on the spare player before the playing one ends,
+ * and that it is only handed over while it is still the next track of the queue.
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class TrackPrefetcherTest
+{
+    private final static long WINDOW = 5000;
+
+    private final Scheduler scheduler = new Scheduler(JobClass::getDefaultThreads);
+    private final LinearQueue<QueuedTrack> queue = new LinearQueue<>(null);
+    private final AtomicInteger created = new AtomicInteger();
+    private final FakePlayer playing = new FakePlayer();
+    private final FakePlayer spare = new FakePlayer();
+    private final TrackPrefetcher prefetcher = new TrackPrefetcher(scheduler, WINDOW, () ->
+    {
+        created.incrementAndGet();
+        return spare.player;
+    }, () -> queue.isEmpty() ? null : queue.get(0));
+
+    @After
+    public void tearDown()
+    {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void prefetchesNextTrackPaused() throws InterruptedException
+    {
+        QueuedTrack next = enqueue("next");
+        prefetchAfter(start("current", 9000));
+        assertTrue(spare.paused);
+        assertNotSame(next.getTrack(), spare.track);
+        assertEquals("next", spare.track.getIdentifier());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void handsOverPrefetchedTrack() throws InterruptedException
+    {
+        enqueue("next");
+        prefetchAfter(start("current", 9000));
+        AudioTrack prefetched = spare.track;
+        Pair<AudioPlayer,AudioTrack> handedOver = prefetcher.handOver(playing.player, queue);
+        assertNotNull(handedOver);
+        assertSame(spare.player, handedOver.getKey());
+        assertSame(prefetched, handedOver.getValue());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, spare.stops);
+        // the player whose track ended becomes the spare player, once the new track nears its end
+        enqueue("after");
+        AudioTrack current = track("next", 9000);
+        spare.track = current;
+        prefetcher.schedule(spare.player, current);
+        assertTrue(playing.awaitPlay());
+        assertEquals("after", playing.track.getIdentifier());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void dropsPrefetchWhenQueueChanges() throws InterruptedException
+    {
+        QueuedTrack next = enqueue("next");
+        prefetchAfter(start("current", 9000));
+        queue.addAt(0, new QueuedTrack(track("skipped ahead", 0), RequestMetadata.EMPTY));
+        assertNull(prefetcher.handOver(playing.player, queue));
+        // nothing was pulled, so the new first track can be played the usual way
+        assertEquals(2, queue.size());
+        assertSame(next, queue.get(1));
+        assertEquals(1, spare.stops);
+    }
+
+    @Test
+    public void dropsPrefetchedTrackThatFailed() throws InterruptedException
+    {
+        QueuedTrack next = enqueue("next");
+        prefetchAfter(start("current", 9000));
+        // a track that fails to load ends, and the spare player is left with nothing
+        spare.track = null;
+        assertNull(prefetcher.handOver(playing.player, queue));
+        assertSame(next, queue.get(0));
+        assertEquals(1, spare.stops);
+    }
+
+    @Test
+    public void cancelDropsScheduledPrefetch() throws InterruptedException
+    {
+        enqueue("next");
+        prefetcher.schedule(playing.player, start("current", 0));
+        assertEquals(1, scheduler.getPendingTimeouts());
+        prefetcher.cancel();
+        assertEquals(0, scheduler.getPendingTimeouts());
+        assertNull(prefetcher.handOver(playing.player, queue));
+        assertEquals(0, created.get());
+    }
+
+    @Test
+    public void cancelDropsPrefetchedTrack() throws InterruptedException
+    {
+        enqueue("next");
+        prefetchAfter(start("current", 9000));
+        prefetcher.cancel();
+        assertEquals(1, spare.stops);
+        assertNull(prefetcher.handOver(playing.player, queue));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void skipsTracksThatStoppedPlaying() throws InterruptedException
+    {
+        enqueue("next");
+        AudioTrack current = start("current", 9000);
+        // the track was skipped before the prefetch ran
+        playing.track = track("other", 0);
+        prefetcher.schedule(playing.player, current);
+        Thread.sleep(200);
+        assertEquals(0, created.get());
+        assertNull(spare.track);
+    }
+
+    @Test
+    public void skipsEmptyQueue() throws InterruptedException
+    {
+        prefetcher.schedule(playing.player, start("current", 9000));
+        Thread.sleep(200);
+        assertEquals(0, created.get());
+        assertNull(prefetcher.handOver(playing.player, queue));
+    }
+
+    private void prefetchAfter(AudioTrack current) throws InterruptedException
+    {
+        prefetcher.schedule(playing.player, current);
+        assertTrue(spare.awaitPlay());
+    }
+
+    private AudioTrack start(String name, long position)
+    {
+        AudioTrack track = track(name, position);
+        playing.track = track;
+        return track;
+    }
+
+    private QueuedTrack enqueue(String name)
+    {
+        QueuedTrack entry = new QueuedTrack(track(name, 0), RequestMetadata.EMPTY);
+        queue.add(entry);
+        return entry;
+    }
+
+    // a ten second track, so a track at 9 seconds is in the prefetch window
+    private static AudioTrack track(String name, long position)
+    {
+        return (AudioTrack) Proxy.newProxyInstance(AudioTrack.class.getClassLoader(), new Class<?>[]{AudioTrack.class},
+                (proxy, method, args) ->
+                {
+                    switch(method.getName())
+                    {
+                        case "getIdentifier":
+                        case "toString":
+                            return name;
+                        case "getDuration":
+                            return 10000L;
+                        case "getPosition":
+                            return position;
+                        case "isSeekable":
+                            return false;
+                        case "makeClone":
+                            return track(name, 0);
+                        case "setUserData":
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class FakePlayer
+    {
+        private volatile AudioTrack track;
+        private volatile boolean paused;
+        private volatile int stops;
+        private final CountDownLatch played = new CountDownLatch(1);
+        private final AudioPlayer player = (AudioPlayer) Proxy.newProxyInstance(AudioPlayer.class.getClassLoader(),
+                new Class<?>[]{AudioPlayer.class}, (proxy, method, args) ->
+                {
+                    switch(method.getName())
+                    {
+                        case "getPlayingTrack":
+                            return track;
+                        case "playTrack":
+                            track = (AudioTrack) args[0];
+                            played.countDown();
+                            return null;
+                        case "stopTrack":
+                            track = null;
+                            stops++;
+                            return null;
+                        case "setPaused":
+                            paused = (Boolean) args[0];
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        private boolean awaitPlay() throws InterruptedException
+        {
+            return played.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
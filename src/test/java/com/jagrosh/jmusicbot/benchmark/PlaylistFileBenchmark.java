@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.benchmark;
+
+import com.jagrosh.jmusicbot.playlist.PlaylistFile;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares reading a playlist file with a million entries as strings and shuffling
+ * them, as the playlist loader used to do, with reading it as a {@link PlaylistFile}.
+ * The time until the first entry of the shuffled playlist is known, the bytes
+ * allocated while reading and the heap still used by the playlist afterwards are
+ * reported. As the playlist index reads files before they are used, looking up a
+ * playlist that was already read is measured too.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes com.jagrosh.jmusicbot.benchmark.PlaylistFileBenchmark}
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class PlaylistFileBenchmark
+{
+    private final static int LINES = 1_000_000;
+
+    private final static com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // the playlists have to stay reachable while the heap is measured
+    private static Object kept;
+
+    public static void main(String[] args) throws IOException
+    {
+        Path path = Files.createTempFile("playlist", ".txt");
+        try
+        {
+            write(path);
+            System.out.printf("%,d lines, %,d bytes%n", LINES, Files.size(path));
+            System.out.printf("%-12s %15s %18s %18s%n", "reader", "first (ms)", "allocated (MB)", "retained (MB)");
+            PlaylistFile indexed = PlaylistFile.read(path);
+            // the first runs only warm up
+            for(int i = 0; i < 3; i++)
+            {
+                run("lines", path, PlaylistFileBenchmark::readLines, i == 2);
+                run("file", path, PlaylistFileBenchmark::readFile, i == 2);
+                run("indexed", path, p -> indexed.getShuffledItems(), i == 2);
+            }
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+    }
+
+    private static void run(String name, Path path, Reader reader, boolean print) throws IOException
+    {
+        kept = null;
+        long before = usedHeap();
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        List<String> items = reader.read(path);
+        String first = items.get(0);
+        long nanos = System.nanoTime() - start;
+        allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        kept = items;
+        long retained = usedHeap() - before;
+        if(print)
+            System.out.printf("%-12s %15.1f %18.1f %18.1f%n", name, nanos / 1e6, allocated / 1e6, retained / 1e6);
+        if(first.isEmpty())
+            throw new IllegalStateException();
+    }
+
+    // how the playlist loader read files before
+    private static List<String> readLines(Path path) throws IOException
+    {
+        List<String> list = new ArrayList<>();
+        Files.readAllLines(path).forEach(str -> 
+        {
+            String s = str.trim();
+            if(!s.isEmpty() && !s.startsWith("#") && !s.startsWith("//"))
+                list.add(s);
+        });
+        Collections.shuffle(list);
+        return list;
+    }
+
+    private static List<String> readFile(Path path) throws IOException
+    {
+        return PlaylistFile.read(path).getShuffledItems();
+    }
+
+    private static long usedHeap()
+    {
+        for(int i = 0; i < 3; i++)
+            System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void write(Path path) throws IOException
+    {
+        Random random = new Random(0);
+        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        try(BufferedWriter writer = Files.newBufferedWriter(path))
+        {
+            writer.write("#shuffle\n");
+            char[] id = new char[11];
+            for(int i = 0; i < LINES; i++)
+            {
+                for(int j = 0; j < id.length; j++)
+                    id[j] = chars.charAt(random.nextInt(chars.length()));
+                writer.write("https://www.youtube.com/watch?v=");
+                writer.write(id);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private interface Reader
+    {
+        List<String> read(Path path) throws IOException;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.benchmark;
+
+import com.jagrosh.jmusicbot.playlist.OrderedLoader;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to the first track and to the whole playlist when the entries of a
+ * playlist are loaded with different parallelism. Loading an entry is simulated by
+ * waiting for a random time, as resolving a link over the network would, so 1 matches
+ * the old one-at-a-time loading.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes com.jagrosh.jmusicbot.benchmark.PlaylistLoadBenchmark}
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class PlaylistLoadBenchmark
+{
+    private final static int ENTRIES = 500;
+    private final static int MIN_LATENCY = 5, MAX_LATENCY = 40;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        // lavaplayer loads items on a pool of 10 threads by default
+        ExecutorService pool = Executors.newFixedThreadPool(10);
+        System.out.printf("%-12s %15s %15s%n", "parallelism", "first (ms)", "total (ms)");
+        for(int parallelism: new int[]{1, 2, 4, 8, 10})
+            run(pool, parallelism);
+        pool.shutdown();
+    }
+
+    private static void run(ExecutorService pool, int parallelism) throws InterruptedException
+    {
+        Random random = new Random(0);
+        int[] latencies = new int[ENTRIES];
+        for(int i = 0; i < ENTRIES; i++)
+            latencies[i] = MIN_LATENCY + random.nextInt(MAX_LATENCY - MIN_LATENCY);
+        long[] first = {0};
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        new OrderedLoader<Integer>(ENTRIES, parallelism, (index, result) -> pool.execute(() -> 
+        {
+            try
+            {
+                Thread.sleep(latencies[index]);
+            }
+            catch(InterruptedException ignore) {}
+            result.accept(index);
+        }), index -> 
+        {
+            if(index == 0)
+                first[0] = System.nanoTime();
+        }, done::countDown).start();
+        done.await();
+        long end = System.nanoTime();
+        System.out.printf("%-12d %15.1f %15.1f%n", parallelism,
+                TimeUnit.NANOSECONDS.toMicros(first[0] - start) / 1000.0, TimeUnit.NANOSECONDS.toMicros(end - start) / 1000.0);
+    }
+}
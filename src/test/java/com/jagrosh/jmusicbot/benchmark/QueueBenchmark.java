@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.benchmark;
+
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.queue.IndexedTreeList;
+import com.jagrosh.jmusicbot.queue.LinearQueue;
+import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the random-access queue operations used by the queue commands
+ * ({@code remove}, {@code movetrack}, {@code skipto}) on a {@link LinkedList}
+ * and on an {@link IndexedTreeList}, for queues of 10^3 to 10^6 items.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes com.jagrosh.jmusicbot.benchmark.QueueBenchmark}
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class QueueBenchmark
+{
+    private final static int OPERATIONS = 1000;
+
+    public static void main(String[] args)
+    {
+        System.out.printf("%-10s %-15s %12s %12s %12s %12s %12s%n",
+                "size", "storage", "get", "addAt", "remove", "moveItem", "skip");
+        for(int size = 1000; size <= 1_000_000; size *= 10)
+        {
+            run(size, "LinkedList", LinkedList::new);
+            run(size, "IndexedTreeList", IndexedTreeList::new);
+        }
+    }
+
+    private static void run(int size, String name, Supplier<List<Item>> storage)
+    {
+        AbstractQueue<Item> queue = new LinearQueue<>(null, storage);
+        for(int i = 0; i < size; i++)
+            queue.add(new Item(i % 10));
+        Random random = new Random(size);
+
+        long get = time(() ->
+        {
+            for(int i = 0; i < OPERATIONS; i++)
+                queue.get(random.nextInt(queue.size()));
+        });
+        long addAt = time(() ->
+        {
+            for(int i = 0; i < OPERATIONS; i++)
+                queue.addAt(random.nextInt(queue.size()), new Item(i));
+        });
+        long remove = time(() ->
+        {
+            for(int i = 0; i < OPERATIONS; i++)
+                queue.remove(random.nextInt(queue.size()));
+        });
+        long move = time(() ->
+        {
+            for(int i = 0; i < OPERATIONS; i++)
+                queue.moveItem(random.nextInt(queue.size()), random.nextInt(queue.size()));
+        });
+        long skip = time(() ->
+        {
+            for(int i = 0; i < OPERATIONS; i++)
+            {
+                queue.skip(size / (OPERATIONS * 2));
+                queue.addAt(random.nextInt(queue.size()), new Item(i));
+            }
+        });
+        System.out.printf("%-10d %-15s %12s %12s %12s %12s %12s%n", size, name,
+                perOp(get), perOp(addAt), perOp(remove), perOp(move), perOp(skip));
+    }
+
+    static long time(Runnable runnable)
+    {
+        long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+
+    private static String perOp(long nanos)
+    {
+        return String.format("%.2f us", nanos / 1000.0 / OPERATIONS);
+    }
+
+    static class Item implements Queueable
+    {
+        private final long identifier;
+
+        Item(long identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.benchmark;
+
+import com.jagrosh.jmusicbot.benchmark.QueueBenchmark.Item;
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.queue.FairQueue;
+import com.jagrosh.jmusicbot.settings.QueueType;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures loading a 10k track playlist into a queue that already holds 2000
+ * tracks from five other requesters, once track by track (the old playlist path)
+ * and once with {@link AbstractQueue#addAll}, for the FAIR and LINEAR queue types.
+ * The flat-list {@link FairQueue} is included as a reference, both on the
+ * current storage and on the {@link LinkedList} it used to be backed by.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes com.jagrosh.jmusicbot.benchmark.QueueLoadBenchmark}
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class QueueLoadBenchmark
+{
+    private final static int TRACKS = 10_000;
+    private final static int RUNS = 10;
+    private final static List<Item> QUEUED = new ArrayList<>();
+
+    public static void main(String[] args)
+    {
+        List<Item> playlist = new ArrayList<>();
+        for(int i = 0; i < TRACKS; i++)
+            playlist.add(new Item(42));
+        for(int i = 0; i < 2000; i++)
+            QUEUED.add(new Item(i % 5));
+        System.out.printf("%-15s %15s %15s%n", "queue", "one by one", "addAll");
+        run("LINEAR", () -> QueueType.LINEAR.createInstance(null), playlist);
+        run("FAIR", () -> QueueType.FAIR.createInstance(null), playlist);
+        run("FairQueue", () -> new FairQueue<>(null), playlist);
+        run("FairQueue (LL)", () -> new FairQueue<>(null, LinkedList::new), playlist);
+    }
+
+    private static void run(String name, Supplier<AbstractQueue<Item>> factory, List<Item> playlist)
+    {
+        long single = Long.MAX_VALUE, batch = Long.MAX_VALUE;
+        // the first runs warm up the JIT, so the best run is reported
+        for(int run = 0; run < RUNS; run++)
+        {
+            AbstractQueue<Item> one = prepare(factory.get());
+            single = Math.min(single, QueueBenchmark.time(() ->
+            {
+                for(Item item: playlist)
+                    one.add(item);
+            }));
+            AbstractQueue<Item> all = prepare(factory.get());
+            batch = Math.min(batch, QueueBenchmark.time(() -> all.addAll(playlist)));
+            if(!one.getList().equals(all.getList()))
+                throw new IllegalStateException(name + " placed the batch differently");
+        }
+        System.out.printf("%-15s %12.2f ms %12.2f ms%n", name, single / 1e6, batch / 1e6);
+    }
+
+    private static AbstractQueue<Item> prepare(AbstractQueue<Item> queue)
+    {
+        for(Item item: QUEUED)
+            queue.add(item);
+        return queue;
+    }
+}
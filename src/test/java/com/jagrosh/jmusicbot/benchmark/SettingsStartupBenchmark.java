@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.benchmark;
+
+import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.settings.SettingsStorage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.json.JSONObject;
+
+/**
+ * Starts a {@link SettingsManager} over 100k stored guilds with the JSON and the binary
+ * settings storage, and reports the time and the bytes allocated until the manager is
+ * ready, and until the settings of every guild have been read once.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<dependencies> com.jagrosh.jmusicbot.benchmark.SettingsStartupBenchmark}
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class SettingsStartupBenchmark
+{
+    private final static int GUILDS = 100_000;
+    private final static int RUNS = 5;
+    private final static String[] PREFIXES = {"!", "?", "$", "m!", ";;"};
+
+    private final static com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException
+    {
+        Map<Long, JSONObject> records = createRecords();
+        System.out.printf("%-8s %12s %14s %14s %16s %12s%n", "storage", "file size", "startup ms", "startup MB", "read all ms", "read all MB");
+        for(SettingsStorage storage: new SettingsStorage[]{SettingsStorage.JSON, SettingsStorage.BINARY})
+        {
+            Path folder = Files.createTempDirectory("settings");
+            try
+            {
+                Path path = folder.resolve(SettingsStorage.SETTINGS_FILE);
+                storage.createStore(path).create(records);
+                long size;
+                try(Stream<Path> files = Files.list(folder))
+                {
+                    size = files.mapToLong(file -> file.toFile().length()).sum();
+                }
+                for(int run = 0; run < RUNS; run++)
+                    run(storage, path, size, run == RUNS - 1);
+            }
+            finally
+            {
+                try(Stream<Path> files = Files.walk(folder))
+                {
+                    files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+                }
+            }
+        }
+    }
+
+    // the earlier runs only warm up, and only the last one is printed
+    private static void run(SettingsStorage storage, Path path, long size, boolean print)
+    {
+        long allocated = allocated();
+        long start = System.nanoTime();
+        SettingsManager manager = new SettingsManager(storage.createStore(path));
+        long startupNanos = System.nanoTime() - start;
+        long startupBytes = allocated() - allocated;
+
+        long volumes = 0;
+        for(long guild = 1; guild <= GUILDS; guild++)
+            volumes += manager.getSettings(guild).getVolume();
+        long readNanos = System.nanoTime() - start;
+        long readBytes = allocated() - allocated;
+        manager.shutdown();
+        if(volumes == 0)
+            throw new IllegalStateException("settings were not loaded");
+        if(print)
+            System.out.printf("%-8s %12d %14.1f %14.1f %16.1f %12.1f%n", storage.name().toLowerCase(), size,
+                    startupNanos / 1e6, startupBytes / 1e6, readNanos / 1e6, readBytes / 1e6);
+    }
+
+    private static Map<Long, JSONObject> createRecords()
+    {
+        Random random = new Random(0);
+        Map<Long, JSONObject> records = new HashMap<>();
+        for(long guild = 1; guild <= GUILDS; guild++)
+        {
+            JSONObject record = new JSONObject().put("volume", 1 + random.nextInt(150));
+            if(random.nextBoolean())
+                record.put("text_channel_id", Long.toString(random.nextLong() >>> 1));
+            if(random.nextInt(4) == 0)
+                record.put("prefix", PREFIXES[random.nextInt(PREFIXES.length)]);
+            if(random.nextInt(10) == 0)
+                record.put("default_playlist", "playlist" + random.nextInt(100));
+            records.put(guild, record);
+        }
+        return records;
+    }
+
+    private static long allocated()
+    {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.benchmark;
+
+import com.jagrosh.jmusicbot.utils.LongLongHashMap;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares the cost of a skip vote when the votes are a {@code HashSet<String>} and the
+ * voters present are counted by going over the channel's members, as the skip command
+ * used to do, and when the votes and members are {@link LongLongHashMap}s and the
+ * counts are kept as votes arrive, as the listener tracker does. Every member of a
+ * channel votes once per round, and the time and bytes allocated per vote are reported.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes com.jagrosh.jmusicbot.benchmark.SkipVoteBenchmark}
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class SkipVoteBenchmark
+{
+    // the old way goes over every member on each vote, so bigger channels get fewer votes
+    private final static long VOTE_WORK = 20_000_000;
+    private final static int MIN_VOTES = 20_000;
+    private final static double SKIP_RATIO = 0.55;
+    private final static LongLongHashMap MEMBERS = new LongLongHashMap(16);
+    private final static LongLongHashMap VOTE_TIMES = new LongLongHashMap(16);
+
+    private final static com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // the decisions have to escape, or the work could be optimized away
+    private static int skips;
+
+    public static void main(String[] args)
+    {
+        System.out.printf("%-10s %-10s %15s %15s%n", "members", "storage", "ns/vote", "bytes/vote");
+        for(int members = 10; members <= 1000; members *= 10)
+        {
+            long[] ids = createIds(members);
+            // the first runs only warm up
+            run("string", ids, true, false);
+            run("string", ids, true, true);
+            run("primitive", ids, false, false);
+            run("primitive", ids, false, true);
+        }
+    }
+
+    private static void run(String name, long[] ids, boolean strings, boolean print)
+    {
+        int votes = (int) Math.max(MIN_VOTES, VOTE_WORK / ids.length);
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long nanos = QueueBenchmark.time(() ->
+        {
+            for(int done = 0; done < votes; done += ids.length)
+                skips += strings ? stringRound(ids) : primitiveRound(ids);
+        });
+        long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        if(print)
+            System.out.printf("%-10d %-10s %15.1f %15.2f%n", ids.length, name, (double) nanos / votes, (double) bytes / votes);
+    }
+
+    // the old skip command, where a user's id is formatted as a string on every call
+    private static int stringRound(long[] ids)
+    {
+        Set<String> votes = new HashSet<>();
+        int skipped = 0;
+        for(long voter: ids)
+        {
+            int listeners = (int) Arrays.stream(ids).count();
+            if(!votes.contains(Long.toUnsignedString(voter)))
+                votes.add(Long.toUnsignedString(voter));
+            int skippers = (int) Arrays.stream(ids).filter(id -> votes.contains(Long.toUnsignedString(id))).count();
+            if(skippers >= (int) Math.ceil(listeners * SKIP_RATIO))
+            {
+                votes.clear();
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    // the listener tracker, where the counts only change by one per vote
+    private static int primitiveRound(long[] ids)
+    {
+        if(MEMBERS.size() != ids.length)
+        {
+            MEMBERS.clear();
+            for(long id: ids)
+                MEMBERS.put(id, 0);
+        }
+        VOTE_TIMES.clear();
+        int listeners = MEMBERS.size();
+        int votersPresent = 0;
+        int skipped = 0;
+        for(long voter: ids)
+        {
+            if(VOTE_TIMES.containsKey(voter))
+                continue;
+            VOTE_TIMES.put(voter, voter);
+            if(MEMBERS.containsKey(voter))
+                votersPresent++;
+            if(votersPresent >= (int) Math.ceil(listeners * SKIP_RATIO))
+            {
+                VOTE_TIMES.clear();
+                votersPresent = 0;
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    private static long[] createIds(int count)
+    {
+        Random random = new Random(count);
+        long[] ids = new long[count];
+        for(int i = 0; i < count; i++)
+            ids[i] = (random.nextLong() >>> 1) | 1;
+        return ids;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.benchmark;
+
+import com.jagrosh.jmusicbot.audio.SourceRoutes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compares finding the source manager of an identifier by trying the URL patterns of every
+ * source manager in the order they are registered, as happens when an identifier is offered
+ * to each of them, with {@link SourceRoutes}. The patterns are close to the ones the source
+ * managers match identifiers with. Only the cost of finding the owner is measured, not the
+ * cost of loading anything.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes com.jagrosh.jmusicbot.benchmark.SourceRoutingBenchmark}
+ *
+ * @author John Grosh <john.a.grosh@gmail.com>
+ */
+public class SourceRoutingBenchmark
+{
+    private final static int ROUNDS = 2_000_000;
+
+    private final static String[][] SOURCES = {
+        {"youtube", "^(?:ytsearch:|ytmsearch:)",
+            "^(?:https?://)?(?:www\\.|m\\.|music\\.)?youtube\\.com/(?:watch\\?(?:.*&)?v=|playlist\\?(?:.*&)?list=|shorts/|embed/)[a-zA-Z0-9_-]+.*",
+            "^(?:https?://)?(?:www\\.)?youtu\\.be/[a-zA-Z0-9_-]{11}.*"},
+        {"soundcloud", "^scsearch:",
+            "^(?:https?://)?(?:www\\.|m\\.)?soundcloud\\.com/[a-zA-Z0-9-_]+/[a-zA-Z0-9-_]+/?(?:\\?.*|)$",
+            "^(?:https?://)?(?:www\\.|m\\.)?soundcloud\\.com/[a-zA-Z0-9-_]+/sets/[a-zA-Z0-9-_]+/?(?:\\?.*|)$"},
+        {"bandcamp", "^(?:https?://)?(?:[^.]+\\.|)bandcamp\\.com/(?:track|album)/[a-zA-Z0-9-_]+/?(?:\\?.*|)$"},
+        {"vimeo", "^(?:https?://)?(?:www\\.)?vimeo\\.com/[0-9]+(?:\\?.*|)$"},
+        {"twitch", "^(?:https?://)?(?:www\\.|go\\.|m\\.)?twitch\\.tv/([^/]+)$"},
+        {"beam", "^(?:https?://)?(?:www\\.)?beam\\.pro/([^/]+)$"},
+        {"getyarn", "^(?:https?://)?(?:[^.]+\\.|)getyarn\\.io/yarn-clip/(.*)$"},
+        {"nico", "^(?:https?://)?(?:www\\.)?nicovideo\\.jp/watch/(sm[0-9]+)(?:\\?.*|)$"},
+    };
+
+    private final static String[] IDENTIFIERS = {
+        "ytsearch:never gonna give you up",
+        "ytsearch:lofi hip hop radio beats to relax study to",
+        "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+        "https://youtu.be/dQw4w9WgXcQ",
+        "https://music.youtube.com/playlist?list=PLFgquLnL59alCl_2TQvOiD5Vgm1hCaGSI",
+        "https://soundcloud.com/artist/some-track",
+        "scsearch:chillhop",
+        "https://artist.bandcamp.com/album/some-album",
+        "https://vimeo.com/76979871",
+        "https://www.twitch.tv/somechannel",
+        "https://www.nicovideo.jp/watch/sm9",
+        "https://example.com/stream.mp3",
+    };
+
+    public static void main(String[] args)
+    {
+        List<String> names = new ArrayList<>();
+        List<Pattern[]> patterns = new ArrayList<>();
+        for(String[] source: SOURCES)
+        {
+            names.add(source[0]);
+            Pattern[] compiled = new Pattern[source.length - 1];
+            for(int i = 1; i < source.length; i++)
+                compiled[i - 1] = Pattern.compile(source[i]);
+            patterns.add(compiled);
+        }
+        SourceRoutes<String> routes = new SourceRoutes<String>()
+                .addPrefix("ytsearch:", "youtube")
+                .addPrefix("ytmsearch:", "youtube")
+                .addPrefix("scsearch:", "soundcloud")
+                .addDomain("youtube.com", "youtube")
+                .addDomain("youtu.be", "youtube")
+                .addDomain("soundcloud.com", "soundcloud")
+                .addDomain("bandcamp.com", "bandcamp")
+                .addDomain("vimeo.com", "vimeo")
+                .addDomain("twitch.tv", "twitch")
+                .addDomain("getyarn.io", "getyarn")
+                .addDomain("nicovideo.jp", "nico");
+
+        // both have to agree on every identifier, or the comparison means nothing
+        for(String identifier: IDENTIFIERS)
+        {
+            String scanned = scan(names, patterns, identifier), routed = routes.route(identifier);
+            if(scanned == null ? routed != null : !scanned.equals(routed))
+                throw new IllegalStateException(identifier + ": scanned " + scanned + ", routed " + routed);
+        }
+
+        System.out.printf("%,d identifiers%n", ROUNDS * IDENTIFIERS.length);
+        System.out.printf("%-10s %15s%n", "lookup", "ns/identifier");
+        // the first runs only warm up
+        for(int run = 0; run < 4; run++)
+        {
+            boolean print = run >= 2;
+            long start = System.nanoTime();
+            int found = 0;
+            for(int i = 0; i < ROUNDS; i++)
+                for(String identifier: IDENTIFIERS)
+                    if(scan(names, patterns, identifier) != null)
+                        found++;
+            report(print, "scan", start, found);
+
+            start = System.nanoTime();
+            found = 0;
+            for(int i = 0; i < ROUNDS; i++)
+                for(String identifier: IDENTIFIERS)
+                    if(routes.route(identifier) != null)
+                        found++;
+            report(print, "routes", start, found);
+        }
+    }
+
+    private static String scan(List<String> names, List<Pattern[]> patterns, String identifier)
+    {
+        for(int i = 0; i < names.size(); i++)
+            for(Pattern pattern: patterns.get(i))
+                if(pattern.matcher(identifier).find())
+                    return names.get(i);
+        return null;
+    }
+
+    private static void report(boolean print, String name, long start, int found)
+    {
+        double nanos = (double) (System.nanoTime() - start) / ((long) ROUNDS * IDENTIFIERS.length);
+        if(print)
+            System.out.printf("%-10s %15.1f   (%d found)%n", name, nanos, found);
+    }
+}